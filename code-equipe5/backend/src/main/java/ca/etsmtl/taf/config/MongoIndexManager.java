@@ -0,0 +1,67 @@
+// MongoIndexManager.java
+package ca.etsmtl.taf.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+/**
+ * Crée au démarrage les index des collections du dashboard. Les requêtes du
+ * dashboard filtrent toujours sur le projet puis sur une plage de dates, ou
+ * cherchent un run par son identifiant.
+ */
+@Component
+public class MongoIndexManager {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexManager.class);
+
+    private final MongoTemplate mongo;
+
+    public MongoIndexManager(MongoTemplate mongo) {
+        this.mongo = mongo;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        // test_cases : recherche (curseur sur executedAt puis _id), fenêtres par projet, détail d'un run
+        ensure("test_cases", new Index().on("project", Sort.Direction.ASC).on("executedAt", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC));
+        ensure("test_cases", new Index().on("project", Sort.Direction.ASC).on("status", Sort.Direction.ASC)
+                .on("executedAt", Sort.Direction.DESC).on("_id", Sort.Direction.DESC));
+        ensure("test_cases", new Index().on("runId", Sort.Direction.ASC).on("executedAt", Sort.Direction.ASC));
+        // documents pas encore comptés ou comptés récemment, relus par TestCaseIngestWatcher dans l'ordre d'exécution
+        ensure("test_cases", new Index().on("ingestedAt", Sort.Direction.ASC).on("executedAt", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC));
+
+        // test_runs : cartes des derniers runs, passrate, détail d'un run
+        ensure("test_runs", new Index().on("pipeline.runId", Sort.Direction.ASC));
+        ensure("test_runs", new Index().on("project.key", Sort.Direction.ASC).on("createdAt", Sort.Direction.DESC));
+        ensure("test_runs", new Index().on("project.key", Sort.Direction.ASC).on("run.status", Sort.Direction.ASC)
+                .on("createdAt", Sort.Direction.DESC));
+        // résumés matérialisés récents, revus par RunSummarizer
+        ensure("test_runs", new Index().on("materialized", Sort.Direction.ASC).on("summarizedAt", Sort.Direction.DESC)
+                .sparse());
+
+        // classement des tests instables
+        ensure("test_flakiness", new Index().on("project", Sort.Direction.ASC).on("score", Sort.Direction.DESC));
+
+        // rollups journaliers
+        ensure("test_case_rollups", new Index().on("project", Sort.Direction.ASC).on("day", Sort.Direction.ASC));
+        // contributions de chaque test_case, regroupées par rollup au recalcul
+        ensure("test_case_rollup_cases", new Index().on("rollup", Sort.Direction.ASC));
+    }
+
+    private void ensure(String collection, Index index) {
+        try {
+            mongo.indexOps(collection).ensureIndex(index);
+        } catch (Exception e) {
+            // un index manquant ralentit le dashboard sans l'empêcher de répondre
+            log.warn("Impossible de créer l'index {} sur {}", index.getIndexKeys(), collection, e);
+        }
+    }
+}
@@ -5,9 +5,13 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import ca.etsmtl.taf.service.ApiBddService;
 
+import javax.servlet.http.HttpServletRequest;
+import java.time.format.DateTimeParseException;
+
 @Profile("!local")
 @RestController
 @RequestMapping("/api/results")
@@ -25,7 +29,22 @@ public class ApiBddController {
         try {
             apiBddService.saveResult(module, resultData);
             return ResponseEntity.status(HttpStatus.CREATED).body("Résultats sauvegardés avec succès pour le module: " + module);
-        } catch (IllegalArgumentException e) {
+        } catch (IllegalArgumentException | DateTimeParseException | JsonProcessingException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Erreur lors de la sauvegarde des résultats.");
+        }
+    }
+
+    // POST large payloads given a specific module, read as a stream
+    @PostMapping("/{module}/bulk")
+    public ResponseEntity<String> saveResultsBulk(
+            @PathVariable String module,
+            HttpServletRequest request) {
+        try {
+            long count = apiBddService.saveResults(module, request.getInputStream());
+            return ResponseEntity.status(HttpStatus.CREATED).body(count + " résultats sauvegardés pour le module: " + module);
+        } catch (IllegalArgumentException | DateTimeParseException | JsonProcessingException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Erreur lors de la sauvegarde des résultats.");
@@ -1,9 +1,15 @@
 package ca.etsmtl.taf.controller;
 
 import ca.etsmtl.taf.dto.*;
+import ca.etsmtl.taf.service.DashboardCache;
+import ca.etsmtl.taf.service.DashboardLiveService;
 import ca.etsmtl.taf.service.DashboardService;
+import ca.etsmtl.taf.service.FlakinessService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.List;
 import java.util.Map;
 
@@ -14,10 +20,23 @@ public class DashboardController {
 
     private final DashboardService service;
     private final DashboardService dashboardService;
+    private final DashboardCache cache;
+    private final DashboardLiveService live;
+    private final FlakinessService flakiness;
 
-    public DashboardController(DashboardService service, DashboardService dashboardService) {
+    public DashboardController(DashboardService service, DashboardService dashboardService,
+                               DashboardCache cache, DashboardLiveService live, FlakinessService flakiness) {
         this.service = service;
         this.dashboardService = dashboardService;
+        this.cache = cache;
+        this.live = live;
+        this.flakiness = flakiness;
+    }
+
+    /** Événements {@code run} et {@code stats} du projet, voir DashboardLiveService. */
+    @GetMapping(path = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter live(@RequestParam String project) {
+        return live.subscribe(project);
     }
 
     @GetMapping("/report")
@@ -25,7 +44,7 @@ public class DashboardController {
             @RequestParam String project,
             @RequestParam(required = false) String status,
             @RequestParam(defaultValue = "5") int limit) {
-        return service.latestRuns(project, status, limit);
+        return cache.get("report", project, () -> service.latestRuns(project, status, limit), status, limit);
     }
 
     @GetMapping("/report/run/{runId}")
@@ -34,8 +53,22 @@ public class DashboardController {
         return d == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(d);
     }
 
+    @GetMapping("/report/run/{runId}/cases")
+    public Map<String,Object> runCases(
+            @PathVariable String runId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
+        return service.runCases(runId, page, size);
+    }
+
+    /** Tous les tests du run, un objet JSON par ligne. */
+    @GetMapping(path = "/report/run/{runId}/cases.ndjson", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody runCasesNdjson(@PathVariable String runId) {
+        return out -> service.writeRunCases(runId, out);
+    }
+
     @GetMapping("/cases")
-    public Map<String,Object> searchCases(
+    public ResponseEntity<Map<String,Object>> searchCases(
             @RequestParam String project,
             @RequestParam(required = false) String type,
             @RequestParam(required = false) String tool,
@@ -43,15 +76,32 @@ public class DashboardController {
             @RequestParam(required = false) String from,
             @RequestParam(required = false) String to,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
-        return service.searchCases(project, type, tool, status, from, to, page, size);
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        try {
+            return ResponseEntity.ok(service.searchCases(project, type, tool, status, from, to, page, size, cursor, withTotal));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/overview")
+    public OverviewDto overview(
+            @RequestParam String project,
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(defaultValue = "5") int limit,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String tool) {
+        return cache.get("overview", project, () -> dashboardService.overview(project, days, limit, status, tool),
+                days, limit, status, tool);
     }
 
     @GetMapping("/summary/passrate")
     public List<PassratePointDto> passrate(
             @RequestParam String project,
             @RequestParam(defaultValue = "14") int days) {
-        return service.passrate(project, days);
+        return cache.get("passrate", project, () -> service.passrate(project, days), days);
     }
 
 
@@ -59,7 +109,7 @@ public class DashboardController {
     public List<ToolStatDto> byTool(
             @RequestParam String project,
             @RequestParam(defaultValue = "30") int days) {
-        return dashboardService.statsByTool(project, days);
+        return cache.get("by-tool", project, () -> dashboardService.statsByTool(project, days), days);
     }
 
     @GetMapping("/summary/top-fails")
@@ -67,7 +117,7 @@ public class DashboardController {
             @RequestParam String project,
             @RequestParam(defaultValue = "30") int days,
             @RequestParam(defaultValue = "5") int limit) {
-        return dashboardService.topFailingTests(project, days, limit);
+        return cache.get("top-fails", project, () -> dashboardService.topFailingTests(project, days, limit), days, limit);
     }
 
     @GetMapping("/summary/flaky")
@@ -75,16 +125,25 @@ public class DashboardController {
             @RequestParam String project,
             @RequestParam(defaultValue = "30") int days,
             @RequestParam(defaultValue = "5") int limit) {
-        return dashboardService.flakyTests(project, days, limit);
+        return cache.get("flaky", project, () -> dashboardService.flakyTests(project, days, limit), days, limit);
     }
 
 
+    /** Tests classés par score d'instabilité, voir FlakinessService. */
+    @GetMapping("/flaky")
+    public List<FlakyTestDto> flakyRanking(
+            @RequestParam String project,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "5") int minRuns) {
+        return cache.get("flaky-ranking", project, () -> flakiness.ranked(project, limit, minRuns), limit, minRuns);
+    }
+
     @GetMapping("/dashboard/summary/tool-passrate")
     public List<ToolRateDto> toolPassrate(
             @RequestParam String project,
             @RequestParam(required = false, defaultValue = "30") int days
     ) {
-        return dashboardService.passrateByTool(project, days);
+        return cache.get("tool-passrate", project, () -> dashboardService.passrateByTool(project, days), days);
     }
 
 
@@ -95,7 +154,8 @@ public class DashboardController {
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String tool
     ) {
-        return dashboardService.passrateByType(project, days, status, tool);
+        return cache.get("by-type", project, () -> dashboardService.passrateByType(project, days, status, tool),
+                days, status, tool);
     }
 
     @GetMapping("/summary/avg-duration")
@@ -104,7 +164,7 @@ public class DashboardController {
             @RequestParam(defaultValue = "30") int days,
             @RequestParam(required = false) String tool
     ) {
-        return dashboardService.avgDuration(project, days, tool);
+        return cache.get("avg-duration", project, () -> dashboardService.avgDuration(project, days, tool), days, tool);
     }
 
 
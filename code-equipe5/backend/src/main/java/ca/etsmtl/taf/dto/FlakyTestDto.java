@@ -0,0 +1,16 @@
+package ca.etsmtl.taf.dto;
+
+import java.time.Instant;
+
+public class FlakyTestDto {
+    public String project;
+    public String tool;
+    public String name;
+    public long runs;
+    public long flips;
+    public double failureRate;
+    public double flipRate;
+    public double score;         // borne basse de Wilson du taux de bascule récent
+    public String lastOutcome;   // passed | failed | mixed
+    public Instant lastExecutedAt;
+}
@@ -0,0 +1,13 @@
+package ca.etsmtl.taf.dto;
+
+import java.time.Instant;
+
+/** Tests ajoutés à un projet depuis le dernier envoi du flux live. */
+public class LiveStatsDeltaDto {
+    public String projectKey;
+    public long total;
+    public long passed;
+    public long failed;
+    public Instant from;
+    public Instant to;
+}
@@ -0,0 +1,12 @@
+package ca.etsmtl.taf.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public class OverviewDto {
+    public List<PassratePointDto> passrate;
+    public List<ToolStatDto> byTool;
+    public List<Map> byType;
+    public List<NamedCountDto> topFails;
+    public List<NamedCountDto> flaky;
+}
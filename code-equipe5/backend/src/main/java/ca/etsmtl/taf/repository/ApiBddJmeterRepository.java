@@ -5,5 +5,5 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface ApiBddJmeterRepository extends JpaRepository<ApiBddJmeterEntity, Long> {
+public interface ApiBddJmeterRepository extends JpaRepository<ApiBddJmeterEntity, Long>, ApiBddJmeterRepositoryCustom {
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package ca.etsmtl.taf.repository;
+
+import ca.etsmtl.taf.entity.ApiBddJmeterEntity;
+
+import java.util.List;
+
+public interface ApiBddJmeterRepositoryCustom {
+
+    /**
+     * Insère les résultats en un seul lot JDBC, sans passer par Hibernate :
+     * l'identifiant IDENTITY de l'entité empêche Hibernate de regrouper les
+     * insertions.
+     */
+    void batchInsert(List<ApiBddJmeterEntity> results);
+}
@@ -0,0 +1,54 @@
+package ca.etsmtl.taf.repository;
+
+import ca.etsmtl.taf.entity.ApiBddJmeterEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+public class ApiBddJmeterRepositoryImpl implements ApiBddJmeterRepositoryCustom {
+
+    private static final String INSERT_SQL = "INSERT INTO tf.jmeter_results (time_stamp, date, elapsed, label, "
+            + "response_code, response_message, thread_name, data_type, success, failure_message, bytes, sent_bytes, "
+            + "grp_threads, all_threads, url, latency, idle_time, connect) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void batchInsert(List<ApiBddJmeterEntity> results) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, results, results.size(), (ps, result) -> {
+            ps.setLong(1, result.getTimeStamp());
+            ps.setTimestamp(2, Timestamp.valueOf(result.getDate()));
+            ps.setInt(3, result.getElapsed());
+            ps.setString(4, result.getLabel());
+            ps.setString(5, result.getResponseCode());
+            ps.setString(6, result.getResponseMessage());
+            ps.setString(7, result.getThreadName());
+            ps.setString(8, result.getDataType());
+            setNullable(ps, 9, result.getSuccess(), Types.BOOLEAN);
+            ps.setString(10, result.getFailureMessage());
+            setNullable(ps, 11, result.getBytes(), Types.INTEGER);
+            setNullable(ps, 12, result.getSentBytes(), Types.INTEGER);
+            setNullable(ps, 13, result.getGrpThreads(), Types.INTEGER);
+            setNullable(ps, 14, result.getAllThreads(), Types.INTEGER);
+            ps.setString(15, result.getUrl());
+            setNullable(ps, 16, result.getLatency(), Types.INTEGER);
+            setNullable(ps, 17, result.getIdleTime(), Types.INTEGER);
+            setNullable(ps, 18, result.getConnect(), Types.INTEGER);
+        });
+    }
+
+    private static void setNullable(PreparedStatement ps, int index, Object value, int sqlType) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, sqlType);
+        } else {
+            ps.setObject(index, value, sqlType);
+        }
+    }
+}
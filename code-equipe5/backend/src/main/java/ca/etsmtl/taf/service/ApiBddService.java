@@ -1,12 +1,20 @@
 package ca.etsmtl.taf.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import ca.etsmtl.taf.repository.ApiBddJmeterRepository;
 import ca.etsmtl.taf.entity.ApiBddJmeterEntity;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.time.format.DateTimeFormatter;
@@ -14,39 +22,44 @@ import java.time.format.DateTimeFormatter;
 @Service
 public class ApiBddService {
 
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     @Autowired
     private ApiBddJmeterRepository jMeterResultRepository;
 
-    public void saveResult(String module, JsonNode resultData) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${taf.results.batch-size:1000}")
+    private int batchSize;
+
+    // Un contenu invalide (IOException) annule aussi les lots déjà insérés
+    @Transactional(rollbackFor = Exception.class)
+    public void saveResult(String module, JsonNode resultData) throws IOException {
+        try (JsonParser parser = objectMapper.treeAsTokens(resultData)) {
+            saveResults(module, parser);
+        }
+    }
+
+    /**
+     * Enregistre les résultats en lisant le corps de la requête au fil de
+     * l'eau : seuls {@code taf.results.batch-size} résultats sont en mémoire à
+     * la fois, chaque lot étant inséré en un seul batch JDBC. Si le contenu
+     * est invalide, aucun lot n'est conservé.
+     *
+     * @return Le nombre de résultats enregistrés
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public long saveResults(String module, InputStream resultData) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(resultData)) {
+            return saveResults(module, parser);
+        }
+    }
+
+    private long saveResults(String module, JsonParser parser) throws IOException {
         switch (module.toLowerCase()) {
             case "jmeter":
-            resultData.get("results").forEach(result -> {
-                ApiBddJmeterEntity jmeterResult = new ApiBddJmeterEntity();
-                
-                // Conversion des valeurs String en types appropriés
-                jmeterResult.setTimeStamp(Long.parseLong(result.get("timeStamp").asText()));
-                jmeterResult.setDate(LocalDateTime.parse(result.get("date").asText(), formatter));
-                jmeterResult.setElapsed(Integer.parseInt(result.get("elapsed").asText()));
-                jmeterResult.setLabel(result.get("label").asText());
-                jmeterResult.setResponseCode(result.get("responseCode").asText());
-                jmeterResult.setResponseMessage(result.get("responseMessage").asText());
-                jmeterResult.setThreadName(result.get("threadName").asText());
-                jmeterResult.setDataType(result.get("dataType").asText());
-                jmeterResult.setSuccess(Boolean.parseBoolean(result.get("success").asText()));
-                jmeterResult.setFailureMessage(result.get("failureMessage").asText());
-                jmeterResult.setBytes(Integer.parseInt(result.get("bytes").asText()));
-                jmeterResult.setSentBytes(Integer.parseInt(result.get("sentBytes").asText()));
-                jmeterResult.setGrpThreads(Integer.parseInt(result.get("grpThreads").asText()));
-                jmeterResult.setAllThreads(Integer.parseInt(result.get("allThreads").asText()));
-                jmeterResult.setUrl(result.get("URL").asText());
-                jmeterResult.setLatency(Integer.parseInt(result.get("Latency").asText()));
-                jmeterResult.setIdleTime(Integer.parseInt(result.get("IdleTime").asText()));
-                jmeterResult.setConnect(Integer.parseInt(result.get("Connect").asText()));
-                
-                jMeterResultRepository.save(jmeterResult);
-            });
-            break;
+                return saveJmeterResults(parser);
             // à l'avenir Rajouter pour gatling, selenium, etc.
 
             default:
@@ -54,6 +67,81 @@ public class ApiBddService {
         }
     }
 
+    // Accepte { "results": [ ... ] } ou directement le tableau des résultats
+    private long saveJmeterResults(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+            return saveJmeterResultsArray(parser);
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Le contenu doit être un objet JSON avec un tableau \"results\".");
+        }
+        long count = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            token = parser.nextToken();
+            if ("results".equals(field) && token == JsonToken.START_ARRAY) {
+                count += saveJmeterResultsArray(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return count;
+    }
+
+    private long saveJmeterResultsArray(JsonParser parser) throws IOException {
+        List<ApiBddJmeterEntity> batch = new ArrayList<>(batchSize);
+        long count = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            batch.add(readJmeterResult(parser));
+            count++;
+            if (batch.size() == batchSize) {
+                jMeterResultRepository.batchInsert(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jMeterResultRepository.batchInsert(batch);
+        }
+        return count;
+    }
+
+    // Les valeurs peuvent être des nombres ou des chaînes, comme dans le CSV de JMeter
+    private ApiBddJmeterEntity readJmeterResult(JsonParser parser) throws IOException {
+        ApiBddJmeterEntity jmeterResult = new ApiBddJmeterEntity();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "timeStamp": jmeterResult.setTimeStamp(parser.getValueAsLong()); break;
+                case "date": jmeterResult.setDate(LocalDateTime.parse(parser.getValueAsString(), DATE_FORMATTER)); break;
+                case "elapsed": jmeterResult.setElapsed(parser.getValueAsInt()); break;
+                case "label": jmeterResult.setLabel(parser.getValueAsString()); break;
+                case "responseCode": jmeterResult.setResponseCode(parser.getValueAsString()); break;
+                case "responseMessage": jmeterResult.setResponseMessage(parser.getValueAsString()); break;
+                case "threadName": jmeterResult.setThreadName(parser.getValueAsString()); break;
+                case "dataType": jmeterResult.setDataType(parser.getValueAsString()); break;
+                case "success": jmeterResult.setSuccess(parser.getValueAsBoolean()); break;
+                case "failureMessage": jmeterResult.setFailureMessage(parser.getValueAsString()); break;
+                case "bytes": jmeterResult.setBytes(parser.getValueAsInt()); break;
+                case "sentBytes": jmeterResult.setSentBytes(parser.getValueAsInt()); break;
+                case "grpThreads": jmeterResult.setGrpThreads(parser.getValueAsInt()); break;
+                case "allThreads": jmeterResult.setAllThreads(parser.getValueAsInt()); break;
+                case "URL": jmeterResult.setUrl(parser.getValueAsString()); break;
+                case "Latency": jmeterResult.setLatency(parser.getValueAsInt()); break;
+                case "IdleTime": jmeterResult.setIdleTime(parser.getValueAsInt()); break;
+                case "Connect": jmeterResult.setConnect(parser.getValueAsInt()); break;
+                default: parser.skipChildren();
+            }
+        }
+        if (jmeterResult.getTimeStamp() == null || jmeterResult.getDate() == null || jmeterResult.getElapsed() == null) {
+            throw new IllegalArgumentException("Les champs timeStamp, date et elapsed sont obligatoires.");
+        }
+        return jmeterResult;
+    }
+
      // GET all results for a module
      public List<?> getAllResultsByModule(String module) {
         switch (module.toLowerCase()) {
@@ -0,0 +1,102 @@
+package ca.etsmtl.taf.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache des réponses du dashboard, par endpoint, projet et paramètres. Les
+ * dashboards ouverts en même temps sur un projet partagent la même réponse.
+ * Les entrées d'un projet sont invalidées dès que de nouveaux tests de ce
+ * projet sont ingérés, ou qu'un de ses runs change (voir
+ * {@link DashboardLiveService}). Le TTL borne le reste, par exemple les runs
+ * écrits sans replica set.
+ */
+@Component
+public class DashboardCache {
+
+    private final Cache<Key, Object> cache;
+    /** Incrémenté à chaque invalidation d'un projet, voir {@link #get}. */
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public DashboardCache(@Value("${taf.dashboard.cache.ttl-seconds:60}") long ttlSeconds,
+                          @Value("${taf.dashboard.cache.max-entries:2000}") long maxEntries) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxEntries)
+                .build();
+    }
+
+    /**
+     * La réponse en cache, sinon celle de {@code loader}. Les requêtes
+     * identiques qui arrivent pendant le calcul attendent son résultat au lieu
+     * de relancer l'agrégation.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String endpoint, String project, Supplier<T> loader, Object... params) {
+        Key key = new Key(endpoint, project, Arrays.asList(params));
+        long generation = generation(project).get();
+        T value = (T) cache.get(key, k -> loader.get());
+        // le projet a été invalidé pendant le calcul : la réponse est peut-être
+        // déjà périmée, on la rend sans la garder
+        if (generation(project).get() != generation) {
+            cache.invalidate(key);
+        }
+        return value;
+    }
+
+    public void invalidateProject(String project) {
+        generation(project).incrementAndGet();
+        cache.asMap().keySet().removeIf(k -> Objects.equals(k.project, project));
+    }
+
+    // après la mise à jour des rollups, que les réponses relisent
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onTestCasesIngested(TestCasesIngestedEvent event) {
+        event.getProjects().forEach(this::invalidateProject);
+    }
+
+    private AtomicLong generation(String project) {
+        return generations.computeIfAbsent(String.valueOf(project), p -> new AtomicLong());
+    }
+
+    private static final class Key {
+        private final String endpoint;
+        private final String project;
+        private final List<Object> params;
+
+        private Key(String endpoint, String project, List<Object> params) {
+            this.endpoint = endpoint;
+            this.project = project;
+            this.params = params;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return endpoint.equals(other.endpoint) && Objects.equals(project, other.project)
+                    && params.equals(other.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpoint, project, params);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package ca.etsmtl.taf.service;
+
+import ca.etsmtl.taf.dto.LiveStatsDeltaDto;
+import ca.etsmtl.taf.dto.RunCardDto;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Flux live du dashboard par projet, en server-sent events. Un seul change
+ * stream suit test_runs et test_cases pour tous les clients abonnés :
+ * <ul>
+ *   <li>{@code run} : la carte d'un run créé ou mis à jour ;</li>
+ *   <li>{@code stats} : les tests ajoutés depuis le dernier envoi, regroupés
+ *       toutes les {@code taf.dashboard.live.flush-ms}.</li>
+ * </ul>
+ * Sans replica set, Mongo n'a pas de change stream : les {@code stats}
+ * viennent alors de {@link TestCaseIngestWatcher} et les runs ne sont pas
+ * poussés.
+ */
+@Service
+public class DashboardLiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardLiveService.class);
+
+    /** « The $changeStream stage is only supported on replica sets » */
+    private static final int CHANGE_STREAM_NOT_SUPPORTED = 40573;
+    /** Le point de reprise est sorti de l'oplog */
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+    private static final long RETRY_DELAY_MS = 5000;
+
+    private final MongoTemplate mongo;
+    private final DashboardCache cache;
+    private final long emitterTimeoutMs;
+
+    private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, LiveStatsDeltaDto> pending = new ConcurrentHashMap<>();
+
+    private volatile boolean running = true;
+    private volatile boolean changeStreamActive;
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+    private BsonDocument resumeToken;
+
+    public DashboardLiveService(MongoTemplate mongo, DashboardCache cache,
+                                @Value("${taf.dashboard.live.sse-timeout-ms:1800000}") long emitterTimeoutMs) {
+        this.mongo = mongo;
+        this.cache = cache;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+    }
+
+    public SseEmitter subscribe(String project) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        List<SseEmitter> emitters = subscribers.computeIfAbsent(project, p -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        return emitter;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread tailer = new Thread(this::tail, "dashboard-change-stream");
+        tailer.setDaemon(true);
+        tailer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> c = cursor;
+        if (c != null) c.close();
+    }
+
+    private void tail() {
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> c = openChangeStream()) {
+                cursor = c;
+                changeStreamActive = true;
+                log.info("Flux live du dashboard branché sur le change stream");
+                while (running) {
+                    ChangeStreamDocument<Document> change = c.next();
+                    resumeToken = change.getResumeToken();
+                    dispatch(change);
+                }
+            } catch (MongoCommandException e) {
+                changeStreamActive = false;
+                if (e.getErrorCode() == CHANGE_STREAM_NOT_SUPPORTED) {
+                    log.info("Pas de change stream sans replica set, le flux live suit l'ingestion des tests");
+                    return;
+                }
+                if (e.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) {
+                    // les écritures manquées restent visibles au prochain chargement du dashboard
+                    resumeToken = null;
+                }
+                if (!retryAfter(e)) return;
+            } catch (MongoException | IllegalStateException e) {
+                changeStreamActive = false;
+                if (!retryAfter(e)) return;
+            }
+        }
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> openChangeStream() {
+        List<Bson> pipeline = Arrays.asList(
+                Aggregates.match(Filters.or(
+                        Filters.and(Filters.eq("ns.coll", "test_runs"),
+                                Filters.in("operationType", "insert", "update", "replace")),
+                        Filters.and(Filters.eq("ns.coll", "test_cases"),
+                                Filters.eq("operationType", "insert")))),
+                // seuls les champs lus par dispatch() traversent le curseur
+                Aggregates.project(Projections.include(
+                        "operationType", "ns", "documentKey",
+                        "fullDocument.project", "fullDocument.pipeline", "fullDocument.run",
+                        "fullDocument.createdAt", "fullDocument.status")));
+        ChangeStreamIterable<Document> stream = mongo.getDb().watch(pipeline)
+                .fullDocument(FullDocument.UPDATE_LOOKUP);
+        if (resumeToken != null) stream = stream.resumeAfter(resumeToken);
+        return stream.cursor();
+    }
+
+    private boolean retryAfter(Exception e) {
+        if (!running) return false;
+        log.warn("Change stream du dashboard interrompu, reprise dans {} ms", RETRY_DELAY_MS, e);
+        try {
+            Thread.sleep(RETRY_DELAY_MS);
+            return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void dispatch(ChangeStreamDocument<Document> change) {
+        Document doc = change.getFullDocument();
+        if (doc == null || change.getNamespace() == null) return;
+
+        if ("test_runs".equals(change.getNamespace().getCollectionName())) {
+            RunCardDto card = DashboardService.toRunCard(doc);
+            if (card.projectKey == null) return;
+            // écriture que l'ingestion des test_cases ne voit pas
+            cache.invalidateProject(card.projectKey);
+            publish(card.projectKey, "run", card);
+        } else {
+            recordCase(doc);
+        }
+    }
+
+    // sans change stream, les nouveaux tests arrivent par l'ingestion
+    @EventListener
+    public void onTestCasesIngested(TestCasesIngestedEvent event) {
+        if (changeStreamActive) return;
+        // les deltas ne portent que les nouveaux tests
+        event.getCases().stream()
+                .filter(c -> !TestCasesIngestedEvent.isCorrection(c))
+                .forEach(this::recordCase);
+    }
+
+    private void recordCase(Document c) {
+        Object project = c.get("project");
+        if (project == null || !subscribers.containsKey(String.valueOf(project))) return;
+        Object status = c.get("status");
+        pending.compute(String.valueOf(project), (p, d) -> {
+            if (d == null) {
+                d = new LiveStatsDeltaDto();
+                d.projectKey = p;
+                d.from = Instant.now();
+            }
+            d.total++;
+            if ("passed".equals(status)) d.passed++;
+            if ("failed".equals(status)) d.failed++;
+            return d;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${taf.dashboard.live.flush-ms:1000}")
+    public void flush() {
+        for (String project : pending.keySet()) {
+            LiveStatsDeltaDto delta = pending.remove(project);
+            if (delta == null) continue;
+            delta.to = Instant.now();
+            publish(project, "stats", delta);
+        }
+    }
+
+    private void publish(String project, String eventName, Object data) {
+        List<SseEmitter> emitters = subscribers.get(project);
+        if (emitters == null) return;
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name(eventName).data(data));
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ca.etsmtl.taf.service;
+
+import org.bson.Document;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+/**
+ * Maintient {@code test_case_rollups} : un document par projet × jour × outil ×
+ * type × nom de test, avec les compteurs total/passed/failed. Les résumés du
+ * dashboard lisent ces quelques centaines de documents au lieu de parcourir
+ * {@code test_cases} sur toute la fenêtre.
+ * <p>
+ * Chaque document de {@code test_cases} laisse sa contribution dans
+ * {@code test_case_rollup_cases}, sous son propre {@code _id}, et les compteurs
+ * des rollups touchés sont recalculés depuis ces contributions. Un lot
+ * republié après un échec réécrit donc les mêmes contributions au lieu d'être
+ * compté deux fois.
+ */
+@Service
+public class DashboardRollupService {
+
+    static final String COLLECTION = "test_case_rollups";
+    static final String CASES_COLLECTION = "test_case_rollup_cases";
+
+    private final MongoTemplate mongo;
+
+    public DashboardRollupService(MongoTemplate mongo) {
+        this.mongo = mongo;
+    }
+
+    // avant l'invalidation du DashboardCache
+    @EventListener
+    @Order(0)
+    public void onTestCasesIngested(TestCasesIngestedEvent event) {
+        List<Object> ids = new ArrayList<>();
+        Set<String> keys = new LinkedHashSet<>();
+        BulkOperations ops = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, CASES_COLLECTION);
+        for (Document c : event.getCases()) {
+            Object project = c.get("project");
+            Instant executedAt = DashboardService.toInstant(c.get("executedAt"));
+            if (project == null || executedAt == null) continue;
+
+            String day = LocalDate.ofInstant(executedAt, ZoneOffset.UTC).toString();
+            String key = project + "|" + day + "|" + c.get("tool") + "|" + c.get("type") + "|" + c.get("name");
+            ids.add(c.get("_id"));
+            keys.add(key);
+            ops.upsert(Query.query(Criteria.where("_id").is(c.get("_id"))), new Update()
+                    .set("rollup", key)
+                    .set("project", String.valueOf(project))
+                    .set("day", day)
+                    .set("tool", c.get("tool"))
+                    .set("type", c.get("type"))
+                    .set("name", c.get("name"))
+                    .set("status", c.get("status")));
+        }
+        if (ids.isEmpty()) return;
+
+        // un document corrigé peut quitter son ancien rollup
+        Query previous = Query.query(Criteria.where("_id").in(ids));
+        previous.fields().include("rollup");
+        for (Document d : mongo.find(previous, Document.class, CASES_COLLECTION)) {
+            keys.add(d.getString("rollup"));
+        }
+        ops.execute();
+
+        recount(keys);
+    }
+
+    /** Réécrit les compteurs des rollups donnés depuis leurs contributions. */
+    private void recount(Set<String> keys) {
+        Aggregation agg = newAggregation(
+                match(Criteria.where("rollup").in(keys)),
+                group("rollup")
+                        .first("project").as("project")
+                        .first("day").as("day")
+                        .first("tool").as("tool")
+                        .first("type").as("type")
+                        .first("name").as("name")
+                        .count().as("total")
+                        .sum(ConditionalOperators.when(Criteria.where("status").is("passed")).then(1).otherwise(0)).as("passed")
+                        .sum(ConditionalOperators.when(Criteria.where("status").is("failed")).then(1).otherwise(0)).as("failed"));
+
+        BulkOperations ops = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+        Set<String> emptied = new LinkedHashSet<>(keys);
+        for (Map r : mongo.aggregate(agg, CASES_COLLECTION, Map.class).getMappedResults()) {
+            String key = String.valueOf(r.get("_id"));
+            emptied.remove(key);
+            ops.upsert(Query.query(Criteria.where("_id").is(key)), new Update()
+                    .set("project", r.get("project"))
+                    .set("day", r.get("day"))
+                    .set("tool", r.get("tool"))
+                    .set("type", r.get("type"))
+                    .set("name", r.get("name"))
+                    .set("total", ((Number) r.get("total")).longValue())
+                    .set("passed", ((Number) r.get("passed")).longValue())
+                    .set("failed", ((Number) r.get("failed")).longValue()));
+        }
+        if (!emptied.isEmpty()) {
+            ops.remove(Query.query(Criteria.where("_id").in(emptied)));
+        }
+        ops.execute();
+    }
+}
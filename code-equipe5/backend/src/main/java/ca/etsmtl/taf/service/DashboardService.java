@@ -1,6 +1,12 @@
 package ca.etsmtl.taf.service;
 
 import ca.etsmtl.taf.dto.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoIterable;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.*;
@@ -8,6 +14,12 @@ import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
@@ -20,9 +32,13 @@ import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
 public class DashboardService {
 
     private final MongoTemplate mongo;
+    private final RunSummarizer summarizer;
+    private final ObjectMapper objectMapper;
 
-    public DashboardService(MongoTemplate mongo) {
+    public DashboardService(MongoTemplate mongo, RunSummarizer summarizer, ObjectMapper objectMapper) {
         this.mongo = mongo;
+        this.summarizer = summarizer;
+        this.objectMapper = objectMapper;
     }
 
     // ---- helpers ----
@@ -34,8 +50,24 @@ public class DashboardService {
         if (d == null || d.isBlank()) return null;
         try { return Instant.parse(d + "T23:59:59Z"); } catch (DateTimeParseException e) { return null; }
     }
+    /** Le pipeline précédé du $match donné. */
+    private static AggregationOperation[] withMatch(Criteria criteria, AggregationOperation... stages) {
+        AggregationOperation[] out = new AggregationOperation[stages.length + 1];
+        out[0] = match(criteria);
+        System.arraycopy(stages, 0, out, 1, stages.length);
+        return out;
+    }
+    /** Premier jour d'une fenêtre de {@code days} jours, aujourd'hui compris (30 par défaut). */
+    private static LocalDate windowStart(int days) {
+        int win = (days <= 0 || days > 365) ? 30 : days;
+        return LocalDate.now(ZoneOffset.UTC).minusDays(win - 1L);
+    }
+    /** Filtre des rollups d'un projet depuis le jour donné. */
+    private static Criteria rollupsSince(String project, LocalDate fromDay) {
+        return Criteria.where("project").is(project).and("day").gte(fromDay.toString());
+    }
     /** Convertit Date/Instant/String(ISO-8601) en Instant, sinon null. */
-    private static Instant toInstant(Object v) {
+    static Instant toInstant(Object v) {
         if (v == null) return null;
         if (v instanceof Instant) return (Instant) v;
         if (v instanceof Date) return ((Date) v).toInstant();
@@ -98,85 +130,172 @@ public class DashboardService {
         // mapping test_runs -> DTO
         List<RunCardDto> out = new ArrayList<>();
         for (Map r : rows) {
-            RunCardDto d = new RunCardDto();
-            Map proj = (Map) r.get("project");
-            Map run  = (Map) r.get("run");
-            Map stats = run == null ? null : (Map) run.get("stats");
-            Map pipe = (Map) r.get("pipeline");
-
-            d.projectKey = proj == null ? null : String.valueOf(proj.get("key"));
-            d.runId      = pipe == null ? null : String.valueOf(pipe.get("runId"));
-            d.status     = run == null ? null : String.valueOf(run.get("status"));
-            d.createdAt  = toInstant(r.get("createdAt"));
-            if (stats != null) {
-                d.total  = ((Number) stats.getOrDefault("total", 0)).longValue();
-                d.passed = ((Number) stats.getOrDefault("passed", 0)).longValue();
-                d.failed = ((Number) stats.getOrDefault("failed", 0)).longValue();
-            }
-            out.add(d);
+            out.add(toRunCard(r));
         }
         return out;
     }
 
+    /** Carte d'un run depuis son document test_runs. */
+    static RunCardDto toRunCard(Map r) {
+        RunCardDto d = new RunCardDto();
+        Map proj = (Map) r.get("project");
+        Map run  = (Map) r.get("run");
+        Map stats = run == null ? null : (Map) run.get("stats");
+        Map pipe = (Map) r.get("pipeline");
+
+        d.projectKey = proj == null ? null : String.valueOf(proj.get("key"));
+        d.runId      = pipe == null ? null : String.valueOf(pipe.get("runId"));
+        d.status     = run == null ? null : String.valueOf(run.get("status"));
+        d.createdAt  = toInstant(r.get("createdAt"));
+        if (stats != null) {
+            d.total  = ((Number) stats.getOrDefault("total", 0)).longValue();
+            d.passed = ((Number) stats.getOrDefault("passed", 0)).longValue();
+            d.failed = ((Number) stats.getOrDefault("failed", 0)).longValue();
+        }
+        return d;
+    }
+
     // ---- B) détail run ----
+    /** Champs des tests affichés par le frontend (liste et détail d'un cas). */
+    private static final String[] CASE_FIELDS =
+            { "runId", "suite", "type", "tool", "name", "status", "executedAt", "durationMs" };
+
+    /**
+     * En-tête d'un run : statut et stats, sans ses tests (voir
+     * {@link #runCases} et {@link #writeRunCases}). Un run qui n'a que des
+     * test_cases est d'abord résumé dans test_runs.
+     */
     public RunDetailDto runById(String runId) {
-        Map<?,?> run = mongo.findOne(Query.query(Criteria.where("pipeline.runId").is(runId)), Map.class, "test_runs");
-        if (run != null) {
-            RunDetailDto d = new RunDetailDto();
-            Map proj = (Map) run.get("project");
-            Map r    = (Map) run.get("run");
-            Map stats = r == null ? null : (Map) r.get("stats");
-            Map pipe  = (Map) run.get("pipeline");
-
-            d.projectKey = proj == null ? null : String.valueOf(proj.get("key"));
-            d.runId      = pipe == null ? null : String.valueOf(pipe.get("runId"));
-            d.status     = r == null ? null : String.valueOf(r.get("status"));
-            d.createdAt  = toInstant(run.get("createdAt"));
-            d.stats      = new RunDetailDto.Stats();
-            if (stats != null) {
-                d.stats.total      = ((Number) stats.getOrDefault("total", 0)).longValue();
-                d.stats.passed     = ((Number) stats.getOrDefault("passed", 0)).longValue();
-                d.stats.failed     = ((Number) stats.getOrDefault("failed", 0)).longValue();
-                d.stats.durationMs = ((Number) stats.getOrDefault("durationMs", 0)).longValue();
+        Map<?,?> run = findRunHeader(runId);
+        if (run == null) {
+            // run antérieur à l'ingestion : résumé pour les prochains affichages
+            summarizer.materialize(Collections.singleton(runId));
+            run = findRunHeader(runId);
+            if (run == null) return null;
+        }
+
+        RunDetailDto d = new RunDetailDto();
+        Map proj = (Map) run.get("project");
+        Map r    = (Map) run.get("run");
+        Map stats = r == null ? null : (Map) r.get("stats");
+        Map pipe  = (Map) run.get("pipeline");
+
+        d.projectKey = proj == null ? null : String.valueOf(proj.get("key"));
+        d.runId      = pipe == null ? null : String.valueOf(pipe.get("runId"));
+        d.status     = r == null ? null : String.valueOf(r.get("status"));
+        d.createdAt  = toInstant(run.get("createdAt"));
+        d.stats      = new RunDetailDto.Stats();
+        if (stats != null) {
+            d.stats.total      = ((Number) stats.getOrDefault("total", 0)).longValue();
+            d.stats.passed     = ((Number) stats.getOrDefault("passed", 0)).longValue();
+            d.stats.failed     = ((Number) stats.getOrDefault("failed", 0)).longValue();
+            d.stats.durationMs = ((Number) stats.getOrDefault("durationMs", 0)).longValue();
+        }
+        return d;
+    }
+
+    private Map<?,?> findRunHeader(String runId) {
+        // le run écrit par le pipeline avant un résumé matérialisé (materialized absent en premier)
+        Query q = Query.query(Criteria.where("pipeline.runId").is(runId))
+                .with(Sort.by(Sort.Direction.ASC, "materialized"));
+        q.fields().exclude("cases");
+        return mongo.findOne(q, Map.class, "test_runs");
+    }
+
+    /**
+     * Une page des tests d'un run, réduits aux champs affichés. Les tests sont
+     * lus dans le tableau {@code cases} du run s'il en a un, sinon dans
+     * test_cases.
+     */
+    public Map<String,Object> runCases(String runId, int page, int size) {
+        page = Math.max(page, 0);
+        size = Math.min(Math.max(size, 1), 500);
+        int skip = page * size;
+
+        List<Document> items = new ArrayList<>();
+        Document embedded = mongo.getCollection("test_runs")
+                .find(new Document("pipeline.runId", runId).append("cases", new Document("$exists", true)))
+                .projection(new Document("_id", 0).append("cases", new Document("$slice", Arrays.asList(skip, size + 1))))
+                .first();
+        if (embedded != null) {
+            for (Object c : embedded.getList("cases", Object.class)) {
+                if (c instanceof Document) items.add(projectCase((Document) c));
             }
-            // <-- retourner aussi les cases si stockées dans test_runs
-            Object casesObj = run.get("cases");
-            if (casesObj instanceof List) {
-                d.cases = (List) casesObj; // DTO accepte List brute dans ton implémentation
+        } else {
+            try (MongoCursor<Document> cursor = findRunCases(runId).skip(skip).limit(size + 1).iterator()) {
+                cursor.forEachRemaining(items::add);
             }
-            return d;
         }
 
-        // fallback : reconstruire depuis test_cases
-        List<Map> cases = mongo.find(
-                Query.query(Criteria.where("runId").is(runId))
-                        .with(Sort.by(Sort.Direction.ASC, "executedAt")),
-                Map.class, "test_cases");
+        // une ligne de plus pour savoir s'il existe une page suivante
+        boolean hasMore = items.size() > size;
+        Map<String,Object> out = new LinkedHashMap<>();
+        out.put("page", page);
+        out.put("size", size);
+        out.put("hasMore", hasMore);
+        out.put("items", hasMore ? items.subList(0, size) : items);
+        return out;
+    }
+
+    /**
+     * Écrit tous les tests d'un run en NDJSON, un test par ligne, au fil du
+     * curseur : la mémoire utilisée ne dépend pas de la taille du run.
+     */
+    public void writeRunCases(String runId, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        boolean embedded = mongo.getCollection("test_runs")
+                .countDocuments(new Document("pipeline.runId", runId).append("cases", new Document("$exists", true))) > 0;
+        MongoIterable<Document> cases = embedded
+                ? mongo.getCollection("test_runs").aggregate(Arrays.asList(
+                        new Document("$match", new Document("pipeline.runId", runId)),
+                        new Document("$unwind", "$cases"),
+                        new Document("$replaceRoot", new Document("newRoot", "$cases")),
+                        new Document("$project", caseProjection())))
+                    .batchSize(1000)
+                : findRunCases(runId);
+        try (MongoCursor<Document> cursor = cases.iterator()) {
+            while (cursor.hasNext()) {
+                writer.write(objectMapper.writeValueAsString(cursor.next()));
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
 
-        if (cases == null || cases.isEmpty()) return null;
+    private FindIterable<Document> findRunCases(String runId) {
+        return mongo.getCollection("test_cases")
+                .find(new Document("runId", runId))
+                .projection(caseProjection())
+                .sort(new Document("executedAt", 1).append("_id", 1))
+                .batchSize(1000);
+    }
 
-        long total = cases.size();
-        long failed = cases.stream().filter(c -> "failed".equals(String.valueOf(c.get("status")))).count();
+    private static Document caseProjection() {
+        Document projection = new Document("_id", 0);
+        for (String f : CASE_FIELDS) projection.append(f, 1);
+        return projection;
+    }
 
-        RunDetailDto d = new RunDetailDto();
-        d.runId = runId;
-        d.projectKey = String.valueOf(cases.get(0).get("project"));
-        d.status = failed > 0 ? "failed" : "passed";
-        d.stats = new RunDetailDto.Stats();
-        d.stats.total  = total;
-        d.stats.passed = total - failed;
-        d.stats.failed = failed;
-        d.cases = (List) cases;
-        // optionnel : createdAt approximé par le max(executedAt)
-        Object lastExec = cases.get(cases.size()-1).get("executedAt");
-        d.createdAt = toInstant(lastExec);
-        return d;
+    private static Document projectCase(Document c) {
+        Document out = new Document();
+        for (String f : CASE_FIELDS) {
+            if (c.containsKey(f)) out.append(f, c.get(f));
+        }
+        return out;
     }
 
     // ---- C) recherche/pagination des tests ----
+    /**
+     * Pagination par curseur sur (executedAt, _id) décroissants : {@code cursor}
+     * est le {@code nextCursor} de la page précédente, une page profonde coûte
+     * donc autant que la première. Sans curseur, {@code page} est encore
+     * accepté (skip). Le total n'est calculé que si {@code withTotal}, depuis
+     * les rollups journaliers : il peut retarder de quelques secondes sur
+     * {@code test_cases}.
+     */
     public Map<String,Object> searchCases(
             String project, String type, String tool, String status,
-            String from, String to, int page, int size) {
+            String from, String to, int page, int size, String cursor, boolean withTotal) {
 
         page = Math.max(page, 0);
         size = Math.min(Math.max(size, 1), 100);
@@ -190,32 +309,112 @@ public class DashboardService {
         Instant t = parseDayEnd(to);
         if (f != null || t != null) {
             Criteria c = Criteria.where("executedAt");
-            if (f != null) c = c.gte(f);
-            if (t != null) c = c.lte(t);
+            if (f != null) c = c.gte(Date.from(f));
+            if (t != null) c = c.lte(Date.from(t));
             cs.add(c);
         }
-
         Criteria matchCrit = new Criteria().andOperator(cs.toArray(new Criteria[0]));
-        int skipN = page * size;
 
-        Aggregation agg = newAggregation(
-                match(matchCrit),
-                sort(Sort.by(Sort.Direction.DESC, "executedAt")),
-                skip(skipN),
-                limit(size)
-        );
-
-        List<Map> items = mongo.aggregate(agg, "test_cases", Map.class).getMappedResults();
-        long total = mongo.count(Query.query(matchCrit), "test_cases");
+        Query q = new Query(matchCrit);
+        CaseCursor after = CaseCursor.decode(cursor);
+        if (after != null) {
+            q.addCriteria(after.toCriteria());
+        } else {
+            q.skip((long) page * size);
+        }
+        // une ligne de plus pour savoir s'il existe une page suivante
+        q.with(Sort.by(Sort.Direction.DESC, "executedAt").and(Sort.by(Sort.Direction.DESC, "_id")))
+                .limit(size + 1);
+        // marqueurs internes du suivi d'ingestion
+        q.fields().exclude(TestCaseIngestWatcher.INGESTED_AT).exclude(TestCaseIngestWatcher.INGESTED_STATUS);
+        List<Map> items = new ArrayList<>(mongo.find(q, Map.class, "test_cases"));
+
+        String nextCursor = null;
+        if (items.size() > size) {
+            items = items.subList(0, size);
+            Map last = items.get(size - 1);
+            nextCursor = CaseCursor.encode(last.get("executedAt"), last.get("_id"));
+        }
 
         Map<String,Object> out = new LinkedHashMap<>();
         out.put("page", page);
         out.put("size", size);
-        out.put("total", total);
+        if (withTotal) out.put("total", countCases(project, type, tool, status, from, to, matchCrit));
         out.put("items", items);
+        out.put("nextCursor", nextCursor);
         return out;
     }
 
+    /** Total depuis les rollups, ou depuis test_cases pour un statut qu'ils ne comptent pas. */
+    private long countCases(String project, String type, String tool, String status,
+                            String from, String to, Criteria matchCrit) {
+        boolean anyStatus = status == null || status.isBlank();
+        if (!anyStatus && !"passed".equals(status) && !"failed".equals(status)) {
+            return mongo.count(Query.query(matchCrit), "test_cases");
+        }
+        Criteria c = Criteria.where("project").is(project);
+        if (type != null && !type.isBlank()) c = c.and("type").is(type);
+        if (tool != null && !tool.isBlank()) c = c.and("tool").is(tool);
+        Instant f = parseDayStart(from);
+        Instant t = parseDayEnd(to);
+        if (f != null || t != null) {
+            Criteria day = c.and("day");
+            if (f != null) day = day.gte(f.toString().substring(0, 10));
+            if (t != null) day = day.lte(t.toString().substring(0, 10));
+        }
+        String counter = anyStatus ? "total" : status;
+        Aggregation agg = newAggregation(match(c), group().sum(counter).as("count"));
+        Map r = mongo.aggregate(agg, DashboardRollupService.COLLECTION, Map.class).getUniqueMappedResult();
+        return r == null ? 0 : ((Number) r.get("count")).longValue();
+    }
+
+    /**
+     * Position dans la liste des tests, encodée en base64 pour le client :
+     * executedAt en millisecondes (ou vide) et _id.
+     */
+    static class CaseCursor {
+        final Date executedAt;
+        final Object id;
+
+        CaseCursor(Date executedAt, Object id) {
+            this.executedAt = executedAt;
+            this.id = id;
+        }
+
+        static String encode(Object executedAt, Object id) {
+            Instant at = toInstant(executedAt);
+            String idPart = id instanceof ObjectId ? "o" + ((ObjectId) id).toHexString() : "s" + id;
+            String raw = (at == null ? "" : String.valueOf(at.toEpochMilli())) + ":" + idPart;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static CaseCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) return null;
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int sep = raw.indexOf(':');
+                String at = raw.substring(0, sep);
+                String idPart = raw.substring(sep + 1);
+                Object id = idPart.startsWith("o") ? new ObjectId(idPart.substring(1)) : idPart.substring(1);
+                return new CaseCursor(at.isEmpty() ? null : new Date(Long.parseLong(at)), id);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Curseur invalide : " + cursor, e);
+            }
+        }
+
+        /** Les tests qui suivent cette position dans l'ordre (executedAt, _id) décroissant. */
+        Criteria toCriteria() {
+            if (executedAt == null) {
+                // les executedAt absents viennent en dernier
+                return Criteria.where("executedAt").is(null).and("_id").lt(id);
+            }
+            return new Criteria().orOperator(
+                    Criteria.where("executedAt").lt(executedAt),
+                    Criteria.where("executedAt").is(executedAt).and("_id").lt(id),
+                    Criteria.where("executedAt").is(null));
+        }
+    }
+
     // ---- D) passrate (par jour) ----
     public List<PassratePointDto> passrate(String project, int days) {
         int win = (days <= 0 || days > 365) ? 14 : days;
@@ -244,17 +443,14 @@ public class DashboardService {
             if (!res.isEmpty()) return mapPassrate(res);
         } catch (Exception ignore) {}
 
-        // 2) Fallback : reconstituer par run depuis test_cases (executedAt est String)
+        // 2) Fallback : reconstituer par run depuis test_cases
+        // (executedAt est une date, voir TimestampMigrationService)
         Aggregation aggCases = newAggregation(
-                match(Criteria.where("project").is(project)),
-                addFields().addField("execDate")
-                        .withValue(DateOperators.dateFromString("$executedAt"))
-                        .build(),
-                match(Criteria.where("execDate").gte(Date.from(from))),
+                match(Criteria.where("project").is(project).and("executedAt").gte(Date.from(from))),
                 group("runId")
                         .sum(ConditionalOperators.when(Criteria.where("status").is("failed"))
                                 .then(1).otherwise(0)).as("failed")
-                        .first("execDate").as("anyTime"),
+                        .first("executedAt").as("anyTime"),
                 project()
                         .and(DateOperators.DateToString
                                 .dateOf("anyTime")
@@ -291,25 +487,29 @@ public class DashboardService {
 
 //    -------  update for mor graphs  -------
 
-    // ---- E) breakdown par outil (test_cases) ----
+    // ---- E) breakdown par outil (rollups) ----
     public java.util.List<ToolStatDto> statsByTool(String project, int days) {
-        int win = (days <= 0 || days > 365) ? 30 : days;
-        java.time.Instant from = java.time.LocalDate.now(java.time.ZoneOffset.UTC)
-                .minusDays(win - 1L).atStartOfDay().toInstant(java.time.ZoneOffset.UTC);
+        LocalDate from = windowStart(days);
 
-        Aggregation agg = newAggregation(
-                match(Criteria.where("project").is(project).and("executedAt").gte(java.util.Date.from(from))),
+        Aggregation agg = newAggregation(withMatch(rollupsSince(project, from), byToolStages()));
+        return toToolStats(mongo.aggregate(agg, DashboardRollupService.COLLECTION, Map.class).getMappedResults());
+    }
+
+    private static AggregationOperation[] byToolStages() {
+        return new AggregationOperation[] {
                 group("tool")
-                        .count().as("total")
-                        .sum(ConditionalOperators.when(Criteria.where("status").is("passed")).then(1).otherwise(0)).as("passed"),
+                        .sum("total").as("total")
+                        .sum("passed").as("passed"),
                 project()
                         .and("_id").as("tool")
                         .and("total").as("total")
                         .and("passed").as("passed")
                         .and(ArithmeticOperators.Subtract.valueOf("total").subtract("passed")).as("failed"),
                 sort(Sort.by(Sort.Direction.DESC, "total"))
-        );
-        java.util.List<java.util.Map> rows = mongo.aggregate(agg, "test_cases", java.util.Map.class).getMappedResults();
+        };
+    }
+
+    private static List<ToolStatDto> toToolStats(List<Map> rows) {
         java.util.List<ToolStatDto> out = new java.util.ArrayList<>();
         for (java.util.Map r : rows) {
             ToolStatDto d = new ToolStatDto();
@@ -322,19 +522,20 @@ public class DashboardService {
         return out;
     }
 
-    // ---- F) Top tests qui échouent (test_cases) ----
+    // ---- F) Top tests qui échouent (rollups) ----
     public java.util.List<NamedCountDto> topFailingTests(String project, int days, int limit) {
-        int win = (days <= 0 || days > 365) ? 30 : days;
         int lim = Math.max(1, Math.min(limit, 50));
-        java.time.Instant from = java.time.LocalDate.now(java.time.ZoneOffset.UTC)
-                .minusDays(win - 1L).atStartOfDay().toInstant(java.time.ZoneOffset.UTC);
+        LocalDate from = windowStart(days);
 
-        Aggregation agg = newAggregation(
-                match(Criteria.where("project").is(project)
-                        .and("executedAt").gte(java.util.Date.from(from))
-                        .and("status").is("failed")),
+        Aggregation agg = newAggregation(withMatch(rollupsSince(project, from), topFailsStages(lim)));
+        return toNamedCounts(mongo.aggregate(agg, DashboardRollupService.COLLECTION, Map.class).getMappedResults());
+    }
+
+    private static AggregationOperation[] topFailsStages(int lim) {
+        return new AggregationOperation[] {
+                match(Criteria.where("failed").gt(0)),
                 group("name")
-                        .count().as("fails")
+                        .sum("failed").as("fails")
                         .first("tool").as("tool"),
                 sort(Sort.by(Sort.Direction.DESC, "fails")),
                 limit(lim),
@@ -342,45 +543,36 @@ public class DashboardService {
                         .and("_id").as("name")
                         .and("fails").as("count")
                         .and("tool").as("tool")
-        );
-        java.util.List<java.util.Map> rows = mongo.aggregate(agg, "test_cases", java.util.Map.class).getMappedResults();
-        java.util.List<NamedCountDto> out = new java.util.ArrayList<>();
-        for (java.util.Map r : rows) {
-            NamedCountDto d = new NamedCountDto();
-            d.name  = String.valueOf(r.get("name"));
-            d.count = ((Number) r.get("count")).longValue();
-            d.tool  = r.get("tool") == null ? null : String.valueOf(r.get("tool"));
-            out.add(d);
-        }
-        return out;
+        };
     }
 
-    // ---- G) Tests “flaky” : pass>0 et fail>0 (dans la fenêtre) ----
+    // ---- G) Tests “flaky” : pass>0 et fail>0 (dans la fenêtre, rollups) ----
     public java.util.List<NamedCountDto> flakyTests(String project, int days, int limit) {
-        int win = (days <= 0 || days > 365) ? 30 : days;
         int lim = Math.max(1, Math.min(limit, 50));
-        java.time.Instant from = java.time.LocalDate.now(java.time.ZoneOffset.UTC)
-                .minusDays(win - 1L).atStartOfDay().toInstant(java.time.ZoneOffset.UTC);
+        LocalDate from = windowStart(days);
 
-        Aggregation agg = newAggregation(
-                match(Criteria.where("project").is(project).and("executedAt").gte(java.util.Date.from(from))),
+        Aggregation agg = newAggregation(withMatch(rollupsSince(project, from), flakyStages(lim)));
+        return toNamedCounts(mongo.aggregate(agg, DashboardRollupService.COLLECTION, Map.class).getMappedResults());
+    }
+
+    private static AggregationOperation[] flakyStages(int lim) {
+        return new AggregationOperation[] {
                 group("name")
-                        .count().as("total")
-                        .sum(ConditionalOperators.when(Criteria.where("status").is("passed")).then(1).otherwise(0)).as("passed")
+                        .sum("total").as("total")
+                        .sum("passed").as("passed")
                         .first("tool").as("tool"),
-                match(new Criteria().andOperator(
-                        Criteria.where("passed").gt(0),
-                        Criteria.where("total").gt(0),
-                        Criteria.where("total").gt("passed") // donc il y a des fails
-                )),
                 project()
                         .and("_id").as("name")
+                        .and("passed").as("passed")
                         .and(ArithmeticOperators.Subtract.valueOf("total").subtract("passed")).as("count") // nb de fails
                         .and("tool").as("tool"),
+                match(Criteria.where("passed").gt(0).and("count").gt(0)),
                 sort(Sort.by(Sort.Direction.DESC, "count")),
                 limit(lim)
-        );
-        java.util.List<java.util.Map> rows = mongo.aggregate(agg, "test_cases", java.util.Map.class).getMappedResults();
+        };
+    }
+
+    private static List<NamedCountDto> toNamedCounts(List<Map> rows) {
         java.util.List<NamedCountDto> out = new java.util.ArrayList<>();
         for (java.util.Map r : rows) {
             NamedCountDto d = new NamedCountDto();
@@ -398,14 +590,53 @@ public class DashboardService {
 //    ---------------------- taux de succès par type
 // ---------------------- taux de succès par type
 public List<Map> passrateByType(String project, int days, String status, String tool) {
-    Instant from = LocalDate.now(ZoneOffset.UTC)
-            .minusDays(days <= 0 ? 30 : days)
-            .atStartOfDay().toInstant(ZoneOffset.UTC);
+    LocalDate from = windowStart(days);
+    boolean anyStatus = status == null || status.isBlank();
+    // les rollups ne comptent que passed/failed, les autres statuts lisent test_cases
+    if (!anyStatus && !"passed".equals(status) && !"failed".equals(status)) {
+        return passrateByTypeFromCases(project, from, status, tool);
+    }
+
+    Aggregation agg = newAggregation(withMatch(rollupsSince(project, from), byTypeStages(tool)));
+    return toTypeRows(mongo.aggregate(agg, DashboardRollupService.COLLECTION, Map.class).getMappedResults(), status);
+}
+
+private static AggregationOperation[] byTypeStages(String tool) {
+    List<AggregationOperation> stages = new ArrayList<>();
+    if (tool != null && !tool.isBlank()) stages.add(match(Criteria.where("tool").is(tool)));
+    stages.add(group("type")
+            .sum("passed").as("passed")
+            .sum("failed").as("failed")
+            .sum("total").as("total"));
+    stages.add(sort(Sort.by(Sort.Direction.DESC, "_id")));
+    return stages.toArray(new AggregationOperation[0]);
+}
+
+private static List<Map> toTypeRows(List<Map> rows, String status) {
+    boolean anyStatus = status == null || status.isBlank();
+    List<Map> out = new ArrayList<>();
+    for (Map r : rows) {
+        long passed = ((Number) r.get("passed")).longValue();
+        long failed = ((Number) r.get("failed")).longValue();
+        long total  = ((Number) r.get("total")).longValue();
+        Map<String,Object> row = new LinkedHashMap<>();
+        row.put("_id", r.get("_id"));
+        row.put("type", r.get("_id"));
+        // avec un filtre de statut, seuls les tests de ce statut sont comptés
+        row.put("passed", "failed".equals(status) ? 0L : passed);
+        row.put("total", anyStatus ? total : ("passed".equals(status) ? passed : failed));
+        if (((Number) row.get("total")).longValue() > 0) out.add(row);
+    }
+    return out;
+}
+
+private List<Map> passrateByTypeFromCases(String project, LocalDate fromDay, String status, String tool) {
+    Instant from = fromDay.atStartOfDay().toInstant(ZoneOffset.UTC);
 
     List<Criteria> filters = new ArrayList<>();
     filters.add(Criteria.where("project").is(project));
     filters.add(Criteria.where("executedAt").gte(Date.from(from)));
-    if (status != null && !status.isBlank()) filters.add(Criteria.where("status").is(status));
+    filters.add(Criteria.where("status").is(status));
     if (tool != null && !tool.isBlank()) filters.add(Criteria.where("tool").is(tool));
 
     Criteria match = new Criteria().andOperator(filters.toArray(new Criteria[0]));
@@ -459,24 +690,16 @@ public List<Map> passrateByType(String project, int days, String status, String
 
 
 
-    // ---- E) passrate par outil (sur N jours) ----
+    // ---- E) passrate par outil (sur N jours, rollups) ----
     public java.util.List<ca.etsmtl.taf.dto.ToolRateDto> passrateByTool(String project, int days) {
-        int win = (days <= 0 || days > 365) ? 30 : days;
-        java.time.Instant from = java.time.LocalDate.now(java.time.ZoneOffset.UTC)
-                .minusDays(win - 1L)
-                .atStartOfDay()
-                .toInstant(java.time.ZoneOffset.UTC);
+        LocalDate from = windowStart(days);
 
-        // executedAt peut être String -> on force la conversion en date
+        // on calcule sur les "cases" (tests) : passed/total par outil
         Aggregation agg = Aggregation.newAggregation(
-                Aggregation.match(Criteria.where("project").is(project)),
-                Aggregation.addFields().addField("execDate")
-                        .withValue(DateOperators.DateFromString.fromString("$executedAt")).build(),
-                Aggregation.match(Criteria.where("execDate").gte(java.util.Date.from(from))),
-                // on calcule sur les "cases" (tests) : passed/total par outil
+                Aggregation.match(rollupsSince(project, from)),
                 Aggregation.group("tool")
-                        .sum(ConditionalOperators.when(Criteria.where("status").is("passed")).then(1).otherwise(0)).as("passed")
-                        .count().as("total"),
+                        .sum("passed").as("passed")
+                        .sum("total").as("total"),
                 Aggregation.project()
                         .and("_id").as("tool")
                         .and("passed").as("passed")
@@ -484,7 +707,7 @@ public List<Map> passrateByType(String project, int days, String status, String
                 Aggregation.sort(Sort.by(Sort.Direction.ASC, "tool"))
         );
 
-        java.util.List<java.util.Map> rows = mongo.aggregate(agg, "test_cases", java.util.Map.class).getMappedResults();
+        java.util.List<java.util.Map> rows = mongo.aggregate(agg, DashboardRollupService.COLLECTION, java.util.Map.class).getMappedResults();
         java.util.List<ca.etsmtl.taf.dto.ToolRateDto> out = new java.util.ArrayList<>();
         for (java.util.Map r : rows) {
             String tool = r.get("tool") == null ? "unknown" : String.valueOf(r.get("tool"));
@@ -498,4 +721,42 @@ public List<Map> passrateByType(String project, int days, String status, String
 
 
 
+    // ---- H) vue d'ensemble (un seul passage sur les rollups) ----
+    /**
+     * Les ventilations du tableau de bord en une seule agrégation : un $match sur
+     * la fenêtre du projet, puis un $facet par ventilation. {@code status} et
+     * {@code tool} ne filtrent que la ventilation par type, comme /summary/by-type.
+     * Le passrate compte des runs, il est lu à part dans test_runs.
+     */
+    public OverviewDto overview(String project, int days, int limit, String status, String tool) {
+        int win = (days <= 0 || days > 365) ? 30 : days;
+        int lim = Math.max(1, Math.min(limit, 50));
+        LocalDate from = windowStart(win);
+        boolean typeFromRollups = status == null || status.isBlank()
+                || "passed".equals(status) || "failed".equals(status);
+
+        FacetOperation facets = facet(byToolStages()).as("byTool")
+                .and(topFailsStages(lim)).as("topFails")
+                .and(flakyStages(lim)).as("flaky");
+        if (typeFromRollups) facets = facets.and(byTypeStages(tool)).as("byType");
+
+        Map r = mongo.aggregate(newAggregation(match(rollupsSince(project, from)), facets),
+                DashboardRollupService.COLLECTION, Map.class).getUniqueMappedResult();
+
+        OverviewDto out = new OverviewDto();
+        out.passrate = passrate(project, win);
+        out.byTool   = toToolStats(facetRows(r, "byTool"));
+        out.topFails = toNamedCounts(facetRows(r, "topFails"));
+        out.flaky    = toNamedCounts(facetRows(r, "flaky"));
+        out.byType   = typeFromRollups
+                ? toTypeRows(facetRows(r, "byType"), status)
+                : passrateByTypeFromCases(project, from, status, tool);
+        return out;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map> facetRows(Map facets, String name) {
+        Object rows = facets == null ? null : facets.get(name);
+        return rows == null ? Collections.emptyList() : (List<Map>) rows;
+    }
 }
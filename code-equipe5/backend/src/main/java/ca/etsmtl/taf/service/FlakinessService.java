@@ -0,0 +1,244 @@
+package ca.etsmtl.taf.service;
+
+import ca.etsmtl.taf.dto.FlakyTestDto;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistiques d'instabilité par test, tenues à jour à l'ingestion dans
+ * {@code test_flakiness} : le classement ne coûte qu'une lecture indexée,
+ * quelle que soit la longueur de l'historique.
+ * <p>
+ * Chaque run donne au test un résultat : passed, failed, ou mixed quand le
+ * test a passé et échoué dans le même run (retry). Un run « bascule » s'il
+ * est mixed ou s'il diffère du run précédent. Le score est la borne basse de
+ * Wilson (95 %) du taux de bascule, sur des compteurs qui décroissent de
+ * moitié tous les {@code taf.dashboard.flaky.half-life-runs} runs : peu de
+ * runs donnent un score bas, et un test stabilisé sort du classement.
+ */
+@Service
+public class FlakinessService {
+
+    static final String COLLECTION = "test_flakiness";
+    private static final double Z = 1.96;
+
+    private final MongoTemplate mongo;
+    private final double decay;
+
+    public FlakinessService(MongoTemplate mongo,
+                            @Value("${taf.dashboard.flaky.half-life-runs:50}") int halfLifeRuns) {
+        this.mongo = mongo;
+        this.decay = decayFor(halfLifeRuns);
+    }
+
+    /** Facteur appliqué à chaque run : un changement pèse moitié moins après {@code halfLifeRuns} runs. */
+    static double decayFor(int halfLifeRuns) {
+        return Math.pow(0.5, 1.0 / Math.max(1, halfLifeRuns));
+    }
+
+    // avant l'invalidation du DashboardCache
+    @EventListener
+    @Order(2)
+    public void onTestCasesIngested(TestCasesIngestedEvent event) {
+        // résultat de chaque test dans chaque run du lot
+        Map<String, Map<String, RunOutcome>> byTest = new LinkedHashMap<>();
+        Map<String, Document> identity = new HashMap<>();
+        for (Document c : event.getCases()) {
+            // l'historique décroissant ne se corrige pas après coup
+            if (TestCasesIngestedEvent.isCorrection(c)) continue;
+            Object project = c.get("project");
+            Object runId = c.get("runId");
+            Object status = c.get("status");
+            if (project == null || runId == null || !("passed".equals(status) || "failed".equals(status))) continue;
+
+            String key = project + "|" + c.get("tool") + "|" + c.get("name");
+            identity.putIfAbsent(key, new Document("project", String.valueOf(project))
+                    .append("tool", c.get("tool")).append("name", c.get("name")));
+            RunOutcome run = byTest.computeIfAbsent(key, k -> new LinkedHashMap<>())
+                    .computeIfAbsent(String.valueOf(runId), RunOutcome::new);
+            run.add("passed".equals(status), DashboardService.toInstant(c.get("executedAt")));
+        }
+        if (byTest.isEmpty()) return;
+
+        Map<String, Document> current = new HashMap<>();
+        for (Document d : mongo.find(Query.query(Criteria.where("_id").in(byTest.keySet())), Document.class, COLLECTION)) {
+            current.put(d.getString("_id"), d);
+        }
+
+        BulkOperations ops = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+        byTest.forEach((key, runs) -> {
+            TestStats stats = TestStats.from(current.get(key));
+            List<RunOutcome> ordered = new ArrayList<>(runs.values());
+            ordered.sort(Comparator.comparing(r -> r.executedAt, Comparator.nullsLast(Comparator.naturalOrder())));
+            for (RunOutcome run : ordered) stats.apply(run, decay);
+            ops.upsert(Query.query(Criteria.where("_id").is(key)), stats.toUpdate(identity.get(key)));
+        });
+        ops.execute();
+    }
+
+    /** Les tests les plus instables du projet, vus dans au moins {@code minRuns} runs. */
+    public List<FlakyTestDto> ranked(String project, int limit, int minRuns) {
+        int lim = Math.max(1, Math.min(limit, 200));
+        Query q = Query.query(Criteria.where("project").is(project)
+                        .and("score").gt(0)
+                        .and("runs").gte(Math.max(1, minRuns)))
+                .with(Sort.by(Sort.Direction.DESC, "score"))
+                .limit(lim);
+
+        List<FlakyTestDto> out = new ArrayList<>();
+        for (Document d : mongo.find(q, Document.class, COLLECTION)) {
+            FlakyTestDto f = new FlakyTestDto();
+            f.project        = d.getString("project");
+            f.tool           = d.get("tool") == null ? null : String.valueOf(d.get("tool"));
+            f.name           = d.get("name") == null ? null : String.valueOf(d.get("name"));
+            f.runs           = ((Number) d.get("runs")).longValue();
+            f.flips          = ((Number) d.get("flips")).longValue();
+            f.failureRate    = ((Number) d.get("failureRate")).doubleValue();
+            f.flipRate       = ((Number) d.get("flipRate")).doubleValue();
+            f.score          = ((Number) d.get("score")).doubleValue();
+            f.lastOutcome    = d.getString("lastOutcome");
+            f.lastExecutedAt = DashboardService.toInstant(d.get("lastExecutedAt"));
+            out.add(f);
+        }
+        return out;
+    }
+
+    /** Borne basse de l'intervalle de Wilson pour {@code successes} sur {@code n} essais. */
+    static double wilsonLowerBound(double successes, double n) {
+        if (n <= 0) return 0;
+        double p = successes / n;
+        double z2 = Z * Z;
+        double center = p + z2 / (2 * n);
+        double margin = Z * Math.sqrt(p * (1 - p) / n + z2 / (4 * n * n));
+        return Math.max(0, (center - margin) / (1 + z2 / n));
+    }
+
+    /** Résultat d'un test dans un run. */
+    static class RunOutcome {
+        final String runId;
+        boolean passed;
+        boolean failed;
+        Instant executedAt;
+
+        RunOutcome(String runId) {
+            this.runId = runId;
+        }
+
+        void add(boolean pass, Instant at) {
+            if (pass) passed = true; else failed = true;
+            if (at != null && (executedAt == null || at.isBefore(executedAt))) executedAt = at;
+        }
+
+        String outcome() {
+            return passed && failed ? "mixed" : (failed ? "failed" : "passed");
+        }
+    }
+
+    /** Compteurs d'un test, lus puis réécrits dans test_flakiness. */
+    static class TestStats {
+        long runs;
+        long failedRuns;   // failed ou mixed
+        long flips;
+        double recentRuns;
+        double recentFlips;
+        String lastRunId;
+        String lastOutcome;
+        boolean lastFlipped;
+        Date lastExecutedAt;
+
+        static TestStats from(Document d) {
+            TestStats s = new TestStats();
+            if (d == null) return s;
+            s.runs           = ((Number) d.get("runs")).longValue();
+            s.failedRuns     = ((Number) d.get("failedRuns")).longValue();
+            s.flips          = ((Number) d.get("flips")).longValue();
+            s.recentRuns     = ((Number) d.get("recentRuns")).doubleValue();
+            s.recentFlips    = ((Number) d.get("recentFlips")).doubleValue();
+            s.lastRunId      = d.getString("lastRunId");
+            s.lastOutcome    = d.getString("lastOutcome");
+            s.lastFlipped    = Boolean.TRUE.equals(d.getBoolean("lastFlipped"));
+            s.lastExecutedAt = d.getDate("lastExecutedAt");
+            return s;
+        }
+
+        /**
+         * Compte un run, ou le fusionne avec le dernier s'il en est la suite.
+         * Un autre run exécuté au plus tard à {@code lastExecutedAt} arrive en
+         * retard : il est ignoré, les compteurs décroissants ne se réordonnent pas.
+         */
+        void apply(RunOutcome run, double decay) {
+            String outcome = run.outcome();
+            if (run.runId.equals(lastRunId)) {
+                // suite d'un run déjà compté dans un lot précédent ; lastExecutedAt reste son début
+                String merged = outcome.equals(lastOutcome) ? outcome : "mixed";
+                if ("passed".equals(lastOutcome) && !"passed".equals(merged)) failedRuns++;
+                if ("mixed".equals(merged) && !lastFlipped) {
+                    flips++;
+                    recentFlips++;
+                    lastFlipped = true;
+                }
+                lastOutcome = merged;
+                if (lastExecutedAt == null && run.executedAt != null) lastExecutedAt = Date.from(run.executedAt);
+                return;
+            }
+            if (run.executedAt != null && lastExecutedAt != null
+                    && !run.executedAt.isAfter(lastExecutedAt.toInstant())) {
+                return;
+            }
+
+            boolean flipped = "mixed".equals(outcome) || (lastOutcome != null && !outcome.equals(lastOutcome));
+            runs++;
+            if (!"passed".equals(outcome)) failedRuns++;
+            if (flipped) flips++;
+            recentRuns = recentRuns * decay + 1;
+            recentFlips = recentFlips * decay + (flipped ? 1 : 0);
+            lastRunId = run.runId;
+            lastOutcome = outcome;
+            lastFlipped = flipped;
+            if (run.executedAt != null) lastExecutedAt = Date.from(run.executedAt);
+        }
+
+        /** Part des runs récents où le test a changé de résultat, bornée par Wilson. */
+        double score() {
+            return wilsonLowerBound(recentFlips, recentRuns);
+        }
+
+        Update toUpdate(Document identity) {
+            return new Update()
+                    .setOnInsert("project", identity.get("project"))
+                    .setOnInsert("tool", identity.get("tool"))
+                    .setOnInsert("name", identity.get("name"))
+                    .set("runs", runs)
+                    .set("failedRuns", failedRuns)
+                    .set("flips", flips)
+                    .set("recentRuns", recentRuns)
+                    .set("recentFlips", recentFlips)
+                    .set("failureRate", runs == 0 ? 0.0 : (double) failedRuns / runs)
+                    .set("flipRate", runs == 0 ? 0.0 : (double) flips / runs)
+                    .set("score", score())
+                    .set("lastRunId", lastRunId)
+                    .set("lastOutcome", lastOutcome)
+                    .set("lastFlipped", lastFlipped)
+                    .set("lastExecutedAt", lastExecutedAt)
+                    .set("updatedAt", new Date());
+        }
+    }
+}
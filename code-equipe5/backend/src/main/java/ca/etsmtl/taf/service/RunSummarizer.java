@@ -0,0 +1,132 @@
+package ca.etsmtl.taf.service;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+/**
+ * Écrit dans test_runs le résumé des runs dont le pipeline n'écrit que les
+ * test_cases, dans la forme que lit {@link DashboardService}. Ces documents
+ * portent {@code materialized: true} : ils sont recalculés à chaque nouveau
+ * lot de tests du run, et supprimés si le pipeline écrit son propre run.
+ * Les runs plus anciens que l'état de l'ingestion sont résumés au premier
+ * affichage, par le fallback de {@link DashboardService#runById}.
+ */
+@Service
+public class RunSummarizer {
+
+    private static final Logger log = LoggerFactory.getLogger(RunSummarizer.class);
+    private static final long RECHECK_WINDOW_MS = 24 * 60 * 60 * 1000L;
+
+    private final MongoTemplate mongo;
+
+    public RunSummarizer(MongoTemplate mongo) {
+        this.mongo = mongo;
+    }
+
+    // avant l'invalidation du DashboardCache
+    @EventListener
+    @Order(1)
+    public void onTestCasesIngested(TestCasesIngestedEvent event) {
+        Set<String> runIds = event.getCases().stream()
+                .map(c -> c.get("runId"))
+                .filter(r -> r != null)
+                .map(String::valueOf)
+                .collect(Collectors.toSet());
+        if (!runIds.isEmpty()) materialize(runIds);
+    }
+
+    /**
+     * Un pipeline écrit souvent son run après ses tests : les résumés récents
+     * sont revus pour supprimer ceux qu'un run du pipeline remplace.
+     */
+    @Scheduled(fixedDelayString = "${taf.dashboard.summaries.cleanup-ms:60000}",
+            initialDelayString = "${taf.dashboard.summaries.cleanup-ms:60000}")
+    public void dropSupersededSummaries() {
+        Query q = Query.query(Criteria.where("materialized").is(true)
+                .and("summarizedAt").gte(new Date(System.currentTimeMillis() - RECHECK_WINDOW_MS)));
+        q.fields().include("pipeline.runId");
+        Set<String> runIds = mongo.find(q, Map.class, "test_runs").stream()
+                .map(r -> String.valueOf(((Map) r.get("pipeline")).get("runId")))
+                .collect(Collectors.toSet());
+        if (!runIds.isEmpty()) dropSuperseded(runIds);
+    }
+
+    /** Calcule et écrit le résumé des runs donnés qui n'ont pas de run écrit par le pipeline. */
+    public void materialize(Collection<String> runIds) {
+        Set<String> written = dropSuperseded(runIds);
+        List<String> missing = runIds.stream().filter(r -> !written.contains(r)).collect(Collectors.toList());
+        if (missing.isEmpty()) return;
+
+        Aggregation agg = newAggregation(
+                match(Criteria.where("runId").in(missing)),
+                group("runId")
+                        .first("project").as("project")
+                        .first("tool").as("tool")
+                        .count().as("total")
+                        .sum(ConditionalOperators.when(Criteria.where("status").is("passed"))
+                                .then(1).otherwise(0)).as("passed")
+                        .sum(ConditionalOperators.when(Criteria.where("status").is("failed"))
+                                .then(1).otherwise(0)).as("failed")
+                        .sum("durationMs").as("durationMs")
+                        .max("executedAt").as("lastExecutedAt")
+        );
+        List<Document> rows = mongo.aggregate(agg, "test_cases", Document.class).getMappedResults();
+        if (rows.isEmpty()) return;
+
+        BulkOperations bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, "test_runs");
+        for (Document r : rows) {
+            long failed = ((Number) r.get("failed")).longValue();
+            Update u = new Update()
+                    .set("project.key", r.get("project"))
+                    .set("run.status", failed > 0 ? "failed" : "passed")
+                    .set("run.tool", r.get("tool"))
+                    .set("run.stats.total", ((Number) r.get("total")).longValue())
+                    .set("run.stats.passed", ((Number) r.get("passed")).longValue())
+                    .set("run.stats.failed", failed)
+                    .set("run.stats.durationMs", ((Number) r.get("durationMs")).longValue())
+                    // comme le fallback de DashboardService : le dernier executedAt
+                    .set("createdAt", r.get("lastExecutedAt"))
+                    .set("summarizedAt", new Date());
+            bulk.upsert(Query.query(Criteria.where("pipeline.runId").is(r.get("_id")).and("materialized").is(true)), u);
+        }
+        bulk.execute();
+        log.debug("{} run summaries materialized", rows.size());
+    }
+
+    /** Supprime les résumés des runs que le pipeline a écrits, et rend ces runs. */
+    private Set<String> dropSuperseded(Collection<String> runIds) {
+        Set<String> written = new HashSet<>();
+        Query q = Query.query(Criteria.where("pipeline.runId").in(runIds).and("materialized").ne(true));
+        q.fields().include("pipeline.runId");
+        for (Map r : mongo.find(q, Map.class, "test_runs")) {
+            written.add(String.valueOf(((Map) r.get("pipeline")).get("runId")));
+        }
+        if (!written.isEmpty()) {
+            mongo.remove(Query.query(Criteria.where("pipeline.runId").in(written).and("materialized").is(true)),
+                    "test_runs");
+        }
+        return written;
+    }
+}
@@ -0,0 +1,181 @@
+package ca.etsmtl.taf.service;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Les pipelines écrivent directement dans {@code test_cases}. Ce composant
+ * publie un {@link TestCasesIngestedEvent} par lot de documents pas encore
+ * comptés, puis les marque : {@code ingestedStatus} reçoit le statut compté et
+ * {@code ingestedAt} l'heure du serveur Mongo ({@code $currentDate}). Le
+ * marqueur est porté par chaque document, l'ordre d'insertion et le type du
+ * {@code _id} n'ont donc pas d'importance.
+ *
+ * Un statut modifié sur place pendant {@code taf.dashboard.ingest.recheck-window-ms}
+ * après le marquage est republié comme correction (voir
+ * {@link TestCasesIngestedEvent#isCorrection}). Le marquage n'a lieu qu'une
+ * fois les écouteurs terminés : un lot en échec est republié au passage
+ * suivant. Une seule instance du backend doit exécuter ce suivi.
+ *
+ * Un {@code executedAt} écrit en chaîne ISO-8601 est converti en date avant la
+ * publication, comme le fait {@link TimestampMigrationService} pour l'historique.
+ */
+@Component
+public class TestCaseIngestWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(TestCaseIngestWatcher.class);
+
+    static final String INGESTED_AT = "ingestedAt";
+    static final String INGESTED_STATUS = "ingestedStatus";
+
+    // ancien suivi par _id, lu une dernière fois au démarrage
+    private static final String STATE_COLLECTION = "dashboard_ingest_state";
+    private static final String STATE_ID = "test_cases";
+
+    private final MongoTemplate mongo;
+    private final ApplicationEventPublisher events;
+    private final int batchSize;
+    private final Duration recheckWindow;
+    private volatile boolean legacyStateChecked;
+
+    public TestCaseIngestWatcher(MongoTemplate mongo, ApplicationEventPublisher events,
+                                 @Value("${taf.dashboard.ingest.batch-size:5000}") int batchSize,
+                                 @Value("${taf.dashboard.ingest.recheck-window-ms:3600000}") long recheckWindowMs) {
+        this.mongo = mongo;
+        this.events = events;
+        this.batchSize = batchSize;
+        this.recheckWindow = Duration.ofMillis(recheckWindowMs);
+    }
+
+    @Scheduled(fixedDelayString = "${taf.dashboard.ingest.poll-ms:10000}",
+            initialDelayString = "${taf.dashboard.ingest.initial-delay-ms:5000}")
+    public void poll() {
+        if (!legacyStateChecked) {
+            dropLegacyState();
+            recountLegacyRollups();
+            legacyStateChecked = true;
+        }
+
+        List<Document> cases;
+        do {
+            cases = mongo.find(pendingQuery(), Document.class, "test_cases");
+            if (cases.isEmpty()) {
+                return;
+            }
+
+            convertExecutedAt(cases);
+            events.publishEvent(new TestCasesIngestedEvent(this, cases));
+            markIngested(cases);
+            log.debug("{} test cases ingested", cases.size());
+        } while (cases.size() == batchSize);
+    }
+
+    private Query pendingQuery() {
+        // statut changé depuis le marquage ; $ifNull confond statut absent et null
+        Document statusChanged = new Document("$ne", Arrays.asList(
+                new Document("$ifNull", Arrays.asList("$status", null)),
+                new Document("$ifNull", Arrays.asList("$" + INGESTED_STATUS, null))));
+        Document filter = new Document("$or", Arrays.asList(
+                new Document(INGESTED_AT, null),
+                new Document(INGESTED_AT, new Document("$gte", Date.from(Instant.now().minus(recheckWindow))))
+                        .append("$expr", statusChanged)));
+
+        Document fields = new Document();
+        for (String f : Arrays.asList("project", "runId", "name", "tool", "type", "status", "executedAt",
+                "durationMs", INGESTED_AT, INGESTED_STATUS)) {
+            fields.append(f, 1);
+        }
+        // dans l'ordre d'exécution : FlakinessService compare chaque run au précédent
+        return new BasicQuery(filter, fields)
+                .with(Sort.by(Sort.Direction.ASC, "executedAt", "_id"))
+                .limit(batchSize);
+    }
+
+    private void convertExecutedAt(List<Document> cases) {
+        BulkOperations ops = null;
+        for (Document c : cases) {
+            Object value = c.get("executedAt");
+            if (!(value instanceof String)) continue;
+            Instant instant = DashboardService.toInstant(value);
+            if (instant == null) continue;
+
+            if (ops == null) ops = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, "test_cases");
+            // la condition sur l'ancienne valeur évite d'écraser une écriture concurrente
+            ops.updateOne(Query.query(Criteria.where("_id").is(c.get("_id")).and("executedAt").is(value)),
+                    Update.update("executedAt", Date.from(instant)));
+            c.put("executedAt", Date.from(instant));
+        }
+        if (ops != null) ops.execute();
+    }
+
+    private void markIngested(List<Document> cases) {
+        BulkOperations ops = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, "test_cases");
+        for (Document c : cases) {
+            // le statut compté : s'il a changé entre-temps, le passage suivant publie la correction
+            ops.updateOne(Query.query(Criteria.where("_id").is(c.get("_id"))),
+                    new Update().set(INGESTED_STATUS, c.get("status")).currentDate(INGESTED_AT));
+        }
+        ops.execute();
+    }
+
+    /**
+     * L'ancien suivi par {@code _id} a pu sauter des documents insérés hors
+     * ordre : s'il a tourné, les rollups et l'instabilité sont recalculés sur
+     * tout l'historique (voir {@link #reingestAll}).
+     */
+    private void dropLegacyState() {
+        if (!mongo.collectionExists(STATE_COLLECTION)) return;
+
+        if (mongo.findById(STATE_ID, Document.class, STATE_COLLECTION) != null) {
+            log.info("Ancien suivi de test_cases trouvé, recalcul des rollups et de l'instabilité");
+            reingestAll();
+        }
+        // contient aussi l'ancienne progression de TimestampMigrationService
+        mongo.dropCollection(STATE_COLLECTION);
+    }
+
+    /**
+     * Les rollups écrits par {@code $inc}, avant les contributions par document,
+     * ne se recalculent pas : tout est recompté depuis {@code test_cases}.
+     */
+    private void recountLegacyRollups() {
+        // les collections elles-mêmes existent déjà, créées avec leurs index
+        if (!mongo.exists(new Query(), DashboardRollupService.COLLECTION)
+                || mongo.exists(new Query(), DashboardRollupService.CASES_COLLECTION)) return;
+
+        log.info("Rollups sans contributions par document, nouveau comptage de test_cases");
+        reingestAll();
+    }
+
+    /**
+     * Vide les collections dérivées de {@code test_cases} et retire les
+     * marqueurs : le suivi les reconstruit sur tout l'historique aux passages
+     * suivants. Les rollups sont vidés en dernier : après un arrêt en cours de
+     * route, ils restent sans contributions et le recalcul reprend au démarrage.
+     */
+    private void reingestAll() {
+        mongo.updateMulti(Query.query(Criteria.where(INGESTED_AT).ne(null)),
+                new Update().unset(INGESTED_AT).unset(INGESTED_STATUS), "test_cases");
+        mongo.remove(new Query(), FlakinessService.COLLECTION);
+        mongo.remove(new Query(), DashboardRollupService.CASES_COLLECTION);
+        mongo.remove(new Query(), DashboardRollupService.COLLECTION);
+    }
+}
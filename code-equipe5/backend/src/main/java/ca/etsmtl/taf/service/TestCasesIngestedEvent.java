@@ -0,0 +1,44 @@
+package ca.etsmtl.taf.service;
+
+import org.bson.Document;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Publié par {@link TestCaseIngestWatcher} pour chaque lot de nouveaux
+ * documents écrits dans {@code test_cases}. Un document dont le statut a été
+ * modifié après son premier comptage revient comme correction.
+ */
+public class TestCasesIngestedEvent extends ApplicationEvent {
+
+    private final List<Document> cases;
+
+    public TestCasesIngestedEvent(Object source, List<Document> cases) {
+        super(source);
+        this.cases = cases;
+    }
+
+    public List<Document> getCases() {
+        return cases;
+    }
+
+    /** Document déjà compté avec {@link #previousStatus}, republié parce que son statut a changé. */
+    public static boolean isCorrection(Document c) {
+        return c.get(TestCaseIngestWatcher.INGESTED_AT) != null;
+    }
+
+    public static Object previousStatus(Document c) {
+        return c.get(TestCaseIngestWatcher.INGESTED_STATUS);
+    }
+
+    public Set<String> getProjects() {
+        return cases.stream()
+                .map(c -> c.get("project"))
+                .filter(p -> p != null)
+                .map(String::valueOf)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,100 @@
+package ca.etsmtl.taf.service;
+
+import com.mongodb.client.MongoCursor;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Convertit en dates BSON les {@code executedAt} de {@code test_cases} et les
+ * {@code createdAt} de {@code test_runs} écrits sous forme de chaînes ISO-8601,
+ * pour que les filtres de date du dashboard utilisent les index. Chaque passage
+ * relit les documents dont le champ est encore une chaîne, ce qui parcourt toute
+ * la collection : les passages s'arrêtent dès que l'un d'eux n'a plus rien
+ * converti, valeurs non convertibles comprises, et reprennent au démarrage
+ * suivant. Entre-temps, {@link TestCaseIngestWatcher} convertit les
+ * {@code executedAt} des nouveaux documents de {@code test_cases}.
+ */
+@Service
+public class TimestampMigrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TimestampMigrationService.class);
+
+    private final MongoTemplate mongo;
+    private final int batchSize;
+    private volatile boolean done;
+
+    public TimestampMigrationService(MongoTemplate mongo,
+                                     @Value("${taf.dashboard.migration.batch-size:1000}") int batchSize) {
+        this.mongo = mongo;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${taf.dashboard.migration.poll-ms:60000}",
+            initialDelayString = "${taf.dashboard.migration.initial-delay-ms:15000}")
+    public void migrate() {
+        if (done) return;
+
+        long converted = migrate("test_cases", "executedAt") + migrate("test_runs", "createdAt");
+        if (converted == 0) {
+            log.info("Plus de dates en chaînes à convertir, migration arrêtée jusqu'au prochain démarrage");
+            done = true;
+        }
+    }
+
+    /**
+     * @return Le nombre de documents convertis
+     */
+    long migrate(String collection, String field) {
+        long converted = 0;
+        long skipped = 0;
+        BulkOperations ops = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+        int updates = 0;
+        try (MongoCursor<Document> docs = mongo.getCollection(collection)
+                .find(new Document(field, new Document("$type", "string")))
+                .projection(new Document(field, 1))
+                .batchSize(batchSize)
+                .iterator()) {
+            while (docs.hasNext()) {
+                Document d = docs.next();
+                String value = d.getString(field);
+                Instant instant = DashboardService.toInstant(value);
+                if (instant == null) {
+                    log.debug("{}.{} non convertible pour {} : {}", collection, field, d.get("_id"), value);
+                    skipped++;
+                    continue;
+                }
+                // la condition sur l'ancienne valeur évite d'écraser une écriture concurrente
+                ops.updateOne(Query.query(Criteria.where("_id").is(d.get("_id")).and(field).is(value)),
+                        Update.update(field, Date.from(instant)));
+                if (++updates == batchSize) {
+                    converted += ops.execute().getModifiedCount();
+                    ops = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+                    updates = 0;
+                }
+            }
+        }
+        if (updates > 0) {
+            converted += ops.execute().getModifiedCount();
+        }
+
+        if (converted > 0) {
+            log.info("{} {}.{} convertis en dates", converted, collection, field);
+        }
+        if (skipped > 0) {
+            log.warn("{} {}.{} non convertibles, laissés en chaînes", skipped, collection, field);
+        }
+        return converted;
+    }
+}
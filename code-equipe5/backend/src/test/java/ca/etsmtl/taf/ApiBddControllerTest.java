@@ -16,7 +16,8 @@ import org.slf4j.LoggerFactory;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+// Des lots de 2 résultats, pour couper un contenu après le premier lot
+@SpringBootTest(properties = "taf.results.batch-size=2")
 @AutoConfigureMockMvc
 @ActiveProfiles("test")
 class ApiBddControllerTest {
@@ -72,5 +73,59 @@ class ApiBddControllerTest {
                 .andExpect(jsonPath("$.length()").value(10))
                 .andDo(result -> logger.info("GET request for all results: {}", result.getResponse().getContentAsString()));
     }
-}
 
+    @Test
+    void testBulkWorkflow() throws Exception {
+
+        mockMvc.perform(delete("/api/results/jmeter"))
+                .andExpect(status().isNoContent());
+
+        // Les valeurs peuvent être des nombres ou des chaînes
+        String jsonRequest = "["
+        + "{ \"timeStamp\": 1728676067633, \"date\": \"2024-10-11 21:47:47\", \"elapsed\": 73, \"label\": \"HTTP Request\", \"responseCode\": \"200\", \"success\": true, \"bytes\": 481, \"URL\": \"http://httpbin.io/get\" },"
+        + "{ \"timeStamp\": \"1728676068134\", \"date\": \"2024-10-11 21:47:48\", \"elapsed\": \"52\", \"label\": \"HTTP Request\", \"responseCode\": \"200\", \"success\": \"true\", \"bytes\": \"481\", \"URL\": \"http://httpbin.io/get\" }"
+        + "]";
+
+        mockMvc.perform(post("/api/results/jmeter/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonRequest))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/results/jmeter"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+
+        // Un résultat sans les champs obligatoires est refusé
+        mockMvc.perform(post("/api/results/jmeter/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{ \"label\": \"HTTP Request\" }]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testBulkRollsBackTruncatedContent() throws Exception {
+
+        mockMvc.perform(delete("/api/results/jmeter"))
+                .andExpect(status().isNoContent());
+
+        // Le premier lot est inséré avant que la fin tronquée ne soit lue
+        String truncatedRequest = "["
+        + "{ \"timeStamp\": 1728676067633, \"date\": \"2024-10-11 21:47:47\", \"elapsed\": 73, \"label\": \"HTTP Request\" },"
+        + "{ \"timeStamp\": 1728676068134, \"date\": \"2024-10-11 21:47:48\", \"elapsed\": 52, \"label\": \"HTTP Request\" },"
+        + "{ \"timeStamp\": 1728676068633, \"date\": \"2024-10-11 21:4";
+
+        mockMvc.perform(post("/api/results/jmeter/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(truncatedRequest))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/api/results/jmeter/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{ \"timeStamp\": 1728676067633, \"date\": \"11/10/2024\", \"elapsed\": 73 }]"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/results/jmeter"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+}
@@ -0,0 +1,116 @@
+package ca.etsmtl.taf.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlakinessServiceTest {
+
+    private static final double DECAY = FlakinessService.decayFor(50);
+
+    private static int runCount;
+
+    private static FlakinessService.RunOutcome run(boolean passed) {
+        runCount++;
+        return run("run-" + runCount, passed, Instant.EPOCH.plusSeconds(runCount));
+    }
+
+    private static FlakinessService.RunOutcome run(String runId, boolean passed, Instant executedAt) {
+        FlakinessService.RunOutcome run = new FlakinessService.RunOutcome(runId);
+        run.add(passed, executedAt);
+        return run;
+    }
+
+    @Test
+    void testSteadyHistoryIsNotFlaky() {
+        FlakinessService.TestStats passing = new FlakinessService.TestStats();
+        FlakinessService.TestStats failing = new FlakinessService.TestStats();
+        for (int i = 0; i < 30; i++) {
+            passing.apply(run(true), DECAY);
+            failing.apply(run(false), DECAY);
+        }
+
+        assertEquals(0, passing.flips);
+        assertEquals(0, failing.flips);
+        assertEquals(30, failing.failedRuns);
+        assertEquals(0, passing.score(), 1e-9);
+        assertEquals(0, failing.score(), 1e-9);
+    }
+
+    @Test
+    void testAlternatingHistoryIsFlaky() {
+        FlakinessService.TestStats stats = new FlakinessService.TestStats();
+        for (int i = 0; i < 20; i++) {
+            stats.apply(run(i % 2 == 0), DECAY);
+        }
+
+        // le premier run n'a rien à quoi se comparer
+        assertEquals(19, stats.flips);
+        assertTrue(stats.score() > 0.7, "score " + stats.score());
+    }
+
+    @Test
+    void testOldFlipsDecayWithTheHalfLife() {
+        double decay = FlakinessService.decayFor(10);
+        FlakinessService.TestStats stats = new FlakinessService.TestStats();
+        stats.apply(run(true), decay);
+        stats.apply(run(false), decay);
+        assertEquals(1, stats.recentFlips, 1e-9);
+        double scoreAfterFlip = stats.score();
+
+        for (int i = 0; i < 10; i++) {
+            stats.apply(run(false), decay);
+        }
+
+        assertEquals(0.5, stats.recentFlips, 1e-9);
+        assertEquals(1, stats.flips);
+        assertTrue(stats.score() < scoreAfterFlip);
+    }
+
+    @Test
+    void testRunSplitAcrossBatchesCountsOnce() {
+        FlakinessService.TestStats stats = new FlakinessService.TestStats();
+        Instant start = Instant.parse("2026-01-01T00:00:00Z");
+        stats.apply(run("a", true, start), DECAY);
+        stats.apply(run("a", false, start.plusSeconds(30)), DECAY);
+
+        assertEquals(1, stats.runs);
+        assertEquals(1, stats.failedRuns);
+        assertEquals(1, stats.flips);
+        assertEquals("mixed", stats.lastOutcome);
+        assertEquals(start, stats.lastExecutedAt.toInstant());
+    }
+
+    @Test
+    void testLateOlderRunIsIgnored() {
+        FlakinessService.TestStats stats = new FlakinessService.TestStats();
+        Instant start = Instant.parse("2026-01-01T00:00:00Z");
+        stats.apply(run("new", true, start), DECAY);
+        stats.apply(run("old", false, start.minusSeconds(60)), DECAY);
+        stats.apply(run("same-time", false, start), DECAY);
+
+        assertEquals(1, stats.runs);
+        assertEquals(0, stats.flips);
+        assertEquals("new", stats.lastRunId);
+        assertEquals("passed", stats.lastOutcome);
+        assertEquals(start, stats.lastExecutedAt.toInstant());
+    }
+
+    @Test
+    void testWilsonLowerBoundWithoutRuns() {
+        assertEquals(0, FlakinessService.wilsonLowerBound(0, 0));
+    }
+
+    @Test
+    void testWilsonLowerBoundWithOnlySuccesses() {
+        double z2 = 1.96 * 1.96;
+        double ten = FlakinessService.wilsonLowerBound(10, 10);
+        double hundred = FlakinessService.wilsonLowerBound(100, 100);
+
+        assertEquals(1 / (1 + z2 / 10), ten, 1e-9);
+        assertTrue(ten < hundred && hundred < 1);
+    }
+}
@@ -1,7 +1,7 @@
 import {Component, ElementRef, OnDestroy, OnInit, ViewChild} from '@angular/core';
 import {Chart, ChartConfiguration, ChartOptions} from 'chart.js';
 import 'chart.js/auto';
-import { Subject, takeUntil } from 'rxjs';
+import { Subject, auditTime, filter, share, takeUntil } from 'rxjs';
 
 import {
   RunCard, PassratePoint, CaseSearchResponse, CaseItem,
@@ -37,6 +37,7 @@ export class BoardAdminComponent implements OnInit, OnDestroy {
 
   // Pagination
   page = 0;
+  private cursors: (string | null)[] = [null]; // curseur de chaque page déjà vue
   size = 20;
 
   // Données
@@ -137,20 +138,26 @@ export class BoardAdminComponent implements OnInit, OnDestroy {
 
   constructor(private api: BoardAdminService, private dialog: MatDialog) {}
 
-  ngOnInit(): void { this.loadAll(); }
+  ngOnInit(): void {
+    this.loadAll();
+
+    const live$ = this.api.liveEvents(this.project).pipe(takeUntil(this.destroy$), share());
+    live$.pipe(filter(e => e.type === 'run'))
+      .subscribe(e => this.onLiveRun(e.data as RunCard));
+    // les graphiques sont des agrégats : au plus un rechargement toutes les 5 s
+    live$.pipe(filter(e => e.type === 'stats'), auditTime(5000))
+      .subscribe(() => this.fetchOverview());
+  }
   ngOnDestroy(): void { this.destroy$.next(); this.destroy$.complete(); }
 
   // ====== Actions ======
 
   loadAll(): void {
     this.page = 0; // on revient au début sur changement de filtres
-    this.fetchRate();
+    this.cursors = [null];
+    this.fetchOverview();
     this.fetchRuns();
     this.fetchCases();
-    this.fetchToolRates();
-    this.fetchTypeRates();
-    this.fetchTopFails();
-    this.fetchFlaky();
   }
 
   changeDays(d: 7 | 14 | 30 | 60): void {
@@ -160,8 +167,14 @@ export class BoardAdminComponent implements OnInit, OnDestroy {
   }
 
   changePage(delta: number): void {
-    const maxPage = Math.max(0, Math.ceil(this.casesResp.total / this.size) - 1);
-    this.page = Math.min(maxPage, Math.max(0, this.page + delta));
+    if (delta > 0) {
+      if (!this.casesResp.nextCursor) return;
+      this.cursors[this.page + 1] = this.casesResp.nextCursor;
+      this.page++;
+    } else {
+      if (this.page <= 0) return;
+      this.page--;
+    }
     this.fetchCases();
   }
 
@@ -173,14 +186,7 @@ export class BoardAdminComponent implements OnInit, OnDestroy {
     this.api.getLatestRuns(this.project, 5, statusParam)
       .pipe(takeUntil(this.destroy$))
       .subscribe({
-        next: (rows) => {
-          this.runs = rows ?? [];
-          // bar des 5 derniers runs
-          const labels = this.runs.map(r => r.runId ?? '—');
-          const data   = this.runs.map(r => (r.total ? Math.round(((r.passed || 0) / r.total) * 100) : 0));
-          this.runsBarData = { labels, datasets: [{ label: '% pass du run', data }] };
-          this.loadingRuns = false;
-        },
+        next: (rows) => this.applyRuns(rows ?? []),
         error: () => {
           this.runs = [];
           this.runsBarData = { labels: [], datasets: [{ label: '% pass du run', data: [] }] };
@@ -189,135 +195,123 @@ export class BoardAdminComponent implements OnInit, OnDestroy {
       });
   }
 
-  private fetchRate(): void {
-    this.loadingRate = true;
-    this.api.getPassrate(this.project, this.days)
-      .pipe(takeUntil(this.destroy$))
-      .subscribe({
-        next: (pts) => {
-          this.rate = pts ?? [];
-
-          // KPI
-          this.totalRuns   = this.rate.reduce((s, p) => s + (p.total || 0), 0);
-          this.totalPassed = this.rate.reduce((s, p) => s + (p.passed || 0), 0);
-          const totalFailed = this.totalRuns - this.totalPassed;
-          this.passPct = this.totalRuns ? Math.round((this.totalPassed / this.totalRuns) * 100) : 0;
-
-          // Donut
-          this.pieData = {
-            labels: ['Passés', 'Échoués'],
-            datasets: [{ data: [this.totalPassed, totalFailed], borderWidth: 0, backgroundColor: ['#2ecc71', '#e74c3c'] }]
-          };
-
-          // Line
-          const labels = this.rate.map(p => p.day);
-          const data   = this.rate.map(p => p.total ? Math.round((p.passed / p.total) * 100) : 0);
-          this.lineData = { labels, datasets: [{ label: 'Passrate (%)', data, tension: 0.35, pointRadius: 3, fill: false }] };
-
-          this.loadingRate = false;
-        },
-        error: () => {
-          this.rate = [];
-          this.totalRuns = this.totalPassed = this.passPct = 0;
-          this.pieData  = { labels: ['Passés', 'Échoués'], datasets: [{ data: [0, 0], borderWidth: 0 }] };
-          this.lineData = { labels: [], datasets: [{ label: 'Passrate (%)', data: [], tension: 0.35, pointRadius: 3, fill: false }] };
-          this.loadingRate = false;
-        }
-      });
+  private applyRuns(rows: RunCard[]): void {
+    this.runs = rows;
+    // bar des 5 derniers runs
+    const labels = this.runs.map(r => r.runId ?? '—');
+    const data   = this.runs.map(r => (r.total ? Math.round(((r.passed || 0) / r.total) * 100) : 0));
+    this.runsBarData = { labels, datasets: [{ label: '% pass du run', data }] };
+    this.loadingRuns = false;
   }
 
-  private fetchCases(): void {
-    this.loadingCases = true;
-    const tool = this.fTool === 'all' ? undefined : (this.fTool === 'restAssured' ? 'restAssured' : this.fTool);
+  /** Run créé ou mis à jour, reçu du flux live */
+  private onLiveRun(card: RunCard): void {
+    if (this.fStatus !== 'all' && card.status !== this.fStatus) return;
+    const rows = [card, ...this.runs.filter(r => r.runId !== card.runId)]
+      .sort((a, b) => (b.createdAt ?? '').localeCompare(a.createdAt ?? ''))
+      .slice(0, 5);
+    this.applyRuns(rows);
+  }
+
+  /** passrate, outils, types, top fails et flaky en un seul appel (/overview) */
+  private fetchOverview(): void {
+    this.loadingRate = this.loadingTool = this.loadingType = true;
     const status = this.fStatus === 'all' ? undefined : this.fStatus;
+    const tool   = this.fTool   === 'all' ? undefined : (this.fTool === 'restAssured' ? 'restAssured' : this.fTool);
 
-    this.api.searchCases(this.project, this.page, this.size, { tool, status })
+    this.api.getOverview(this.project, this.days, 5, status, tool)
       .pipe(takeUntil(this.destroy$))
       .subscribe({
-        next: (res) => { this.casesResp = res; this.loadingCases = false; },
+        next: (o) => {
+          this.applyRate(o.passrate ?? []);
+          this.applyToolRates(o.byTool ?? []);
+          this.applyTypeRates(o.byType ?? []);
+          this.topFails = o.topFails ?? [];
+          this.flaky    = o.flaky ?? [];
+        },
         error: () => {
-          this.casesResp = { page: 0, size: this.size, total: 0, items: [] };
-          this.loadingCases = false;
+          this.applyRate([]);
+          this.applyToolRates([]);
+          this.applyTypeRates([]);
+          this.topFails = [];
+          this.flaky    = [];
         }
       });
   }
 
-  private fetchToolRates(): void {
-    this.loadingTool = true;
-    this.api.getToolRates(this.project, this.days)
-      .pipe(takeUntil(this.destroy$))
-      .subscribe({
-        next: rows => {
-          this.toolRates = rows ?? [];
-          const labels = this.toolRates.map(r => r.tool || '—');
-          const data   = this.toolRates.map(r => r.total ? Math.round((r.passed / r.total) * 100) : 0);
-          this.toolBarData = {
-            labels,
-            datasets: [{ label: '% pass', data ,
-              backgroundColor: ['#6366f1', '#22c55e', '#f59e0b', '#ef4444', '#06b6d4'],
-              borderRadius: 8,
-              maxBarThickness: 28
-            }]
-          };
-
-          this.loadingTool = false;
-        },
-        error: () => {
-          this.toolRates = [];
-          this.toolBarData = { labels: [], datasets: [{ label: '% pass', data: [] }] };
-          this.loadingTool = false;
-        }
-      });
+  private applyRate(pts: PassratePoint[]): void {
+    this.rate = pts;
 
+    // KPI
+    this.totalRuns   = this.rate.reduce((s, p) => s + (p.total || 0), 0);
+    this.totalPassed = this.rate.reduce((s, p) => s + (p.passed || 0), 0);
+    const totalFailed = this.totalRuns - this.totalPassed;
+    this.passPct = this.totalRuns ? Math.round((this.totalPassed / this.totalRuns) * 100) : 0;
 
+    // Donut
+    this.pieData = {
+      labels: ['Passés', 'Échoués'],
+      datasets: [{ data: [this.totalPassed, totalFailed], borderWidth: 0, backgroundColor: ['#2ecc71', '#e74c3c'] }]
+    };
+
+    // Line
+    const labels = this.rate.map(p => p.day);
+    const data   = this.rate.map(p => p.total ? Math.round((p.passed / p.total) * 100) : 0);
+    this.lineData = { labels, datasets: [{ label: 'Passrate (%)', data, tension: 0.35, pointRadius: 3, fill: false }] };
+
+    this.loadingRate = false;
   }
 
-  private fetchTypeRates(): void {
-    this.loadingType = true;
+  private fetchCases(): void {
+    this.loadingCases = true;
+    const tool = this.fTool === 'all' ? undefined : (this.fTool === 'restAssured' ? 'restAssured' : this.fTool);
     const status = this.fStatus === 'all' ? undefined : this.fStatus;
-    const tool   = this.fTool   === 'all' ? undefined : (this.fTool === 'restAssured' ? 'restAssured' : this.fTool);
 
-    this.api.getTypeRates(this.project, this.days, status, tool)
+    // le total ne change pas d'une page à l'autre : il n'est demandé qu'en 1re page
+    const withTotal = this.page === 0;
+    this.api.searchCases(this.project, this.page, this.size, { tool, status }, this.cursors[this.page], withTotal)
       .pipe(takeUntil(this.destroy$))
       .subscribe({
-        next: rows => {
-          this.typeRates = rows ?? [];
-          const labels   = this.typeRates.map(r => r.type || '—');
-          const passed   = this.typeRates.map(r => r.passed || 0);
-          const failed   = this.typeRates.map(r => (r.total || 0) - (r.passed || 0));
-          this.stackedTypeData = {
-            labels,
-            datasets: [
-              { label: 'Passés',  data: passed, stack: 's', backgroundColor: '#2ecc71' },
-              { label: 'Échoués', data: failed, stack: 's', backgroundColor: '#e74c3c' }
-            ]
-          };
-          this.loadingType = false;
+        next: (res) => {
+          this.casesResp = { ...res, page: this.page, total: withTotal ? res.total : this.casesResp.total };
+          this.loadingCases = false;
         },
         error: () => {
-          this.typeRates = [];
-          this.stackedTypeData = { labels: [], datasets: [{ label: 'Passés', data: [] }, { label: 'Échoués', data: [] }] as any };
-          this.loadingType = false;
+          this.casesResp = { page: 0, size: this.size, total: 0, items: [] };
+          this.loadingCases = false;
         }
       });
   }
 
-  private fetchTopFails(): void {
-    this.api.getTopFails(this.project, this.days, 5)
-      .pipe(takeUntil(this.destroy$))
-      .subscribe({
-        next: rows => this.topFails = rows ?? [],
-        error: () => this.topFails = []
-      });
+  private applyToolRates(rows: ToolRate[]): void {
+    this.toolRates = rows;
+    const labels = this.toolRates.map(r => r.tool || '—');
+    const data   = this.toolRates.map(r => r.total ? Math.round((r.passed / r.total) * 100) : 0);
+    this.toolBarData = {
+      labels,
+      datasets: [{ label: '% pass', data ,
+        backgroundColor: ['#6366f1', '#22c55e', '#f59e0b', '#ef4444', '#06b6d4'],
+        borderRadius: 8,
+        maxBarThickness: 28
+      }]
+    };
+
+    this.loadingTool = false;
   }
 
-  private fetchFlaky(): void {
-    this.api.getFlaky(this.project, this.days, 5)
-      .pipe(takeUntil(this.destroy$))
-      .subscribe({
-        next: rows => this.flaky = rows ?? [],
-        error: () => this.flaky = []
-      });
+  private applyTypeRates(rows: TypeRate[]): void {
+    this.typeRates = rows;
+    const labels   = this.typeRates.map(r => r.type || '—');
+    const passed   = this.typeRates.map(r => r.passed || 0);
+    const failed   = this.typeRates.map(r => (r.total || 0) - (r.passed || 0));
+    this.stackedTypeData = {
+      labels,
+      datasets: [
+        { label: 'Passés',  data: passed, stack: 's', backgroundColor: '#2ecc71' },
+        { label: 'Échoués', data: failed, stack: 's', backgroundColor: '#e74c3c' }
+      ]
+    };
+    this.loadingType = false;
   }
 
   // ====== Helpers ======
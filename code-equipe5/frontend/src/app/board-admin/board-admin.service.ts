@@ -3,7 +3,7 @@ import { HttpClient, HttpParams } from '@angular/common/http';
 import { Observable } from 'rxjs';
 import {
   RunCard, RunDetail, CaseSearchResponse, PassratePoint,
-  ToolRate, TypeRate, NamedCount
+  ToolRate, TypeRate, NamedCount, Overview, LiveEvent
 } from '../models/dashboard.model';
 
 const API = 'http://localhost:8083/dashboard';
@@ -27,10 +27,13 @@ export class BoardAdminService {
     return this.http.get<PassratePoint[]>(`${API}/summary/passrate`, { params: p });
   }
 
+  /** cursor : nextCursor de la page précédente ; withTotal : compter les résultats (1re page) */
   searchCases(project: string, page = 0, size = 20, filters?: {
     type?: string; tool?: string; status?: string; from?: string; to?: string;
-  }): Observable<CaseSearchResponse> {
-    let p = new HttpParams().set('project', project).set('page', page).set('size', size);
+  }, cursor?: string | null, withTotal = false): Observable<CaseSearchResponse> {
+    let p = new HttpParams().set('project', project).set('page', page).set('size', size)
+      .set('withTotal', withTotal);
+    if (cursor)          p = p.set('cursor', cursor);
     if (filters?.type)   p = p.set('type', filters.type);
     if (filters?.tool)   p = p.set('tool', filters.tool);
     if (filters?.status) p = p.set('status', filters.status);
@@ -39,8 +42,27 @@ export class BoardAdminService {
     return this.http.get<CaseSearchResponse>(`${API}/cases`, { params: p });
   }
 
+  /** Flux live du projet (SSE) : runs créés ou mis à jour, tests ajoutés */
+  liveEvents(project: string): Observable<LiveEvent> {
+    return new Observable<LiveEvent>(sub => {
+      const es = new EventSource(`${API}/live?project=${encodeURIComponent(project)}`);
+      es.addEventListener('run',   e => sub.next({ type: 'run',   data: JSON.parse((e as MessageEvent).data) }));
+      es.addEventListener('stats', e => sub.next({ type: 'stats', data: JSON.parse((e as MessageEvent).data) }));
+      // EventSource se reconnecte seul en cas d'erreur
+      return () => es.close();
+    });
+  }
+
   // --- Agrégations pour les graphiques additionnels ---
 
+  /** Toutes les agrégations du board en une requête ; status/tool ne filtrent que byType */
+  getOverview(project: string, days: number, limit = 5, status?: string, tool?: string): Observable<Overview> {
+    let p = new HttpParams().set('project', project).set('days', days).set('limit', limit);
+    if (status) p = p.set('status', status);
+    if (tool)   p = p.set('tool', tool);
+    return this.http.get<Overview>(`${API}/overview`, { params: p });
+  }
+
   /** % pass par outil sur N jours */
   getToolRates(project: string, days: number): Observable<ToolRate[]> {
     const p = new HttpParams().set('project', project).set('days', days);
@@ -29,8 +29,9 @@ export interface CaseItem {
 export interface CaseSearchResponse {
   page: number;
   size: number;
-  total: number;
+  total?: number;        // seulement si withTotal
   items: CaseItem[];
+  nextCursor?: string | null;
 }
 
 export interface RunDetail {
@@ -77,3 +78,26 @@ export interface TypeRate {
   passed: number;
   total: number;
 }
+
+/** Réponse de /dashboard/overview */
+export interface Overview {
+  passrate: PassratePoint[];
+  byTool: ToolRate[];
+  byType: TypeRate[];
+  topFails: NamedCount[];
+  flaky: NamedCount[];
+}
+
+/** Tests ajoutés à un projet depuis le dernier événement live */
+export interface LiveStatsDelta {
+  projectKey: string;
+  total: number;
+  passed: number;
+  failed: number;
+  from: string; // ISO
+  to: string;   // ISO
+}
+
+export type LiveEvent =
+  | { type: 'run'; data: RunCard }
+  | { type: 'stats'; data: LiveStatsDelta };
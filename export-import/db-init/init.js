@@ -79,4 +79,10 @@ db.test_results.insertMany([
     { "_id": "result6", "testRunId": "tr3", "testCaseId": "tc6", "status": "RETEST" }
 ]);
 
+// --- Index des parents, utilisés par les exports en fichier pour parcourir les enfants ---
+db.test_suites.createIndex({ "projectId": 1 });
+db.test_cases.createIndex({ "testSuiteId": 1 });
+db.test_runs.createIndex({ "testSuiteId": 1 });
+db.test_results.createIndex({ "testRunId": 1 });
+
 print("✅ Initial data imported successfully!");
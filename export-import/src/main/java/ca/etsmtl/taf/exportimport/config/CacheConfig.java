@@ -1,17 +1,17 @@
 package ca.etsmtl.taf.exportimport.config;
 
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
-
-import java.time.Duration;
+import java.util.List;
 
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(EntityCacheProperties.class)
 public class CacheConfig {
 
     public static final String PROJECTS_CACHE = "projects";
@@ -20,20 +20,22 @@ public class CacheConfig {
     public static final String TEST_RESULTS_CACHE = "testResults";
     public static final String TEST_CASES_CACHE = "testCases";
 
+    public static final List<String> CACHE_NAMES = List.of(
+            PROJECTS_CACHE,
+            TEST_SUITES_CACHE,
+            TEST_RUNS_CACHE,
+            TEST_RESULTS_CACHE,
+            TEST_CASES_CACHE
+    );
+
     // Swap CacheManager implementation to use another caching strategy
-    // For now, we use Caffeine for in-memory caching
+    // For now, we use Caffeine for in-memory caching, each cache sized from EntityCacheProperties
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager(
-                PROJECTS_CACHE,
-                TEST_SUITES_CACHE,
-                TEST_RUNS_CACHE,
-                TEST_RESULTS_CACHE,
-                TEST_CASES_CACHE
-        );
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-                .maximumSize(5_000)
-                .expireAfterAccess(Duration.ofMinutes(15)));
+    public CacheManager cacheManager(EntityCacheProperties properties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        for (String cacheName : CACHE_NAMES) {
+            cacheManager.registerCustomCache(cacheName, properties.builderFor(cacheName).build());
+        }
         return cacheManager;
     }
 }
@@ -0,0 +1,55 @@
+package ca.etsmtl.taf.exportimport.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sizing of the entity caches, e.g.
+ * {@code export.cache.specs.testResults.maximum-size=50000}. A cache without
+ * its own value uses the one of {@code export.cache.defaults}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "export.cache")
+public class EntityCacheProperties {
+
+    private Spec defaults = new Spec(5_000L, Duration.ofMinutes(15));
+
+    // Keyed by cache name, see CacheConfig
+    private Map<String, Spec> specs = new HashMap<>();
+
+    public Caffeine<Object, Object> builderFor(String cacheName) {
+        Spec spec = specs.getOrDefault(cacheName, new Spec());
+        long maximumSize = spec.getMaximumSize() != null ? spec.getMaximumSize() : defaults.getMaximumSize();
+        Duration expireAfterAccess = spec.getExpireAfterAccess() != null
+                ? spec.getExpireAfterAccess()
+                : defaults.getExpireAfterAccess();
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats();
+    }
+
+    @Getter
+    @Setter
+    public static class Spec {
+        private Long maximumSize;
+        private Duration expireAfterAccess;
+
+        public Spec() {
+        }
+
+        public Spec(Long maximumSize, Duration expireAfterAccess) {
+            this.maximumSize = maximumSize;
+            this.expireAfterAccess = expireAfterAccess;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ca.etsmtl.taf.exportimport.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+
+@Configuration
+public class EntityLoaderConfig {
+
+    public static final String ENTITY_LOADER_EXECUTOR = "entityLoaderExecutor";
+
+    // Runs the batched Mongo reads of one resolution level concurrently
+    @Bean(name = ENTITY_LOADER_EXECUTOR)
+    public Executor entityLoaderExecutor(@Value("${export.loader.threads:4}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("entity-loader-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,29 @@
+package ca.etsmtl.taf.exportimport.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(ExportLimitsProperties.class)
+public class ExportJobConfig {
+
+    public static final String EXPORT_JOB_EXECUTOR = "exportJobExecutor";
+
+    // Runs the export jobs in the background, the others wait in the queue
+    @Bean(name = EXPORT_JOB_EXECUTOR)
+    public Executor exportJobExecutor(@Value("${export.jobs.threads:2}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("export-job-");
+        executor.initialize();
+        return executor;
+    }
+}
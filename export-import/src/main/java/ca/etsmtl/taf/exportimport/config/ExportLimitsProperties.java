@@ -0,0 +1,29 @@
+package ca.etsmtl.taf.exportimport.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Exports sent at the same time to a destination, e.g.
+ * {@code export.limits.destinations.testrail=1}. A destination without its
+ * own value uses {@code export.limits.max-parallel-exports}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "export.limits")
+public class ExportLimitsProperties {
+
+    private int maxParallelExports = 2;
+
+    // Keyed by exporter type, see ExportRequest
+    private Map<String, Integer> destinations = new HashMap<>();
+
+    public int maxParallelExportsFor(String type) {
+        return Math.max(1, destinations.getOrDefault(type, maxParallelExports));
+    }
+}
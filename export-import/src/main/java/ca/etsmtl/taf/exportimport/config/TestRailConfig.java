@@ -5,6 +5,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 @Component
 public class TestRailConfig {
 
@@ -17,9 +20,23 @@ public class TestRailConfig {
     @Value("${testrail.apikey}")
     private String apiKey;
 
+    @Value("${testrail.connect-timeout:30s}")
+    private Duration connectTimeout;
+
+    @Value("${testrail.request-timeout:2m}")
+    private Duration requestTimeout;
+
+    /**
+     * The single client of the application: its connections are kept alive and
+     * shared by every export.
+     */
     @Bean
     public APIClient createClient() {
-        APIClient client = new APIClient(url);
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .build();
+        APIClient client = new APIClient(url, httpClient, requestTimeout);
         client.setUser(user);
         client.setPassword(apiKey);
         return client;
@@ -0,0 +1,40 @@
+package ca.etsmtl.taf.exportimport.controllers;
+
+import ca.etsmtl.taf.exportimport.services.EntityLookupService;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/cache")
+public class CacheController {
+
+    private final EntityLookupService entityLookupService;
+
+    @Autowired
+    public CacheController(EntityLookupService entityLookupService) {
+        this.entityLookupService = entityLookupService;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        entityLookupService.getCacheStats().forEach((cacheName, stats) -> body.put(cacheName, toJson(stats)));
+        return ResponseEntity.ok(body);
+    }
+
+    private static Map<String, Object> toJson(CacheStats stats) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("hitCount", stats.hitCount());
+        json.put("missCount", stats.missCount());
+        json.put("hitRate", stats.hitRate());
+        json.put("loadCount", stats.loadCount());
+        json.put("evictionCount", stats.evictionCount());
+        return json;
+    }
+}
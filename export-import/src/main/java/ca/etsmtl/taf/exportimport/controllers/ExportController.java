@@ -1,31 +1,43 @@
 package ca.etsmtl.taf.exportimport.controllers;
 
+import ca.etsmtl.taf.exportimport.dtos.ExportJobResponse;
 import ca.etsmtl.taf.exportimport.dtos.ExportRequest;
-import ca.etsmtl.taf.exportimport.services.ExportService;
+import ca.etsmtl.taf.exportimport.services.ExportJobService;
+import ca.etsmtl.taf.exportimport.services.FileExportService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/export")
 public class ExportController {
 
-    private final ExportService exportService;
+    private final ExportJobService exportJobService;
 
     @Autowired
-    public ExportController(ExportService exportService) {
-        this.exportService = exportService;
+    public ExportController(ExportJobService exportJobService) {
+        this.exportJobService = exportJobService;
     }
 
     @PostMapping()
     public ResponseEntity<Map<String, Object>> exportTo(@RequestBody ExportRequest exportRequest) {
         try {
-            String message = exportService.exportTo(exportRequest.getType(), exportRequest.getIds());
-            return ResponseEntity.ok(Map.of(
-                    "message", message
+            ExportJobResponse job = exportJobService.submit(exportRequest.getType(), exportRequest.getIds(),
+                    exportRequest.isGzip());
+            return ResponseEntity.accepted().body(Map.of(
+                    "jobId", job.jobId(),
+                    "status", job.status(),
+                    "message", "Export job submitted"
             ));
         } catch (Exception e) {
             return ResponseEntity.status(400).body(Map.of(
@@ -33,4 +45,52 @@ public class ExportController {
             ));
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getJob(@PathVariable String jobId) {
+        return exportJobService.findById(jobId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
+                        "message", "Export job %s not found".formatted(jobId)
+                )));
+    }
+
+    @PostMapping("/{jobId}/cancel")
+    public ResponseEntity<?> cancel(@PathVariable String jobId) {
+        return update(() -> exportJobService.cancel(jobId));
+    }
+
+    @PostMapping("/{jobId}/resume")
+    public ResponseEntity<?> resume(@PathVariable String jobId) {
+        return update(() -> exportJobService.resume(jobId));
+    }
+
+    @GetMapping("/{jobId}/download")
+    public ResponseEntity<?> download(@PathVariable String jobId) {
+        try {
+            FileExportService.ExportFile file = exportJobService.getFile(jobId);
+            // Streamed from the disk by the resource
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(file.contentType()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename(file.path().getFileName().toString())
+                            .build()
+                            .toString())
+                    .body(new FileSystemResource(file.path()));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    private static ResponseEntity<?> update(Supplier<ExportJobResponse> action) {
+        try {
+            return ResponseEntity.accepted().body(action.get());
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ca.etsmtl.taf.exportimport.controllers;
+
+import com.gurock.testrail.APICallMetrics;
+import com.gurock.testrail.APIClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/testrail")
+public class TestRailController {
+
+    private final APIClient apiClient;
+
+    @Autowired
+    public TestRailController(APIClient apiClient) {
+        this.apiClient = apiClient;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<List<APICallMetrics.Snapshot>> getStats() {
+        return ResponseEntity.ok(apiClient.getMetrics());
+    }
+}
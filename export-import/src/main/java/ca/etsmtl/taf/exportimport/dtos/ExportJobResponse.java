@@ -0,0 +1,27 @@
+package ca.etsmtl.taf.exportimport.dtos;
+
+import ca.etsmtl.taf.exportimport.models.EntityType;
+import ca.etsmtl.taf.exportimport.models.ExportJob;
+import ca.etsmtl.taf.exportimport.models.ExportJobStatus;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+public record ExportJobResponse(String jobId, String type, ExportJobStatus status, EntityType currentStage,
+                                List<EntityType> completedStages, Map<EntityType, StageProgress> progress,
+                                String message, Instant createdAt, Instant updatedAt) {
+
+    public record StageProgress(int processed, int total) {
+    }
+
+    public static ExportJobResponse of(ExportJob job) {
+        Map<EntityType, StageProgress> progress = new EnumMap<>(EntityType.class);
+        job.getTotals().forEach((stage, total) ->
+                progress.put(stage, new StageProgress(job.getProcessed().getOrDefault(stage, 0), total)));
+        return new ExportJobResponse(job.get_id(), job.getType(), job.getStatus(), job.getCurrentStage(),
+                List.copyOf(job.getCompletedStages()), progress, job.getMessage(), job.getCreatedAt(),
+                job.getUpdatedAt());
+    }
+}
@@ -19,6 +19,9 @@ public class ExportRequest {
 
     private String type;
 
+    // Compresses the file of a file export
+    private boolean gzip;
+
     @JsonIgnore
     private final Map<EntityType, List<String>> ids = new HashMap<>();
 
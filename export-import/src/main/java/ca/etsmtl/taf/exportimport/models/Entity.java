@@ -1,5 +1,7 @@
 package ca.etsmtl.taf.exportimport.models;
 
 public abstract class Entity {
+    public abstract String get_id();
+
     public abstract EntityType getType();
 }
@@ -0,0 +1,49 @@
+package ca.etsmtl.taf.exportimport.models;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * An export running in the background. The stages already completed are its
+ * checkpoint: a resumed job skips them, and within the interrupted stage the
+ * entities already mapped to the destination are not sent again.
+ */
+@Document(collection = "export_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ExportJob {
+    @Id
+    private String _id;
+    private String type;
+    // File exports only
+    private boolean gzip;
+    private Map<EntityType, List<String>> ids = new EnumMap<>(EntityType.class);
+    private ExportJobStatus status;
+    private EntityType currentStage;
+    private List<EntityType> completedStages = new ArrayList<>();
+    // Entities processed and to process per stage, already exported ones included
+    private Map<EntityType, Integer> processed = new EnumMap<>(EntityType.class);
+    private Map<EntityType, Integer> totals = new EnumMap<>(EntityType.class);
+    private String message;
+    private Instant createdAt;
+    private Instant updatedAt;
+    // The instance running the job, while it renews heartbeatAt
+    private String owner;
+    private Instant heartbeatAt;
+
+    public boolean isFinished() {
+        return status == ExportJobStatus.COMPLETED || status == ExportJobStatus.FAILED
+                || status == ExportJobStatus.CANCELLED;
+    }
+}
@@ -0,0 +1,9 @@
+package ca.etsmtl.taf.exportimport.models;
+
+public enum ExportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+}
@@ -0,0 +1,9 @@
+package ca.etsmtl.taf.exportimport.repositories;
+
+import ca.etsmtl.taf.exportimport.models.ExportJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ExportJobRepository extends MongoRepository<ExportJob, String> {
+}
@@ -1,16 +1,34 @@
 package ca.etsmtl.taf.exportimport.repositories;
 
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Maps local ids to TestRail ids. One SQLite connection in WAL mode is kept
+ * open for the life of the application, and every mapping read or written is
+ * kept in memory: mappings are never removed, so a mapping read once never
+ * goes back to SQLite.
+ */
 @Component
 public class TestRailMappingRepository {
 
     private static final String DB_PATH =
             System.getenv().getOrDefault("DB_PATH", "data/testrail_cache.db");
-    private static final String DB_URL = "jdbc:sqlite:" + DB_PATH;
+
+    // Below the SQLite limit of host parameters per statement
+    private static final int MAX_KEYS_PER_QUERY = 500;
 
     public static final String PROJECT_KEY_SUFFIX = "PROJECT:";
     public static final String TEST_SUITE_KEY_SUFFIX = "SUITE:";
@@ -19,46 +37,135 @@ public class TestRailMappingRepository {
     public static final String TEST_RUN_KEY_SUFFIX = "RUN:";
     public static final String TEST_RESULT_KEY_SUFFIX = "RESULT:";
 
+    private final Map<String, Integer> mappings = new ConcurrentHashMap<>();
+
+    // The SQLite connection is not thread-safe, every use is synchronized on it
+    private final Connection connection;
+
+    @Autowired
     public TestRailMappingRepository() {
-        File dbDir = new File("/app/data");
-        if (!dbDir.exists()) {
+        this(DB_PATH);
+    }
+
+    public TestRailMappingRepository(String dbPath) {
+        File dbDir = new File(dbPath).getAbsoluteFile().getParentFile();
+        if (dbDir != null && !dbDir.exists()) {
             dbDir.mkdirs();
         }
 
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            String createTable = """
-                CREATE TABLE IF NOT EXISTS cache (
-                    key TEXT PRIMARY KEY,
-                    id INT NOT NULL
-                );
-            """;
-            conn.createStatement().execute(createTable);
+        try {
+            connection = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
+            try (Statement stmt = connection.createStatement()) {
+                // Readers do not block the writer, and commits do not wait for a full fsync
+                stmt.execute("PRAGMA journal_mode=WAL");
+                stmt.execute("PRAGMA synchronous=NORMAL");
+                stmt.execute("PRAGMA busy_timeout=5000");
+                stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS cache (
+                        key TEXT PRIMARY KEY,
+                        id INT NOT NULL
+                    );
+                """);
+            }
         } catch (SQLException e) {
             throw new RuntimeException("Failed to initialize SQLite store", e);
         }
     }
 
     public void put(String key, Integer id) {
+        putAll(Map.of(key, id));
+    }
+
+    /**
+     * Writes the mappings in a single transaction.
+     */
+    public void putAll(Map<String, Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
         String sql = "INSERT OR REPLACE INTO cache (key, id) VALUES (?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, key);
-            stmt.setInt(2, id);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to put id in store", e);
+        synchronized (connection) {
+            try {
+                connection.setAutoCommit(false);
+                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                    for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+                        stmt.setString(1, entry.getKey());
+                        stmt.setInt(2, entry.getValue());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to put id in store", e);
+            }
         }
+        mappings.putAll(ids);
     }
 
     public Integer get(String key) {
-        String sql = "SELECT id FROM cache WHERE key = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, key);
-            ResultSet rs = stmt.executeQuery();
-            return rs.next() ? rs.getInt("id") : null;
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to get id from store", e);
+        return getAll(List.of(key)).get(key);
+    }
+
+    /**
+     * Reads the mappings of the given keys, the ones not in memory with one
+     * query per {@value #MAX_KEYS_PER_QUERY} keys. Keys without mapping are
+     * absent from the result.
+     */
+    public Map<String, Integer> getAll(Collection<String> keys) {
+        Map<String, Integer> found = new HashMap<>();
+        List<String> missingKeys = new ArrayList<>();
+        for (String key : new LinkedHashSet<>(keys)) {
+            Integer id = mappings.get(key);
+            if (id != null) {
+                found.put(key, id);
+            } else {
+                missingKeys.add(key);
+            }
+        }
+
+        for (int from = 0; from < missingKeys.size(); from += MAX_KEYS_PER_QUERY) {
+            List<String> batch = missingKeys.subList(from, Math.min(from + MAX_KEYS_PER_QUERY, missingKeys.size()));
+            Map<String, Integer> loaded = load(batch);
+            mappings.putAll(loaded);
+            found.putAll(loaded);
+        }
+        return found;
+    }
+
+    private Map<String, Integer> load(List<String> keys) {
+        String sql = "SELECT key, id FROM cache WHERE key IN (" + String.join(",", Collections.nCopies(keys.size(), "?")) + ")";
+        Map<String, Integer> loaded = new HashMap<>();
+        synchronized (connection) {
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                for (int i = 0; i < keys.size(); i++) {
+                    stmt.setString(i + 1, keys.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        loaded.put(rs.getString("key"), rs.getInt("id"));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to get id from store", e);
+            }
+        }
+        return loaded;
+    }
+
+    @PreDestroy
+    public void close() {
+        synchronized (connection) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to close SQLite store", e);
+            }
         }
     }
 }
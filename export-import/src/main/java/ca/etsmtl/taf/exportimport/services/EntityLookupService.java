@@ -1,11 +1,19 @@
 package ca.etsmtl.taf.exportimport.services;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
 import ca.etsmtl.taf.exportimport.config.CacheConfig;
+import ca.etsmtl.taf.exportimport.config.EntityLoaderConfig;
 import ca.etsmtl.taf.exportimport.models.Entity;
 import ca.etsmtl.taf.exportimport.models.EntityType;
 import ca.etsmtl.taf.exportimport.models.Project;
@@ -19,6 +27,23 @@ import ca.etsmtl.taf.exportimport.repositories.TestRunRepository;
 import ca.etsmtl.taf.exportimport.repositories.TestSuiteRepository;
 import ca.etsmtl.taf.exportimport.repositories.TestCaseRepository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Entity lookups backed by the Caffeine caches of {@link CacheConfig}. The
+ * caches are used directly rather than through {@code @Cacheable}, whose proxy
+ * is skipped by calls made from this class and cannot serve bulk lookups.
+ */
 @Service
 @Transactional(readOnly = true)
 public class EntityLookupService {
@@ -27,48 +52,58 @@ public class EntityLookupService {
     private final TestRunRepository testRunRepository;
     private final TestResultRepository testResultRepository;
     private final TestCaseRepository testCaseRepository;
+    private final Map<EntityType, Cache<Object, Object>> caches = new EnumMap<>(EntityType.class);
+    private final Executor loaderExecutor;
+    private final int batchSize;
 
     @Autowired
     public EntityLookupService(ProjectRepository projectRepository,
                                    TestSuiteRepository testSuiteRepository,
                                    TestRunRepository testRunRepository,
                                    TestResultRepository testResultRepository,
-                                   TestCaseRepository testCaseRepository) {
+                                   TestCaseRepository testCaseRepository,
+                                   CacheManager cacheManager,
+                                   @Qualifier(EntityLoaderConfig.ENTITY_LOADER_EXECUTOR) Executor loaderExecutor,
+                                   @Value("${export.loader.batch-size:1000}") int batchSize) {
         this.projectRepository = projectRepository;
         this.testSuiteRepository = testSuiteRepository;
         this.testRunRepository = testRunRepository;
         this.testResultRepository = testResultRepository;
         this.testCaseRepository = testCaseRepository;
+        for (EntityType type : EntityType.values()) {
+            CaffeineCache cache = (CaffeineCache) cacheManager.getCache(cacheNameFor(type));
+            if (cache == null) {
+                throw new IllegalStateException("Cache %s is not configured".formatted(cacheNameFor(type)));
+            }
+            caches.put(type, cache.getNativeCache());
+        }
+        this.loaderExecutor = loaderExecutor;
+        this.batchSize = Math.max(1, batchSize);
     }
 
-    @Cacheable(cacheNames = CacheConfig.PROJECTS_CACHE, key = "#id")
     public Project findProjectById(String id) {
-        return projectRepository.findById(id)
-                .orElseThrow(() -> new IllegalStateException("Project with id %s not found".formatted(id)));
+        return (Project) caches.get(EntityType.PROJECT).get(id, key -> projectRepository.findById(id)
+                .orElseThrow(() -> new IllegalStateException("Project with id %s not found".formatted(id))));
     }
 
-    @Cacheable(cacheNames = CacheConfig.TEST_SUITES_CACHE, key = "#id")
     public TestSuite findTestSuiteById(String id) {
-        return testSuiteRepository.findById(id)
-                .orElseThrow(() -> new IllegalStateException("Test suite with id %s not found".formatted(id)));
+        return (TestSuite) caches.get(EntityType.TEST_SUITE).get(id, key -> testSuiteRepository.findById(id)
+                .orElseThrow(() -> new IllegalStateException("Test suite with id %s not found".formatted(id))));
     }
 
-    @Cacheable(cacheNames = CacheConfig.TEST_RUNS_CACHE, key = "#id")
     public TestRun findTestRunById(String id) {
-        return testRunRepository.findById(id)
-                .orElseThrow(() -> new IllegalStateException("Test run with id %s not found".formatted(id)));
+        return (TestRun) caches.get(EntityType.TEST_RUN).get(id, key -> testRunRepository.findById(id)
+                .orElseThrow(() -> new IllegalStateException("Test run with id %s not found".formatted(id))));
     }
 
-    @Cacheable(cacheNames = CacheConfig.TEST_RESULTS_CACHE, key = "#id")
     public TestResult findTestResultById(String id) {
-        return testResultRepository.findById(id)
-                .orElseThrow(() -> new IllegalStateException("Test result with id %s not found".formatted(id)));
+        return (TestResult) caches.get(EntityType.TEST_RESULT).get(id, key -> testResultRepository.findById(id)
+                .orElseThrow(() -> new IllegalStateException("Test result with id %s not found".formatted(id))));
     }
 
-    @Cacheable(cacheNames = CacheConfig.TEST_CASES_CACHE, key = "#id")
     public TestCase findTestCaseById(String id) {
-        return testCaseRepository.findById(id)
-                .orElseThrow(() -> new IllegalStateException("Test case with id %s not found".formatted(id)));
+        return (TestCase) caches.get(EntityType.TEST_CASE).get(id, key -> testCaseRepository.findById(id)
+                .orElseThrow(() -> new IllegalStateException("Test case with id %s not found".formatted(id))));
     }
 
     public Entity findById(String id, EntityType type) {
@@ -80,4 +115,82 @@ public class EntityLookupService {
             case TEST_CASE -> findTestCaseById(id);
         };
     }
+
+    /**
+     * Loads the given ids, the cached ones from their cache and the others with
+     * one {@code $in} query per type and per batch of
+     * {@code export.loader.batch-size} ids, all batches running concurrently.
+     * Loaded entities are added to the caches. Ids that do not exist are absent
+     * from the result, the caller decides how to report them.
+     */
+    public Map<EntityType, Map<String, Entity>> findAllById(Map<EntityType, ? extends Collection<String>> ids) {
+        Map<EntityType, Map<String, Entity>> found = new EnumMap<>(EntityType.class);
+        Map<EntityType, List<CompletableFuture<? extends List<? extends Entity>>>> batches =
+                new EnumMap<>(EntityType.class);
+        ids.forEach((type, typeIds) -> {
+            Map<String, Entity> entitiesById = new HashMap<>();
+            caches.get(type).getAllPresent(new LinkedHashSet<>(typeIds))
+                    .forEach((id, entity) -> entitiesById.put((String) id, (Entity) entity));
+            found.put(type, entitiesById);
+
+            List<String> missingIds = typeIds.stream().distinct().filter(id -> !entitiesById.containsKey(id)).toList();
+            List<CompletableFuture<? extends List<? extends Entity>>> futures = new ArrayList<>();
+            for (int from = 0; from < missingIds.size(); from += batchSize) {
+                List<String> batch = missingIds.subList(from, Math.min(from + batchSize, missingIds.size()));
+                futures.add(CompletableFuture.supplyAsync(() -> repositoryFor(type).findAllById(batch), loaderExecutor));
+            }
+            batches.put(type, futures);
+        });
+
+        batches.forEach((type, futures) -> {
+            Map<String, Entity> loaded = new HashMap<>();
+            for (CompletableFuture<? extends List<? extends Entity>> future : futures) {
+                join(future).forEach(entity -> loaded.put(entity.get_id(), entity));
+            }
+            caches.get(type).putAll(loaded);
+            found.get(type).putAll(loaded);
+        });
+        return found;
+    }
+
+    /**
+     * Hit and miss counts of each entity cache since startup, keyed by cache
+     * name.
+     */
+    public Map<String, CacheStats> getCacheStats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        caches.forEach((type, cache) -> stats.put(cacheNameFor(type), cache.stats()));
+        return stats;
+    }
+
+    private static String cacheNameFor(EntityType type) {
+        return switch (type) {
+            case PROJECT -> CacheConfig.PROJECTS_CACHE;
+            case TEST_SUITE -> CacheConfig.TEST_SUITES_CACHE;
+            case TEST_RUN -> CacheConfig.TEST_RUNS_CACHE;
+            case TEST_RESULT -> CacheConfig.TEST_RESULTS_CACHE;
+            case TEST_CASE -> CacheConfig.TEST_CASES_CACHE;
+        };
+    }
+
+    private MongoRepository<? extends Entity, String> repositoryFor(EntityType type) {
+        return switch (type) {
+            case PROJECT -> projectRepository;
+            case TEST_SUITE -> testSuiteRepository;
+            case TEST_RUN -> testRunRepository;
+            case TEST_RESULT -> testResultRepository;
+            case TEST_CASE -> testCaseRepository;
+        };
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
 }
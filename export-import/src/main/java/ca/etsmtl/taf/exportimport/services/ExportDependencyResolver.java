@@ -3,22 +3,21 @@ package ca.etsmtl.taf.exportimport.services;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import ca.etsmtl.taf.exportimport.models.Entity;
 import ca.etsmtl.taf.exportimport.models.EntityType;
 import ca.etsmtl.taf.exportimport.models.TestCase;
 import ca.etsmtl.taf.exportimport.models.TestResult;
 import ca.etsmtl.taf.exportimport.models.TestRun;
 import ca.etsmtl.taf.exportimport.models.TestSuite;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.ArrayList;
 import java.util.EnumMap;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 
 @Service
 public class ExportDependencyResolver {
@@ -38,21 +37,34 @@ public class ExportDependencyResolver {
     }
 
     public Map<EntityType, List<String>> resolveDependencies(Map<EntityType, List<String>> ids) {
+        Map<EntityType, List<String>> finalResult = new EnumMap<>(EntityType.class);
+        resolveEntities(ids).forEach((type, entities) ->
+                finalResult.put(type, entities.stream().map(Entity::get_id).toList()));
+        return finalResult;
+    }
+
+    /**
+     * Resolves the dependencies of the given ids and returns every entity to
+     * export. The graph is walked level by level: all the ids discovered at one
+     * level are loaded together, with one batched query per type, instead of one
+     * lookup per node.
+     */
+    public Map<EntityType, List<Entity>> resolveEntities(Map<EntityType, List<String>> ids) {
         if (ids == null) {
             throw new IllegalArgumentException("ids cannot be null");
         }
 
         Map<EntityType, LinkedHashSet<String>> result = new EnumMap<>(EntityType.class);
+        Map<EntityType, Map<String, Entity>> loaded = new EnumMap<>(EntityType.class);
         for (EntityType type : EntityType.values()) {
             result.put(type, new LinkedHashSet<>());
+            loaded.put(type, new HashMap<>());
         }
 
-        // Work queue for BFS
-        Deque<EntityReference> q = new ArrayDeque<>();
-        // Keep track of visited nodes
-        Set<EntityReference> visited = new HashSet<>();
+        // Ids to load at the first level
+        Map<EntityType, List<String>> initialLevel = new EnumMap<>(EntityType.class);
 
-        // Prepare work queue with initial ids
+        // Prepare first level with initial ids
         ids.forEach((type, idList) -> {
             if (idList == null) {
                 throw new IllegalStateException("Id list for type " + type + " cannot be null");
@@ -62,66 +74,85 @@ public class ExportDependencyResolver {
                 if (id == null || id.isBlank()) {
                     throw new IllegalStateException("Id for type " + type + " cannot be null or empty");
                 }
-                result.get(type).add(id);
-                q.add(new EntityReference(type, id));
+                if (result.get(type).add(id)) {
+                    initialLevel.computeIfAbsent(type, t -> new ArrayList<>()).add(id);
+                }
             }
         });
 
-        // BFS traversal
-        while (!q.isEmpty()) {
-            EntityReference current = q.removeFirst();
-            if (!visited.add(current)) {
-                continue;
-            }
-
-            List<EntityReference> dependencies = getDependencies(current);
-            for (EntityReference dep : dependencies) {
-                if (dep == null) {
-                    throw new IllegalStateException("Dependency reference cannot be null for type " + current.type());
-                }
-                String dependencyId = dep.id();
-                if (dependencyId == null || dependencyId.isBlank()) {
-                    throw new IllegalStateException("Id for dependency type " + dep.type() + " cannot be null or empty");
-                }
-
-                if (result.get(dep.type()).add(dependencyId)) {
-                    q.addLast(dep);
+        // Level by level traversal, each id is only added once to a level
+        Map<EntityType, List<String>> level = initialLevel;
+        while (!level.isEmpty()) {
+            Map<EntityType, Map<String, Entity>> found = entityLookupService.findAllById(level);
+            Map<EntityType, List<String>> nextLevel = new EnumMap<>(EntityType.class);
+
+            for (Map.Entry<EntityType, List<String>> entry : level.entrySet()) {
+                EntityType type = entry.getKey();
+                Map<String, Entity> foundOfType = found.getOrDefault(type, Map.of());
+                for (String id : entry.getValue()) {
+                    Entity entity = foundOfType.get(id);
+                    if (entity == null) {
+                        throw new IllegalStateException(
+                            typeName(type) + " with id '" + id + "' not found while resolving dependencies.");
+                    }
+                    loaded.get(type).put(id, entity);
+
+                    for (EntityReference dep : getDependencies(type, id, entity)) {
+                        if (dep == null) {
+                            throw new IllegalStateException("Dependency reference cannot be null for type " + type);
+                        }
+                        String dependencyId = dep.id();
+                        if (dependencyId == null || dependencyId.isBlank()) {
+                            throw new IllegalStateException("Id for dependency type " + dep.type() + " cannot be null or empty");
+                        }
+
+                        if (result.get(dep.type()).add(dependencyId)) {
+                            nextLevel.computeIfAbsent(dep.type(), t -> new ArrayList<>()).add(dependencyId);
+                        }
+                    }
                 }
             }
+            level = nextLevel;
         }
 
         // Convert to output format
-        Map<EntityType, List<String>> finalResult = new EnumMap<>(EntityType.class);
-        result.forEach((type, set) -> finalResult.put(type, List.copyOf(set)));
+        Map<EntityType, List<Entity>> finalResult = new EnumMap<>(EntityType.class);
+        result.forEach((type, set) -> finalResult.put(type, set.stream().map(loaded.get(type)::get).toList()));
         return finalResult;
     }
 
-    private List<EntityReference> getDependencies(EntityReference entity) {
-        switch(entity.type()) {
+    private List<EntityReference> getDependencies(EntityType type, String id, Entity entity) {
+        switch(type) {
             case PROJECT -> {
-                return getProjectDependencies(entity.id());
+                return getProjectDependencies();
             }
             case TEST_SUITE -> {
-                return getTestSuiteDependencies(entity.id());
+                return getTestSuiteDependencies(id, (TestSuite) entity);
             }
             case TEST_RUN -> {
-                return getTestRunDependencies(entity.id());
+                return getTestRunDependencies(id, (TestRun) entity);
             }
             case TEST_RESULT -> {
-                return getTestResultDependencies(entity.id());
+                return getTestResultDependencies(id, (TestResult) entity);
             }
             case TEST_CASE -> {
-                return getTestCaseDependencies(entity.id());
+                return getTestCaseDependencies(id, (TestCase) entity);
             }
-            default -> throw new IllegalArgumentException("Unknown entity type: " + entity.type());
+            default -> throw new IllegalArgumentException("Unknown entity type: " + type);
         }
     }
 
-    private List<EntityReference> getTestCaseDependencies(String id) {
-        TestCase testCase = entityLookupService.findTestCaseById(id);
-        if (testCase == null) {
-            throw new IllegalStateException("TestCase with id '" + id + "' not found while resolving dependencies.");
-        }
+    private static String typeName(EntityType type) {
+        return switch (type) {
+            case PROJECT -> "Project";
+            case TEST_SUITE -> "TestSuite";
+            case TEST_RUN -> "TestRun";
+            case TEST_RESULT -> "TestResult";
+            case TEST_CASE -> "TestCase";
+        };
+    }
+
+    private List<EntityReference> getTestCaseDependencies(String id, TestCase testCase) {
         String testSuiteId = testCase.getTestSuiteId();
         if (testSuiteId == null) {
             throw new IllegalStateException("TestCase with id '" + id + "' is missing an associated TestSuite while resolving dependencies.");
@@ -129,11 +160,7 @@ public class ExportDependencyResolver {
         return List.of(new EntityReference(EntityType.TEST_SUITE, testSuiteId));
     }
 
-    private List<EntityReference> getTestResultDependencies(String id) {
-        TestResult testResult = entityLookupService.findTestResultById(id);
-        if (testResult == null) {
-            throw new IllegalStateException("TestResult with id '" + id + "' not found while resolving dependencies.");
-        }
+    private List<EntityReference> getTestResultDependencies(String id, TestResult testResult) {
         String testCaseId = testResult.getTestCaseId();
         if (testCaseId == null) {
             throw new IllegalStateException("TestResult with id '" + id + "' is missing an associated TestCase while resolving dependencies.");
@@ -148,11 +175,7 @@ public class ExportDependencyResolver {
         );
     }
 
-    private List<EntityReference> getTestRunDependencies(String id) {
-        TestRun testRun = entityLookupService.findTestRunById(id);
-        if (testRun == null) {
-            throw new IllegalStateException("TestRun with id '" + id + "' not found while resolving dependencies.");
-        }
+    private List<EntityReference> getTestRunDependencies(String id, TestRun testRun) {
         String testSuiteId = testRun.getTestSuiteId();
         if (testSuiteId == null) {
             throw new IllegalStateException("TestRun with id '" + id + "' is missing an associated TestSuite while resolving dependencies.");
@@ -173,11 +196,7 @@ public class ExportDependencyResolver {
         return res;
     }
 
-    private List<EntityReference> getTestSuiteDependencies(String id) {
-        TestSuite testSuite = entityLookupService.findTestSuiteById(id);
-        if (testSuite == null) {
-            throw new IllegalStateException("TestSuite with id '" + id + "' not found while resolving dependencies.");
-        }
+    private List<EntityReference> getTestSuiteDependencies(String id, TestSuite testSuite) {
         String projectId = testSuite.getProjectId();
         if (projectId == null) {
             throw new IllegalStateException("TestSuite with id '" + id + "' is missing an associated Project while resolving dependencies.");
@@ -185,7 +204,7 @@ public class ExportDependencyResolver {
         return List.of(new EntityReference(EntityType.PROJECT, projectId));
     }
 
-    private List<EntityReference> getProjectDependencies(String id) {
+    private List<EntityReference> getProjectDependencies() {
         // Projects have no dependencies
         return List.of();
     }
@@ -0,0 +1,119 @@
+package ca.etsmtl.taf.exportimport.services;
+
+import ca.etsmtl.taf.exportimport.dtos.ExportJobResponse;
+import ca.etsmtl.taf.exportimport.models.EntityType;
+import ca.etsmtl.taf.exportimport.models.ExportJob;
+import ca.etsmtl.taf.exportimport.models.ExportJobStatus;
+import ca.etsmtl.taf.exportimport.repositories.ExportJobRepository;
+import ca.etsmtl.taf.exportimport.utils.exporters.ExportCheckpoint;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * The checkpoint of a job while it runs. The job is saved when a stage starts
+ * or completes, and at most every {@link #SAVE_INTERVAL} in between for its
+ * progress. The exporter calls it from several threads.
+ */
+class ExportJobRun implements ExportCheckpoint {
+
+    private static final Duration SAVE_INTERVAL = Duration.ofSeconds(2);
+
+    private final ExportJob job;
+    private final ExportJobRepository exportJobRepository;
+    private volatile boolean cancelled;
+    private volatile boolean stopped;
+    private long lastSave;
+
+    ExportJobRun(ExportJob job, ExportJobRepository exportJobRepository) {
+        this.job = job;
+        this.exportJobRepository = exportJobRepository;
+    }
+
+    ExportJob getJob() {
+        return job;
+    }
+
+    @Override
+    public synchronized boolean isCompleted(EntityType stage) {
+        return job.getCompletedStages().contains(stage);
+    }
+
+    @Override
+    public synchronized void stageStarted(EntityType stage, int total) {
+        job.setCurrentStage(stage);
+        job.getTotals().put(stage, total);
+        job.getProcessed().put(stage, 0);
+        save();
+    }
+
+    @Override
+    public synchronized void processed(EntityType stage, int count) {
+        if (count == 0) {
+            return;
+        }
+        job.getProcessed().merge(stage, count, Integer::sum);
+        if (System.nanoTime() - lastSave >= SAVE_INTERVAL.toNanos()) {
+            save();
+        }
+    }
+
+    @Override
+    public synchronized void stageCompleted(EntityType stage) {
+        job.getCompletedStages().add(stage);
+        job.setCurrentStage(null);
+        save();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled || stopped;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    // The application is shutting down, the job is resumed at the next start
+    void stop() {
+        stopped = true;
+    }
+
+    boolean isStopped() {
+        return stopped;
+    }
+
+    boolean isCancelRequested() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized void started() {
+        job.setStatus(ExportJobStatus.RUNNING);
+        job.setMessage(null);
+        save();
+    }
+
+    synchronized void finish(ExportJobStatus status, String message) {
+        job.setStatus(status);
+        job.setMessage(message);
+        job.setCurrentStage(null);
+        save();
+    }
+
+    // Renews the lease of the job, see ExportJobService
+    synchronized void heartbeat() {
+        save();
+    }
+
+    synchronized ExportJobResponse toResponse() {
+        return ExportJobResponse.of(job);
+    }
+
+    private void save() {
+        job.setUpdatedAt(Instant.now());
+        job.setHeartbeatAt(job.getUpdatedAt());
+        exportJobRepository.save(job);
+        lastSave = System.nanoTime();
+    }
+}
@@ -0,0 +1,280 @@
+package ca.etsmtl.taf.exportimport.services;
+
+import ca.etsmtl.taf.exportimport.config.ExportJobConfig;
+import ca.etsmtl.taf.exportimport.dtos.ExportJobResponse;
+import ca.etsmtl.taf.exportimport.models.EntityType;
+import ca.etsmtl.taf.exportimport.models.ExportJob;
+import ca.etsmtl.taf.exportimport.models.ExportJobStatus;
+import ca.etsmtl.taf.exportimport.repositories.ExportJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the exports as background jobs saved in Mongo. A job that fails or is
+ * cancelled can be resumed from its last completed stage.
+ * <p>
+ * The instance running a job holds a lease on it: it renews the job's
+ * {@code heartbeatAt} every {@code export.jobs.heartbeat-ms}. A queued or
+ * running job whose lease is older than {@code export.jobs.lease-ms} was left
+ * by an instance that stopped, and the first instance to claim it atomically
+ * resumes it, so several instances can share the jobs.
+ */
+@Service
+public class ExportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobService.class);
+
+    private static final String CANCELLED_MESSAGE = "Export cancelled";
+
+    private final ExportService exportService;
+    private final FileExportService fileExportService;
+    private final ExportJobRepository exportJobRepository;
+    private final MongoTemplate mongoTemplate;
+    private final Executor executor;
+    private final boolean resumeOnStartup;
+    private final Duration lease;
+    private final String instanceId = UUID.randomUUID().toString();
+    // Jobs queued or running in this instance
+    private final Map<String, ExportJobRun> runs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ExportJobService(ExportService exportService,
+                            FileExportService fileExportService,
+                            ExportJobRepository exportJobRepository,
+                            MongoTemplate mongoTemplate,
+                            @Qualifier(ExportJobConfig.EXPORT_JOB_EXECUTOR) Executor executor,
+                            @Value("${export.jobs.resume-on-startup:true}") boolean resumeOnStartup,
+                            @Value("${export.jobs.lease-ms:60000}") long leaseMs) {
+        this.exportService = exportService;
+        this.fileExportService = fileExportService;
+        this.exportJobRepository = exportJobRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.executor = executor;
+        this.resumeOnStartup = resumeOnStartup;
+        this.lease = Duration.ofMillis(leaseMs);
+    }
+
+    public ExportJobResponse submit(String type, Map<EntityType, List<String>> ids, boolean gzip) {
+        if (!exportService.supports(type) && !fileExportService.supports(type)) {
+            throw new IllegalArgumentException(String.format("Unsupported exporter type: %s", type));
+        }
+
+        ExportJob job = new ExportJob();
+        job.setType(type);
+        Map<EntityType, List<String>> jobIds = new EnumMap<>(EntityType.class);
+        ids.forEach((entityType, entityIds) -> jobIds.put(entityType, new ArrayList<>(entityIds)));
+        job.setIds(jobIds);
+        job.setGzip(gzip);
+        job.setStatus(ExportJobStatus.QUEUED);
+        job.setCreatedAt(Instant.now());
+        job.setUpdatedAt(job.getCreatedAt());
+        job.setOwner(instanceId);
+        job.setHeartbeatAt(job.getCreatedAt());
+        return schedule(exportJobRepository.save(job));
+    }
+
+    public Optional<ExportJobResponse> findById(String jobId) {
+        ExportJobRun run = runs.get(jobId);
+        if (run != null) {
+            return Optional.of(run.toResponse());
+        }
+        return exportJobRepository.findById(jobId).map(ExportJobResponse::of);
+    }
+
+    /**
+     * Stops the job after the calls in flight. Its progress is kept, it can be
+     * resumed later.
+     */
+    public ExportJobResponse cancel(String jobId) {
+        ExportJobRun run = runs.get(jobId);
+        if (run != null) {
+            run.cancel();
+            return run.toResponse();
+        }
+
+        ExportJob job = getJob(jobId);
+        if (job.isFinished()) {
+            throw new IllegalStateException("Export job %s is already %s".formatted(jobId, job.getStatus()));
+        }
+        if (isLeased(job)) {
+            throw new IllegalStateException("Export job %s is running in another instance".formatted(jobId));
+        }
+        // Left queued or running by an instance that stopped
+        job.setStatus(ExportJobStatus.CANCELLED);
+        job.setMessage(CANCELLED_MESSAGE);
+        job.setCurrentStage(null);
+        job.setUpdatedAt(Instant.now());
+        return ExportJobResponse.of(exportJobRepository.save(job));
+    }
+
+    /**
+     * Runs the job again from its last completed stage.
+     */
+    public ExportJobResponse resume(String jobId) {
+        if (runs.containsKey(jobId)) {
+            throw new IllegalStateException("Export job %s is already running".formatted(jobId));
+        }
+        ExportJob job = getJob(jobId);
+        if (job.getStatus() == ExportJobStatus.COMPLETED) {
+            throw new IllegalStateException("Export job %s is already COMPLETED".formatted(jobId));
+        }
+        if (!job.isFinished() && isLeased(job)) {
+            throw new IllegalStateException("Export job %s is running in another instance".formatted(jobId));
+        }
+        if (fileExportService.supports(job.getType())) {
+            // A file is written again from the start
+            job.getCompletedStages().clear();
+        }
+        job.setStatus(ExportJobStatus.QUEUED);
+        job.setMessage(null);
+        job.setUpdatedAt(Instant.now());
+        job.setOwner(instanceId);
+        job.setHeartbeatAt(job.getUpdatedAt());
+        return schedule(exportJobRepository.save(job));
+    }
+
+    /**
+     * The file written by a completed file export.
+     */
+    public FileExportService.ExportFile getFile(String jobId) {
+        ExportJob job = getJob(jobId);
+        if (!fileExportService.supports(job.getType())) {
+            throw new IllegalStateException("Export job %s does not write a file".formatted(jobId));
+        }
+        if (job.getStatus() != ExportJobStatus.COMPLETED) {
+            throw new IllegalStateException("Export job %s is %s, its file is not ready".formatted(jobId, job.getStatus()));
+        }
+        FileExportService.ExportFile file = fileExportService.fileOf(job);
+        if (!Files.isRegularFile(file.path())) {
+            throw new NoSuchElementException("File of export job %s not found".formatted(jobId));
+        }
+        return file;
+    }
+
+    /**
+     * Claims and resumes the jobs whose lease expired, one at a time: the
+     * claim renews the lease, so another instance cannot take the same job.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${export.jobs.lease-ms:60000}", initialDelayString = "${export.jobs.lease-ms:60000}")
+    public void resumeInterruptedJobs() {
+        if (!resumeOnStartup) {
+            return;
+        }
+        ExportJob job;
+        while ((job = claimExpiredJob()) != null) {
+            if (!runs.containsKey(job.get_id())) {
+                logger.info("Resuming export job {} left by {}", job.get_id(),
+                        job.getOwner() == null ? "a stopped instance" : "instance " + job.getOwner());
+                job.setOwner(instanceId);
+                schedule(job);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${export.jobs.heartbeat-ms:15000}")
+    public void renewLeases() {
+        runs.values().forEach(run -> {
+            try {
+                run.heartbeat();
+            } catch (RuntimeException e) {
+                logger.warn("Unable to renew the lease of export job {}: {}", run.getJob().get_id(), e.getMessage());
+            }
+        });
+    }
+
+    private ExportJob claimExpiredJob() {
+        Instant now = Instant.now();
+        Query query = Query.query(Criteria.where("status").in(ExportJobStatus.QUEUED, ExportJobStatus.RUNNING)
+                .orOperator(Criteria.where("heartbeatAt").is(null), Criteria.where("heartbeatAt").lt(now.minus(lease))));
+        // The previous owner is kept in the returned job for the log
+        Update update = new Update().set("owner", instanceId).set("heartbeatAt", now);
+        return mongoTemplate.findAndModify(query, update, ExportJob.class);
+    }
+
+    private boolean isLeased(ExportJob job) {
+        return job.getHeartbeatAt() != null && job.getHeartbeatAt().isAfter(Instant.now().minus(lease))
+                && !instanceId.equals(job.getOwner());
+    }
+
+    @PreDestroy
+    public void stop() {
+        runs.values().forEach(ExportJobRun::stop);
+    }
+
+    private ExportJob getJob(String jobId) {
+        return exportJobRepository.findById(jobId)
+                .orElseThrow(() -> new NoSuchElementException("Export job %s not found".formatted(jobId)));
+    }
+
+    private ExportJobResponse schedule(ExportJob job) {
+        ExportJobRun run = new ExportJobRun(job, exportJobRepository);
+        if (runs.putIfAbsent(job.get_id(), run) != null) {
+            throw new IllegalStateException("Export job %s is already running".formatted(job.get_id()));
+        }
+        try {
+            executor.execute(() -> execute(run));
+        } catch (RejectedExecutionException e) {
+            runs.remove(job.get_id());
+            run.finish(ExportJobStatus.FAILED, "Export job could not be scheduled: " + e.getMessage());
+        }
+        return run.toResponse();
+    }
+
+    private void execute(ExportJobRun run) {
+        ExportJob job = run.getJob();
+        try {
+            if (run.isCancelled()) {
+                finishInterrupted(run);
+                return;
+            }
+            String message = fileExportService.supports(job.getType())
+                    ? fileExportService.exportTo(job, run)
+                    : exportService.exportTo(job.getType(), job.getIds(), run);
+            run.finish(ExportJobStatus.COMPLETED, message);
+        } catch (Exception e) {
+            if (run.isCancelled()) {
+                finishInterrupted(run);
+            } else {
+                logger.warn("Export job {} failed: {}", job.get_id(), e.getMessage());
+                run.finish(ExportJobStatus.FAILED, e.getMessage());
+            }
+        } finally {
+            runs.remove(job.get_id());
+        }
+    }
+
+    private static void finishInterrupted(ExportJobRun run) {
+        if (run.isStopped() && !run.isCancelRequested()) {
+            run.finish(ExportJobStatus.QUEUED, "Interrupted by a shutdown, resumed at the next start");
+        } else {
+            run.finish(ExportJobStatus.CANCELLED, CANCELLED_MESSAGE);
+        }
+    }
+}
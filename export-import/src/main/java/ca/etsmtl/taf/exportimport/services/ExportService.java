@@ -1,15 +1,17 @@
 package ca.etsmtl.taf.exportimport.services;
 
+import ca.etsmtl.taf.exportimport.config.ExportLimitsProperties;
 import ca.etsmtl.taf.exportimport.models.Entity;
 import ca.etsmtl.taf.exportimport.models.EntityType;
+import ca.etsmtl.taf.exportimport.utils.exporters.ExportCheckpoint;
 import ca.etsmtl.taf.exportimport.utils.exporters.Exporter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,22 +19,37 @@ import org.slf4j.LoggerFactory;
 @Service
 public class ExportService {
 
-    private final EntityLookupService entityLookupService;
     private final Map<String, Exporter> exporters;
     private final ExportDependencyResolver exportDependencyResolver;
+    private final ExportLimitsProperties exportLimitsProperties;
+    // Caps the exports running at the same time per destination, keyed by exporter type
+    private final Map<String, Semaphore> exportPermits = new ConcurrentHashMap<>();
     private static final Logger logger = LoggerFactory.getLogger(ExportService.class);
 
 
     @Autowired
-    public ExportService(EntityLookupService entityLookupService,
-                         Map<String, Exporter> exporters,
-                         ExportDependencyResolver exportDependencyResolver) {
-        this.entityLookupService = entityLookupService;
+    public ExportService(Map<String, Exporter> exporters,
+                         ExportDependencyResolver exportDependencyResolver,
+                         ExportLimitsProperties exportLimitsProperties) {
         this.exporters = exporters;
         this.exportDependencyResolver = exportDependencyResolver;
+        this.exportLimitsProperties = exportLimitsProperties;
+    }
+
+    public boolean supports(String type) {
+        return exporters.containsKey(type);
     }
 
     public String exportTo(String type, Map<EntityType, List<String>> ids) throws Exception {
+        return exportTo(type, ids, ExportCheckpoint.NONE);
+    }
+
+    /**
+     * Exports the entities and their dependencies, skipping the stages the
+     * checkpoint reports as completed.
+     */
+    public String exportTo(String type, Map<EntityType, List<String>> ids, ExportCheckpoint checkpoint)
+            throws Exception {
         Exporter exporter = exporters.get(type);
         if (exporter == null) {
             String message = String.format("Unsupported exporter type: %s", type);
@@ -40,22 +57,24 @@ public class ExportService {
             throw new Exception(message);
         }
 
-        Map<EntityType, List<String>> fullExportIds = exportDependencyResolver.resolveDependencies(ids);
-        Map<EntityType, List<Entity>> entitiesMap =
-            fullExportIds.entrySet().stream()
-            .collect(Collectors.toMap(
-                    Map.Entry::getKey,
-                    e -> e.getValue().stream()
-                          .map(id -> entityLookupService.findById(id, e.getKey()))
-                          .collect(Collectors.toList()),
-                    (a, b) -> b,
-                    LinkedHashMap::new // To keep type order
-            ));
-
+        // Taken before resolving, a waiting export does not hold its entities in memory
+        Semaphore permits = exportPermits.computeIfAbsent(type,
+                key -> new Semaphore(exportLimitsProperties.maxParallelExportsFor(key), true));
+        if (!permits.tryAcquire()) {
+            logger.info("{} exports already running to {}, waiting for one to finish",
+                    exportLimitsProperties.maxParallelExportsFor(type), type);
+            permits.acquire();
+        }
+        Map<EntityType, List<Entity>> entitiesMap;
         try {
-            exporter.exportTo(entitiesMap);
+            checkpoint.started();
+            // The resolver loads every entity while walking the dependencies, in type order
+            entitiesMap = exportDependencyResolver.resolveEntities(ids);
+            exporter.exportTo(entitiesMap, checkpoint);
         } catch (Exception e) {
             throw new Exception("An error occured during the exportation: " + e.getMessage());
+        } finally {
+            permits.release();
         }
 
 
@@ -0,0 +1,262 @@
+package ca.etsmtl.taf.exportimport.services;
+
+import ca.etsmtl.taf.exportimport.models.Entity;
+import ca.etsmtl.taf.exportimport.models.EntityType;
+import ca.etsmtl.taf.exportimport.models.ExportJob;
+import ca.etsmtl.taf.exportimport.models.Project;
+import ca.etsmtl.taf.exportimport.models.TestCase;
+import ca.etsmtl.taf.exportimport.models.TestResult;
+import ca.etsmtl.taf.exportimport.models.TestRun;
+import ca.etsmtl.taf.exportimport.models.TestSuite;
+import ca.etsmtl.taf.exportimport.utils.exporters.ExportCheckpoint;
+import ca.etsmtl.taf.exportimport.utils.exporters.file.EntityWriter;
+import ca.etsmtl.taf.exportimport.utils.exporters.file.FileExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the selected entities and everything below them (the suites of a
+ * project, the cases and runs of a suite, the results of a run) to a file.
+ * Entities are read from Mongo cursors and written as they arrive: only the
+ * ids of the suites and runs are kept to query their children, never the
+ * entities, so the size of an export is bounded by the disk only.
+ */
+@Service
+public class FileExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileExportService.class);
+
+    private static final int CURSOR_BATCH_SIZE = 1000;
+    // Progress is reported, and cancellation checked, once per batch of entities
+    private static final int PROGRESS_BATCH_SIZE = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public record ExportFile(Path path, String contentType) {
+    }
+
+    private final Map<String, FileExporter> fileExporters;
+    private final MongoTemplate mongoTemplate;
+    private final Path directory;
+
+    @Autowired
+    public FileExportService(List<FileExporter> fileExporters,
+                             MongoTemplate mongoTemplate,
+                             @Value("${export.files.directory:data/exports}") String directory) {
+        this.fileExporters = fileExporters.stream()
+                .collect(Collectors.toMap(FileExporter::getFormat, Function.identity()));
+        this.mongoTemplate = mongoTemplate;
+        this.directory = Path.of(directory);
+    }
+
+    public boolean supports(String type) {
+        return fileExporters.containsKey(type);
+    }
+
+    public ExportFile fileOf(ExportJob job) {
+        FileExporter fileExporter = fileExporter(job.getType());
+        String fileName = job.get_id() + "." + fileExporter.getExtension() + (job.isGzip() ? ".gz" : "");
+        return new ExportFile(directory.resolve(fileName),
+                job.isGzip() ? "application/gzip" : fileExporter.getContentType());
+    }
+
+    /**
+     * Writes the file of the job, replacing the one of a previous attempt. The
+     * file is written next to its final name and only moved there once
+     * complete.
+     */
+    public String exportTo(ExportJob job, ExportCheckpoint checkpoint) throws IOException {
+        checkpoint.started();
+        FileExporter fileExporter = fileExporter(job.getType());
+        Path file = fileOf(job).path();
+        Path partialFile = file.resolveSibling(file.getFileName() + ".part");
+        Files.createDirectories(directory);
+
+        Map<EntityType, Long> counts;
+        try (OutputStream out = open(partialFile, job.isGzip())) {
+            EntityWriter writer = fileExporter.open(out);
+            counts = writeEntities(job.getIds(), writer, checkpoint);
+            writer.finish();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partialFile);
+            throw e;
+        }
+        Files.move(partialFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Export job {} written to {}", job.get_id(), file);
+
+        return getExportConfirmationMessage(counts, file);
+    }
+
+    private Map<EntityType, Long> writeEntities(Map<EntityType, List<String>> ids, EntityWriter writer,
+                                                ExportCheckpoint checkpoint) throws IOException {
+        Map<EntityType, Long> counts = new EnumMap<>(EntityType.class);
+
+        List<String> projectIds = ids.getOrDefault(EntityType.PROJECT, List.of());
+        counts.put(EntityType.PROJECT, writeStage(EntityType.PROJECT, Project.class,
+                selectedOrChildOf(projectIds, null, List.of()), writer, checkpoint, project -> {
+                }));
+
+        Set<String> testSuiteIds = new HashSet<>();
+        counts.put(EntityType.TEST_SUITE, writeStage(EntityType.TEST_SUITE, TestSuite.class,
+                selectedOrChildOf(ids.getOrDefault(EntityType.TEST_SUITE, List.of()), "projectId", projectIds),
+                writer, checkpoint, testSuite -> testSuiteIds.add(testSuite.get_id())));
+
+        counts.put(EntityType.TEST_CASE, writeStage(EntityType.TEST_CASE, TestCase.class,
+                selectedOrChildOf(ids.getOrDefault(EntityType.TEST_CASE, List.of()), "testSuiteId", testSuiteIds),
+                writer, checkpoint, testCase -> {
+                }));
+
+        Set<String> testRunIds = new LinkedHashSet<>();
+        counts.put(EntityType.TEST_RUN, writeStage(EntityType.TEST_RUN, TestRun.class,
+                selectedOrChildOf(ids.getOrDefault(EntityType.TEST_RUN, List.of()), "testSuiteId", testSuiteIds),
+                writer, checkpoint, testRun -> testRunIds.add(testRun.get_id())));
+
+        counts.put(EntityType.TEST_RESULT, writeResults(ids.getOrDefault(EntityType.TEST_RESULT, List.of()),
+                testRunIds, writer, checkpoint));
+        return counts;
+    }
+
+    private <T extends Entity> long writeStage(EntityType stage, Class<T> entityClass, Criteria criteria,
+                                               EntityWriter writer, ExportCheckpoint checkpoint,
+                                               Consumer<T> onEntity) throws IOException {
+        if (criteria == null) {
+            return 0;
+        }
+        checkpoint.stageStarted(stage, toInt(mongoTemplate.count(new Query(criteria), entityClass)));
+        long count = write(stage, entityClass, new Query(criteria), writer, checkpoint, onEntity);
+        checkpoint.stageCompleted(stage);
+        return count;
+    }
+
+    // Results are written grouped by run, one query per run on its index
+    private long writeResults(List<String> selectedTestResultIds, Collection<String> testRunIds, EntityWriter writer,
+                              ExportCheckpoint checkpoint) throws IOException {
+        Criteria criteria = selectedOrChildOf(selectedTestResultIds, "testRunId", testRunIds);
+        if (criteria == null) {
+            return 0;
+        }
+        checkpoint.stageStarted(EntityType.TEST_RESULT, toInt(mongoTemplate.count(new Query(criteria), TestResult.class)));
+
+        long count = 0;
+        for (String testRunId : testRunIds) {
+            count += write(EntityType.TEST_RESULT, TestResult.class,
+                    new Query(Criteria.where("testRunId").is(testRunId)), writer, checkpoint, testResult -> {
+                    });
+        }
+        if (!selectedTestResultIds.isEmpty()) {
+            // Selected results of runs not exported, few enough to be sorted by Mongo
+            Query query = new Query(Criteria.where("_id").in(selectedTestResultIds).and("testRunId").nin(testRunIds))
+                    .with(Sort.by("testRunId"));
+            count += write(EntityType.TEST_RESULT, TestResult.class, query, writer, checkpoint, testResult -> {
+            });
+        }
+        checkpoint.stageCompleted(EntityType.TEST_RESULT);
+        return count;
+    }
+
+    private <T extends Entity> long write(EntityType stage, Class<T> entityClass, Query query, EntityWriter writer,
+                                          ExportCheckpoint checkpoint, Consumer<T> onEntity) throws IOException {
+        query.cursorBatchSize(CURSOR_BATCH_SIZE);
+        long count = 0;
+        int pending = 0;
+        try (Stream<T> entities = mongoTemplate.stream(query, entityClass)) {
+            Iterator<T> iterator = entities.iterator();
+            while (iterator.hasNext()) {
+                T entity = iterator.next();
+                writer.write(entity);
+                onEntity.accept(entity);
+                count++;
+                if (++pending == PROGRESS_BATCH_SIZE) {
+                    checkpoint.processed(stage, pending);
+                    pending = 0;
+                    if (checkpoint.isCancelled()) {
+                        throw new CancellationException("Export cancelled");
+                    }
+                }
+            }
+        }
+        checkpoint.processed(stage, pending);
+        return count;
+    }
+
+    // The selected entities of a stage and the children of the parents exported, null if none
+    private static Criteria selectedOrChildOf(Collection<String> selectedIds, String parentField,
+                                              Collection<String> parentIds) {
+        List<Criteria> criteria = new ArrayList<>();
+        if (!selectedIds.isEmpty()) {
+            criteria.add(Criteria.where("_id").in(selectedIds));
+        }
+        if (parentField != null && !parentIds.isEmpty()) {
+            criteria.add(Criteria.where(parentField).in(parentIds));
+        }
+        return switch (criteria.size()) {
+            case 0 -> null;
+            case 1 -> criteria.get(0);
+            default -> new Criteria().orOperator(criteria);
+        };
+    }
+
+    private static OutputStream open(Path file, boolean gzip) throws IOException {
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+        return gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+    }
+
+    private FileExporter fileExporter(String type) {
+        FileExporter fileExporter = fileExporters.get(type);
+        if (fileExporter == null) {
+            throw new IllegalArgumentException(String.format("Unsupported exporter type: %s", type));
+        }
+        return fileExporter;
+    }
+
+    private static int toInt(long count) {
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    private static String getExportConfirmationMessage(Map<EntityType, Long> counts, Path file) {
+        List<String> parts = new ArrayList<>();
+        counts.forEach((type, count) -> {
+            if (count > 0) {
+                parts.add(count + " " + switch (type) {
+                    case PROJECT -> "project(s)";
+                    case TEST_SUITE -> "suite(s)";
+                    case TEST_CASE -> "case(s)";
+                    case TEST_RUN -> "run(s)";
+                    case TEST_RESULT -> "result(s)";
+                });
+            }
+        });
+        if (parts.isEmpty()) {
+            return "Nothing was exported";
+        }
+        return "Successfully exported " + String.join(", ", parts) + " to " + file.getFileName();
+    }
+}
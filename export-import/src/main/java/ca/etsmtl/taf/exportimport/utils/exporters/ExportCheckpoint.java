@@ -0,0 +1,37 @@
+package ca.etsmtl.taf.exportimport.utils.exporters;
+
+import ca.etsmtl.taf.exportimport.models.EntityType;
+
+/**
+ * Progress of an export, reported by the exporter stage by stage. A stage
+ * completed by a previous attempt is skipped, and an exporter stops sending
+ * new calls once the export is cancelled.
+ */
+public interface ExportCheckpoint {
+
+    ExportCheckpoint NONE = new ExportCheckpoint() {
+    };
+
+    /**
+     * The export stops waiting for its turn and begins.
+     */
+    default void started() {
+    }
+
+    default boolean isCompleted(EntityType stage) {
+        return false;
+    }
+
+    default void stageStarted(EntityType stage, int total) {
+    }
+
+    default void processed(EntityType stage, int count) {
+    }
+
+    default void stageCompleted(EntityType stage) {
+    }
+
+    default boolean isCancelled() {
+        return false;
+    }
+}
@@ -7,5 +7,9 @@ import ca.etsmtl.taf.exportimport.models.Entity;
 import ca.etsmtl.taf.exportimport.models.EntityType;
 
 public interface Exporter {
-    void exportTo(Map<EntityType, List<Entity>> entities) throws Exception;
+    void exportTo(Map<EntityType, List<Entity>> entities, ExportCheckpoint checkpoint) throws Exception;
+
+    default void exportTo(Map<EntityType, List<Entity>> entities) throws Exception {
+        exportTo(entities, ExportCheckpoint.NONE);
+    }
 }
@@ -1,134 +1,219 @@
 package ca.etsmtl.taf.exportimport.utils.exporters;
 
-import ca.etsmtl.taf.exportimport.config.TestRailConfig;
 import ca.etsmtl.taf.exportimport.dtos.testrail.*;
 import ca.etsmtl.taf.exportimport.models.*;
 
 import ca.etsmtl.taf.exportimport.repositories.TestRailMappingRepository;
 import ca.etsmtl.taf.exportimport.services.EntityLookupService;
-import com.gurock.testrail.APIClient;
 import com.gurock.testrail.APIException;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 @Component("testrail")
 public class TestRailExporter implements Exporter {
 
-    private final APIClient client;
+    private final TestRailGateway client;
     private final TestRailMappingRepository testRailMappingRepository;
     private final EntityLookupService entityLookupService;
-
-    List<Project> allProjectsExported;
-    List<TestSuite> allTestSuitesExported;
-    List<TestCase> allTestCasesExported;
-    List<TestRun> allTestRunsExported;
-    List<TestResult> allTestResultsExported;
+    private final int resultsPerRequest;
+    // Mapping keys an export is creating, completed once the mapping is saved, see createOnce
+    private final ConcurrentMap<String, CompletableFuture<Void>> creationsInFlight = new ConcurrentHashMap<>();
 
     private static final Logger logger = LoggerFactory.getLogger(TestRailExporter.class);
 
     @Autowired
-    public TestRailExporter(TestRailConfig testRailConfig, TestRailMappingRepository testRailMappingRepository, EntityLookupService entityLookupService) {
-        this.client = testRailConfig.createClient();
+    public TestRailExporter(TestRailGateway testRailGateway, TestRailMappingRepository testRailMappingRepository,
+                            EntityLookupService entityLookupService,
+                            @Value("${testrail.results-per-request:250}") int resultsPerRequest) {
+        this.client = testRailGateway;
         this.testRailMappingRepository = testRailMappingRepository;
         this.entityLookupService = entityLookupService;
+        this.resultsPerRequest = Math.max(1, resultsPerRequest);
     }
 
     /*
      * Important considerations:
-     * - Consider API rate limits? Could be solved as a more generic problem (not TR specific)
+     * - Stages run one after the other, a stage needs the TestRail ids created by the previous ones
+     * - Within a stage the calls are independent and sent concurrently through TestRailGateway,
+     *   which handles the API rate limit and the retries
+     * - A stage completed by a previous attempt of the export is skipped, and no call is started once
+     *   the export is cancelled
+     * - The exporter is shared by all the exports: the state of an export lives in its ExportContext
+     * - Exports running at the same time may share entities: an export claims the mapping keys it creates,
+     *   and another export needing the same keys waits for the creation and then finds the mapping, so the
+     *   entity is created once. Only the exports sharing a key wait for each other. The claims are in
+     *   memory, the module is expected to run as a single instance
+     */
+
+    /**
+     * The entities of one export and the ones it actually sent to TestRail.
      */
+    private static final class ExportContext {
+        private final Map<EntityType, List<Entity>> entities;
+        private final ExportCheckpoint checkpoint;
+        private final Map<EntityType, List<Entity>> exported = new EnumMap<>(EntityType.class);
+
+        private ExportContext(Map<EntityType, List<Entity>> entities, ExportCheckpoint checkpoint) {
+            this.entities = entities;
+            this.checkpoint = checkpoint;
+            for (EntityType type : EntityType.values()) {
+                exported.put(type, new ArrayList<>());
+            }
+        }
+
+        private <T extends Entity> List<T> entitiesOf(EntityType type, Class<T> entityClass) {
+            return Optional.ofNullable(entities.get(type))
+                    .stream()
+                    .flatMap(list -> list.stream().map(entityClass::cast))
+                    .toList();
+        }
+
+        private void addExported(EntityType type, List<? extends Entity> exportedEntities) {
+            exported.get(type).addAll(exportedEntities);
+        }
+    }
 
     @Override
-    public void exportTo(Map<EntityType, List<Entity>> entities) throws Exception {
-        allProjectsExported = new ArrayList<>();
-        allTestSuitesExported = new ArrayList<>();
-        allTestCasesExported = new ArrayList<>();
-        allTestRunsExported = new ArrayList<>();
-        allTestResultsExported = new ArrayList<>();
-
-        exportProjects(entities);
-        exportSuites(entities);
-        exportCases(entities);
-        exportRuns(entities);
-        exportResults(entities);
-
-        entities.put(EntityType.PROJECT, allProjectsExported.stream().map(project -> (Entity) project).toList());
-        entities.put(EntityType.TEST_SUITE, allTestSuitesExported.stream().map(testSuite -> (Entity) testSuite).toList());
-        entities.put(EntityType.TEST_CASE, allTestCasesExported.stream().map(testCase -> (Entity) testCase).toList());
-        entities.put(EntityType.TEST_RUN, allTestRunsExported.stream().map(testRun -> (Entity) testRun).toList());
-        entities.put(EntityType.TEST_RESULT, allTestResultsExported.stream().map(testResult -> (Entity) testResult).toList());
+    public void exportTo(Map<EntityType, List<Entity>> entities, ExportCheckpoint checkpoint) throws Exception {
+        ExportContext context = new ExportContext(entities, checkpoint);
+
+        exportProjects(context);
+        exportSuites(context);
+        exportCases(context);
+        exportRuns(context);
+        exportResults(context);
+
+        // Callers count what was exported from the map they passed
+        entities.putAll(context.exported);
     }
 
-    private void exportProjects(Map<EntityType, List<Entity>> entities) throws IOException, APIException {
-        List<Project> projects = Optional.ofNullable(entities.get(EntityType.PROJECT))
-                .stream()
-                .flatMap(list -> list.stream().map(Project.class::cast))
-                .toList();
+    private <T extends Entity> List<T> exportStage(EntityType stage, List<T> items, ExportCheckpoint checkpoint,
+                                                   String keySuffix, TestRailGateway.Call<T, T> export)
+            throws IOException, APIException {
+        if (checkpoint.isCompleted(stage)) {
+            logger.info("Stage {} already completed by a previous attempt, skipped", stage);
+            return List.of();
+        }
+        checkpoint.stageStarted(stage, items.size());
+        List<T> exported = client.forEach(items, item -> {
+            checkCancelled(checkpoint);
+            T exportedItem = createOnce(List.of(keySuffix + item.get_id()), () -> export.apply(item));
+            checkpoint.processed(stage, 1);
+            return exportedItem;
+        });
+        checkpoint.stageCompleted(stage);
+        return exported.stream().filter(Objects::nonNull).toList();
+    }
 
-        for (Project project : projects) {
-            String projectKey = TestRailMappingRepository.PROJECT_KEY_SUFFIX + project.get_id();
-            Integer projectIdTR = testRailMappingRepository.get(projectKey);
+    private interface Creation<R> {
+        R run() throws IOException, APIException;
+    }
 
-            if (projectIdTR == null) {
-                ProjectDTO projectDTO = new ProjectDTO(project);
-                try {
-                    JSONObject createdProject = (JSONObject) client.sendPost("add_project", projectDTO.toJson());
-                    projectIdTR = ((Number) createdProject.get("id")).intValue();
-
-                    testRailMappingRepository.put(projectKey, projectIdTR);
-                } catch (Exception e) {
-                    logger.warn("An error occurred when adding project {} to testrail : {}",
-                            projectDTO.getId(), e.getMessage()
-                    );
-                    throw e;
+    /**
+     * Runs the creation once no other export is creating one of the keys, and keeps them claimed until it
+     * returns. The keys are claimed in order, so two exports never wait for each other.
+     */
+    private <R> R createOnce(Collection<String> keys, Creation<R> creation) throws IOException, APIException {
+        CompletableFuture<Void> claim = new CompletableFuture<>();
+        List<String> claimed = new ArrayList<>(keys.size());
+        try {
+            for (String key : new TreeSet<>(keys)) {
+                CompletableFuture<Void> inFlight;
+                while ((inFlight = creationsInFlight.putIfAbsent(key, claim)) != null) {
+                    // Always completed, the outcome of the other creation is read from the mapping
+                    inFlight.join();
                 }
-                allProjectsExported.add(project);
+                claimed.add(key);
             }
+            return creation.run();
+        } finally {
+            claimed.forEach(key -> creationsInFlight.remove(key, claim));
+            claim.complete(null);
         }
     }
 
-    private void exportSuites(
-            Map<EntityType, List<Entity>> entities
-    ) throws IOException, APIException {
-        List<TestSuite> testSuites = Optional.ofNullable(entities.get(EntityType.TEST_SUITE))
-                .stream()
-                .flatMap(list -> list.stream().map(TestSuite.class::cast))
-                .toList();
+    private static void checkCancelled(ExportCheckpoint checkpoint) {
+        if (checkpoint.isCancelled()) {
+            throw new CancellationException("Export cancelled");
+        }
+    }
+
+    private void exportProjects(ExportContext context) throws IOException, APIException {
+        List<Project> projects = context.entitiesOf(EntityType.PROJECT, Project.class);
 
-        for (TestSuite testSuite : testSuites) {
+        List<Project> exported = exportStage(EntityType.PROJECT, projects, context.checkpoint,
+                TestRailMappingRepository.PROJECT_KEY_SUFFIX, project -> {
+            String projectKey = TestRailMappingRepository.PROJECT_KEY_SUFFIX + project.get_id();
+            Integer projectIdTR = testRailMappingRepository.get(projectKey);
+
+            if (projectIdTR != null) {
+                return null;
+            }
+            ProjectDTO projectDTO = new ProjectDTO(project);
+            try {
+                JSONObject createdProject = (JSONObject) client.sendPost("add_project", projectDTO.toJson());
+                projectIdTR = ((Number) createdProject.get("id")).intValue();
+
+                testRailMappingRepository.put(projectKey, projectIdTR);
+            } catch (Exception e) {
+                logger.warn("An error occurred when adding project {} to testrail : {}",
+                        projectDTO.getId(), e.getMessage()
+                );
+                throw e;
+            }
+            return project;
+        });
+        context.addExported(EntityType.PROJECT, exported);
+    }
+
+    private void exportSuites(ExportContext context) throws IOException, APIException {
+        List<TestSuite> testSuites = context.entitiesOf(EntityType.TEST_SUITE, TestSuite.class);
+
+        // The lock of the suite also covers its section
+        List<TestSuite> exported = exportStage(EntityType.TEST_SUITE, testSuites, context.checkpoint,
+                TestRailMappingRepository.TEST_SUITE_KEY_SUFFIX, testSuite -> {
             String testSuiteKey = TestRailMappingRepository.TEST_SUITE_KEY_SUFFIX + testSuite.get_id();
             Integer testSuiteIdTR = testRailMappingRepository.get(testSuiteKey);
 
-            if (testSuiteIdTR == null) {
-                String projectId =  testSuite.getProjectId();
-                String projectKey = TestRailMappingRepository.PROJECT_KEY_SUFFIX + projectId;
-                Integer projectIdTR = testRailMappingRepository.get(projectKey);
+            if (testSuiteIdTR != null) {
+                // A previous attempt may have created the suite but failed on its section
+                createSection(testSuite);
+                return null;
+            }
+            String projectId =  testSuite.getProjectId();
+            String projectKey = TestRailMappingRepository.PROJECT_KEY_SUFFIX + projectId;
+            Integer projectIdTR = testRailMappingRepository.get(projectKey);
 
-                TestSuiteDTO testSuiteDTO = new TestSuiteDTO(testSuite);
-                try {
-                    JSONObject createdSuite = (JSONObject) client.sendPost("add_suite/" + projectIdTR, testSuiteDTO.toJson());
-                    testSuiteIdTR = ((Number) createdSuite.get("id")).intValue();
+            TestSuiteDTO testSuiteDTO = new TestSuiteDTO(testSuite);
+            try {
+                JSONObject createdSuite = (JSONObject) client.sendPost("add_suite/" + projectIdTR, testSuiteDTO.toJson());
+                testSuiteIdTR = ((Number) createdSuite.get("id")).intValue();
 
-                    testRailMappingRepository.put(testSuiteKey, testSuiteIdTR);
+                testRailMappingRepository.put(testSuiteKey, testSuiteIdTR);
 
-                    createSection(testSuite);
-                } catch (Exception e) {
-                    logger.warn("An error occurred when adding suite {} of project {} to testrail : {}",
-                            testSuiteDTO.getId(), projectId, e.getMessage()
-                    );
-                    throw e;
-                }
-                allTestSuitesExported.add(testSuite);
+                createSection(testSuite);
+            } catch (Exception e) {
+                logger.warn("An error occurred when adding suite {} of project {} to testrail : {}",
+                        testSuiteDTO.getId(), projectId, e.getMessage()
+                );
+                throw e;
             }
-        }
+            return testSuite;
+        });
+        context.addExported(EntityType.TEST_SUITE, exported);
     }
 
     private void createSection(TestSuite testSuite) throws IOException, APIException {
@@ -158,143 +243,214 @@ public class TestRailExporter implements Exporter {
         }
     }
 
-    private void exportCases(Map<EntityType, List<Entity>> entities
-    ) throws IOException, APIException {
-        List<TestCase> testCases = Optional.ofNullable(entities.get(EntityType.TEST_CASE))
-                .stream()
-                .flatMap(list -> list.stream().map(TestCase.class::cast))
-                .toList();
+    private void exportCases(ExportContext context) throws IOException, APIException {
+        List<TestCase> testCases = context.entitiesOf(EntityType.TEST_CASE, TestCase.class);
 
-        for (TestCase testCase: testCases) {
+        // TestRail has no bulk endpoint to add cases, one call per case
+        List<TestCase> exported = exportStage(EntityType.TEST_CASE, testCases, context.checkpoint,
+                TestRailMappingRepository.TEST_CASE_KEY_SUFFIX, testCase -> {
             String testCaseId = testCase.get_id();
 
             String testCaseKey = TestRailMappingRepository.TEST_CASE_KEY_SUFFIX + testCaseId;
             Integer testCaseIdTR = testRailMappingRepository.get(testCaseKey);
 
-            if (testCaseIdTR == null) {
-                String testSuiteId = testCase.getTestSuiteId();
-                String sectionKey = TestRailMappingRepository.SECTION_KEY_SUFFIX + testSuiteId;
-                Integer sectionIdTR = testRailMappingRepository.get(sectionKey);
-
-                TestCaseDTO testCaseDTO = new TestCaseDTO(testCase, sectionIdTR);
-                try {
-                    JSONObject createdTestCase = (JSONObject) client.sendPost("add_case/" + sectionIdTR, testCaseDTO.toJson());
-                    testCaseIdTR = ((Number) createdTestCase.get("id")).intValue();
-                    testRailMappingRepository.put(testCaseKey, testCaseIdTR);
-                } catch (Exception e) {
-                    logger.warn("An error occurred when adding case {} of section {} of suite {} to testrail : {}",
-                            testCaseId, testSuiteId, testSuiteId, e.getMessage()
-                    );
-                    throw e;
-                }
-                allTestCasesExported.add(testCase);
+            if (testCaseIdTR != null) {
+                return null;
             }
-        }
+            String testSuiteId = testCase.getTestSuiteId();
+            String sectionKey = TestRailMappingRepository.SECTION_KEY_SUFFIX + testSuiteId;
+            Integer sectionIdTR = testRailMappingRepository.get(sectionKey);
+
+            TestCaseDTO testCaseDTO = new TestCaseDTO(testCase, sectionIdTR);
+            try {
+                JSONObject createdTestCase = (JSONObject) client.sendPost("add_case/" + sectionIdTR, testCaseDTO.toJson());
+                testCaseIdTR = ((Number) createdTestCase.get("id")).intValue();
+                testRailMappingRepository.put(testCaseKey, testCaseIdTR);
+            } catch (Exception e) {
+                logger.warn("An error occurred when adding case {} of section {} of suite {} to testrail : {}",
+                        testCaseId, testSuiteId, testSuiteId, e.getMessage()
+                );
+                throw e;
+            }
+            return testCase;
+        });
+        context.addExported(EntityType.TEST_CASE, exported);
     }
 
-    private void exportRuns(Map<EntityType, List<Entity>> entities) throws IOException, APIException {
-        List<TestRun> testRuns = Optional.ofNullable(entities.get(EntityType.TEST_RUN))
-                .stream()
-                .flatMap(list -> list.stream().map(TestRun.class::cast))
-                .toList();
+    private void exportRuns(ExportContext context) throws IOException, APIException {
+        List<TestRun> testRuns = context.entitiesOf(EntityType.TEST_RUN, TestRun.class);
 
-        for (TestRun testRun: testRuns) {
+        List<TestRun> exported = exportStage(EntityType.TEST_RUN, testRuns, context.checkpoint,
+                TestRailMappingRepository.TEST_RUN_KEY_SUFFIX, testRun -> {
             String testRunId = testRun.get_id();
 
             String testRunKey = TestRailMappingRepository.TEST_RUN_KEY_SUFFIX + testRunId;
             Integer testRunIdTR = testRailMappingRepository.get(testRunKey);
 
-            if (testRunIdTR == null) {
-                String testSuiteId = testRun.getTestSuiteId();
-                String testSuiteKey = TestRailMappingRepository.TEST_SUITE_KEY_SUFFIX + testSuiteId;
-                Integer testSuiteIdTR = testRailMappingRepository.get(testSuiteKey);
+            if (testRunIdTR != null) {
+                return null;
+            }
+            String testSuiteId = testRun.getTestSuiteId();
+            String testSuiteKey = TestRailMappingRepository.TEST_SUITE_KEY_SUFFIX + testSuiteId;
+            Integer testSuiteIdTR = testRailMappingRepository.get(testSuiteKey);
 
-                TestSuite testSuite = entityLookupService.findTestSuiteById(testSuiteId);
-                String projectId = testSuite.getProjectId();
+            TestSuite testSuite = entityLookupService.findTestSuiteById(testSuiteId);
+            String projectId = testSuite.getProjectId();
+
+            String projectKey = TestRailMappingRepository.PROJECT_KEY_SUFFIX + projectId;
+            Integer projectIdTR = testRailMappingRepository.get(projectKey);
 
-                String projectKey = TestRailMappingRepository.PROJECT_KEY_SUFFIX + projectId;
-                Integer projectIdTR = testRailMappingRepository.get(projectKey);
+            List<String> testCaseKeys = testRun.getTestCaseIds().stream()
+                    .map(testCaseId -> TestRailMappingRepository.TEST_CASE_KEY_SUFFIX + testCaseId)
+                    .toList();
+            Map<String, Integer> testCaseIdsTR = testRailMappingRepository.getAll(testCaseKeys);
+            List<Integer> testCaseIds = testCaseKeys.stream().map(testCaseIdsTR::get).toList();
 
-                List<Integer> testCaseIds = testRun.getTestCaseIds().stream().map(testCaseId -> {
-                    String testCaseKey = TestRailMappingRepository.TEST_CASE_KEY_SUFFIX + testCaseId;
-                    return testRailMappingRepository.get(testCaseKey);
-                }).toList();
-
-                TestRunDTO testRunDTO = new TestRunDTO(testRun, testSuiteIdTR, testCaseIds);
-                try {
-                    JSONObject createdTestRun = (JSONObject) client.sendPost("add_run/" + projectIdTR, testRunDTO.toJson());
-                    testRunIdTR = ((Number) createdTestRun.get("id")).intValue();
-                    testRailMappingRepository.put(testRunKey, testRunIdTR);
-                } catch (Exception e) {
-                    logger.warn("An error occurred when adding run {} of section {} of suite {} of project {} to testrail : {}",
-                            testRunId, testSuiteId, testSuiteId, projectId, e.getMessage()
-                    );
-                    throw e;
-                }
-                allTestRunsExported.add(testRun);
+            TestRunDTO testRunDTO = new TestRunDTO(testRun, testSuiteIdTR, testCaseIds);
+            try {
+                JSONObject createdTestRun = (JSONObject) client.sendPost("add_run/" + projectIdTR, testRunDTO.toJson());
+                testRunIdTR = ((Number) createdTestRun.get("id")).intValue();
+                testRailMappingRepository.put(testRunKey, testRunIdTR);
+            } catch (Exception e) {
+                logger.warn("An error occurred when adding run {} of section {} of suite {} of project {} to testrail : {}",
+                        testRunId, testSuiteId, testSuiteId, projectId, e.getMessage()
+                );
+                throw e;
             }
-        }
+            return testRun;
+        });
+        context.addExported(EntityType.TEST_RUN, exported);
     }
 
-    private void exportResults(Map<EntityType, List<Entity>> entities) throws IOException, APIException {
-        Map<String, List<TestResult>> testResultsByRunIdMap = Optional.ofNullable(entities.get(EntityType.TEST_RESULT))
-                .stream()
-                .flatMap(list -> list.stream().map(TestResult.class::cast))
+    private record ResultBatch(String testRunId, Integer testRunIdTR, List<TestResult> testResults,
+                               List<TestResultDTO> testResultDTOS) {
+    }
+
+    private void exportResults(ExportContext context) throws IOException, APIException {
+        ExportCheckpoint checkpoint = context.checkpoint;
+        if (checkpoint.isCompleted(EntityType.TEST_RESULT)) {
+            logger.info("Stage {} already completed by a previous attempt, skipped", EntityType.TEST_RESULT);
+            return;
+        }
+        List<TestResult> testResults = context.entitiesOf(EntityType.TEST_RESULT, TestResult.class);
+        Map<String, List<TestResult>> testResultsByRunIdMap = testResults.stream()
                 .collect(Collectors.groupingBy(TestResult::getTestRunId));
+        checkpoint.stageStarted(EntityType.TEST_RESULT, testResults.size());
 
+        // Results are sent with the bulk endpoint, at most resultsPerRequest per call
+        List<ResultBatch> batches = new ArrayList<>();
         for (Map.Entry<String, List<TestResult>> entry : testResultsByRunIdMap.entrySet()) {
             String testRunId = entry.getKey();
             List<TestResult> testResultsOfRun = entry.getValue();
+            List<TestResult> testResultsToAdd = new ArrayList<>();
             List<TestResultDTO> testResultDTOS = new ArrayList<>();
 
             String testRunKey = TestRailMappingRepository.TEST_RUN_KEY_SUFFIX + testRunId;
             Integer testRunIdTR = testRailMappingRepository.get(testRunKey);
 
+            // Mappings of the whole run read at once
+            List<String> keys = new ArrayList<>();
+            for (TestResult testResult : testResultsOfRun) {
+                keys.add(TestRailMappingRepository.TEST_RESULT_KEY_SUFFIX + testResult.get_id());
+                keys.add(TestRailMappingRepository.TEST_CASE_KEY_SUFFIX + testResult.getTestCaseId());
+            }
+            Map<String, Integer> idsTR = testRailMappingRepository.getAll(keys);
+
             for (TestResult testResult : testResultsOfRun) {
                 String testResultId = testResult.get_id();
 
                 String testResultKey = TestRailMappingRepository.TEST_RESULT_KEY_SUFFIX + testResultId;
-                Integer testResultIdTR = testRailMappingRepository.get(testResultKey);
+                Integer testResultIdTR = idsTR.get(testResultKey);
 
                 if (testResultIdTR == null) {
                     String testCaseId = testResult.getTestCaseId();
                     String testCaseKey = TestRailMappingRepository.TEST_CASE_KEY_SUFFIX + testCaseId;
-                    Integer testCaseIdTR = testRailMappingRepository.get(testCaseKey);
+                    Integer testCaseIdTR = idsTR.get(testCaseKey);
 
                     testResultDTOS.add(new TestResultDTO(testResult, testRunIdTR, testCaseIdTR));
-                    allTestResultsExported.add(testResult);
+                    testResultsToAdd.add(testResult);
                 }
             }
 
+            // Results already exported count as processed
+            checkpoint.processed(EntityType.TEST_RESULT, testResultsOfRun.size() - testResultsToAdd.size());
+
             if (testResultDTOS.isEmpty()) {
                 logger.info("No results to add for run {} to testrail", testRunId);
                 continue;
             }
 
-            Map<String, Object> body = new HashMap<>();
-            List<Map<String, Object>> results = testResultDTOS.stream().map(TestResultDTO::toJson).toList();
-            try {
+            for (int from = 0; from < testResultDTOS.size(); from += resultsPerRequest) {
+                int to = Math.min(from + resultsPerRequest, testResultDTOS.size());
+                batches.add(new ResultBatch(testRunId, testRunIdTR, testResultsToAdd.subList(from, to),
+                        testResultDTOS.subList(from, to)));
+            }
+        }
 
-                body.put("results", results);
-                JSONArray createdTestResults = (JSONArray) client.sendPost("add_results_for_cases/" + testRunIdTR, body);
+        List<List<TestResult>> exported = client.forEach(batches, batch -> {
+            checkCancelled(checkpoint);
+            // Another export may have added some of the results since they were read
+            return createOnce(resultKeysOf(batch), () -> {
+                ResultBatch toAdd = withoutMappedResults(batch);
+                checkpoint.processed(EntityType.TEST_RESULT, batch.testResults().size() - toAdd.testResults().size());
+                return toAdd.testResults().isEmpty() ? List.<TestResult>of() : exportResultBatch(toAdd, checkpoint);
+            });
+        });
+        checkpoint.stageCompleted(EntityType.TEST_RESULT);
+        exported.forEach(testResultsOfBatch -> context.addExported(EntityType.TEST_RESULT, testResultsOfBatch));
+    }
 
-                for (Object createdTestResult : createdTestResults) {
-                    JSONObject createdResult = (JSONObject) createdTestResult;
+    private static List<String> resultKeysOf(ResultBatch batch) {
+        return batch.testResults().stream()
+                .map(testResult -> TestRailMappingRepository.TEST_RESULT_KEY_SUFFIX + testResult.get_id())
+                .toList();
+    }
+
+    private ResultBatch withoutMappedResults(ResultBatch batch) {
+        List<String> keys = resultKeysOf(batch);
+        Map<String, Integer> idsTR = testRailMappingRepository.getAll(keys);
+        if (idsTR.isEmpty()) {
+            return batch;
+        }
+        List<TestResult> testResults = new ArrayList<>();
+        List<TestResultDTO> testResultDTOS = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            if (!idsTR.containsKey(keys.get(i))) {
+                testResults.add(batch.testResults().get(i));
+                testResultDTOS.add(batch.testResultDTOS().get(i));
+            }
+        }
+        return new ResultBatch(batch.testRunId(), batch.testRunIdTR(), testResults, testResultDTOS);
+    }
 
-                    Integer testResultIdTR = ((Number) createdResult.get("id")).intValue();
-                    String testResultId = createdResult.get("comment").toString();
+    private List<TestResult> exportResultBatch(ResultBatch batch, ExportCheckpoint checkpoint)
+            throws IOException, APIException {
+        Map<String, Object> body = new HashMap<>();
+        List<Map<String, Object>> results = batch.testResultDTOS().stream().map(TestResultDTO::toJson).toList();
+        try {
+            body.put("results", results);
+            JSONArray createdTestResults = (JSONArray) client.sendPost("add_results_for_cases/" + batch.testRunIdTR(), body);
 
-                    if (testResultId == null || testResultId.isBlank()) {
-                        logger.warn("Created result {} has no comment — cannot map back to local TestResult", testResultIdTR);
-                    }
+            Map<String, Integer> createdIdsTR = new HashMap<>();
+            for (Object createdTestResult : createdTestResults) {
+                JSONObject createdResult = (JSONObject) createdTestResult;
 
-                    String testResultKey = TestRailMappingRepository.TEST_RESULT_KEY_SUFFIX + testResultId;
-                    testRailMappingRepository.put(testResultKey, testResultIdTR);
+                Integer testResultIdTR = ((Number) createdResult.get("id")).intValue();
+                String testResultId = createdResult.get("comment").toString();
+
+                if (testResultId == null || testResultId.isBlank()) {
+                    logger.warn("Created result {} has no comment — cannot map back to local TestResult", testResultIdTR);
                 }
-            } catch (Exception e) {
-                logger.warn("An error occurred when adding results of run {} to testrail : {}", testRunId, e.getMessage());
-                throw e;
+
+                String testResultKey = TestRailMappingRepository.TEST_RESULT_KEY_SUFFIX + testResultId;
+                createdIdsTR.put(testResultKey, testResultIdTR);
             }
+            testRailMappingRepository.putAll(createdIdsTR);
+        } catch (Exception e) {
+            logger.warn("An error occurred when adding results of run {} to testrail : {}", batch.testRunId(), e.getMessage());
+            throw e;
         }
+        checkpoint.processed(EntityType.TEST_RESULT, batch.testResults().size());
+        return batch.testResults();
     }
 }
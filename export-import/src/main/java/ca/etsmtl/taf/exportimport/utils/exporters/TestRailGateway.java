@@ -0,0 +1,201 @@
+package ca.etsmtl.taf.exportimport.utils.exporters;
+
+import ca.etsmtl.taf.exportimport.utils.ratelimit.TokenBucket;
+import com.gurock.testrail.APIClient;
+import com.gurock.testrail.APIException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the calls of the TestRail exporter. Every call waits for a token of a
+ * bucket refilled at {@code testrail.requests-per-minute}. The add_* calls are
+ * not idempotent, so a call is only retried (up to
+ * {@code testrail.retry.max-attempts} times) when TestRail surely did not
+ * process it: a 429 or 503 answer, or a connection that could not be opened.
+ * The retry waits the Retry-After delay for a 429, which also holds the other
+ * calls, otherwise an exponential backoff with jitter. Any other failure is
+ * returned to the export, whose resume reconciles it with the mapping.
+ * Independent calls of a stage run on {@code testrail.concurrency} threads.
+ */
+@Component
+public class TestRailGateway {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestRailGateway.class);
+
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(1);
+
+    @FunctionalInterface
+    public interface Call<T, R> {
+        R apply(T item) throws IOException, APIException;
+    }
+
+    private final APIClient client;
+    private final TokenBucket limiter;
+    private final ExecutorService executor;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+
+    @Autowired
+    public TestRailGateway(APIClient client,
+                           @Value("${testrail.requests-per-minute:180}") int requestsPerMinute,
+                           @Value("${testrail.concurrency:4}") int concurrency,
+                           @Value("${testrail.retry.max-attempts:5}") int maxAttempts,
+                           @Value("${testrail.retry.initial-backoff:1s}") Duration initialBackoff) {
+        this(client, new TokenBucket(requestsPerMinute / 60.0, concurrency),
+                concurrency, maxAttempts, initialBackoff);
+    }
+
+    public TestRailGateway(APIClient client, TokenBucket limiter, int concurrency, int maxAttempts,
+                           Duration initialBackoff) {
+        this.client = client;
+        this.limiter = limiter;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, concurrency), runnable -> {
+            Thread thread = new Thread(runnable, "testrail-export-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Object sendPost(String uri, Object data) throws IOException, APIException {
+        for (int attempt = 1; ; attempt++) {
+            acquire();
+            try {
+                return client.sendPost(uri, data);
+            } catch (APIException e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                Duration delay = e.getStatusCode() == 429 && e.getRetryAfterSeconds() != null
+                        ? Duration.ofSeconds(e.getRetryAfterSeconds())
+                        : backoff(attempt);
+                if (e.getStatusCode() == 429) {
+                    limiter.pause(delay);
+                }
+                logger.info("TestRail call {} failed with HTTP {}, attempt {} of {}, retrying in {} ms",
+                        uri, e.getStatusCode(), attempt, maxAttempts, delay.toMillis());
+                sleep(delay);
+            } catch (IOException e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                Duration delay = backoff(attempt);
+                logger.info("TestRail call {} failed ({}), attempt {} of {}, retrying in {} ms",
+                        uri, e.getMessage(), attempt, maxAttempts, delay.toMillis());
+                sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Applies the call to every item concurrently and returns the results in
+     * the order of the items. The first failure cancels the calls not started
+     * yet and is rethrown once the running ones are over.
+     */
+    public <T, R> List<R> forEach(List<T> items, Call<T, R> call) throws IOException, APIException {
+        List<Future<R>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(executor.submit(() -> call.apply(item)));
+        }
+
+        List<R> results = new ArrayList<>(items.size());
+        Throwable failure = null;
+        for (Future<R> future : futures) {
+            try {
+                R result = future.get();
+                if (failure == null) {
+                    results.add(result);
+                }
+            } catch (CancellationException e) {
+                // Not started before the first failure
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                    // The calls in flight still finish and save their mapping
+                    futures.forEach(f -> f.cancel(false));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                throw new InterruptedIOException("Interrupted while exporting to TestRail");
+            }
+        }
+
+        if (failure instanceof IOException ioException) {
+            throw ioException;
+        }
+        if (failure instanceof APIException apiException) {
+            throw apiException;
+        }
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static boolean isRetryable(APIException e) {
+        int status = e.getStatusCode();
+        return status == 429 || status == 503;
+    }
+
+    private static boolean isRetryable(IOException e) {
+        // Failed before the request was sent, a read timeout or reset may come after TestRail processed it
+        return e instanceof ConnectException
+                || e instanceof HttpConnectTimeoutException
+                || e instanceof UnknownHostException;
+    }
+
+    private Duration backoff(int attempt) {
+        // Full jitter: a random delay up to initialBackoff * 2^(attempt - 1)
+        long ceiling = Math.min(MAX_BACKOFF.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    private void acquire() throws InterruptedIOException {
+        try {
+            limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the TestRail rate limit");
+        }
+    }
+
+    private static void sleep(Duration delay) throws InterruptedIOException {
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry a TestRail call");
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package ca.etsmtl.taf.exportimport.utils.exporters.file;
+
+import ca.etsmtl.taf.exportimport.models.Entity;
+import ca.etsmtl.taf.exportimport.models.Project;
+import ca.etsmtl.taf.exportimport.models.TestCase;
+import ca.etsmtl.taf.exportimport.models.TestResult;
+import ca.etsmtl.taf.exportimport.models.TestRun;
+import ca.etsmtl.taf.exportimport.models.TestSuite;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One row per entity, with the columns of every type: the ones that do not
+ * apply to a type are left empty. The case ids of a run are separated by
+ * {@code ;}.
+ */
+@Component
+public class CsvFileExporter implements FileExporter {
+
+    private static final List<String> COLUMNS = List.of(
+            "type", "id", "projectId", "testSuiteId", "testRunId", "testCaseId", "name", "description", "status",
+            "testCaseIds");
+
+    @Override
+    public String getFormat() {
+        return "csv";
+    }
+
+    @Override
+    public String getContentType() {
+        return "text/csv";
+    }
+
+    @Override
+    public String getExtension() {
+        return "csv";
+    }
+
+    @Override
+    public EntityWriter open(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeRow(writer, COLUMNS);
+        return new EntityWriter() {
+            @Override
+            public void write(Entity entity) throws IOException {
+                writeRow(writer, toRow(entity));
+            }
+
+            @Override
+            public void finish() throws IOException {
+                writer.flush();
+            }
+        };
+    }
+
+    private static List<String> toRow(Entity entity) {
+        String projectId = null;
+        String testSuiteId = null;
+        String testRunId = null;
+        String testCaseId = null;
+        String name = null;
+        String description = null;
+        String status = null;
+        String testCaseIds = null;
+        switch (entity) {
+            case Project project -> {
+                name = project.getName();
+                description = project.getDescription();
+            }
+            case TestSuite testSuite -> {
+                projectId = testSuite.getProjectId();
+                name = testSuite.getName();
+                description = testSuite.getDescription();
+            }
+            case TestCase testCase -> {
+                testSuiteId = testCase.getTestSuiteId();
+                name = testCase.getName();
+            }
+            case TestRun testRun -> {
+                testSuiteId = testRun.getTestSuiteId();
+                name = testRun.getName();
+                testCaseIds = testRun.getTestCaseIds() == null ? null : String.join(";", testRun.getTestCaseIds());
+            }
+            case TestResult testResult -> {
+                testRunId = testResult.getTestRunId();
+                testCaseId = testResult.getTestCaseId();
+                status = testResult.getStatus() == null ? null : testResult.getStatus().name();
+            }
+            default -> throw new IllegalArgumentException("Unknown entity type: " + entity.getType());
+        }
+        return Arrays.asList(entity.getType().name(), entity.get_id(), projectId, testSuiteId, testRunId,
+                testCaseId, name, description, status, testCaseIds);
+    }
+
+    private static void writeRow(Writer writer, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escape(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    // RFC 4180: quoted when it contains a separator, a quote or a line break
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
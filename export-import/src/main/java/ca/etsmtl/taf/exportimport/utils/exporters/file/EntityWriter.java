@@ -0,0 +1,16 @@
+package ca.etsmtl.taf.exportimport.utils.exporters.file;
+
+import ca.etsmtl.taf.exportimport.models.Entity;
+
+import java.io.IOException;
+
+/**
+ * Writes the entities of one file export as they are read, in stage order:
+ * projects, suites, cases, runs, then results grouped by run.
+ */
+public interface EntityWriter {
+    void write(Entity entity) throws IOException;
+
+    // Writes what closes the document and flushes, without closing the stream
+    void finish() throws IOException;
+}
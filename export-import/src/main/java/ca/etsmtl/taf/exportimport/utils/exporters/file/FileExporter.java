@@ -0,0 +1,18 @@
+package ca.etsmtl.taf.exportimport.utils.exporters.file;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A file format of the exports, selected by the {@code type} of the export
+ * request.
+ */
+public interface FileExporter {
+    String getFormat();
+
+    String getContentType();
+
+    String getExtension();
+
+    EntityWriter open(OutputStream out) throws IOException;
+}
@@ -0,0 +1,136 @@
+package ca.etsmtl.taf.exportimport.utils.exporters.file;
+
+import ca.etsmtl.taf.exportimport.models.Entity;
+import ca.etsmtl.taf.exportimport.models.TestCase;
+import ca.etsmtl.taf.exportimport.models.TestResult;
+import ca.etsmtl.taf.exportimport.models.TestRunStatus;
+import ca.etsmtl.taf.exportimport.services.EntityLookupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The results as a JUnit report: one {@code testsuite} per run and one
+ * {@code testcase} per result, named after its case and classed under the
+ * suite of the case. Only the results are written, the names of their run,
+ * case and suite come from the entity caches.
+ */
+@Component
+public class JUnitXmlFileExporter implements FileExporter {
+
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+
+    private final EntityLookupService entityLookupService;
+
+    @Autowired
+    public JUnitXmlFileExporter(EntityLookupService entityLookupService) {
+        this.entityLookupService = entityLookupService;
+    }
+
+    @Override
+    public String getFormat() {
+        return "junit";
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/xml";
+    }
+
+    @Override
+    public String getExtension() {
+        return "xml";
+    }
+
+    @Override
+    public EntityWriter open(OutputStream out) throws IOException {
+        XMLStreamWriter xml;
+        try {
+            xml = XML_OUTPUT_FACTORY.createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+            xml.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+            xml.writeStartElement("testsuites");
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to start the JUnit report", e);
+        }
+
+        return new EntityWriter() {
+            // Results arrive grouped by run
+            private String currentRunId;
+
+            @Override
+            public void write(Entity entity) throws IOException {
+                if (!(entity instanceof TestResult testResult)) {
+                    return;
+                }
+                try {
+                    if (!testResult.getTestRunId().equals(currentRunId)) {
+                        if (currentRunId != null) {
+                            xml.writeEndElement();
+                        }
+                        currentRunId = testResult.getTestRunId();
+                        xml.writeStartElement("testsuite");
+                        xml.writeAttribute("id", currentRunId);
+                        xml.writeAttribute("name", runName(currentRunId));
+                    }
+                    writeTestCase(xml, testResult);
+                } catch (XMLStreamException e) {
+                    throw new IOException("Failed to write result " + testResult.get_id(), e);
+                }
+            }
+
+            @Override
+            public void finish() throws IOException {
+                try {
+                    if (currentRunId != null) {
+                        xml.writeEndElement();
+                    }
+                    xml.writeEndElement();
+                    xml.writeEndDocument();
+                    xml.flush();
+                } catch (XMLStreamException e) {
+                    throw new IOException("Failed to end the JUnit report", e);
+                }
+            }
+        };
+    }
+
+    private void writeTestCase(XMLStreamWriter xml, TestResult testResult) throws XMLStreamException {
+        String caseName = testResult.getTestCaseId();
+        String className = "";
+        try {
+            TestCase testCase = entityLookupService.findTestCaseById(testResult.getTestCaseId());
+            caseName = testCase.getName();
+            className = entityLookupService.findTestSuiteById(testCase.getTestSuiteId()).getName();
+        } catch (IllegalStateException e) {
+            // Deleted case or suite, the ids are kept
+        }
+
+        xml.writeStartElement("testcase");
+        xml.writeAttribute("name", caseName == null ? testResult.getTestCaseId() : caseName);
+        xml.writeAttribute("classname", className == null ? "" : className);
+        TestRunStatus status = testResult.getStatus();
+        if (status == TestRunStatus.FAILED || status == TestRunStatus.RETEST) {
+            xml.writeEmptyElement("failure");
+            xml.writeAttribute("message", status.name());
+        } else if (status != TestRunStatus.PASSED) {
+            xml.writeEmptyElement("skipped");
+            xml.writeAttribute("message", status == null ? TestRunStatus.UNTESTED.name() : status.name());
+        }
+        xml.writeEndElement();
+    }
+
+    private String runName(String testRunId) {
+        try {
+            String name = entityLookupService.findTestRunById(testRunId).getName();
+            return name == null ? testRunId : name;
+        } catch (IllegalStateException e) {
+            return testRunId;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ca.etsmtl.taf.exportimport.utils.exporters.file;
+
+import ca.etsmtl.taf.exportimport.models.Entity;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * One JSON object per line and per entity, its {@code type} included.
+ */
+@Component
+public class NdjsonFileExporter implements FileExporter {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    @Override
+    public String getFormat() {
+        return "ndjson";
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/x-ndjson";
+    }
+
+    @Override
+    public String getExtension() {
+        return "ndjson";
+    }
+
+    @Override
+    public EntityWriter open(OutputStream out) throws IOException {
+        SequenceWriter sequenceWriter = objectMapper.writer().withRootValueSeparator("\n").writeValues(out);
+        return new EntityWriter() {
+            private boolean empty = true;
+
+            @Override
+            public void write(Entity entity) throws IOException {
+                sequenceWriter.write(entity);
+                empty = false;
+            }
+
+            @Override
+            public void finish() throws IOException {
+                // Flushes without closing the output
+                sequenceWriter.close();
+                if (!empty) {
+                    out.write('\n');
+                }
+                out.flush();
+            }
+        };
+    }
+}
@@ -0,0 +1,63 @@
+package ca.etsmtl.taf.exportimport.utils.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket shared by the threads calling a rate limited API: at most
+ * {@code burst} calls at once, then {@code permitsPerSecond} calls per second.
+ * Callers are served in the order they asked, each waiting for its own token.
+ */
+public class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double burst;
+
+    // Negative when tokens are already promised to waiting callers
+    private double tokens;
+    private long refilledAt;
+    private long pausedUntil;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("permitsPerSecond and burst must be positive");
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilledAt = System.nanoTime();
+        this.pausedUntil = refilledAt;
+    }
+
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+            tokens -= 1;
+            waitNanos = tokens >= 0 ? 0 : (long) Math.ceil(-tokens / permitsPerNano);
+            waitNanos = Math.max(waitNanos, pausedUntil - now);
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Holds every caller for the given delay, e.g. when the API answered 429.
+     */
+    public synchronized void pause(Duration delay) {
+        long now = System.nanoTime();
+        refill(now);
+        pausedUntil = Math.max(pausedUntil, now + delay.toNanos());
+        // The bucket restarts empty after the pause
+        tokens = Math.min(tokens, 0);
+    }
+
+    private void refill(long now) {
+        if (now > refilledAt) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * permitsPerNano);
+            refilledAt = now;
+        }
+    }
+}
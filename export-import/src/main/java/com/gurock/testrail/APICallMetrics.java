@@ -0,0 +1,53 @@
+package com.gurock.testrail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call counts and latencies of an APIClient, per API method.
+ */
+public class APICallMetrics
+{
+	public record Snapshot(String endpoint, long calls, long errors, double meanMillis, double maxMillis)
+	{
+	}
+
+	private static final class Counters
+	{
+		final LongAdder calls = new LongAdder();
+		final LongAdder errors = new LongAdder();
+		final LongAdder totalNanos = new LongAdder();
+		final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+	}
+
+	private final Map<String, Counters> m_counters = new ConcurrentHashMap<>();
+
+	void record(String endpoint, long elapsedNanos, boolean failed)
+	{
+		Counters counters = this.m_counters.computeIfAbsent(endpoint, key -> new Counters());
+		counters.calls.increment();
+		if (failed)
+		{
+			counters.errors.increment();
+		}
+		counters.totalNanos.add(elapsedNanos);
+		counters.maxNanos.accumulate(elapsedNanos);
+	}
+
+	public List<Snapshot> snapshot()
+	{
+		List<Snapshot> snapshots = new ArrayList<>();
+		this.m_counters.forEach((endpoint, counters) -> {
+			long calls = counters.calls.sum();
+			snapshots.add(new Snapshot(endpoint, calls, counters.errors.sum(),
+				calls == 0 ? 0 : counters.totalNanos.sum() / 1e6 / calls,
+				counters.maxNanos.get() / 1e6));
+		});
+		snapshots.sort((a, b) -> a.endpoint().compareTo(b.endpoint()));
+		return snapshots;
+	}
+}
@@ -9,41 +9,78 @@
  *
  * Copyright Gurock Software GmbH. See license.md for details.
  */
- 
+
 package com.gurock.testrail;
 
-import java.net.URL;
-import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.net.MalformedURLException;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
-import org.json.simple.JSONValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+/**
+ * Same API as the original binding, on top of a single java.net.http
+ * HttpClient: connections (HTTP/2 when the server supports it) are reused
+ * between calls instead of paying a new TLS handshake each time. Responses
+ * are parsed as they are read, into the json-simple types callers expect.
+ * The latency of every call is recorded, see getMetrics().
+ */
 public class APIClient
 {
+	private static final Logger logger = LoggerFactory.getLogger(APIClient.class);
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+	private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(30);
+	private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(2);
+
 	private String m_user;
 	private String m_password;
 	private String m_url;
+	private final HttpClient m_httpClient;
+	private final Duration m_requestTimeout;
+	private final APICallMetrics m_metrics = new APICallMetrics();
 
 	public APIClient(String base_url)
+	{
+		this(base_url, HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_2)
+			.connectTimeout(CONNECT_TIMEOUT)
+			.build(), REQUEST_TIMEOUT);
+	}
+
+	public APIClient(String base_url, HttpClient httpClient, Duration requestTimeout)
 	{
 		if (!base_url.endsWith("/"))
 		{
 			base_url += "/";
 		}
-		
+
 		this.m_url = base_url + "index.php?/api/v2/";
+		this.m_httpClient = httpClient;
+		this.m_requestTimeout = requestTimeout;
 	}
 
 	/**
@@ -76,6 +113,17 @@ public class APIClient
 		this.m_password = password;
 	}
 
+	/**
+	 * Get Metrics
+	 *
+	 * Returns the number of calls, errors and latencies of each API method
+	 * (e.g. add_case) since this client was created.
+	 */
+	public List<APICallMetrics.Snapshot> getMetrics()
+	{
+		return this.m_metrics.snapshot();
+	}
+
 	/**
 	 * Send Get
 	 *
@@ -91,17 +139,33 @@ public class APIClient
 	 * either be an instance of JSONObject or JSONArray (depending on the
 	 * API method). In most cases, this returns a JSONObject instance which
 	 * is basically the same as java.util.Map.
-	 * 
+	 *
 	 * If 'get_attachment/:attachment_id', returns a String
 	 */
 	public Object sendGet(String uri, String data)
 		throws MalformedURLException, IOException, APIException
 	{
-		return this.sendRequest("GET", uri, data);
+		return await(this.sendGetAsync(uri, data));
 	}
-	
+
 	public Object sendGet(String uri)
 			throws MalformedURLException, IOException, APIException
+	{
+		return await(this.sendGetAsync(uri, null));
+	}
+
+	/**
+	 * Send Get Async
+	 *
+	 * Same as sendGet, without blocking the caller. The future fails with
+	 * an APIException or an IOException.
+	 */
+	public CompletableFuture<Object> sendGetAsync(String uri, String data)
+	{
+		return this.sendRequest("GET", uri, data);
+	}
+
+	public CompletableFuture<Object> sendGetAsync(String uri)
 	{
 		return this.sendRequest("GET", uri, null);
 	}
@@ -128,156 +192,133 @@ public class APIClient
 	 */
 	public Object sendPost(String uri, Object data)
 		throws MalformedURLException, IOException, APIException
+	{
+		return await(this.sendPostAsync(uri, data));
+	}
+
+	/**
+	 * Send POST Async
+	 *
+	 * Same as sendPost, without blocking the caller. The future fails with
+	 * an APIException or an IOException.
+	 */
+	public CompletableFuture<Object> sendPostAsync(String uri, Object data)
 	{
 		return this.sendRequest("POST", uri, data);
 	}
-	
-	private Object sendRequest(String method, String uri, Object data)
-		throws MalformedURLException, IOException, APIException
+
+	private CompletableFuture<Object> sendRequest(String method, String uri, Object data)
 	{
-		URL url = new URL(this.m_url + uri);
-		// Create the connection object and set the required HTTP method
-		// (GET/POST) and headers (content type and basic auth).
-		HttpURLConnection conn = (HttpURLConnection)url.openConnection();
-		
-		String auth = getAuthorization(this.m_user, this.m_password);
-		conn.addRequestProperty("Authorization", "Basic " + auth);
-		
-		if (method.equals("POST"))
+		HttpRequest request;
+		try
 		{
-			conn.setRequestMethod("POST");
-			// Add the POST arguments, if any. We just serialize the passed
-			// data object (i.e. a dictionary) and then add it to the
-			// request body.
-			if (data != null)
-			{				
-				if (uri.startsWith("add_attachment"))   // add_attachment API requests
+			request = buildRequest(method, uri, data);
+		}
+		catch (IOException | IllegalArgumentException e)
+		{
+			return CompletableFuture.failedFuture(e);
+		}
+
+		String endpoint = endpointOf(uri);
+		long start = System.nanoTime();
+		return this.m_httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+			.thenApply(response -> {
+				try (InputStream body = response.body())
 				{
-					String boundary = "TestRailAPIAttachmentBoundary"; //Can be any random string
-					File uploadFile = new File((String)data);
-					
-					conn.setDoOutput(true);
-					conn.addRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
-					
-					OutputStream ostreamBody = conn.getOutputStream();
-					BufferedWriter bodyWriter = new BufferedWriter(new OutputStreamWriter(ostreamBody));
-					
-					bodyWriter.write("\n\n--" + boundary + "\r\n");
-					bodyWriter.write("Content-Disposition: form-data; name=\"attachment\"; filename=\"" 
-							+ uploadFile.getName() + "\"");
-					bodyWriter.write("\r\n\r\n");
-					bodyWriter.flush();
-					
-					//Read file into request
-					InputStream istreamFile = new FileInputStream(uploadFile);
-					int bytesRead;
-					byte[] dataBuffer = new byte[1024];
-					while ((bytesRead = istreamFile.read(dataBuffer)) != -1)
-					{
-						ostreamBody.write(dataBuffer, 0, bytesRead);
-					}
-					
-					ostreamBody.flush();
-					
-					//end of attachment, add boundary
-					bodyWriter.write("\r\n--" + boundary + "--\r\n");
-					bodyWriter.flush();
-
-					//Close streams
-					istreamFile.close();
-					ostreamBody.close();
-					bodyWriter.close();
+					return readResponse(response, body, uri, data);
 				}
-				else	// Not an attachment
+				catch (IOException | APIException e)
 				{
-					conn.addRequestProperty("Content-Type", "application/json");
-					byte[] block = JSONValue.toJSONString(data).
-						getBytes("UTF-8");
-	
-					conn.setDoOutput(true);
-					OutputStream ostream = conn.getOutputStream();
-					ostream.write(block);
-					ostream.close();
+					throw new CompletionException(e);
 				}
-			}
-		}
-		else	// GET request
-		{
-			conn.addRequestProperty("Content-Type", "application/json");
-		}
-		
-		// Execute the actual web request (if it wasn't already initiated
-		// by getOutputStream above) and record any occurred errors (we use
-		// the error stream in this case).
-		int status = conn.getResponseCode();
-		
-		InputStream istream;
-		if (status != 200)
+			})
+			.whenComplete((result, error) -> {
+				long elapsed = System.nanoTime() - start;
+				this.m_metrics.record(endpoint, elapsed, error != null);
+				logger.debug("TestRail {} {} {} in {} ms", method, uri, error == null ? "succeeded" : "failed",
+					elapsed / 1_000_000);
+			});
+	}
+
+	private HttpRequest buildRequest(String method, String uri, Object data)
+		throws IOException
+	{
+		HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(this.m_url + uri))
+			.timeout(this.m_requestTimeout)
+			.header("Authorization", "Basic " + getAuthorization(this.m_user, this.m_password));
+
+		if (method.equals("POST"))
 		{
-			istream = conn.getErrorStream();
-			if (istream == null)
+			// Add the POST arguments, if any. We just serialize the passed
+			// data object (i.e. a dictionary) and then add it to the
+			// request body.
+			if (data == null)
 			{
-				throw new APIException(
-					"TestRail API return HTTP " + status + 
-					" (No additional error message received)"
-				);
+				builder.POST(HttpRequest.BodyPublishers.noBody());
+			}
+			else if (uri.startsWith("add_attachment"))   // add_attachment API requests
+			{
+				String boundary = "TestRailAPIAttachmentBoundary"; //Can be any random string
+				Path uploadFile = Path.of((String) data);
+
+				String head = "\n\n--" + boundary + "\r\n"
+					+ "Content-Disposition: form-data; name=\"attachment\"; filename=\""
+					+ uploadFile.getFileName() + "\""
+					+ "\r\n\r\n";
+				String tail = "\r\n--" + boundary + "--\r\n";
+				builder.header("Content-Type", "multipart/form-data; boundary=" + boundary)
+					.POST(HttpRequest.BodyPublishers.concat(
+						HttpRequest.BodyPublishers.ofString(head),
+						HttpRequest.BodyPublishers.ofFile(uploadFile),
+						HttpRequest.BodyPublishers.ofString(tail)));
+			}
+			else	// Not an attachment
+			{
+				builder.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofByteArray(OBJECT_MAPPER.writeValueAsBytes(data)));
 			}
 		}
-		else 
+		else	// GET request
 		{
-			istream = conn.getInputStream();
+			builder.header("Content-Type", "application/json").GET();
 		}
-		
+		return builder.build();
+	}
+
+	private static Object readResponse(HttpResponse<InputStream> response, InputStream body, String uri,
+		Object data)
+		throws IOException, APIException
+	{
+		int status = response.statusCode();
+		Long retryAfter = response.headers().firstValue("Retry-After")
+			.map(APIClient::parseRetryAfter)
+			.orElse(null);
+
         // If 'get_attachment' (not 'get_attachments') returned valid status code, save the file
-        if ((istream != null) 
-	    && (uri.startsWith("get_attachment/")))
-    	{      	
-            FileOutputStream outputStream = new FileOutputStream((String)data);
- 
-            int bytesRead = 0;
-            byte[] buffer = new byte[1024];
-            while ((bytesRead = istream.read(buffer)) > 0) 
-            {
-                outputStream.write(buffer, 0, bytesRead);
-            }
- 
-            outputStream.close();
-            istream.close();
-            return (String) data;
-        }
-        	
-        // Not an attachment received
-		// Read the response body, if any, and deserialize it from JSON.
-		String text = "";
-		if (istream != null)
+		if (status == 200 && uri.startsWith("get_attachment/"))
 		{
-			BufferedReader reader = new BufferedReader(
-				new InputStreamReader(
-					istream,
-					"UTF-8"
-				)
-			);
-		
-			String line;
-			while ((line = reader.readLine()) != null)
-			{
-				text += line;
-				text += System.getProperty("line.separator");
-			}
-			
-			reader.close();
+			Files.copy(body, Path.of((String) data), StandardCopyOption.REPLACE_EXISTING);
+			return (String) data;
 		}
-		
+
+		// Not an attachment received
+		// Read the response body, if any, and deserialize it from JSON.
 		Object result;
-		if (!text.equals(""))
+		try (JsonParser parser = JSON_FACTORY.createParser(body))
 		{
-			result = JSONValue.parse(text);
+			JsonToken token = parser.nextToken();
+			result = token == null ? new JSONObject() : readValue(parser, token);
 		}
-		else 
+		catch (IOException e)
 		{
-			result = new JSONObject();
+			if (status == 200)
+			{
+				throw e;
+			}
+			// An error page that is not JSON
+			result = null;
 		}
-		
+
 		// Check for any occurred errors and add additional details to
 		// the exception message, if any (e.g. the error message returned
 		// by TestRail).
@@ -289,30 +330,122 @@ public class APIClient
 				JSONObject obj = (JSONObject) result;
 				if (obj.containsKey("error"))
 				{
-					error = '"' + (String) obj.get("error") + '"';
+					error = '"' + String.valueOf(obj.get("error")) + '"';
 				}
 			}
-			
+
 			throw new APIException(
 				"TestRail API returned HTTP " + status +
-				"(" + error + ")"
+				"(" + error + ")",
+				status, retryAfter
 			);
 		}
-		
+
 		return result;
 	}
-	
-	private static String getAuthorization(String user, String password)
+
+	// Builds the same types as org.json.simple.JSONValue.parse, token by token
+	@SuppressWarnings("unchecked")
+	private static Object readValue(JsonParser parser, JsonToken token)
+		throws IOException
+	{
+		switch (token)
+		{
+			case START_OBJECT:
+				JSONObject object = new JSONObject();
+				while (parser.nextToken() == JsonToken.FIELD_NAME)
+				{
+					String name = parser.currentName();
+					object.put(name, readValue(parser, parser.nextToken()));
+				}
+				return object;
+			case START_ARRAY:
+				JSONArray array = new JSONArray();
+				JsonToken next;
+				while ((next = parser.nextToken()) != JsonToken.END_ARRAY)
+				{
+					array.add(readValue(parser, next));
+				}
+				return array;
+			case VALUE_STRING:
+				return parser.getText();
+			case VALUE_NUMBER_INT:
+				return parser.getLongValue();
+			case VALUE_NUMBER_FLOAT:
+				return parser.getDoubleValue();
+			case VALUE_TRUE:
+				return Boolean.TRUE;
+			case VALUE_FALSE:
+				return Boolean.FALSE;
+			case VALUE_NULL:
+				return null;
+			default:
+				throw new IOException("Unexpected JSON token " + token);
+		}
+	}
+
+	private static Object await(CompletableFuture<Object> future)
+		throws IOException, APIException
 	{
-		try 
+		try
 		{
-			return new String(Base64.getEncoder().encode((user + ":" + password).getBytes()));
+			return future.get();
 		}
-		catch (IllegalArgumentException e)
+		catch (InterruptedException e)
 		{
-			// Not thrown
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for TestRail");
 		}
-		
-		return "";
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof APIException)
+			{
+				throw (APIException) cause;
+			}
+			if (cause instanceof IOException)
+			{
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException)
+			{
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	// add_case/12 -> add_case, the ids would make one entry per entity
+	private static String endpointOf(String uri)
+	{
+		int end = uri.length();
+		for (char separator : new char[] {'/', '&', '?'})
+		{
+			int index = uri.indexOf(separator);
+			if (index >= 0 && index < end)
+			{
+				end = index;
+			}
+		}
+		return uri.substring(0, end);
+	}
+
+	private static Long parseRetryAfter(String retryAfter)
+	{
+		// TestRail sends a number of seconds
+		try
+		{
+			return Long.parseLong(retryAfter.trim());
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
+		}
+	}
+
+	private static String getAuthorization(String user, String password)
+	{
+		return Base64.getEncoder().encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
 	}
 }
@@ -13,8 +13,35 @@ package com.gurock.testrail;
  
 public class APIException extends Exception
 {
+	private final int statusCode;
+	private final Long retryAfterSeconds;
+
 	public APIException(String message)
+	{
+		this(message, 0, null);
+	}
+
+	public APIException(String message, int statusCode, Long retryAfterSeconds)
 	{
 		super(message);
+		this.statusCode = statusCode;
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	/**
+	 * The HTTP status returned by TestRail, or 0 if unknown.
+	 */
+	public int getStatusCode()
+	{
+		return this.statusCode;
+	}
+
+	/**
+	 * The delay requested by the Retry-After header of a 429 response, in
+	 * seconds, or null if none was sent.
+	 */
+	public Long getRetryAfterSeconds()
+	{
+		return this.retryAfterSeconds;
 	}
 }
@@ -1,7 +1,9 @@
 package ca.etsmtl.taf.exportimport.integration;
 
 import ca.etsmtl.taf.exportimport.controllers.ExportController;
-import ca.etsmtl.taf.exportimport.services.ExportService;
+import ca.etsmtl.taf.exportimport.dtos.ExportJobResponse;
+import ca.etsmtl.taf.exportimport.models.ExportJobStatus;
+import ca.etsmtl.taf.exportimport.services.ExportJobService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +18,7 @@ import java.util.Map;
 
 import static org.mockito.Mockito.when;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -28,7 +31,7 @@ class ExportControllerTest {
     private MockMvc mockMvc;
 
     @MockitoBean
-    private ExportService exportService;
+    private ExportJobService exportJobService;
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -43,13 +46,15 @@ class ExportControllerTest {
                 "TEST_RUN", List.of("r1")
         );
 
-        when(exportService.exportTo(eq("testrail"), any())).thenReturn("Export success");
+        when(exportJobService.submit(eq("testrail"), any(), anyBoolean())).thenReturn(new ExportJobResponse(
+                "job1", "testrail", ExportJobStatus.QUEUED, null, List.of(), Map.of(), null, null, null));
 
         mockMvc.perform(post("/export")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(requestBody)))
-                .andExpect(status().isOk())
-                .andExpect(jsonPath("$.message").value("Export success"));
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobId").value("job1"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
     }
 
     @Test
@@ -59,7 +64,7 @@ class ExportControllerTest {
                 "PROJECT", List.of("p1", "p2")
         );
 
-        when(exportService.exportTo(eq("testrail"), any())).thenThrow(new Exception("Export failed"));
+        when(exportJobService.submit(eq("testrail"), any(), anyBoolean())).thenThrow(new IllegalArgumentException("Export failed"));
 
         mockMvc.perform(post("/export")
                         .contentType(MediaType.APPLICATION_JSON)
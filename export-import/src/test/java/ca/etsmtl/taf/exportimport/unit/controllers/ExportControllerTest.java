@@ -1,9 +1,11 @@
 package ca.etsmtl.taf.exportimport.unit.controllers;
 
 import ca.etsmtl.taf.exportimport.controllers.ExportController;
+import ca.etsmtl.taf.exportimport.dtos.ExportJobResponse;
 import ca.etsmtl.taf.exportimport.dtos.ExportRequest;
 import ca.etsmtl.taf.exportimport.models.EntityType;
-import ca.etsmtl.taf.exportimport.services.ExportService;
+import ca.etsmtl.taf.exportimport.models.ExportJobStatus;
+import ca.etsmtl.taf.exportimport.services.ExportJobService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -14,9 +16,12 @@ import org.springframework.http.ResponseEntity;
 
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
@@ -24,37 +29,62 @@ import static org.mockito.Mockito.when;
 class ExportControllerTest {
 
     @Mock
-    private ExportService exportService;
+    private ExportJobService exportJobService;
 
     @InjectMocks
     private ExportController exportController;
 
+    private static ExportJobResponse job(ExportJobStatus status) {
+        return new ExportJobResponse("job1", "testrail", status, null, List.of(), Map.of(), null, null, null);
+    }
+
     @Test
-    void testExport_Success() throws Exception {
+    void testExport_Success() {
         ExportRequest request = new ExportRequest();
         request.setType("testrail");
         request.getIds().put(EntityType.PROJECT, List.of("123", "456"));
 
-        when(exportService.exportTo(eq("testrail"), any())).thenReturn("Export success");
+        when(exportJobService.submit(eq("testrail"), any(), anyBoolean())).thenReturn(job(ExportJobStatus.QUEUED));
 
         ResponseEntity<Map<String, Object>> response = exportController.exportTo(request);
 
-        assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals("Export success", response.getBody().get("message"));
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals("job1", response.getBody().get("jobId"));
+        assertEquals(ExportJobStatus.QUEUED, response.getBody().get("status"));
     }
 
     @Test
-    void testExport_ServiceThrowsException() throws Exception {
+    void testExport_ServiceThrowsException() {
         ExportRequest request = new ExportRequest();
         request.setType("testrail");
 
-        when(exportService.exportTo(eq("testrail"), any()))
-                .thenThrow(new RuntimeException("Export failed"));
+        when(exportJobService.submit(eq("testrail"), any(), anyBoolean()))
+                .thenThrow(new IllegalArgumentException("Export failed"));
 
         ResponseEntity<Map<String, Object>> response = exportController.exportTo(request);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         assertEquals("Export failed", response.getBody().get("message"));
     }
-}
 
+    @Test
+    void testGetJob_notFound() {
+        when(exportJobService.findById("job1")).thenReturn(Optional.empty());
+
+        assertEquals(HttpStatus.NOT_FOUND, exportController.getJob("job1").getStatusCode());
+    }
+
+    @Test
+    void testCancel_finishedJobConflicts() {
+        when(exportJobService.cancel("job1")).thenThrow(new IllegalStateException("Export job job1 is already COMPLETED"));
+
+        assertEquals(HttpStatus.CONFLICT, exportController.cancel("job1").getStatusCode());
+    }
+
+    @Test
+    void testResume_unknownJob() {
+        when(exportJobService.resume("job1")).thenThrow(new NoSuchElementException("Export job job1 not found"));
+
+        assertEquals(HttpStatus.NOT_FOUND, exportController.resume("job1").getStatusCode());
+    }
+}
@@ -0,0 +1,75 @@
+package ca.etsmtl.taf.exportimport.unit.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ca.etsmtl.taf.exportimport.repositories.TestRailMappingRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestRailMappingRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private String dbPath;
+    private TestRailMappingRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        dbPath = tempDir.resolve("data/testrail_cache.db").toString();
+        repository = new TestRailMappingRepository(dbPath);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.close();
+    }
+
+    @Test
+    void givenNewStore_whenOpening_thenUsesWalJournal() throws Exception {
+        assertThat(Files.exists(Path.of(dbPath))).isTrue();
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
+             ResultSet rs = conn.createStatement().executeQuery("PRAGMA journal_mode")) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getString(1)).isEqualToIgnoringCase("wal");
+        }
+    }
+
+    @Test
+    void givenPutMapping_whenGetting_thenReturnsId() {
+        repository.put(TestRailMappingRepository.PROJECT_KEY_SUFFIX + "p1", 11);
+        repository.put(TestRailMappingRepository.PROJECT_KEY_SUFFIX + "p1", 12);
+
+        assertThat(repository.get(TestRailMappingRepository.PROJECT_KEY_SUFFIX + "p1")).isEqualTo(12);
+        assertThat(repository.get(TestRailMappingRepository.PROJECT_KEY_SUFFIX + "p2")).isNull();
+    }
+
+    @Test
+    void givenManyMappings_whenReopeningStore_thenGetAllReadsThemBack() {
+        // More keys than a single IN query takes
+        Map<String, Integer> ids = new HashMap<>();
+        IntStream.range(0, 1200).forEach(i -> ids.put(TestRailMappingRepository.TEST_CASE_KEY_SUFFIX + "c" + i, i));
+        repository.putAll(ids);
+        repository.close();
+        repository = new TestRailMappingRepository(dbPath);
+
+        List<String> keys = new ArrayList<>(ids.keySet());
+        keys.add(TestRailMappingRepository.TEST_CASE_KEY_SUFFIX + "missing");
+        Map<String, Integer> found = repository.getAll(keys);
+
+        assertThat(found).isEqualTo(ids);
+    }
+}
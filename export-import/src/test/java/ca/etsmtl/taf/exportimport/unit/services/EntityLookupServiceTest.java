@@ -0,0 +1,150 @@
+package ca.etsmtl.taf.exportimport.unit.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import ca.etsmtl.taf.exportimport.config.CacheConfig;
+import ca.etsmtl.taf.exportimport.config.EntityCacheProperties;
+import ca.etsmtl.taf.exportimport.models.Entity;
+import ca.etsmtl.taf.exportimport.models.EntityType;
+import ca.etsmtl.taf.exportimport.models.Project;
+import ca.etsmtl.taf.exportimport.models.TestCase;
+import ca.etsmtl.taf.exportimport.models.TestSuite;
+import ca.etsmtl.taf.exportimport.repositories.ProjectRepository;
+import ca.etsmtl.taf.exportimport.repositories.TestCaseRepository;
+import ca.etsmtl.taf.exportimport.repositories.TestResultRepository;
+import ca.etsmtl.taf.exportimport.repositories.TestRunRepository;
+import ca.etsmtl.taf.exportimport.repositories.TestSuiteRepository;
+import ca.etsmtl.taf.exportimport.services.EntityLookupService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class EntityLookupServiceTest {
+
+    @Mock
+    private ProjectRepository projectRepository;
+    @Mock
+    private TestSuiteRepository testSuiteRepository;
+    @Mock
+    private TestRunRepository testRunRepository;
+    @Mock
+    private TestResultRepository testResultRepository;
+    @Mock
+    private TestCaseRepository testCaseRepository;
+
+    private EntityLookupService lookupService;
+
+    @BeforeEach
+    void setUp() {
+        // Batches of 2 ids, run on the calling thread
+        lookupService = new EntityLookupService(projectRepository, testSuiteRepository, testRunRepository,
+            testResultRepository, testCaseRepository, new CacheConfig().cacheManager(new EntityCacheProperties()),
+            Runnable::run, 2);
+    }
+
+    @Test
+    void givenIdsOfSeveralTypes_whenFindingAllById_thenQueriesEachTypeInBatches() {
+        // Arrange
+        TestCase case1 = TestCase.builder()._id("case-1").testSuiteId("suite-1").build();
+        TestCase case2 = TestCase.builder()._id("case-2").testSuiteId("suite-1").build();
+        TestCase case3 = TestCase.builder()._id("case-3").testSuiteId("suite-1").build();
+        Project project = Project.builder()._id("project-1").build();
+        when(testCaseRepository.findAllById(List.of("case-1", "case-2"))).thenReturn(List.of(case1, case2));
+        when(testCaseRepository.findAllById(List.of("case-3"))).thenReturn(List.of(case3));
+        when(projectRepository.findAllById(List.of("project-1"))).thenReturn(List.of(project));
+
+        // Act
+        Map<EntityType, Map<String, Entity>> found = lookupService.findAllById(Map.of(
+            EntityType.TEST_CASE, List.of("case-1", "case-2", "case-1", "case-3"),
+            EntityType.PROJECT, List.of("project-1")
+        ));
+
+        // Assert
+        assertThat(found.get(EntityType.TEST_CASE))
+            .containsOnlyKeys("case-1", "case-2", "case-3")
+            .containsEntry("case-3", case3);
+        assertThat(found.get(EntityType.PROJECT)).containsEntry("project-1", project);
+        verify(testCaseRepository).findAllById(List.of("case-1", "case-2"));
+        verify(testCaseRepository).findAllById(List.of("case-3"));
+        verifyNoInteractions(testSuiteRepository, testRunRepository, testResultRepository);
+    }
+
+    @Test
+    void givenMissingIds_whenFindingAllById_thenLeavesThemOut() {
+        // Arrange
+        TestCase case1 = TestCase.builder()._id("case-1").testSuiteId("suite-1").build();
+        when(testCaseRepository.findAllById(List.of("case-1", "missing-case"))).thenReturn(List.of(case1));
+
+        // Act
+        Map<EntityType, Map<String, Entity>> found = lookupService.findAllById(Map.of(
+            EntityType.TEST_CASE, List.of("case-1", "missing-case")
+        ));
+
+        // Assert
+        assertThat(found.get(EntityType.TEST_CASE)).containsOnlyKeys("case-1");
+    }
+
+    @Test
+    void givenCachedIds_whenFindingAllById_thenOnlyQueriesTheMissingOnes() {
+        // Arrange
+        TestCase case1 = TestCase.builder()._id("case-1").testSuiteId("suite-1").build();
+        TestCase case2 = TestCase.builder()._id("case-2").testSuiteId("suite-1").build();
+        when(testCaseRepository.findAllById(List.of("case-1"))).thenReturn(List.of(case1));
+        when(testCaseRepository.findAllById(List.of("case-2"))).thenReturn(List.of(case2));
+        lookupService.findAllById(Map.of(EntityType.TEST_CASE, List.of("case-1")));
+
+        // Act
+        Map<EntityType, Map<String, Entity>> found = lookupService.findAllById(Map.of(
+            EntityType.TEST_CASE, List.of("case-1", "case-2")
+        ));
+
+        // Assert
+        assertThat(found.get(EntityType.TEST_CASE)).containsEntry("case-1", case1).containsEntry("case-2", case2);
+        verify(testCaseRepository, times(1)).findAllById(List.of("case-1"));
+        verify(testCaseRepository, times(1)).findAllById(List.of("case-2"));
+        assertThat(lookupService.getCacheStats().get(CacheConfig.TEST_CASES_CACHE).hitCount()).isEqualTo(1);
+        assertThat(lookupService.getCacheStats().get(CacheConfig.TEST_CASES_CACHE).missCount()).isEqualTo(2);
+    }
+
+    @Test
+    void givenEntityLoadedInBulk_whenFindingById_thenServedFromCache() {
+        // Arrange
+        TestSuite suite = TestSuite.builder()._id("suite-1").projectId("project-1").build();
+        when(testSuiteRepository.findAllById(List.of("suite-1"))).thenReturn(List.of(suite));
+        lookupService.findAllById(Map.of(EntityType.TEST_SUITE, List.of("suite-1")));
+
+        // Act
+        Entity found = lookupService.findById("suite-1", EntityType.TEST_SUITE);
+
+        // Assert
+        assertThat(found).isSameAs(suite);
+        verify(testSuiteRepository, times(0)).findById("suite-1");
+        assertThat(lookupService.getCacheStats().get(CacheConfig.TEST_SUITES_CACHE).hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenEntityFoundOnce_whenFindingByIdAgain_thenQueriesOnce() {
+        // Arrange
+        Project project = Project.builder()._id("project-1").build();
+        when(projectRepository.findById("project-1")).thenReturn(Optional.of(project));
+
+        // Act
+        lookupService.findProjectById("project-1");
+        Project found = lookupService.findProjectById("project-1");
+
+        // Assert
+        assertThat(found).isSameAs(project);
+        verify(projectRepository, times(1)).findById("project-1");
+    }
+}
@@ -2,11 +2,14 @@ package ca.etsmtl.taf.exportimport.unit.services;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
-import static org.mockito.Mockito.when;
 
+import ca.etsmtl.taf.exportimport.models.Entity;
 import ca.etsmtl.taf.exportimport.models.EntityType;
+import ca.etsmtl.taf.exportimport.models.Project;
 import ca.etsmtl.taf.exportimport.models.TestCase;
 import ca.etsmtl.taf.exportimport.models.TestResult;
 import ca.etsmtl.taf.exportimport.models.TestRun;
@@ -17,6 +20,7 @@ import ca.etsmtl.taf.exportimport.services.ExportDependencyResolver;
 
 import java.util.Arrays;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
@@ -33,9 +37,31 @@ class ExportDependencyResolverTest {
 
     private ExportDependencyResolver resolver;
 
+    private final Map<EntityType, Map<String, Entity>> entities = new EnumMap<>(EntityType.class);
+
     @BeforeEach
     void setUp() {
         resolver = new ExportDependencyResolver(entityLookupService);
+        lenient().when(entityLookupService.findAllById(anyMap())).thenAnswer(invocation -> {
+            Map<EntityType, List<String>> ids = invocation.getArgument(0);
+            Map<EntityType, Map<String, Entity>> found = new EnumMap<>(EntityType.class);
+            ids.forEach((type, typeIds) -> {
+                Map<String, Entity> ofType = new HashMap<>();
+                typeIds.stream()
+                    .filter(id -> entities.getOrDefault(type, Map.of()).containsKey(id))
+                    .forEach(id -> ofType.put(id, entities.get(type).get(id)));
+                found.put(type, ofType);
+            });
+            return found;
+        });
+    }
+
+    private void store(Entity entity) {
+        entities.computeIfAbsent(entity.getType(), t -> new HashMap<>()).put(entity.get_id(), entity);
+    }
+
+    private void storeProject(String id) {
+        store(Project.builder()._id(id).name(id).build());
     }
 
     @Test
@@ -48,46 +74,42 @@ class ExportDependencyResolverTest {
     @Test
     void givenResultWithRunAndCases_whenResolvingDependencies_thenCollectsEntireGraph() {
         // Arrange
-        when(entityLookupService.findTestResultById("result-1"))
-            .thenReturn(TestResult.builder()
+        store(TestResult.builder()
                 ._id("result-1")
                 .testCaseId("case-2")
                 .testRunId("run-1")
                 .status(TestRunStatus.PASSED)
                 .build());
-        when(entityLookupService.findTestCaseById("case-1"))
-            .thenReturn(TestCase.builder()
+        store(TestCase.builder()
                 ._id("case-1")
                 .testSuiteId("suite-1")
                 .name("TestCase1")
                 .build());
-        when(entityLookupService.findTestCaseById("case-2"))
-            .thenReturn(TestCase.builder()
+        store(TestCase.builder()
                 ._id("case-2")
                 .testSuiteId("suite-1")
                 .name("TestCase2")
                 .build());
-        when(entityLookupService.findTestCaseById("case-3"))
-            .thenReturn(TestCase.builder()
+        store(TestCase.builder()
                 ._id("case-3")
                 .testSuiteId("suite-1")
                 .name("TestCase3")
                 .build());
-        when(entityLookupService.findTestRunById("run-1"))
-            .thenReturn(TestRun.builder()
+        store(TestRun.builder()
                 ._id("run-1")
                 .testSuiteId("suite-1")
                 .name("TestRun1")
                 .testCaseIds(List.of("case-1", "case-2", "case-3"))
                 .build());
-        when(entityLookupService.findTestSuiteById("suite-1"))
-            .thenReturn(TestSuite.builder()
+        store(TestSuite.builder()
                 ._id("suite-1")
                 .projectId("project-1")
                 .name("TestSuite1")
                 .description("TestSuite1 description")
                 .build());
 
+        storeProject("project-1");
+
         Map<EntityType, List<String>> input = Map.of(
             EntityType.TEST_RESULT, List.of("result-1")
         );
@@ -101,6 +123,58 @@ class ExportDependencyResolverTest {
         assertThat(resolved.get(EntityType.TEST_CASE)).containsExactlyInAnyOrder("case-2", "case-1", "case-3");
         assertThat(resolved.get(EntityType.TEST_RUN)).containsExactlyInAnyOrder("run-1");
         assertThat(resolved.get(EntityType.TEST_RESULT)).containsExactlyInAnyOrder("result-1");
+
+        // One batched lookup per level: result, then case and run, then suite and cases, then project
+        verify(entityLookupService).findAllById(Map.of(EntityType.TEST_RESULT, List.of("result-1")));
+        verify(entityLookupService).findAllById(Map.of(
+            EntityType.TEST_CASE, List.of("case-2"),
+            EntityType.TEST_RUN, List.of("run-1")));
+        verify(entityLookupService).findAllById(Map.of(
+            EntityType.TEST_SUITE, List.of("suite-1"),
+            EntityType.TEST_CASE, List.of("case-1", "case-3")));
+        verify(entityLookupService).findAllById(Map.of(EntityType.PROJECT, List.of("project-1")));
+        verifyNoMoreInteractions(entityLookupService);
+    }
+
+    @Test
+    void givenResolvedIds_whenResolvingEntities_thenReturnsLoadedEntitiesInResolutionOrder() {
+        // Arrange
+        TestCase case1 = TestCase.builder()._id("case-1").testSuiteId("suite-1").name("TestCase1").build();
+        TestCase case2 = TestCase.builder()._id("case-2").testSuiteId("suite-1").name("TestCase2").build();
+        TestSuite suite = TestSuite.builder()._id("suite-1").projectId("project-1").name("TestSuite1").build();
+        store(case1);
+        store(case2);
+        store(suite);
+        storeProject("project-1");
+
+        // Act
+        Map<EntityType, List<Entity>> resolved = resolver.resolveEntities(Map.of(
+            EntityType.TEST_CASE, List.of("case-2", "case-1")
+        ));
+
+        // Assert
+        assertThat(resolved.get(EntityType.TEST_CASE)).containsExactly(case2, case1);
+        assertThat(resolved.get(EntityType.TEST_SUITE)).containsExactly(suite);
+        assertThat(resolved.get(EntityType.PROJECT)).extracting(Entity::get_id).containsExactly("project-1");
+        assertThat(resolved.get(EntityType.TEST_RUN)).isEmpty();
+    }
+
+    @Test
+    void givenMissingProject_whenResolvingDependencies_thenThrowIllegalStateException() {
+        // Arrange
+        store(TestSuite.builder()
+            ._id("suite-1")
+            .projectId("missing-project")
+            .name("TestSuite1")
+            .build());
+        Map<EntityType, List<String>> input = Map.of(
+            EntityType.TEST_SUITE, List.of("suite-1")
+        );
+
+        // Act / Assert
+        assertThatThrownBy(() -> resolver.resolveDependencies(input))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Project with id 'missing-project' not found while resolving dependencies.");
     }
 
     @Test
@@ -140,20 +214,20 @@ class ExportDependencyResolverTest {
     @Test
     void givenInputWithDuplicateIds_whenResolvingDependencies_thenProcessesEachOnce() {
         // Arrange
-        when(entityLookupService.findTestCaseById("case-1"))
-            .thenReturn(TestCase.builder()
+        store(TestCase.builder()
                 ._id("case-1")
                 .testSuiteId("suite-1")
                 .name("TestCase1")
                 .build());
-        when(entityLookupService.findTestSuiteById("suite-1"))
-            .thenReturn(TestSuite.builder()
+        store(TestSuite.builder()
                 ._id("suite-1")
                 .projectId("project-1")
                 .name("TestSuite1")
                 .description("TestSuite1 description")
                 .build());
 
+        storeProject("project-1");
+
         Map<EntityType, List<String>> input = new EnumMap<>(EntityType.class);
         input.put(EntityType.TEST_CASE, Arrays.asList("case-1", "case-1"));
 
@@ -167,34 +241,34 @@ class ExportDependencyResolverTest {
         assertThat(resolved.get(EntityType.TEST_RUN)).isEmpty();
         assertThat(resolved.get(EntityType.TEST_RESULT)).isEmpty();
 
-        verify(entityLookupService).findTestCaseById("case-1");
-        verify(entityLookupService).findTestSuiteById("suite-1");
+        verify(entityLookupService).findAllById(Map.of(EntityType.TEST_CASE, List.of("case-1")));
+        verify(entityLookupService).findAllById(Map.of(EntityType.TEST_SUITE, List.of("suite-1")));
+        verify(entityLookupService).findAllById(Map.of(EntityType.PROJECT, List.of("project-1")));
         verifyNoMoreInteractions(entityLookupService);
     }
 
     @Test
     void givenEntitiesSharingParents_whenResolvingDependencies_thenParentAppearsOnce() {
         // Arrange
-        when(entityLookupService.findTestCaseById("case-1"))
-            .thenReturn(TestCase.builder()
+        store(TestCase.builder()
                 ._id("case-1")
                 .testSuiteId("suite-1")
                 .name("TestCase1")
                 .build());
-        when(entityLookupService.findTestCaseById("case-2"))
-            .thenReturn(TestCase.builder()
+        store(TestCase.builder()
                 ._id("case-2")
                 .testSuiteId("suite-1")
                 .name("TestCase2")
                 .build());
-        when(entityLookupService.findTestSuiteById("suite-1"))
-            .thenReturn(TestSuite.builder()
+        store(TestSuite.builder()
                 ._id("suite-1")
                 .projectId("project-1")
                 .name("TestSuite1")
                 .description("TestSuite1 description")
                 .build());
 
+        storeProject("project-1");
+
         Map<EntityType, List<String>> input = Map.of(
             EntityType.TEST_CASE, List.of("case-1", "case-2")
         );
@@ -209,9 +283,9 @@ class ExportDependencyResolverTest {
         assertThat(resolved.get(EntityType.TEST_RUN)).isEmpty();
         assertThat(resolved.get(EntityType.TEST_RESULT)).isEmpty();
 
-        verify(entityLookupService).findTestCaseById("case-1");
-        verify(entityLookupService).findTestCaseById("case-2");
-        verify(entityLookupService).findTestSuiteById("suite-1");
+        verify(entityLookupService).findAllById(Map.of(EntityType.TEST_CASE, List.of("case-1", "case-2")));
+        verify(entityLookupService).findAllById(Map.of(EntityType.TEST_SUITE, List.of("suite-1")));
+        verify(entityLookupService).findAllById(Map.of(EntityType.PROJECT, List.of("project-1")));
         verifyNoMoreInteractions(entityLookupService);
     }
 
@@ -221,7 +295,6 @@ class ExportDependencyResolverTest {
         Map<EntityType, List<String>> input = Map.of(
             EntityType.TEST_CASE, List.of("missing-case")
         );
-        when(entityLookupService.findTestCaseById("missing-case")).thenReturn(null);
 
         // Act / Assert
         assertThatThrownBy(() -> resolver.resolveDependencies(input))
@@ -241,8 +314,7 @@ class ExportDependencyResolverTest {
         Map<EntityType, List<String>> input = Map.of(
             EntityType.TEST_CASE, List.of("case-1")
         );
-        when(entityLookupService.findTestCaseById("case-1")).thenReturn(testCase);
-        when(entityLookupService.findTestSuiteById("missing-suite")).thenReturn(null);
+        store(testCase);
 
         // Act / Assert
         assertThatThrownBy(() -> resolver.resolveDependencies(input))
@@ -257,7 +329,6 @@ class ExportDependencyResolverTest {
         Map<EntityType, List<String>> input = Map.of(
             EntityType.TEST_RUN, List.of("missing-run")
         );
-        when(entityLookupService.findTestRunById("missing-run")).thenReturn(null);
 
         // Act / Assert
         assertThatThrownBy(() -> resolver.resolveDependencies(input))
@@ -272,7 +343,6 @@ class ExportDependencyResolverTest {
         Map<EntityType, List<String>> input = Map.of(
             EntityType.TEST_RESULT, List.of("missing-result")
         );
-        when(entityLookupService.findTestResultById("missing-result")).thenReturn(null);
 
         // Act / Assert
         assertThatThrownBy(() -> resolver.resolveDependencies(input))
@@ -284,21 +354,21 @@ class ExportDependencyResolverTest {
     @Test
     void givenTestRunWithNullTestCaseIds_whenResolvingDependencies_thenSucceeds() {
         // Arrange
-        when(entityLookupService.findTestRunById("run-1"))
-            .thenReturn(TestRun.builder()
+        store(TestRun.builder()
                 ._id("run-1")
                 .testSuiteId("suite-1")
                 .name("TestRun1")
                 .testCaseIds(null)
                 .build());
-        when(entityLookupService.findTestSuiteById("suite-1"))
-            .thenReturn(TestSuite.builder()
+        store(TestSuite.builder()
                 ._id("suite-1")
                 .projectId("project-1")
                 .name("TestSuite1")
                 .description("TestSuite1 description")
                 .build());
 
+        storeProject("project-1");
+
         Map<EntityType, List<String>> input = Map.of(
             EntityType.TEST_RUN, List.of("run-1")
         );
@@ -316,8 +386,7 @@ class ExportDependencyResolverTest {
 
     @Test
     void givenTestRunWithInvalidTestCaseId_whenResolvingDependencies_thenThrowIllegalStateException() {
-        when(entityLookupService.findTestRunById("run-1"))
-            .thenReturn(TestRun.builder()
+        store(TestRun.builder()
                 ._id("run-1")
                 .testSuiteId("suite-1")
                 .name("TestRun1")
@@ -336,8 +405,7 @@ class ExportDependencyResolverTest {
     @Test
     void givenTestCaseWithoutTestSuiteId_whenResolvingDependencies_thenThrowIllegalStateException() {
         // Arrange
-        when(entityLookupService.findTestCaseById("case-1"))
-            .thenReturn(TestCase.builder()
+        store(TestCase.builder()
                 ._id("case-1")
                 .testSuiteId(null)
                 .name("TestCase1")
@@ -358,8 +426,7 @@ class ExportDependencyResolverTest {
     @Test
     void givenTestResultWithoutTestCaseId_whenResolvingDependencies_thenThrowIllegalStateException() {
         // Arrange
-        when(entityLookupService.findTestResultById("result-1"))
-            .thenReturn(TestResult.builder()
+        store(TestResult.builder()
                 ._id("result-1")
                 .testRunId("run-1")
                 .testCaseId(null)
@@ -381,8 +448,7 @@ class ExportDependencyResolverTest {
     @Test
     void givenTestResultWithoutTestRunId_whenResolvingDependencies_thenThrowIllegalStateException() {
         // Arrange
-        when(entityLookupService.findTestResultById("result-1"))
-            .thenReturn(TestResult.builder()
+        store(TestResult.builder()
                 ._id("result-1")
                 .testRunId(null)
                 .testCaseId("case-1")
@@ -404,8 +470,7 @@ class ExportDependencyResolverTest {
     @Test
     void givenTestRunWithoutTestSuiteId_whenResolvingDependencies_thenThrowIllegalStateException() {
         // Arrange
-        when(entityLookupService.findTestRunById("run-1"))
-            .thenReturn(TestRun.builder()
+        store(TestRun.builder()
                 ._id("run-1")
                 .testSuiteId(null)
                 .name("TestRun1")
@@ -427,8 +492,7 @@ class ExportDependencyResolverTest {
     @Test
     void givenTestSuiteWithoutProjectId_whenResolvingDependencies_thenThrowIllegalStateException() {
         // Arrange
-        when(entityLookupService.findTestSuiteById("suite-1"))
-            .thenReturn(TestSuite.builder()
+        store(TestSuite.builder()
                 ._id("suite-1")
                 .projectId(null)
                 .name("TestSuite1")
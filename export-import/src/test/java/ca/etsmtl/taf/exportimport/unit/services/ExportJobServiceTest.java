@@ -0,0 +1,203 @@
+package ca.etsmtl.taf.exportimport.unit.services;
+
+import ca.etsmtl.taf.exportimport.dtos.ExportJobResponse;
+import ca.etsmtl.taf.exportimport.models.EntityType;
+import ca.etsmtl.taf.exportimport.models.ExportJob;
+import ca.etsmtl.taf.exportimport.models.ExportJobStatus;
+import ca.etsmtl.taf.exportimport.repositories.ExportJobRepository;
+import ca.etsmtl.taf.exportimport.services.ExportJobService;
+import ca.etsmtl.taf.exportimport.services.ExportService;
+import ca.etsmtl.taf.exportimport.services.FileExportService;
+import ca.etsmtl.taf.exportimport.utils.exporters.ExportCheckpoint;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ExportJobServiceTest {
+
+    @Mock
+    private ExportService exportService;
+
+    @Mock
+    private FileExportService fileExportService;
+
+    @Mock
+    private ExportJobRepository exportJobRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private final Map<String, ExportJob> store = new HashMap<>();
+
+    private ExportJobService exportJobService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(exportJobRepository.save(any(ExportJob.class))).thenAnswer(invocation -> {
+            ExportJob job = invocation.getArgument(0);
+            if (job.get_id() == null) {
+                job.set_id("job" + (store.size() + 1));
+            }
+            store.put(job.get_id(), job);
+            return job;
+        });
+        when(exportJobRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(store.get(invocation.<String>getArgument(0))));
+        when(exportService.supports("testrail")).thenReturn(true);
+        // Jobs run in the calling thread
+        exportJobService = new ExportJobService(exportService, fileExportService, exportJobRepository, mongoTemplate,
+                Runnable::run, true, 60000);
+    }
+
+    @Test
+    void testSubmit_unsupportedType() {
+        assertThrows(IllegalArgumentException.class, () -> exportJobService.submit("invalid", Map.of(), false));
+        verifyNoInteractions(exportJobRepository);
+    }
+
+    @Test
+    void testSubmit_runsJobToCompletion() throws Exception {
+        Map<EntityType, List<String>> ids = Map.of(EntityType.PROJECT, List.of("p1"));
+        when(exportService.exportTo(eq("testrail"), eq(ids), any())).thenReturn("Successfully exported 1 project(s)");
+
+        ExportJobResponse response = exportJobService.submit("testrail", ids, false);
+
+        ExportJob job = store.get(response.jobId());
+        assertEquals(ExportJobStatus.COMPLETED, job.getStatus());
+        assertEquals("Successfully exported 1 project(s)", job.getMessage());
+        assertEquals(ExportJobStatus.COMPLETED, exportJobService.findById(response.jobId()).orElseThrow().status());
+    }
+
+    @Test
+    void testResume_skipsStagesCompletedByFailedAttempt() throws Exception {
+        Map<EntityType, List<String>> ids = Map.of(EntityType.PROJECT, List.of("p1"));
+        when(exportService.exportTo(eq("testrail"), eq(ids), any())).thenAnswer(invocation -> {
+            ExportCheckpoint checkpoint = invocation.getArgument(2);
+            checkpoint.stageStarted(EntityType.PROJECT, 1);
+            checkpoint.processed(EntityType.PROJECT, 1);
+            checkpoint.stageCompleted(EntityType.PROJECT);
+            checkpoint.stageStarted(EntityType.TEST_SUITE, 2);
+            throw new Exception("TestRail unreachable");
+        });
+
+        String jobId = exportJobService.submit("testrail", ids, false).jobId();
+
+        ExportJob failed = store.get(jobId);
+        assertEquals(ExportJobStatus.FAILED, failed.getStatus());
+        assertEquals("TestRail unreachable", failed.getMessage());
+        assertEquals(List.of(EntityType.PROJECT), failed.getCompletedStages());
+
+        when(exportService.exportTo(eq("testrail"), eq(ids), any())).thenAnswer(invocation -> {
+            ExportCheckpoint checkpoint = invocation.getArgument(2);
+            assertTrue(checkpoint.isCompleted(EntityType.PROJECT));
+            assertFalse(checkpoint.isCompleted(EntityType.TEST_SUITE));
+            return "Successfully exported 2 suite(s)";
+        });
+
+        exportJobService.resume(jobId);
+
+        assertEquals(ExportJobStatus.COMPLETED, store.get(jobId).getStatus());
+    }
+
+    @Test
+    void testCancel_completedJobIsRejected() throws Exception {
+        when(exportService.exportTo(eq("testrail"), any(), any())).thenReturn("Nothing was exported");
+        String jobId = exportJobService.submit("testrail", Map.of(), false).jobId();
+
+        assertThrows(IllegalStateException.class, () -> exportJobService.cancel(jobId));
+        assertThrows(IllegalStateException.class, () -> exportJobService.resume(jobId));
+    }
+
+    @Test
+    void testCancel_jobLeftByStoppedInstance() {
+        ExportJob job = new ExportJob();
+        job.set_id("job1");
+        job.setType("testrail");
+        job.setStatus(ExportJobStatus.RUNNING);
+        store.put("job1", job);
+
+        ExportJobResponse response = exportJobService.cancel("job1");
+
+        assertEquals(ExportJobStatus.CANCELLED, response.status());
+    }
+
+    @Test
+    void testResumeInterruptedJobs_resumesRunningJobs() throws Exception {
+        ExportJob job = new ExportJob();
+        job.set_id("job1");
+        job.setType("testrail");
+        job.setStatus(ExportJobStatus.RUNNING);
+        job.getCompletedStages().add(EntityType.PROJECT);
+        store.put("job1", job);
+        // The claim succeeds once, then no expired job is left
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(ExportJob.class)))
+                .thenReturn(job, (ExportJob) null);
+        when(exportService.exportTo(eq("testrail"), any(), any())).thenReturn("Successfully exported 1 suite(s)");
+
+        exportJobService.resumeInterruptedJobs();
+
+        assertEquals(ExportJobStatus.COMPLETED, store.get("job1").getStatus());
+    }
+
+    @Test
+    void testResumeInterruptedJobs_claimsOnlyExpiredLeases() {
+        exportJobService.resumeInterruptedJobs();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), eq(ExportJob.class));
+        assertTrue(query.getValue().getQueryObject().containsKey("$or"));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertNotNull(set.get("owner"));
+        assertNotNull(set.get("heartbeatAt"));
+        verifyNoInteractions(exportService);
+    }
+
+    @Test
+    void testCancel_jobLeasedByAnotherInstanceIsRejected() {
+        ExportJob job = new ExportJob();
+        job.set_id("job1");
+        job.setType("testrail");
+        job.setStatus(ExportJobStatus.RUNNING);
+        job.setOwner("other-instance");
+        job.setHeartbeatAt(Instant.now());
+        store.put("job1", job);
+
+        assertThrows(IllegalStateException.class, () -> exportJobService.cancel("job1"));
+        assertThrows(IllegalStateException.class, () -> exportJobService.resume("job1"));
+        assertEquals(ExportJobStatus.RUNNING, store.get("job1").getStatus());
+    }
+
+    @Test
+    void testSubmit_fileExportWritesFile() throws Exception {
+        when(fileExportService.supports("ndjson")).thenReturn(true);
+        when(fileExportService.exportTo(any(ExportJob.class), any())).thenReturn("Successfully exported 1 project(s) to job1.ndjson.gz");
+
+        String jobId = exportJobService.submit("ndjson", Map.of(EntityType.PROJECT, List.of("p1")), true).jobId();
+
+        ExportJob job = store.get(jobId);
+        assertTrue(job.isGzip());
+        assertEquals(ExportJobStatus.COMPLETED, job.getStatus());
+        verify(fileExportService).exportTo(eq(job), any());
+        verify(exportService, never()).exportTo(anyString(), any(), any());
+    }
+}
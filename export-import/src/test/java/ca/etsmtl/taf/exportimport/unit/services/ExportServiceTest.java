@@ -1,15 +1,22 @@
 package ca.etsmtl.taf.exportimport.unit.services;
 
+import ca.etsmtl.taf.exportimport.config.ExportLimitsProperties;
 import ca.etsmtl.taf.exportimport.models.Entity;
 import ca.etsmtl.taf.exportimport.models.EntityType;
-import ca.etsmtl.taf.exportimport.services.EntityLookupService;
 import ca.etsmtl.taf.exportimport.services.ExportDependencyResolver;
 import ca.etsmtl.taf.exportimport.services.ExportService;
+import ca.etsmtl.taf.exportimport.utils.exporters.ExportCheckpoint;
 import ca.etsmtl.taf.exportimport.utils.exporters.Exporter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -20,9 +27,6 @@ class ExportServiceTest {
      * Tests generated by AI assistant and modified manually
      */
 
-    @Mock
-    private EntityLookupService entityLookupService;
-
     @Mock
     private ExportDependencyResolver exportDependencyResolver;
 
@@ -37,7 +41,7 @@ class ExportServiceTest {
         MockitoAnnotations.openMocks(this);
         Map<String, Exporter> exporters = new HashMap<>();
         exporters.put("testrail", exporterMock);
-        exportService = new ExportService(entityLookupService, exporters, exportDependencyResolver);
+        exportService = new ExportService(exporters, exportDependencyResolver, new ExportLimitsProperties());
     }
 
     @Test
@@ -50,13 +54,14 @@ class ExportServiceTest {
         ids.put(EntityType.PROJECT, List.of("p1"));
         ids.put(EntityType.TEST_SUITE, List.of("s1"));
 
-        when(exportDependencyResolver.resolveDependencies(ids)).thenReturn(ids);
-        when(entityLookupService.findById("p1", EntityType.PROJECT)).thenReturn(project);
-        when(entityLookupService.findById("s1", EntityType.TEST_SUITE)).thenReturn(suite);
+        Map<EntityType, List<Entity>> entities = new HashMap<>();
+        entities.put(EntityType.PROJECT, List.of(project));
+        entities.put(EntityType.TEST_SUITE, List.of(suite));
+        when(exportDependencyResolver.resolveEntities(ids)).thenReturn(entities);
 
         String result = exportService.exportTo(type, ids);
 
-        verify(exporterMock).exportTo(anyMap());
+        verify(exporterMock).exportTo(anyMap(), any());
         assertTrue(result.contains("Successfully exported"));
         assertTrue(result.contains("project"));
         assertTrue(result.contains("suite"));
@@ -71,7 +76,7 @@ class ExportServiceTest {
                 exportService.exportTo(invalidType, ids));
 
         assertEquals("Unsupported exporter type: invalid", exception.getMessage());
-        verifyNoInteractions(exportDependencyResolver, entityLookupService);
+        verifyNoInteractions(exportDependencyResolver);
     }
 
     @Test
@@ -80,9 +85,8 @@ class ExportServiceTest {
         Map<EntityType, List<String>> ids = Map.of(EntityType.PROJECT, List.of("p1"));
         Entity project = mock(Entity.class);
 
-        when(exportDependencyResolver.resolveDependencies(ids)).thenReturn(ids);
-        when(entityLookupService.findById("p1", EntityType.PROJECT)).thenReturn(project);
-        doThrow(new RuntimeException("boom")).when(exporterMock).exportTo(anyMap());
+        when(exportDependencyResolver.resolveEntities(ids)).thenReturn(new HashMap<>(Map.of(EntityType.PROJECT, List.of(project))));
+        doThrow(new RuntimeException("boom")).when(exporterMock).exportTo(anyMap(), any());
 
         Exception exception = assertThrows(Exception.class, () ->
                 exportService.exportTo(type, ids));
@@ -101,8 +105,7 @@ class ExportServiceTest {
         Map<EntityType, List<Entity>> entities = new LinkedHashMap<>();
         ids.forEach((k, v) -> entities.put(k, v.stream().map(id -> mock(Entity.class)).toList()));
 
-        when(exportDependencyResolver.resolveDependencies(any())).thenReturn(ids);
-        when(entityLookupService.findById(anyString(), any())).thenReturn(mock(Entity.class));
+        when(exportDependencyResolver.resolveEntities(any())).thenReturn(entities);
 
         String result = exportService.exportTo("testrail", ids);
 
@@ -115,11 +118,95 @@ class ExportServiceTest {
     @Test
     void testGetExportConfirmationMessage_nothingExported() throws Exception {
         Map<EntityType, List<String>> ids = Map.of();
-        when(exportDependencyResolver.resolveDependencies(ids)).thenReturn(ids);
+        when(exportDependencyResolver.resolveEntities(ids)).thenReturn(new HashMap<>());
 
         String result = exportService.exportTo("testrail", ids);
 
         assertEquals("Nothing was exported", result);
-        verify(exporterMock).exportTo(anyMap());
+        verify(exporterMock).exportTo(anyMap(), any());
+    }
+
+    @Test
+    void testExportTo_capsParallelExportsPerDestination() throws Exception {
+        ExportLimitsProperties limits = new ExportLimitsProperties();
+        limits.getDestinations().put("testrail", 1);
+        exportService = new ExportService(Map.of("testrail", exporterMock), exportDependencyResolver, limits);
+        when(exportDependencyResolver.resolveEntities(any())).thenAnswer(invocation -> new HashMap<>());
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch bothSubmitted = new CountDownLatch(2);
+        doAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            running.decrementAndGet();
+            return null;
+        }).when(exporterMock).exportTo(anyMap(), any());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<String>> exports = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                exports.add(executor.submit(() -> {
+                    bothSubmitted.countDown();
+                    bothSubmitted.await();
+                    return exportService.exportTo("testrail", Map.of());
+                }));
+            }
+            for (Future<String> export : exports) {
+                export.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(exporterMock, times(2)).exportTo(anyMap(), any());
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    void testExportTo_resolvesEntitiesOnlyOnceThePermitIsHeld() throws Exception {
+        ExportLimitsProperties limits = new ExportLimitsProperties();
+        limits.getDestinations().put("testrail", 1);
+        exportService = new ExportService(Map.of("testrail", exporterMock), exportDependencyResolver, limits);
+        when(exportDependencyResolver.resolveEntities(any())).thenAnswer(invocation -> new HashMap<>());
+
+        CountDownLatch firstRunning = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            firstRunning.countDown();
+            releaseFirst.await();
+            return null;
+        }).doNothing().when(exporterMock).exportTo(anyMap(), any());
+
+        AtomicInteger started = new AtomicInteger();
+        ExportCheckpoint checkpoint = new ExportCheckpoint() {
+            @Override
+            public void started() {
+                started.incrementAndGet();
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> exportService.exportTo("testrail", Map.of(), checkpoint));
+            assertTrue(firstRunning.await(5, TimeUnit.SECONDS));
+            Future<String> second = executor.submit(() -> exportService.exportTo("testrail", Map.of(), checkpoint));
+
+            Thread.sleep(100);
+            // The second export waits for the permit before loading anything
+            verify(exportDependencyResolver, times(1)).resolveEntities(any());
+            assertEquals(1, started.get());
+
+            releaseFirst.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+        } finally {
+            releaseFirst.countDown();
+            executor.shutdownNow();
+        }
+
+        verify(exportDependencyResolver, times(2)).resolveEntities(any());
+        assertEquals(2, started.get());
     }
 }
@@ -0,0 +1,125 @@
+package ca.etsmtl.taf.exportimport.unit.services;
+
+import ca.etsmtl.taf.exportimport.models.*;
+import ca.etsmtl.taf.exportimport.services.FileExportService;
+import ca.etsmtl.taf.exportimport.utils.exporters.ExportCheckpoint;
+import ca.etsmtl.taf.exportimport.utils.exporters.file.CsvFileExporter;
+import ca.etsmtl.taf.exportimport.utils.exporters.file.NdjsonFileExporter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class FileExportServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @TempDir
+    private Path directory;
+
+    private FileExportService fileExportService;
+
+    private final List<Query> resultQueries = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        fileExportService = new FileExportService(List.of(new NdjsonFileExporter(), new CsvFileExporter()),
+                mongoTemplate, directory.toString());
+
+        Project project = Project.builder()._id("p1").name("Proj").build();
+        TestSuite suite = TestSuite.builder()._id("s1").projectId("p1").name("Suite").build();
+        TestCase testCase = TestCase.builder()._id("c1").testSuiteId("s1").name("Case").build();
+        TestRun run = TestRun.builder()._id("tr1").testSuiteId("s1").name("Run").testCaseIds(List.of("c1")).build();
+        TestResult result = TestResult.builder()._id("r1").testRunId("tr1").testCaseId("c1").status(TestRunStatus.PASSED).build();
+
+        when(mongoTemplate.count(any(Query.class), any(Class.class))).thenReturn(1L);
+        when(mongoTemplate.stream(any(Query.class), eq(Project.class))).thenAnswer(invocation -> Stream.of(project));
+        when(mongoTemplate.stream(any(Query.class), eq(TestSuite.class))).thenAnswer(invocation -> Stream.of(suite));
+        when(mongoTemplate.stream(any(Query.class), eq(TestCase.class))).thenAnswer(invocation -> Stream.of(testCase));
+        when(mongoTemplate.stream(any(Query.class), eq(TestRun.class))).thenAnswer(invocation -> Stream.of(run));
+        when(mongoTemplate.stream(any(Query.class), eq(TestResult.class))).thenAnswer(invocation -> {
+            resultQueries.add(invocation.getArgument(0));
+            return Stream.of(result);
+        });
+    }
+
+    private static ExportJob job(String type, boolean gzip) {
+        ExportJob job = new ExportJob();
+        job.set_id("job1");
+        job.setType(type);
+        job.setGzip(gzip);
+        job.setIds(Map.of(EntityType.PROJECT, List.of("p1")));
+        return job;
+    }
+
+    @Test
+    void testExportTo_writesProjectAndDescendants() throws Exception {
+        ExportJob job = job("csv", false);
+
+        String message = fileExportService.exportTo(job, ExportCheckpoint.NONE);
+
+        Path file = fileExportService.fileOf(job).path();
+        assertEquals(directory.resolve("job1.csv"), file);
+        List<String> rows = Files.readAllLines(file);
+        assertEquals(6, rows.size());
+        assertTrue(rows.get(5).startsWith("TEST_RESULT,r1,"));
+        assertEquals("Successfully exported 1 project(s), 1 suite(s), 1 case(s), 1 run(s), 1 result(s) to job1.csv", message);
+        // Results are read run by run
+        assertEquals(1, resultQueries.size());
+        assertEquals("tr1", resultQueries.get(0).getQueryObject().get("testRunId"));
+        assertFalse(Files.exists(directory.resolve("job1.csv.part")));
+    }
+
+    @Test
+    void testExportTo_gzipCompressed() throws Exception {
+        ExportJob job = job("ndjson", true);
+
+        fileExportService.exportTo(job, ExportCheckpoint.NONE);
+
+        FileExportService.ExportFile file = fileExportService.fileOf(job);
+        assertEquals("application/gzip", file.contentType());
+        assertEquals("job1.ndjson.gz", file.path().getFileName().toString());
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file.path()))) {
+            String ndjson = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals(5, ndjson.split("\n").length);
+        }
+    }
+
+    @Test
+    void testExportTo_failureRemovesPartialFile() {
+        when(mongoTemplate.stream(any(Query.class), eq(TestRun.class))).thenThrow(new IllegalStateException("cursor lost"));
+        ExportJob job = job("ndjson", false);
+
+        assertThrows(IllegalStateException.class, () -> fileExportService.exportTo(job, ExportCheckpoint.NONE));
+
+        assertFalse(Files.exists(directory.resolve("job1.ndjson")));
+        assertFalse(Files.exists(directory.resolve("job1.ndjson.part")));
+    }
+
+    @Test
+    void testSupports_fileFormatsOnly() {
+        assertTrue(fileExportService.supports("ndjson"));
+        assertTrue(fileExportService.supports("csv"));
+        assertFalse(fileExportService.supports("testrail"));
+    }
+}
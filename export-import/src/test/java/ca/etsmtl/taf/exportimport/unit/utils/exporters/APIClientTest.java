@@ -0,0 +1,125 @@
+package ca.etsmtl.taf.exportimport.unit.utils.exporters;
+
+import com.gurock.testrail.APICallMetrics;
+import com.gurock.testrail.APIClient;
+import com.gurock.testrail.APIException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class APIClientTest {
+
+    private HttpServer server;
+    private APIClient client;
+    private final AtomicReference<String> lastBody = new AtomicReference<>();
+    private final AtomicReference<String> lastAuthorization = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        client = new APIClient("http://127.0.0.1:" + server.getAddress().getPort());
+        client.setUser("user");
+        client.setPassword("key");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        lastAuthorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+        lastBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        String query = exchange.getRequestURI().getQuery();
+        if (query.startsWith("/api/v2/add_case/")) {
+            respond(exchange, 200, "{\"id\":12,\"title\":\"Login\",\"refs\":null,\"custom\":{\"steps\":[1,2.5,true]}}");
+        } else if (query.startsWith("/api/v2/get_cases/")) {
+            respond(exchange, 200, "[{\"id\":1},{\"id\":2}]");
+        } else if (query.startsWith("/api/v2/add_run/")) {
+            exchange.getResponseHeaders().add("Retry-After", "7");
+            respond(exchange, 429, "{\"error\":\"API rate limit exceeded\"}");
+        } else {
+            respond(exchange, 500, "<html>Internal error</html>");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    void testSendPost_serializesDataAndParsesResponse() throws Exception {
+        Object response = client.sendPost("add_case/3", Map.of("title", "Login"));
+
+        assertEquals("{\"title\":\"Login\"}", lastBody.get());
+        assertTrue(lastAuthorization.get().startsWith("Basic "));
+        JSONObject testCase = assertInstanceOf(JSONObject.class, response);
+        assertEquals(12L, testCase.get("id"));
+        assertEquals("Login", testCase.get("title"));
+        assertTrue(testCase.containsKey("refs"));
+        assertNull(testCase.get("refs"));
+        JSONArray steps = (JSONArray) ((JSONObject) testCase.get("custom")).get("steps");
+        assertEquals(List.of(1L, 2.5, true), steps);
+    }
+
+    @Test
+    void testSendGetAsync_returnsArray() throws Exception {
+        CompletableFuture<Object> response = client.sendGetAsync("get_cases/3");
+
+        JSONArray cases = assertInstanceOf(JSONArray.class, response.get());
+        assertEquals(2, cases.size());
+    }
+
+    @Test
+    void testSendPost_rateLimitedKeepsStatusAndRetryAfter() {
+        APIException e = assertThrows(APIException.class, () -> client.sendPost("add_run/3", Map.of()));
+
+        assertEquals(429, e.getStatusCode());
+        assertEquals(7L, e.getRetryAfterSeconds());
+        assertTrue(e.getMessage().contains("API rate limit exceeded"));
+    }
+
+    @Test
+    void testSendGet_errorWithoutJsonBody() {
+        APIException e = assertThrows(APIException.class, () -> client.sendGet("get_run/3"));
+
+        assertEquals(500, e.getStatusCode());
+        assertTrue(e.getMessage().contains("No additional error message received"));
+    }
+
+    @Test
+    void testGetMetrics_countsCallsPerMethod() throws Exception {
+        client.sendPost("add_case/3", Map.of());
+        client.sendPost("add_case/4", Map.of());
+        assertThrows(APIException.class, () -> client.sendPost("add_run/3", Map.of()));
+
+        List<APICallMetrics.Snapshot> metrics = client.getMetrics();
+
+        assertEquals(List.of("add_case", "add_run"), metrics.stream().map(APICallMetrics.Snapshot::endpoint).toList());
+        assertEquals(2, metrics.get(0).calls());
+        assertEquals(0, metrics.get(0).errors());
+        assertEquals(1, metrics.get(1).errors());
+        assertTrue(metrics.get(0).maxMillis() >= metrics.get(0).meanMillis());
+    }
+}
@@ -0,0 +1,92 @@
+package ca.etsmtl.taf.exportimport.unit.utils.exporters;
+
+import ca.etsmtl.taf.exportimport.models.*;
+import ca.etsmtl.taf.exportimport.services.EntityLookupService;
+import ca.etsmtl.taf.exportimport.utils.exporters.file.CsvFileExporter;
+import ca.etsmtl.taf.exportimport.utils.exporters.file.EntityWriter;
+import ca.etsmtl.taf.exportimport.utils.exporters.file.FileExporter;
+import ca.etsmtl.taf.exportimport.utils.exporters.file.JUnitXmlFileExporter;
+import ca.etsmtl.taf.exportimport.utils.exporters.file.NdjsonFileExporter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FileExportersTest {
+
+    private static String export(FileExporter fileExporter, List<Entity> entities) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EntityWriter writer = fileExporter.open(out);
+        for (Entity entity : entities) {
+            writer.write(entity);
+        }
+        writer.finish();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testNdjson_oneObjectPerLine() throws Exception {
+        Project project = Project.builder()._id("p1").name("Proj").description("Desc").build();
+        TestResult result = TestResult.builder()._id("r1").testRunId("tr1").testCaseId("c1").status(TestRunStatus.PASSED).build();
+
+        String ndjson = export(new NdjsonFileExporter(), List.of(project, result));
+
+        String[] lines = ndjson.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(ndjson.endsWith("\n"));
+        JsonNode first = new ObjectMapper().readTree(lines[0]);
+        assertEquals("p1", first.get("_id").asText());
+        assertEquals("PROJECT", first.get("type").asText());
+        JsonNode second = new ObjectMapper().readTree(lines[1]);
+        assertEquals("PASSED", second.get("status").asText());
+        assertEquals("tr1", second.get("testRunId").asText());
+    }
+
+    @Test
+    void testNdjson_emptyExport() throws Exception {
+        assertEquals("", export(new NdjsonFileExporter(), List.of()));
+    }
+
+    @Test
+    void testCsv_escapesValuesAndJoinsCaseIds() throws Exception {
+        TestSuite suite = TestSuite.builder()._id("s1").projectId("p1").name("Login, \"happy\" path").build();
+        TestRun run = TestRun.builder()._id("tr1").testSuiteId("s1").name("Run").testCaseIds(List.of("c1", "c2")).build();
+
+        String csv = export(new CsvFileExporter(), List.of(suite, run));
+
+        String[] rows = csv.split("\r\n");
+        assertEquals("type,id,projectId,testSuiteId,testRunId,testCaseId,name,description,status,testCaseIds", rows[0]);
+        assertEquals("TEST_SUITE,s1,p1,,,,\"Login, \"\"happy\"\" path\",,,", rows[1]);
+        assertEquals("TEST_RUN,tr1,,s1,,,Run,,,c1;c2", rows[2]);
+    }
+
+    @Test
+    void testJUnitXml_oneSuitePerRun() throws Exception {
+        EntityLookupService lookupService = mock(EntityLookupService.class);
+        when(lookupService.findTestRunById("tr1")).thenReturn(TestRun.builder()._id("tr1").name("Login run").build());
+        when(lookupService.findTestRunById("tr2")).thenThrow(new IllegalStateException("Test run with id tr2 not found"));
+        when(lookupService.findTestCaseById("c1")).thenReturn(TestCase.builder()._id("c1").testSuiteId("s1").name("Valid login").build());
+        when(lookupService.findTestCaseById("c2")).thenReturn(TestCase.builder()._id("c2").testSuiteId("s1").name("Invalid login").build());
+        when(lookupService.findTestSuiteById("s1")).thenReturn(TestSuite.builder()._id("s1").name("Login").build());
+
+        String xml = export(new JUnitXmlFileExporter(lookupService), List.of(
+                Project.builder()._id("p1").build(),
+                TestResult.builder()._id("r1").testRunId("tr1").testCaseId("c1").status(TestRunStatus.PASSED).build(),
+                TestResult.builder()._id("r2").testRunId("tr1").testCaseId("c2").status(TestRunStatus.FAILED).build(),
+                TestResult.builder()._id("r3").testRunId("tr2").testCaseId("c1").status(TestRunStatus.BLOCKED).build()));
+
+        assertTrue(xml.contains("<testsuites><testsuite id=\"tr1\" name=\"Login run\">"
+                + "<testcase name=\"Valid login\" classname=\"Login\"></testcase>"
+                + "<testcase name=\"Invalid login\" classname=\"Login\"><failure message=\"FAILED\"/></testcase>"
+                + "</testsuite><testsuite id=\"tr2\" name=\"tr2\">"
+                + "<testcase name=\"Valid login\" classname=\"Login\"><skipped message=\"BLOCKED\"/></testcase>"
+                + "</testsuite></testsuites>"), xml);
+    }
+}
@@ -1,11 +1,13 @@
 package ca.etsmtl.taf.exportimport.unit.utils.exporters;
 
-import ca.etsmtl.taf.exportimport.config.TestRailConfig;
 import ca.etsmtl.taf.exportimport.dtos.testrail.*;
 import ca.etsmtl.taf.exportimport.models.*;
 import ca.etsmtl.taf.exportimport.repositories.TestRailMappingRepository;
 import ca.etsmtl.taf.exportimport.services.EntityLookupService;
+import ca.etsmtl.taf.exportimport.utils.exporters.ExportCheckpoint;
 import ca.etsmtl.taf.exportimport.utils.exporters.TestRailExporter;
+import ca.etsmtl.taf.exportimport.utils.exporters.TestRailGateway;
+import ca.etsmtl.taf.exportimport.utils.ratelimit.TokenBucket;
 import com.gurock.testrail.APIClient;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -14,7 +16,16 @@ import org.junit.jupiter.api.Test;
 import org.mockito.*;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -31,13 +42,9 @@ class TestRailExporterTest {
     @Mock
     private EntityLookupService lookupService;
 
-    @Mock
-    private TestRailConfig config;
-
     @Mock
     private APIClient apiClient;
 
-    @InjectMocks
     private TestRailExporter exporter;
 
     @Captor
@@ -46,8 +53,8 @@ class TestRailExporterTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        when(config.createClient()).thenReturn(apiClient);
-        exporter = new TestRailExporter(config, mappingRepo, lookupService);
+        TestRailGateway gateway = new TestRailGateway(apiClient, new TokenBucket(1_000, 10), 2, 1, Duration.ZERO);
+        exporter = new TestRailExporter(gateway, mappingRepo, lookupService, 2);
     }
 
     @Test
@@ -104,6 +111,37 @@ class TestRailExporterTest {
         verify(mappingRepo).put(TestRailMappingRepository.SECTION_KEY_SUFFIX + "s1", 33);
     }
 
+    @Test
+    void testExportSuites_resumeCreatesSectionWhenOnlySuiteWasMapped() throws Exception {
+        Map<String, Integer> mappings = new HashMap<>(Map.of(TestRailMappingRepository.PROJECT_KEY_SUFFIX + "p1", 11));
+        when(mappingRepo.get(anyString())).thenAnswer(invocation -> mappings.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> mappings.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(mappingRepo).put(anyString(), any());
+
+        JSONObject suiteResp = new JSONObject();
+        suiteResp.put("id", 22);
+        when(apiClient.sendPost(eq("add_suite/11"), anyMap())).thenReturn(suiteResp);
+
+        JSONObject sectionResp = new JSONObject();
+        sectionResp.put("id", 33);
+        when(apiClient.sendPost(eq("add_section/11"), anyMap()))
+                .thenThrow(new IOException("Connection reset"))
+                .thenReturn(sectionResp);
+
+        TestSuite suite = TestSuite.builder()._id("s1").projectId("p1").name("Suite").description("desc").build();
+        assertThrows(IOException.class,
+                () -> exporter.exportTo(new HashMap<>(Map.of(EntityType.TEST_SUITE, List.of(suite)))));
+        assertEquals(22, mappings.get(TestRailMappingRepository.TEST_SUITE_KEY_SUFFIX + "s1"));
+        assertNull(mappings.get(TestRailMappingRepository.SECTION_KEY_SUFFIX + "s1"));
+
+        // Resumed export: the suite is already mapped but its section still has to be created
+        exporter.exportTo(new HashMap<>(Map.of(EntityType.TEST_SUITE, List.of(suite))));
+
+        assertEquals(33, mappings.get(TestRailMappingRepository.SECTION_KEY_SUFFIX + "s1"));
+        verify(apiClient, times(1)).sendPost(eq("add_suite/11"), anyMap());
+        verify(apiClient, times(2)).sendPost(eq("add_section/11"), anyMap());
+    }
+
     @Test
     void testExportCases_createsCaseWhenNotMapped() throws Exception {
         TestCase testCase = TestCase.builder()._id("c1").testSuiteId("s1").name("Case1").build();
@@ -138,7 +176,8 @@ class TestRailExporterTest {
 
         when(mappingRepo.get(TestRailMappingRepository.TEST_RUN_KEY_SUFFIX + "r1")).thenReturn(null);
         when(mappingRepo.get(TestRailMappingRepository.TEST_SUITE_KEY_SUFFIX + "s1")).thenReturn(77);
-        when(mappingRepo.get(TestRailMappingRepository.TEST_CASE_KEY_SUFFIX + "c1")).thenReturn(88);
+        when(mappingRepo.getAll(List.of(TestRailMappingRepository.TEST_CASE_KEY_SUFFIX + "c1")))
+                .thenReturn(Map.of(TestRailMappingRepository.TEST_CASE_KEY_SUFFIX + "c1", 88));
         when(mappingRepo.get(TestRailMappingRepository.PROJECT_KEY_SUFFIX + "p1")).thenReturn(99);
         when(lookupService.findTestSuiteById("s1")).thenReturn(suite);
 
@@ -149,6 +188,8 @@ class TestRailExporterTest {
         exporter.exportTo(entities);
 
         verify(mappingRepo).put(TestRailMappingRepository.TEST_RUN_KEY_SUFFIX + "r1", 66);
+        verify(apiClient).sendPost(eq("add_run/99"), mapCaptor.capture());
+        assertEquals(List.of(88), mapCaptor.getValue().get("case_ids"));
     }
 
     @Test
@@ -164,8 +205,10 @@ class TestRailExporterTest {
         entities.put(EntityType.TEST_RESULT, List.of(result));
 
         when(mappingRepo.get(TestRailMappingRepository.TEST_RUN_KEY_SUFFIX + "run1")).thenReturn(10);
-        when(mappingRepo.get(TestRailMappingRepository.TEST_RESULT_KEY_SUFFIX + "res1")).thenReturn(null);
-        when(mappingRepo.get(TestRailMappingRepository.TEST_CASE_KEY_SUFFIX + "case1")).thenReturn(20);
+        when(mappingRepo.getAll(List.of(
+                TestRailMappingRepository.TEST_RESULT_KEY_SUFFIX + "res1",
+                TestRailMappingRepository.TEST_CASE_KEY_SUFFIX + "case1")))
+                .thenReturn(Map.of(TestRailMappingRepository.TEST_CASE_KEY_SUFFIX + "case1", 20));
 
         JSONArray respArray = new JSONArray();
         JSONObject created = new JSONObject();
@@ -176,7 +219,80 @@ class TestRailExporterTest {
 
         exporter.exportTo(entities);
 
-        verify(mappingRepo).put(TestRailMappingRepository.TEST_RESULT_KEY_SUFFIX + "res1", 100);
+        verify(mappingRepo).putAll(Map.of(TestRailMappingRepository.TEST_RESULT_KEY_SUFFIX + "res1", 100));
+    }
+
+    @Test
+    void testExportResults_splitsResultsOfARunIntoBulkCalls() throws Exception {
+        List<Entity> results = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            results.add(TestResult.builder()
+                    ._id("res" + i)
+                    .testRunId("run1")
+                    .testCaseId("case1")
+                    .status(TestRunStatus.PASSED)
+                    .build());
+        }
+        Map<EntityType, List<Entity>> entities = new HashMap<>();
+        entities.put(EntityType.TEST_RESULT, results);
+
+        when(mappingRepo.get(TestRailMappingRepository.TEST_RUN_KEY_SUFFIX + "run1")).thenReturn(10);
+        when(mappingRepo.getAll(anyList())).thenReturn(Map.of(TestRailMappingRepository.TEST_CASE_KEY_SUFFIX + "case1", 20));
+        when(apiClient.sendPost(eq("add_results_for_cases/10"), anyMap())).thenAnswer(invocation -> {
+            Map<String, Object> body = invocation.getArgument(1);
+            JSONArray created = new JSONArray();
+            for (Object result : (List<?>) body.get("results")) {
+                JSONObject createdResult = new JSONObject();
+                String comment = (String) ((Map<?, ?>) result).get("comment");
+                createdResult.put("id", 100 + Integer.parseInt(comment.substring(3)));
+                createdResult.put("comment", comment);
+                created.add(createdResult);
+            }
+            return created;
+        });
+
+        exporter.exportTo(entities);
+
+        // Two results per call in this test
+        verify(apiClient, times(2)).sendPost(eq("add_results_for_cases/10"), anyMap());
+        verify(mappingRepo).putAll(Map.of(
+                TestRailMappingRepository.TEST_RESULT_KEY_SUFFIX + "res1", 101,
+                TestRailMappingRepository.TEST_RESULT_KEY_SUFFIX + "res2", 102));
+        verify(mappingRepo).putAll(Map.of(TestRailMappingRepository.TEST_RESULT_KEY_SUFFIX + "res3", 103));
+        assertEquals(3, entities.get(EntityType.TEST_RESULT).size());
+    }
+
+    @Test
+    void testExportResults_sendsBatchesOfARunConcurrently() throws Exception {
+        List<Entity> results = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            results.add(TestResult.builder()
+                    ._id("res" + i)
+                    .testRunId("run1")
+                    .testCaseId("case1")
+                    .status(TestRunStatus.PASSED)
+                    .build());
+        }
+        Map<EntityType, List<Entity>> entities = new HashMap<>();
+        entities.put(EntityType.TEST_RESULT, results);
+
+        when(mappingRepo.get(TestRailMappingRepository.TEST_RUN_KEY_SUFFIX + "run1")).thenReturn(10);
+        when(mappingRepo.getAll(anyList())).thenReturn(Map.of(TestRailMappingRepository.TEST_CASE_KEY_SUFFIX + "case1", 20));
+        // Each call waits for the other one, it only returns if both are in flight
+        CountDownLatch bothSent = new CountDownLatch(2);
+        AtomicInteger overlapping = new AtomicInteger();
+        when(apiClient.sendPost(eq("add_results_for_cases/10"), anyMap())).thenAnswer(invocation -> {
+            bothSent.countDown();
+            if (bothSent.await(2, TimeUnit.SECONDS)) {
+                overlapping.incrementAndGet();
+            }
+            return new JSONArray();
+        });
+
+        exporter.exportTo(entities);
+
+        verify(apiClient, times(2)).sendPost(eq("add_results_for_cases/10"), anyMap());
+        assertEquals(2, overlapping.get());
     }
 
     @Test
@@ -187,4 +303,133 @@ class TestRailExporterTest {
         exporter.exportTo(entities);
         verifyNoInteractions(apiClient);
     }
+
+    @Test
+    void testExportTo_skipsStagesCompletedByCheckpoint() throws Exception {
+        Project project = Project.builder()._id("p1").name("Proj").description("Desc").build();
+        Map<EntityType, List<Entity>> entities = new HashMap<>(Map.of(EntityType.PROJECT, List.of(project)));
+        ExportCheckpoint checkpoint = new ExportCheckpoint() {
+            @Override
+            public boolean isCompleted(EntityType stage) {
+                return stage == EntityType.PROJECT;
+            }
+        };
+
+        exporter.exportTo(entities, checkpoint);
+
+        verifyNoInteractions(apiClient);
+        assertTrue(entities.get(EntityType.PROJECT).isEmpty());
+    }
+
+    @Test
+    void testExportTo_cancelledCheckpointStopsBeforeCalls() throws Exception {
+        Project project = Project.builder()._id("p1").name("Proj").description("Desc").build();
+        Map<EntityType, List<Entity>> entities = new HashMap<>(Map.of(EntityType.PROJECT, List.of(project)));
+        ExportCheckpoint checkpoint = new ExportCheckpoint() {
+            @Override
+            public boolean isCancelled() {
+                return true;
+            }
+        };
+
+        assertThrows(CancellationException.class, () -> exporter.exportTo(entities, checkpoint));
+        verifyNoInteractions(apiClient);
+    }
+
+    @Test
+    void testExportTo_concurrentExportsKeepTheirOwnResults() throws Exception {
+        when(mappingRepo.get(anyString())).thenReturn(null);
+        AtomicInteger nextId = new AtomicInteger();
+        when(apiClient.sendPost(eq("add_project"), anyMap())).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            JSONObject response = new JSONObject();
+            response.put("id", nextId.incrementAndGet());
+            return response;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Map<EntityType, List<Entity>>>> exports = new ArrayList<>();
+            for (String projectId : List.of("p1", "p2")) {
+                exports.add(executor.submit(() -> {
+                    Project project = Project.builder()._id(projectId).name(projectId).build();
+                    Map<EntityType, List<Entity>> entities = new HashMap<>(Map.of(EntityType.PROJECT, List.of(project)));
+                    exporter.exportTo(entities);
+                    return entities;
+                }));
+            }
+
+            assertEquals(List.of("p1"), exports.get(0).get(5, TimeUnit.SECONDS).get(EntityType.PROJECT)
+                    .stream().map(Entity::get_id).toList());
+            assertEquals(List.of("p2"), exports.get(1).get(5, TimeUnit.SECONDS).get(EntityType.PROJECT)
+                    .stream().map(Entity::get_id).toList());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testExportTo_concurrentExportsOfTheSameEntitiesCreateThemOnce() throws Exception {
+        Map<String, Integer> mappings = new ConcurrentHashMap<>(Map.of(TestRailMappingRepository.TEST_RUN_KEY_SUFFIX + "run1", 10));
+        when(mappingRepo.get(anyString())).thenAnswer(invocation -> mappings.get(invocation.<String>getArgument(0)));
+        when(mappingRepo.getAll(anyList())).thenAnswer(invocation -> {
+            Map<String, Integer> found = new HashMap<>();
+            for (String key : invocation.<List<String>>getArgument(0)) {
+                if (mappings.containsKey(key)) {
+                    found.put(key, mappings.get(key));
+                }
+            }
+            return found;
+        });
+        doAnswer(invocation -> mappings.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(mappingRepo).put(anyString(), any());
+        doAnswer(invocation -> {
+            mappings.putAll(invocation.getArgument(0));
+            return null;
+        }).when(mappingRepo).putAll(anyMap());
+
+        when(apiClient.sendPost(eq("add_project"), anyMap())).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            JSONObject response = new JSONObject();
+            response.put("id", 1);
+            return response;
+        });
+        when(apiClient.sendPost(eq("add_results_for_cases/10"), anyMap())).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            JSONObject created = new JSONObject();
+            created.put("id", 100);
+            created.put("comment", "res1");
+            JSONArray response = new JSONArray();
+            response.add(created);
+            return response;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch bothSubmitted = new CountDownLatch(2);
+        try {
+            List<Future<?>> exports = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                exports.add(executor.submit(() -> {
+                    Project project = Project.builder()._id("p1").name("Proj").build();
+                    TestResult result = TestResult.builder()._id("res1").testRunId("run1").testCaseId("case1")
+                            .status(TestRunStatus.PASSED).build();
+                    Map<EntityType, List<Entity>> entities = new HashMap<>(Map.of(
+                            EntityType.PROJECT, List.of(project),
+                            EntityType.TEST_RESULT, List.of(result)));
+                    bothSubmitted.countDown();
+                    bothSubmitted.await();
+                    exporter.exportTo(entities);
+                    return null;
+                }));
+            }
+            for (Future<?> export : exports) {
+                export.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(apiClient, times(1)).sendPost(eq("add_project"), anyMap());
+        verify(apiClient, times(1)).sendPost(eq("add_results_for_cases/10"), anyMap());
+    }
 }
@@ -0,0 +1,133 @@
+package ca.etsmtl.taf.exportimport.unit.utils.exporters;
+
+import ca.etsmtl.taf.exportimport.utils.exporters.TestRailGateway;
+import ca.etsmtl.taf.exportimport.utils.ratelimit.TokenBucket;
+import com.gurock.testrail.APIClient;
+import com.gurock.testrail.APIException;
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.net.ConnectException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TestRailGatewayTest {
+
+    @Mock
+    private APIClient apiClient;
+
+    private TestRailGateway gateway;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        gateway = new TestRailGateway(apiClient, new TokenBucket(1_000, 10), 4, 3, Duration.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.shutdown();
+    }
+
+    @Test
+    void testSendPost_retriesAfterRateLimit() throws Exception {
+        JSONObject created = new JSONObject();
+        created.put("id", 1);
+        when(apiClient.sendPost(eq("add_case/1"), anyMap()))
+                .thenThrow(new APIException("TestRail API returned HTTP 429", 429, 0L))
+                .thenReturn(created);
+
+        Object response = gateway.sendPost("add_case/1", Map.of());
+
+        assertSame(created, response);
+        verify(apiClient, times(2)).sendPost(eq("add_case/1"), anyMap());
+    }
+
+    @Test
+    void testSendPost_doesNotRetryClientErrors() throws Exception {
+        when(apiClient.sendPost(eq("add_case/1"), anyMap()))
+                .thenThrow(new APIException("TestRail API returned HTTP 400", 400, null));
+
+        APIException exception = assertThrows(APIException.class, () -> gateway.sendPost("add_case/1", Map.of()));
+
+        assertEquals(400, exception.getStatusCode());
+        verify(apiClient, times(1)).sendPost(eq("add_case/1"), anyMap());
+    }
+
+    @Test
+    void testSendPost_doesNotRetryServerErrorsTestRailMayHaveProcessed() throws Exception {
+        when(apiClient.sendPost(eq("add_case/1"), anyMap()))
+                .thenThrow(new APIException("TestRail API returned HTTP 502", 502, null));
+
+        APIException exception = assertThrows(APIException.class, () -> gateway.sendPost("add_case/1", Map.of()));
+
+        assertEquals(502, exception.getStatusCode());
+        verify(apiClient, times(1)).sendPost(eq("add_case/1"), anyMap());
+    }
+
+    @Test
+    void testSendPost_retriesUnavailable() throws Exception {
+        JSONObject created = new JSONObject();
+        created.put("id", 1);
+        when(apiClient.sendPost(eq("add_case/1"), anyMap()))
+                .thenThrow(new APIException("TestRail API returned HTTP 503", 503, null))
+                .thenReturn(created);
+
+        assertSame(created, gateway.sendPost("add_case/1", Map.of()));
+        verify(apiClient, times(2)).sendPost(eq("add_case/1"), anyMap());
+    }
+
+    @Test
+    void testSendPost_doesNotRetryFailuresAfterTheRequestWasSent() throws Exception {
+        when(apiClient.sendPost(eq("add_case/1"), anyMap()))
+                .thenThrow(new HttpTimeoutException("request timed out"));
+
+        assertThrows(HttpTimeoutException.class, () -> gateway.sendPost("add_case/1", Map.of()));
+
+        verify(apiClient, times(1)).sendPost(eq("add_case/1"), anyMap());
+    }
+
+    @Test
+    void testSendPost_givesUpAfterMaxAttempts() throws Exception {
+        when(apiClient.sendPost(eq("add_case/1"), anyMap())).thenThrow(new ConnectException("Connection refused"));
+
+        assertThrows(ConnectException.class, () -> gateway.sendPost("add_case/1", Map.of()));
+
+        verify(apiClient, times(3)).sendPost(eq("add_case/1"), anyMap());
+    }
+
+    @Test
+    void testForEach_returnsResultsInItemOrder() throws Exception {
+        List<Integer> results = gateway.forEach(List.of(1, 2, 3, 4, 5), item -> item * 10);
+
+        assertEquals(List.of(10, 20, 30, 40, 50), results);
+    }
+
+    @Test
+    void testForEach_rethrowsFirstFailure() {
+        AtomicInteger calls = new AtomicInteger();
+
+        APIException exception = assertThrows(APIException.class, () -> gateway.forEach(List.of(1, 2, 3), item -> {
+            calls.incrementAndGet();
+            if (item == 2) {
+                throw new APIException("TestRail API returned HTTP 400", 400, null);
+            }
+            return item;
+        }));
+
+        assertEquals(400, exception.getStatusCode());
+        assertTrue(calls.get() >= 2);
+    }
+}
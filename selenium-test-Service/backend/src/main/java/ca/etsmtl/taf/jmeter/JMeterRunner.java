@@ -1,5 +1,6 @@
 package ca.etsmtl.taf.jmeter;
 
+import ca.etsmtl.taf.jmeter.model.HttpTestResult;
 import ca.etsmtl.taf.jmeter.provider.JmeterPathProvider;
 
 import com.opencsv.CSVReader;
@@ -9,15 +10,39 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class JMeterRunner {
 
   private static final Logger logger = LoggerFactory.getLogger(JMeterRunner.class);
 
+  /**
+   * Columns of the JMeter CSV results and the fields they fill.
+   */
+  private static final Map<String, BiConsumer<HttpTestResult, String>> RESULT_COLUMNS = Map.ofEntries(
+      Map.entry("timeStamp", HttpTestResult::setTimeStamp),
+      Map.entry("elapsed", HttpTestResult::setElapsed),
+      Map.entry("label", HttpTestResult::setLabel),
+      Map.entry("responseCode", HttpTestResult::setResponseCode),
+      Map.entry("responseMessage", HttpTestResult::setResponseMessage),
+      Map.entry("threadName", HttpTestResult::setThreadName),
+      Map.entry("dataType", HttpTestResult::setDataType),
+      Map.entry("success", HttpTestResult::setSuccess),
+      Map.entry("failureMessage", HttpTestResult::setFailureMessage),
+      Map.entry("bytes", HttpTestResult::setBytes),
+      Map.entry("sentBytes", HttpTestResult::setSentBytes),
+      Map.entry("grpThreads", HttpTestResult::setGrpThreads),
+      Map.entry("allThreads", HttpTestResult::setAllThreads),
+      Map.entry("URL", HttpTestResult::setURL),
+      Map.entry("Latency", HttpTestResult::setLatency),
+      Map.entry("IdleTime", HttpTestResult::setIdleTime),
+      Map.entry("Connect", HttpTestResult::setConnect));
+
   public static String runJMeter(String testType) throws URISyntaxException {
 
     String jmxFilePath = ApplicationStartupListenerBean.JMETER_TEMP_FOLDER + "TestPlan.jmx";
@@ -73,27 +98,60 @@ public class JMeterRunner {
     }
   }
 
-  public static List<Map<String, String>> convertCSVtoJSON(String csvFilePath)
-      throws IOException, CsvException, CsvException {
-    try (CSVReader reader = new CSVReader(new FileReader(csvFilePath))) {
-      List<String[]> csvData = reader.readAll();
-
-      String[] headers = csvData.get(0);
+  /**
+   * Read a JMeter results CSV one row at a time and hand the results to the
+   * consumer in batches of {@code batchSize}. Only the current batch is kept in
+   * memory, and the next rows are not read before the consumer returns, so the
+   * heap used does not depend on the size of the file.
+   *
+   * @param csvFilePath The results file written by JMeter
+   * @param testPlanId  The ID of the test plan the results belong to
+   * @param batchSize   The number of results per batch
+   * @param consumer    Receives every batch, the list is reused afterwards
+   * @return The number of results read
+   */
+  public static long readResults(String csvFilePath, String testPlanId, int batchSize,
+      Consumer<List<HttpTestResult>> consumer) throws IOException, CsvException {
+    try (CSVReader reader = new CSVReader(Files.newBufferedReader(Paths.get(csvFilePath)))) {
+      String[] headers = reader.readNext();
+      if (headers == null) {
+        return 0;
+      }
+      List<BiConsumer<HttpTestResult, String>> setters = new ArrayList<>(headers.length);
+      for (String header : headers) {
+        setters.add(RESULT_COLUMNS.get(header.trim()));
+      }
 
-      return csvData.stream()
-          .skip(1) // Skip the header row
-          .map(row -> {
-            Map<String, String> jsonMap = createJsonMap(headers, row);
-            return jsonMap;
-          })
-          .collect(Collectors.toList());
+      List<HttpTestResult> batch = new ArrayList<>(batchSize);
+      long count = 0;
+      String[] row;
+      while ((row = reader.readNext()) != null) {
+        batch.add(toResult(testPlanId, setters, row));
+        count++;
+        if (batch.size() == batchSize) {
+          consumer.accept(batch);
+          batch.clear();
+        }
+      }
+      if (!batch.isEmpty()) {
+        consumer.accept(batch);
+      }
+      return count;
     }
   }
 
-  private static Map<String, String> createJsonMap(String[] headers, String[] values) {
-    return IntStream.range(0, headers.length)
-        .boxed()
-        .collect(Collectors.toMap(i -> headers[i], i -> values[i]));
+  private static HttpTestResult toResult(String testPlanId, List<BiConsumer<HttpTestResult, String>> setters,
+      String[] row) {
+    HttpTestResult result = new HttpTestResult();
+    result.setTestPlanId(testPlanId);
+    // Les colonnes inconnues sont ignorées, une ligne tronquée laisse les dernières vides
+    for (int i = 0; i < Math.min(setters.size(), row.length); i++) {
+      BiConsumer<HttpTestResult, String> setter = setters.get(i);
+      if (setter != null) {
+        setter.accept(result, row[i]);
+      }
+    }
+    return result;
   }
 
 }
@@ -7,14 +7,15 @@ import ca.etsmtl.taf.jmeter.JMeterRunner;
 import ca.etsmtl.taf.jmeter.model.FTPTestPlan;
 import ca.etsmtl.taf.jmeter.model.HttpTestPlan;
 import ca.etsmtl.taf.jmeter.model.HttpTestResult;
+import ca.etsmtl.taf.jmeter.model.JMeterIntervalStats;
+import ca.etsmtl.taf.jmeter.model.JMeterRunSummary;
 import ca.etsmtl.taf.jmeter.model.TestPlanBase;
 import ca.etsmtl.taf.jmeter.service.HttpTestPlanService;
 import ca.etsmtl.taf.jmeter.service.HttpTestResultService;
 import ca.etsmtl.taf.provider.GatlingJarPathProvider;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.opencsv.exceptions.CsvException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -22,7 +23,6 @@ import org.springframework.web.bind.annotation.*;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -39,7 +39,46 @@ public class JmeterController {
   @Autowired
   private HttpTestResultService testResultService;
 
+  // Taille maximale d'une page de /results
+  @Value("${taf.jmeter.results.response-limit:1000}")
+  private int responseLimit;
+
   private ResponseEntity<?> executeTestPlan(TestPlanBase testPlan, String type, String testPlanId) {
+    String resultPath;
+    try {
+      resultPath = runTestPlan(testPlan, type);
+    } catch (ExecutionException e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error occurred during task execution.");
+    } catch (InterruptedException e){
+      Thread.currentThread().interrupt();
+      return null;
+    }
+
+    //Enregistrer les résultats dans MongoDB, lot par lot
+    JMeterRunSummary summary = null;
+    if (resultPath != null && !resultPath.isEmpty()) {
+      try {
+        summary = testResultService.importTestResults(resultPath, testPlanId);
+      } catch (IOException | CsvException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    if (summary != null && summary.getTotal().getSampleCount() > 0) {
+      //Les échantillons enregistrés se lisent page par page via /results
+      return ResponseEntity.ok(summary);
+    } else {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Aucun résultat généré par JMeter.");
+    }
+
+  }
+
+  /**
+   * Génère le plan de test et exécute JMeter.
+   *
+   * @return Le fichier de résultats, ou null si JMeter n'en a pas produit
+   */
+  String runTestPlan(TestPlanBase testPlan, String type) throws ExecutionException, InterruptedException {
     testPlan.generateTestPlan();
     ExecutorService executorService = Executors.newSingleThreadExecutor();
 
@@ -55,51 +94,14 @@ public class JmeterController {
       resultPathRef.set(result);
     });
 
-
     try {
       //Wait for the task to finish
       future.get();
-    } catch (ExecutionException e) {
-      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error occurred during task execution.");
-    } catch (InterruptedException e){
-      Thread.currentThread().interrupt();
-      return null;
-    }
-    finally {
+    } finally {
       //Shutdown the ExecutorService to release resources
       executorService.shutdown();
     }
-
-    //Convertir les résultats en JSON
-    List<Map<String, String>> result = null;
-    String resultPath = resultPathRef.get();
-    if (resultPath != null && !resultPath.isEmpty()) {
-      try {
-        result = JMeterRunner.convertCSVtoJSON(resultPath);
-      } catch (IOException | CsvException e) {
-        throw new RuntimeException(e);
-      }
-    }
-
-    //Enregistrer les résultats dans MongoDB
-    if (result != null && !result.isEmpty()) {
-
-      System.out.println(result);
-
-      ObjectMapper objectMapper = new ObjectMapper();
-      List<HttpTestResult> testResults = objectMapper.convertValue(result, new TypeReference<List<HttpTestResult>>() {});
-
-      //Associer chaque résultat à l'ID du test
-      testResults.forEach(r -> r.setTestPlanId(testPlanId));
-
-      //Enregistrer dans MongoDB
-      List<HttpTestResult> savedResults = testResultService.saveTestResults(testResults);
-      System.out.println("Résultats enregistrés avec succès !");
-      return ResponseEntity.ok(savedResults);
-    } else {
-      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Aucun résultat généré par JMeter.");
-    }
-
+    return resultPathRef.get();
   }
 
   @PostMapping("/http")
@@ -119,7 +121,24 @@ public class JmeterController {
 
   @GetMapping("/results")
   public ResponseEntity<List<HttpTestResult>> getResultsForTest(
-          @RequestParam String testPlanId) {
-    return ResponseEntity.ok(testResultService.getResultsByTestPlanId(testPlanId));
+          @RequestParam String testPlanId,
+          @RequestParam(defaultValue = "0") int page,
+          @RequestParam(required = false) Integer size) {
+    int pageSize = size == null ? responseLimit : Math.max(1, Math.min(size, responseLimit));
+    return ResponseEntity.ok()
+        .header("X-Total-Count", String.valueOf(testResultService.countResultsByTestPlanId(testPlanId)))
+        .body(testResultService.getResultsByTestPlanId(testPlanId, Math.max(0, page), pageSize));
+  }
+
+  @GetMapping("/summary")
+  public ResponseEntity<JMeterRunSummary> getSummaryForTest(@RequestParam String testPlanId) {
+    return testResultService.getSummaryByTestPlanId(testPlanId)
+        .map(ResponseEntity::ok)
+        .orElse(ResponseEntity.notFound().build());
+  }
+
+  @GetMapping("/summary/intervals")
+  public ResponseEntity<List<JMeterIntervalStats>> getIntervalsForRun(@RequestParam String runId) {
+    return ResponseEntity.ok(testResultService.getIntervalsByRunId(runId));
   }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package ca.etsmtl.taf.jmeter.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/**
+ * Statistiques par label d'un intervalle de l'exécution. Un document par
+ * intervalle, rattaché au {@link JMeterRunSummary} de l'exécution par
+ * {@code runId} : la taille du résumé ne dépend donc pas de la durée du test.
+ */
+@Document(collection = "jmeter_run_intervals")
+public class JMeterIntervalStats {
+
+    @Id
+    private String id;
+
+    // Identifiant du JMeterRunSummary
+    @Indexed
+    private String runId;
+
+    // Début de l'intervalle, en millisecondes depuis l'epoch
+    private long start;
+    private List<JMeterLabelStats> labels;
+
+    public JMeterIntervalStats() {}
+
+    public JMeterIntervalStats(long start, List<JMeterLabelStats> labels) {
+        this.start = start;
+        this.labels = labels;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getRunId() { return runId; }
+    public void setRunId(String runId) { this.runId = runId; }
+
+    public long getStart() { return start; }
+    public void setStart(long start) { this.start = start; }
+
+    public List<JMeterLabelStats> getLabels() { return labels; }
+    public void setLabels(List<JMeterLabelStats> labels) { this.labels = labels; }
+
+}
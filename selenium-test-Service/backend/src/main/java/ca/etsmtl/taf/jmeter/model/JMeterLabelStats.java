@@ -0,0 +1,74 @@
+package ca.etsmtl.taf.jmeter.model;
+
+import ca.etsmtl.taf.performance.metrics.model.HistogramBucket;
+
+import java.util.List;
+
+/**
+ * Statistiques d'un label JMeter, pour toute l'exécution ou pour un intervalle.
+ * Les temps sont en millisecondes.
+ */
+public class JMeterLabelStats {
+
+    private String label;
+    private long sampleCount;
+    private long errorCount;
+    private long bytes;
+    private long sentBytes;
+    private long minElapsed;
+    private long maxElapsed;
+    private double meanElapsed;
+    private long p50Elapsed;
+    private long p90Elapsed;
+    private long p95Elapsed;
+    private long p99Elapsed;
+    private double throughput;
+
+    // Histogramme complet, seulement pour les statistiques de toute l'exécution
+    private List<HistogramBucket> histogram;
+
+    public JMeterLabelStats() {}
+
+    public String getLabel() { return label; }
+    public void setLabel(String label) { this.label = label; }
+
+    public long getSampleCount() { return sampleCount; }
+    public void setSampleCount(long sampleCount) { this.sampleCount = sampleCount; }
+
+    public long getErrorCount() { return errorCount; }
+    public void setErrorCount(long errorCount) { this.errorCount = errorCount; }
+
+    public long getBytes() { return bytes; }
+    public void setBytes(long bytes) { this.bytes = bytes; }
+
+    public long getSentBytes() { return sentBytes; }
+    public void setSentBytes(long sentBytes) { this.sentBytes = sentBytes; }
+
+    public long getMinElapsed() { return minElapsed; }
+    public void setMinElapsed(long minElapsed) { this.minElapsed = minElapsed; }
+
+    public long getMaxElapsed() { return maxElapsed; }
+    public void setMaxElapsed(long maxElapsed) { this.maxElapsed = maxElapsed; }
+
+    public double getMeanElapsed() { return meanElapsed; }
+    public void setMeanElapsed(double meanElapsed) { this.meanElapsed = meanElapsed; }
+
+    public long getP50Elapsed() { return p50Elapsed; }
+    public void setP50Elapsed(long p50Elapsed) { this.p50Elapsed = p50Elapsed; }
+
+    public long getP90Elapsed() { return p90Elapsed; }
+    public void setP90Elapsed(long p90Elapsed) { this.p90Elapsed = p90Elapsed; }
+
+    public long getP95Elapsed() { return p95Elapsed; }
+    public void setP95Elapsed(long p95Elapsed) { this.p95Elapsed = p95Elapsed; }
+
+    public long getP99Elapsed() { return p99Elapsed; }
+    public void setP99Elapsed(long p99Elapsed) { this.p99Elapsed = p99Elapsed; }
+
+    public double getThroughput() { return throughput; }
+    public void setThroughput(double throughput) { this.throughput = throughput; }
+
+    public List<HistogramBucket> getHistogram() { return histogram; }
+    public void setHistogram(List<HistogramBucket> histogram) { this.histogram = histogram; }
+
+}
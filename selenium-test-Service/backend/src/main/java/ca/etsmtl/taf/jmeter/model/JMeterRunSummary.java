@@ -0,0 +1,59 @@
+package ca.etsmtl.taf.jmeter.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/**
+ * Résumé d'une exécution JMeter, calculé pendant la lecture des résultats. Les
+ * percentiles y sont déjà calculés, ils ne demandent donc pas de relire les
+ * résultats bruts. Les statistiques de chaque intervalle sont dans
+ * {@link JMeterIntervalStats}.
+ */
+@Document(collection = "jmeter_run_summaries")
+public class JMeterRunSummary {
+
+    @Id
+    private String id;
+
+    @Indexed
+    private String testPlanId;
+
+    // Premier et dernier échantillon, en millisecondes depuis l'epoch
+    private long startTime;
+    private long endTime;
+    private int intervalSeconds;
+    private boolean samplesStored;
+
+    private JMeterLabelStats total;
+    private List<JMeterLabelStats> labels;
+
+    public JMeterRunSummary() {}
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getTestPlanId() { return testPlanId; }
+    public void setTestPlanId(String testPlanId) { this.testPlanId = testPlanId; }
+
+    public long getStartTime() { return startTime; }
+    public void setStartTime(long startTime) { this.startTime = startTime; }
+
+    public long getEndTime() { return endTime; }
+    public void setEndTime(long endTime) { this.endTime = endTime; }
+
+    public int getIntervalSeconds() { return intervalSeconds; }
+    public void setIntervalSeconds(int intervalSeconds) { this.intervalSeconds = intervalSeconds; }
+
+    public boolean isSamplesStored() { return samplesStored; }
+    public void setSamplesStored(boolean samplesStored) { this.samplesStored = samplesStored; }
+
+    public JMeterLabelStats getTotal() { return total; }
+    public void setTotal(JMeterLabelStats total) { this.total = total; }
+
+    public List<JMeterLabelStats> getLabels() { return labels; }
+    public void setLabels(List<JMeterLabelStats> labels) { this.labels = labels; }
+
+}
@@ -1,6 +1,7 @@
 package ca.etsmtl.taf.jmeter.repository;
 
 import ca.etsmtl.taf.jmeter.model.HttpTestResult;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -8,5 +9,7 @@ import java.util.List;
 
 @Repository
 public interface HttpTestResultRepository extends MongoRepository<HttpTestResult, String> {
-    List<HttpTestResult> findAllByTestPlanId(String testPlanId);
+    List<HttpTestResult> findAllByTestPlanId(String testPlanId, Pageable pageable);
+
+    long countByTestPlanId(String testPlanId);
 }
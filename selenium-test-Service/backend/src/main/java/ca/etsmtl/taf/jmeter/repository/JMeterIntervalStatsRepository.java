@@ -0,0 +1,12 @@
+package ca.etsmtl.taf.jmeter.repository;
+
+import ca.etsmtl.taf.jmeter.model.JMeterIntervalStats;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface JMeterIntervalStatsRepository extends MongoRepository<JMeterIntervalStats, String> {
+    List<JMeterIntervalStats> findAllByRunIdOrderByStartAsc(String runId);
+}
@@ -0,0 +1,12 @@
+package ca.etsmtl.taf.jmeter.repository;
+
+import ca.etsmtl.taf.jmeter.model.JMeterRunSummary;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface JMeterRunSummaryRepository extends MongoRepository<JMeterRunSummary, String> {
+    Optional<JMeterRunSummary> findFirstByTestPlanId(String testPlanId);
+}
@@ -1,24 +1,98 @@
 package ca.etsmtl.taf.jmeter.service;
 
+import ca.etsmtl.taf.jmeter.JMeterRunner;
 import ca.etsmtl.taf.jmeter.model.HttpTestResult;
+import ca.etsmtl.taf.jmeter.model.JMeterIntervalStats;
+import ca.etsmtl.taf.jmeter.model.JMeterRunSummary;
 import ca.etsmtl.taf.jmeter.repository.HttpTestResultRepository;
+import ca.etsmtl.taf.jmeter.repository.JMeterIntervalStatsRepository;
+import ca.etsmtl.taf.jmeter.repository.JMeterRunSummaryRepository;
+import ca.etsmtl.taf.jmeter.utils.JMeterResultsAggregator;
+import com.opencsv.exceptions.CsvException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class HttpTestResultService {
 
+    private static final Logger logger = LoggerFactory.getLogger(HttpTestResultService.class);
+
     @Autowired
     private HttpTestResultRepository repository;
 
+    @Autowired
+    private JMeterRunSummaryRepository summaryRepository;
+
+    @Autowired
+    private JMeterIntervalStatsRepository intervalRepository;
+
+    @Value("${taf.jmeter.results.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${taf.jmeter.results.store-samples:true}")
+    private boolean storeSamples;
+
+    @Value("${taf.jmeter.results.summary-interval-seconds:10}")
+    private int summaryIntervalSeconds;
+
     public List<HttpTestResult> saveTestResults(List<HttpTestResult> results) {
         return repository.saveAll(results);
     }
 
-    public List<HttpTestResult> getResultsByTestPlanId(String testPlanId) {
-        return repository.findAllByTestPlanId(testPlanId);
+    /**
+     * Enregistre les résultats d'un fichier CSV JMeter par lots de
+     * {@code taf.jmeter.results.batch-size}. La lecture attend la fin de
+     * l'insertion de chaque lot, la mémoire utilisée ne dépend donc pas de la
+     * taille du fichier. Les résultats sont aussi agrégés dans un résumé de
+     * l'exécution, et chaque intervalle dans {@code jmeter_run_intervals} ; avec
+     * {@code taf.jmeter.results.store-samples=false}, seules ces statistiques
+     * sont enregistrées.
+     *
+     * @return Le résumé enregistré
+     */
+    public JMeterRunSummary importTestResults(String csvFilePath, String testPlanId) throws IOException, CsvException {
+        JMeterResultsAggregator aggregator = new JMeterResultsAggregator(summaryIntervalSeconds);
+        long count = JMeterRunner.readResults(csvFilePath, testPlanId, batchSize, batch -> {
+            batch.forEach(aggregator::accept);
+            if (storeSamples) {
+                repository.insert(batch);
+            }
+        });
+
+        JMeterRunSummary summary = aggregator.toSummary(testPlanId);
+        summary.setSamplesStored(storeSamples);
+        summary = summaryRepository.save(summary);
+        intervalRepository.insert(aggregator.toIntervals(summary.getId()));
+        logger.info("{} JMeter results read for test plan {}, samples stored: {}", count, testPlanId, storeSamples);
+        return summary;
+    }
+
+    public Optional<JMeterRunSummary> getSummaryByTestPlanId(String testPlanId) {
+        return summaryRepository.findFirstByTestPlanId(testPlanId);
+    }
+
+    public List<JMeterIntervalStats> getIntervalsByRunId(String runId) {
+        return intervalRepository.findAllByRunIdOrderByStartAsc(runId);
+    }
+
+    /**
+     * Une page des résultats enregistrés, dans l'ordre d'insertion.
+     */
+    public List<HttpTestResult> getResultsByTestPlanId(String testPlanId, int page, int size) {
+        return repository.findAllByTestPlanId(testPlanId, PageRequest.of(page, size, Sort.by("id")));
+    }
+
+    public long countResultsByTestPlanId(String testPlanId) {
+        return repository.countByTestPlanId(testPlanId);
     }
 
 }
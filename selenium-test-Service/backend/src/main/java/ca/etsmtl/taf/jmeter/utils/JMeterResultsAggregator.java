@@ -0,0 +1,138 @@
+package ca.etsmtl.taf.jmeter.utils;
+
+import ca.etsmtl.taf.jmeter.model.HttpTestResult;
+import ca.etsmtl.taf.jmeter.model.JMeterIntervalStats;
+import ca.etsmtl.taf.jmeter.model.JMeterLabelStats;
+import ca.etsmtl.taf.jmeter.model.JMeterRunSummary;
+import ca.etsmtl.taf.performance.metrics.utils.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Agrège les échantillons JMeter, au fil de la lecture, en histogrammes des
+ * temps de réponse et en compteurs par label, pour toute l'exécution et pour
+ * chaque intervalle de {@code intervalSeconds}. La mémoire utilisée dépend du
+ * nombre de labels et d'intervalles, pas du nombre d'échantillons.
+ */
+public class JMeterResultsAggregator {
+
+  private static final String TOTAL_LABEL = "TOTAL";
+
+  private final long intervalMs;
+  private final Accumulator total = new Accumulator();
+  private final Map<String, Accumulator> labels = new LinkedHashMap<>();
+  private final TreeMap<Long, Map<String, Accumulator>> intervals = new TreeMap<>();
+  private long startTime = Long.MAX_VALUE;
+  private long endTime = Long.MIN_VALUE;
+
+  public JMeterResultsAggregator(int intervalSeconds) {
+    this.intervalMs = intervalSeconds * 1000L;
+  }
+
+  public void accept(HttpTestResult result) {
+    long timeStamp = parseLong(result.getTimeStamp());
+    long elapsed = parseLong(result.getElapsed());
+    boolean success = Boolean.parseBoolean(result.getSuccess());
+    long bytes = Math.max(0, parseLong(result.getBytes()));
+    long sentBytes = Math.max(0, parseLong(result.getSentBytes()));
+    String label = result.getLabel() == null ? "" : result.getLabel();
+
+    total.add(elapsed, success, bytes, sentBytes);
+    labels.computeIfAbsent(label, l -> new Accumulator()).add(elapsed, success, bytes, sentBytes);
+
+    if (timeStamp >= 0) {
+      startTime = Math.min(startTime, timeStamp);
+      endTime = Math.max(endTime, timeStamp + Math.max(0, elapsed));
+      long intervalStart = timeStamp - timeStamp % intervalMs;
+      intervals.computeIfAbsent(intervalStart, start -> new LinkedHashMap<>())
+          .computeIfAbsent(label, l -> new Accumulator())
+          .add(elapsed, success, bytes, sentBytes);
+    }
+  }
+
+  public JMeterRunSummary toSummary(String testPlanId) {
+    boolean hasTimes = startTime <= endTime;
+    double durationSeconds = hasTimes ? Math.max(1, endTime - startTime) / 1000.0 : 0;
+
+    JMeterRunSummary summary = new JMeterRunSummary();
+    summary.setTestPlanId(testPlanId);
+    summary.setStartTime(hasTimes ? startTime : 0);
+    summary.setEndTime(hasTimes ? endTime : 0);
+    summary.setIntervalSeconds((int) (intervalMs / 1000));
+    summary.setTotal(total.toStats(TOTAL_LABEL, durationSeconds, true));
+
+    List<JMeterLabelStats> labelStats = new ArrayList<>(labels.size());
+    labels.forEach((label, accumulator) -> labelStats.add(accumulator.toStats(label, durationSeconds, true)));
+    summary.setLabels(labelStats);
+    return summary;
+  }
+
+  /**
+   * Les statistiques de chaque intervalle, dans l'ordre chronologique.
+   */
+  public List<JMeterIntervalStats> toIntervals(String runId) {
+    List<JMeterIntervalStats> intervalStats = new ArrayList<>(intervals.size());
+    intervals.forEach((start, intervalLabels) -> {
+      List<JMeterLabelStats> stats = new ArrayList<>(intervalLabels.size());
+      intervalLabels.forEach((label, accumulator) ->
+          stats.add(accumulator.toStats(label, intervalMs / 1000.0, false)));
+      JMeterIntervalStats interval = new JMeterIntervalStats(start, stats);
+      interval.setRunId(runId);
+      intervalStats.add(interval);
+    });
+    return intervalStats;
+  }
+
+  private static long parseLong(String value) {
+    if (value == null || value.isEmpty()) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static class Accumulator {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private long sampleCount;
+    private long errorCount;
+    private long bytes;
+    private long sentBytes;
+
+    private void add(long elapsed, boolean success, long bytes, long sentBytes) {
+      histogram.record(elapsed);
+      this.sampleCount++;
+      this.errorCount += success ? 0 : 1;
+      this.bytes += bytes;
+      this.sentBytes += sentBytes;
+    }
+
+    private JMeterLabelStats toStats(String label, double durationSeconds, boolean withHistogram) {
+      JMeterLabelStats stats = new JMeterLabelStats();
+      stats.setLabel(label);
+      stats.setSampleCount(sampleCount);
+      stats.setErrorCount(errorCount);
+      stats.setBytes(bytes);
+      stats.setSentBytes(sentBytes);
+      stats.setMinElapsed(histogram.getMin());
+      stats.setMaxElapsed(histogram.getMax());
+      stats.setMeanElapsed(histogram.getMean());
+      stats.setP50Elapsed(histogram.getValueAtPercentile(50));
+      stats.setP90Elapsed(histogram.getValueAtPercentile(90));
+      stats.setP95Elapsed(histogram.getValueAtPercentile(95));
+      stats.setP99Elapsed(histogram.getValueAtPercentile(99));
+      stats.setThroughput(durationSeconds > 0 ? sampleCount / durationSeconds : 0);
+      if (withHistogram) {
+        stats.setHistogram(histogram.toBuckets());
+      }
+      return stats;
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package ca.etsmtl.taf.jmeter.controllers;
+
+import ca.etsmtl.taf.jmeter.model.HttpTestPlan;
+import ca.etsmtl.taf.jmeter.model.HttpTestResult;
+import ca.etsmtl.taf.jmeter.model.JMeterLabelStats;
+import ca.etsmtl.taf.jmeter.model.JMeterRunSummary;
+import ca.etsmtl.taf.jmeter.service.HttpTestPlanService;
+import ca.etsmtl.taf.jmeter.service.HttpTestResultService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class JmeterControllerTest {
+
+    private static final String PLAN = "{\"nbThreads\":\"1\",\"rampTime\":\"1\","
+            + "\"duration\":\"1\",\"domain\":\"localhost\",\"port\":\"80\",\"protocol\":\"http\",\"path\":\"/\","
+            + "\"method\":\"GET\",\"loop\":\"1\"}";
+
+    private HttpTestPlanService testPlanService;
+    private HttpTestResultService testResultService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        testPlanService = mock(HttpTestPlanService.class);
+        testResultService = mock(HttpTestResultService.class);
+        JmeterController controller = spy(new JmeterController());
+        ReflectionTestUtils.setField(controller, "testPlanService", testPlanService);
+        ReflectionTestUtils.setField(controller, "testResultService", testResultService);
+        ReflectionTestUtils.setField(controller, "responseLimit", 100);
+        // JMeter n'est pas lancé
+        doReturn("results.csv").when(controller).runTestPlan(any(), eq("http"));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        HttpTestPlan saved = new HttpTestPlan();
+        saved.setId("plan-1");
+        when(testPlanService.saveTestPlan(any())).thenReturn(saved);
+    }
+
+    private static JMeterRunSummary summary(boolean samplesStored) {
+        JMeterLabelStats total = new JMeterLabelStats();
+        total.setLabel("TOTAL");
+        total.setSampleCount(3);
+        JMeterRunSummary summary = new JMeterRunSummary();
+        summary.setTestPlanId("plan-1");
+        summary.setSamplesStored(samplesStored);
+        summary.setTotal(total);
+        return summary;
+    }
+
+    @Test
+    void testRunReturnsTheSummaryWithSamples() throws Exception {
+        when(testResultService.importTestResults("results.csv", "plan-1")).thenReturn(summary(true));
+
+        mockMvc.perform(post("/api/jmeter/http").contentType(MediaType.APPLICATION_JSON).content(PLAN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.testPlanId").value("plan-1"))
+                .andExpect(jsonPath("$.samplesStored").value(true))
+                .andExpect(jsonPath("$.total.sampleCount").value(3));
+        verify(testResultService, never()).getResultsByTestPlanId(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testRunReturnsTheSummaryWithoutSamples() throws Exception {
+        when(testResultService.importTestResults("results.csv", "plan-1")).thenReturn(summary(false));
+
+        mockMvc.perform(post("/api/jmeter/http").contentType(MediaType.APPLICATION_JSON).content(PLAN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.testPlanId").value("plan-1"))
+                .andExpect(jsonPath("$.samplesStored").value(false))
+                .andExpect(jsonPath("$.total.sampleCount").value(3));
+    }
+
+    @Test
+    void testResultsArePaged() throws Exception {
+        when(testResultService.countResultsByTestPlanId("plan-1")).thenReturn(250L);
+        when(testResultService.getResultsByTestPlanId("plan-1", 2, 100)).thenReturn(List.of(new HttpTestResult()));
+
+        // la taille demandée est bornée par taf.jmeter.results.response-limit
+        mockMvc.perform(get("/api/jmeter/results").param("testPlanId", "plan-1").param("page", "2")
+                        .param("size", "5000"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "250"))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+}
@@ -0,0 +1,107 @@
+package ca.etsmtl.taf.jmeter.service;
+
+import ca.etsmtl.taf.jmeter.model.HttpTestResult;
+import ca.etsmtl.taf.jmeter.model.JMeterIntervalStats;
+import ca.etsmtl.taf.jmeter.model.JMeterRunSummary;
+import ca.etsmtl.taf.jmeter.repository.HttpTestResultRepository;
+import ca.etsmtl.taf.jmeter.repository.JMeterIntervalStatsRepository;
+import ca.etsmtl.taf.jmeter.repository.JMeterRunSummaryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class HttpTestResultServiceTest {
+
+    private static final String HEADER = "timeStamp,elapsed,label,responseCode,responseMessage,threadName,"
+            + "dataType,success,failureMessage,bytes,sentBytes,grpThreads,allThreads,URL,Latency,IdleTime,Connect";
+
+    @Mock
+    private HttpTestResultRepository repository;
+
+    @Mock
+    private JMeterRunSummaryRepository summaryRepository;
+
+    @Mock
+    private JMeterIntervalStatsRepository intervalRepository;
+
+    @InjectMocks
+    private HttpTestResultService service;
+
+    @TempDir
+    Path folder;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        ReflectionTestUtils.setField(service, "summaryIntervalSeconds", 10);
+        when(summaryRepository.save(any(JMeterRunSummary.class))).thenAnswer(invocation -> {
+            JMeterRunSummary summary = invocation.getArgument(0);
+            summary.setId("run-1");
+            return summary;
+        });
+    }
+
+    private String writeResults() throws IOException {
+        Path csv = folder.resolve("results.csv");
+        Files.write(csv, List.of(HEADER,
+                "1700000000000,120,home,200,OK,users 1-1,text,true,,512,128,1,1,http://localhost/,100,0,10",
+                "1700000001000,80,home,200,OK,users 1-1,text,true,,512,128,1,1,http://localhost/,70,0,5",
+                "1700000002000,300,login,500,Error,users 1-1,text,false,boom,256,128,1,1,http://localhost/login,290,0,5"));
+        return csv.toString();
+    }
+
+    @Test
+    void testImportStoresSamplesInBatches() throws Exception {
+        ReflectionTestUtils.setField(service, "storeSamples", true);
+
+        JMeterRunSummary summary = service.importTestResults(writeResults(), "plan-1");
+
+        // 3 lignes par lots de 2
+        verify(repository, times(2)).insert(anyList());
+        assertTrue(summary.isSamplesStored());
+        assertEquals("plan-1", summary.getTestPlanId());
+        assertEquals(3, summary.getTotal().getSampleCount());
+        assertEquals(1, summary.getTotal().getErrorCount());
+    }
+
+    @Test
+    void testImportKeepsOnlyTheSummaryWithoutSamples() throws Exception {
+        ReflectionTestUtils.setField(service, "storeSamples", false);
+
+        JMeterRunSummary summary = service.importTestResults(writeResults(), "plan-1");
+
+        verify(repository, never()).insert(anyList());
+        verify(summaryRepository).save(summary);
+        verify(intervalRepository).insert(argThat((List<JMeterIntervalStats> intervals) -> intervals.size() == 1
+                && "run-1".equals(intervals.get(0).getRunId())));
+        assertFalse(summary.isSamplesStored());
+        assertEquals(3, summary.getTotal().getSampleCount());
+        assertEquals(2, summary.getLabels().size());
+    }
+
+    @Test
+    void testResultsAreReadOnePageAtATime() {
+        List<HttpTestResult> page = List.of(new HttpTestResult());
+        when(repository.findAllByTestPlanId("plan-1", PageRequest.of(2, 50, Sort.by("id")))).thenReturn(page);
+
+        assertSame(page, service.getResultsByTestPlanId("plan-1", 2, 50));
+    }
+}
@@ -0,0 +1,77 @@
+package ca.etsmtl.taf.jmeter.utils;
+
+import ca.etsmtl.taf.jmeter.model.HttpTestResult;
+import ca.etsmtl.taf.jmeter.model.JMeterIntervalStats;
+import ca.etsmtl.taf.jmeter.model.JMeterLabelStats;
+import ca.etsmtl.taf.jmeter.model.JMeterRunSummary;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JMeterResultsAggregatorTest {
+
+    private static HttpTestResult sample(long timeStamp, long elapsed, String label, boolean success) {
+        HttpTestResult result = new HttpTestResult();
+        result.setTimeStamp(String.valueOf(timeStamp));
+        result.setElapsed(String.valueOf(elapsed));
+        result.setLabel(label);
+        result.setSuccess(String.valueOf(success));
+        result.setBytes("100");
+        result.setSentBytes("10");
+        return result;
+    }
+
+    @Test
+    void testSummaryPerLabelAndPerInterval() {
+        JMeterResultsAggregator aggregator = new JMeterResultsAggregator(10);
+        aggregator.accept(sample(1_000, 100, "home", true));
+        aggregator.accept(sample(5_000, 300, "home", false));
+        aggregator.accept(sample(12_000, 200, "login", true));
+        aggregator.accept(sample(19_800, 200, "home", true));
+
+        JMeterRunSummary summary = aggregator.toSummary("plan-1");
+
+        assertEquals("plan-1", summary.getTestPlanId());
+        assertEquals(1_000, summary.getStartTime());
+        assertEquals(20_000, summary.getEndTime());
+        JMeterLabelStats total = summary.getTotal();
+        assertEquals(4, total.getSampleCount());
+        assertEquals(1, total.getErrorCount());
+        assertEquals(400, total.getBytes());
+        assertEquals(100, total.getMinElapsed());
+        assertEquals(300, total.getMaxElapsed());
+        assertEquals(200, total.getMeanElapsed(), 1e-9);
+        // 4 échantillons en 19 s
+        assertEquals(4 / 19.0, total.getThroughput(), 1e-9);
+        assertFalse(total.getHistogram().isEmpty());
+
+        assertEquals(List.of("home", "login"), summary.getLabels().stream().map(JMeterLabelStats::getLabel).toList());
+        assertEquals(3, summary.getLabels().get(0).getSampleCount());
+
+        List<JMeterIntervalStats> intervals = aggregator.toIntervals("run-1");
+        assertEquals(List.of(0L, 10_000L), intervals.stream().map(JMeterIntervalStats::getStart).toList());
+        assertTrue(intervals.stream().allMatch(interval -> "run-1".equals(interval.getRunId())));
+        JMeterLabelStats firstHome = intervals.get(0).getLabels().get(0);
+        assertEquals(2, firstHome.getSampleCount());
+        assertEquals(0.2, firstHome.getThroughput(), 1e-9);
+        assertNull(firstHome.getHistogram(), "interval stats should not carry a histogram");
+        assertEquals(2, intervals.get(1).getLabels().size());
+    }
+
+    @Test
+    void testSamplesWithoutTimestampOnlyCountInTheTotals() {
+        JMeterResultsAggregator aggregator = new JMeterResultsAggregator(10);
+        HttpTestResult result = sample(0, 50, "home", true);
+        result.setTimeStamp("");
+        aggregator.accept(result);
+
+        JMeterRunSummary summary = aggregator.toSummary("plan-1");
+
+        assertEquals(1, summary.getTotal().getSampleCount());
+        assertEquals(0, summary.getStartTime());
+        assertEquals(0, summary.getTotal().getThroughput());
+        assertTrue(aggregator.toIntervals("run-1").isEmpty());
+    }
+}
@@ -56,42 +56,52 @@ export class JmeterApiComponent implements OnInit {
   onHttpSubmit() {
     this.busy = this.performanceTestApiService
       .sendHttpJMeterRequest(this.http_request)
-      .subscribe((response: any[]) => {
-        this.testResults = response.map((result) => ({
-          allThreads: result.allThreads,
-          grpThreads: result.grpThreads,
-          idleTime: result.IdleTime,
-          dataType: result.dataType,
-          connect: result.Connect,
-          label: result.label,
-          threadName: result.threadName,
-          url: result.URL,
-          responseCode: result.responseCode,
-          latency: result.Latency,
-          timestamp: result.timeStamp,
-          elapsed: result.elapsed,
-          success: result.success,
-          bytes: result.bytes,
-          responseMessage: result.responseMessage,
-          failureMessage: result.failureMessage,
-          sentBytes: result.sentBytes,
-        }));
-        if(response.length != 0){
-          this.modal!.style.display = 'block';
-        }else{
+      .subscribe((summary: any) => {
+        if (!summary?.total?.sampleCount) {
+          this.showFailure();
+        } else if (!summary.samplesStored) {
+          // Seul le résumé est enregistré, pas d'échantillons à afficher
           Swal.fire({
-            icon: 'error',
-            title: 'Erreur',
-            text: "Le test a échoué, révisez votre configuration de test",
-          })
+            icon: 'success',
+            title: 'Test terminé',
+            text: `${summary.total.sampleCount} requêtes, ${summary.total.errorCount} en erreur, p95 ${summary.total.p95Elapsed} ms`,
+          });
+        } else {
+          // Première page des échantillons enregistrés
+          this.performanceTestApiService
+            .getJMeterResult(summary.testPlanId)
+            .subscribe((response: any[]) => {
+              this.testResults = response.map((result) => ({
+                allThreads: result.allThreads,
+                grpThreads: result.grpThreads,
+                idleTime: result.IdleTime,
+                dataType: result.dataType,
+                connect: result.Connect,
+                label: result.label,
+                threadName: result.threadName,
+                url: result.URL,
+                responseCode: result.responseCode,
+                latency: result.Latency,
+                timestamp: result.timeStamp,
+                elapsed: result.elapsed,
+                success: result.success,
+                bytes: result.bytes,
+                responseMessage: result.responseMessage,
+                failureMessage: result.failureMessage,
+                sentBytes: result.sentBytes,
+              }));
+              this.modal!.style.display = 'block';
+            }, () => this.showFailure());
         }
-      }, (error: any) =>{
-        Swal.fire({
-          icon: 'error',
-          title: 'Erreur',
-          text: "Le test a échoué, révisez votre configuration de test",
-        })
-      });
+      }, (error: any) => this.showFailure());
+  }
+
+  private showFailure() {
+    Swal.fire({
+      icon: 'error',
+      title: 'Erreur',
+      text: "Le test a échoué, révisez votre configuration de test",
+    })
   }
 
   onFtpSubmit() {
@@ -1,3 +1,5 @@
+import { RegressionReport } from "./regressionReport";
+
 export interface GatlingTestResult {
   simulation: string;
   simulationId: string;
@@ -20,4 +22,5 @@ export interface GatlingAssertionResult {
 export interface ApiResponse {
   message: string;
   testResult: GatlingTestResult;
+  regression?: RegressionReport;
 }
@@ -0,0 +1,12 @@
+export interface RegressionReport {
+  verdict: 'NO_BASELINE' | 'PASSED' | 'REGRESSED';
+  message: string;
+  baselineRuns: number;
+  samples: number;
+  baselineSamples: number;
+  p95Ms: number;
+  baselineP95Ms: number | null;
+  p95ChangePercent: number | null;
+  probabilityGreater: number | null;
+  pValue: number | null;
+}
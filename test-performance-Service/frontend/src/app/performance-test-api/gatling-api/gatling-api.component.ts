@@ -5,6 +5,7 @@ import {PerformanceTestApiService} from 'src/app/_services/performance-test-api.
 import Swal from 'sweetalert2';
 import {GatlingRequest, ResponseTimePerPercentile} from './gatling-request';
 import {ApiResponse, GatlingAssertionResult, GatlingTestResult} from "../../models/gatlingTestResult";
+import {RegressionReport} from "../../models/regressionReport";
 import {GATLING_SCENARIOS} from "../../models/gatling-scenarios";
 
 enum SIMULATION_STRATEGY
@@ -28,6 +29,7 @@ export class GatlingApiComponent implements OnInit {
   testResult: any;
 
   gatlingTestResult: GatlingTestResult | null = null
+  regression: RegressionReport | null = null
 
   percentiles: number[] = [50, 75, 90, 95, 99, 99.9];
   newPercentile: number = 0;
@@ -112,6 +114,7 @@ export class GatlingApiComponent implements OnInit {
         }];
 
         this.testResult = (response as ApiResponse).testResult
+        this.regression = (response as ApiResponse).regression ?? null
 
         // Ajouter un message indiquant que le rapport a été généré
         if (reportGeneratedMessage) {
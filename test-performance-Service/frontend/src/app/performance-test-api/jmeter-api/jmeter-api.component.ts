@@ -3,6 +3,7 @@ import { FormBuilder, FormGroup, Validators } from '@angular/forms';
 import { JMeterHttpRequest } from './jmeter-http-request';
 import { JMeterFTPRequest } from './jmeter-ftp-request';
 import { JMETER_SCENARIOS } from '../../models/jmeter_scenarios';
+import { RegressionReport } from '../../models/regressionReport';
 
 import { Subscription } from 'rxjs';
 import Swal from 'sweetalert2';
@@ -27,6 +28,7 @@ export class JmeterApiComponent implements OnInit {
   modal: HTMLElement | null = document.getElementById('myModal');
   span: Element | null = document.getElementsByClassName('close')[0];
   testResult: any;
+  regression: RegressionReport | null = null;
   testLog: String = '';
   reportFilePath: String = '';
   busy: Subscription | undefined;
@@ -287,6 +289,7 @@ export class JmeterApiComponent implements OnInit {
       .sendHttpJMeterRequest(this.http_request)
       .subscribe((response: any) => {
         this.testResults = response;
+        this.regression = response.regression ?? null;
 
         // Transformation de la réponse pour inclure des informations sur le succès ou l'échec global
         const successMessage = response.length != 0;
@@ -331,6 +334,7 @@ export class JmeterApiComponent implements OnInit {
       .subscribe((response: any) => {
         this.testResults = response;
         this.testResult = response; // Ajoutez cette ligne
+        this.regression = response.regression ?? null;
         if (response.length != 0) {
           this.modal!.style.display = 'block';
         } else {
@@ -371,6 +375,7 @@ export class JmeterApiComponent implements OnInit {
 
   newTest() {
     this.testResults = [];
+    this.regression = null;
     this.selectedTest = null;
     this.modal!.style.display = 'none';
     if (this.httpForm) {
@@ -6,14 +6,19 @@ import java.net.URI;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import ca.etsmtl.taf.performance.gatling.model.GatlingJob;
+import ca.etsmtl.taf.performance.gatling.model.JobState;
 import ca.etsmtl.taf.performance.gatling.model.MessageResponse;
 import ca.etsmtl.taf.performance.gatling.model.GatlingTestRequest;
 import ca.etsmtl.taf.performance.gatling.services.GatlingFacade;
@@ -48,4 +53,28 @@ public class GatlingApiController {
         }
     }
 
-}
\ No newline at end of file
+    @PostMapping(value = "/jobs")
+    public ResponseEntity<GatlingJob> submitSimulation(@RequestBody GatlingTestRequest gatlingRequest) {
+        try {
+            return new ResponseEntity<>(gatlingFacade.submitSimulation(gatlingRequest), HttpStatus.ACCEPTED);
+        } catch (IllegalStateException e) {
+            GatlingJob job = GatlingJob.builder().state(JobState.FAILED).message(e.getMessage()).build();
+            return new ResponseEntity<>(job, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<GatlingJob> getJob(@PathVariable String id) {
+        return gatlingFacade.getJob(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(value = "/jobs/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJob(@PathVariable String id) {
+        return gatlingFacade.streamJob(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+}
@@ -0,0 +1,28 @@
+package ca.etsmtl.taf.performance.gatling.model;
+
+import ca.etsmtl.taf.performance.metrics.model.RegressionReport;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class GatlingJob {
+    private String id;
+    private JobState state;
+    private String message;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long totalSamples;
+    private GatlingIntervalStats latestStats;
+    private String reportPath;
+    private GatlingRunStats stats;
+    private GatlingTestResult result;
+    private RegressionReport regression;
+}
@@ -0,0 +1,20 @@
+package ca.etsmtl.taf.performance.gatling.model;
+
+import ca.etsmtl.taf.performance.metrics.model.RegressionReport;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class GatlingRunResult {
+    private String runId;
+    private String reportPath;
+    private String summary;
+    private GatlingRunStats stats;
+    private GatlingTestResult testResult;
+    private RegressionReport regression;
+}
@@ -0,0 +1,25 @@
+package ca.etsmtl.taf.performance.gatling.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class GatlingRunStats {
+    private long requestCount;
+    private long okCount;
+    private long koCount;
+    private long minResponseTime;
+    private long maxResponseTime;
+    private long meanResponseTime;
+    private long standardDeviation;
+    private long p50ResponseTime;
+    private long p75ResponseTime;
+    private long p95ResponseTime;
+    private long p99ResponseTime;
+    private double meanRequestsPerSecond;
+}
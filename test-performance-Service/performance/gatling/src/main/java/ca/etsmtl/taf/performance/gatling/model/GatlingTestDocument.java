@@ -1,13 +1,17 @@
 package ca.etsmtl.taf.performance.gatling.model;
 
+import ca.etsmtl.taf.performance.metrics.model.RegressionReport;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
+
 
 @Document(collection = "gatling_test_results")
 @Data
@@ -21,4 +25,15 @@ public class GatlingTestDocument {
     private GatlingTestRequest testRequest;
     private GatlingTestResponse testResult;
 
+    // Seulement pour les simulations lancées par l'API des jobs
+    @Indexed(sparse = true)
+    private String jobId;
+    private JobState state;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String reportPath;
+    private GatlingRunStats stats;
+    private GatlingTestResult report;
+    private RegressionReport regression;
 }
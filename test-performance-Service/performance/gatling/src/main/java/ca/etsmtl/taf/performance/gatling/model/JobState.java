@@ -0,0 +1,8 @@
+package ca.etsmtl.taf.performance.gatling.model;
+
+public enum JobState {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
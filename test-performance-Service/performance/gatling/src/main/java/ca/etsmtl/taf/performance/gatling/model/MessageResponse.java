@@ -1,6 +1,7 @@
 package ca.etsmtl.taf.performance.gatling.model;
 
 
+import ca.etsmtl.taf.performance.metrics.model.RegressionReport;
 import jakarta.annotation.Nullable;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -14,4 +15,10 @@ public class MessageResponse {
     private String message;
     @Nullable
     private GatlingTestResult testResult;
+    @Nullable
+    private RegressionReport regression;
+
+    public MessageResponse(String message, GatlingTestResult testResult) {
+        this(message, testResult, null);
+    }
 }
\ No newline at end of file
@@ -4,5 +4,9 @@ import ca.etsmtl.taf.performance.gatling.model.GatlingTestDocument;
 import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.Optional;
+
 public interface GatlingTestsRepository extends MongoRepository<GatlingTestDocument, ObjectId> {
+
+    Optional<GatlingTestDocument> findFirstByJobId(String jobId);
 }
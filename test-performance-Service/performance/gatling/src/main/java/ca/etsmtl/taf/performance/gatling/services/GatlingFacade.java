@@ -1,9 +1,16 @@
 package ca.etsmtl.taf.performance.gatling.services;
 
+import ca.etsmtl.taf.performance.gatling.model.GatlingJob;
 import ca.etsmtl.taf.performance.gatling.model.GatlingTestRequest;
 import ca.etsmtl.taf.performance.gatling.model.MessageResponse;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Optional;
 
 public interface GatlingFacade {
     MessageResponse runSimulation(GatlingTestRequest gatlingRequest);
     String getLatestReportPath();
+    GatlingJob submitSimulation(GatlingTestRequest gatlingRequest);
+    Optional<GatlingJob> getJob(String id);
+    Optional<SseEmitter> streamJob(String id);
 }
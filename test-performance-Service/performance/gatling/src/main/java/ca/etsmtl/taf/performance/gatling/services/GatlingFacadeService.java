@@ -1,14 +1,17 @@
 package ca.etsmtl.taf.performance.gatling.services;
 
+import ca.etsmtl.taf.performance.gatling.model.GatlingJob;
+import ca.etsmtl.taf.performance.gatling.model.GatlingRunResult;
 import ca.etsmtl.taf.performance.gatling.model.GatlingTestRequest;
 import ca.etsmtl.taf.performance.gatling.model.GatlingTestResponse;
-import ca.etsmtl.taf.performance.gatling.model.GatlingTestResult;
 import ca.etsmtl.taf.performance.gatling.model.MessageResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Primary
 @Service
@@ -22,19 +25,22 @@ public class GatlingFacadeService implements GatlingFacade {
     @Autowired
     private ResultService resultService;
 
+    @Autowired
+    private GatlingJobService gatlingJobService;
+
     @Override
     public MessageResponse runSimulation(GatlingTestRequest gatlingRequest) {
         try {
-            String output = simulationService.runSimulation(gatlingRequest);
+            GatlingRunResult runResult = simulationService.runSimulation(gatlingRequest);
 
             GatlingTestResponse testResponse = GatlingTestResponse.builder()
-                    .response(output)
+                    .response(runResult.getSummary())
                     .build();
 
             resultService.saveTestResults(gatlingRequest, testResponse);
 
-            GatlingTestResult results = reportService.getLatestReportResult();
-            return new MessageResponse("Simulation executed successfully: " + output, results);
+            return new MessageResponse("Simulation executed successfully: " + runResult.getSummary(),
+                    runResult.getTestResult(), runResult.getRegression());
         } catch (IOException e) {
             return new MessageResponse("Error executing simulation: " + e.getMessage(), null);
         }
@@ -44,4 +50,19 @@ public class GatlingFacadeService implements GatlingFacade {
     public String getLatestReportPath() {
         return reportService.getLatestReportPath();
     }
+
+    @Override
+    public GatlingJob submitSimulation(GatlingTestRequest gatlingRequest) {
+        return gatlingJobService.submit(gatlingRequest);
+    }
+
+    @Override
+    public Optional<GatlingJob> getJob(String id) {
+        return gatlingJobService.getJob(id);
+    }
+
+    @Override
+    public Optional<SseEmitter> streamJob(String id) {
+        return gatlingJobService.subscribe(id);
+    }
 }
@@ -0,0 +1,245 @@
+package ca.etsmtl.taf.performance.gatling.services;
+
+import ca.etsmtl.taf.performance.gatling.model.GatlingIntervalStats;
+import ca.etsmtl.taf.performance.gatling.model.GatlingJob;
+import ca.etsmtl.taf.performance.gatling.model.GatlingTestDocument;
+import ca.etsmtl.taf.performance.gatling.model.GatlingTestRequest;
+import ca.etsmtl.taf.performance.gatling.model.GatlingTestResponse;
+import ca.etsmtl.taf.performance.gatling.model.GatlingRunResult;
+import ca.etsmtl.taf.performance.gatling.model.JobState;
+import ca.etsmtl.taf.performance.gatling.repositories.GatlingTestsRepository;
+import ca.etsmtl.taf.performance.gatling.utils.GatlingLiveStats;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs Gatling simulations as background jobs. Submitting a simulation returns
+ * at once with the job, whose state and interval statistics can then be polled
+ * or followed through server-sent events. Finished jobs are saved in the
+ * {@code gatling_test_results} collection.
+ */
+@Service
+public class GatlingJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GatlingJobService.class);
+
+    private final SimulationService simulationService;
+    private final ResultService resultService;
+    private final GatlingTestsRepository gatlingRepository;
+    private final Duration retention;
+    private final long emitterTimeoutMs;
+
+    private final Map<String, TrackedJob> jobs = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(runnable, "gatling-jobs-ticker"));
+
+    public GatlingJobService(SimulationService simulationService, ResultService resultService,
+                             GatlingTestsRepository gatlingRepository,
+                             @Value("${taf.performance.gatling.max-concurrent-runs:2}") int maxConcurrentRuns,
+                             @Value("${taf.performance.gatling.max-queued-runs:10}") int maxQueuedRuns,
+                             @Value("${taf.performance.jobs.stats-interval-seconds:5}") long statsIntervalSeconds,
+                             @Value("${taf.performance.jobs.retention-minutes:60}") long retentionMinutes,
+                             @Value("${taf.performance.jobs.sse-timeout-ms:3600000}") long emitterTimeoutMs) {
+        this.simulationService = simulationService;
+        this.resultService = resultService;
+        this.gatlingRepository = gatlingRepository;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.executor = new ThreadPoolExecutor(maxConcurrentRuns, maxConcurrentRuns, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueuedRuns), runnable -> new Thread(runnable, "gatling-job"));
+        ticker.scheduleAtFixedRate(this::tick, statsIntervalSeconds, statsIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public GatlingJob submit(GatlingTestRequest gatlingRequest) {
+        evictExpiredJobs();
+
+        GatlingJob job = GatlingJob.builder()
+                .id(UUID.randomUUID().toString())
+                .state(JobState.QUEUED)
+                .submittedAt(Instant.now())
+                .build();
+        TrackedJob tracked = new TrackedJob(job, gatlingRequest, new GatlingLiveStats());
+        jobs.put(job.getId(), tracked);
+
+        try {
+            executor.execute(() -> run(tracked));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw new IllegalStateException("Trop de simulations Gatling en cours, réessayez plus tard.", e);
+        }
+        logger.info("Gatling job {} queued", job.getId());
+        return job;
+    }
+
+    public Optional<GatlingJob> getJob(String id) {
+        TrackedJob tracked = jobs.get(id);
+        if (tracked != null) {
+            return Optional.of(tracked.job);
+        }
+        return gatlingRepository.findFirstByJobId(id).map(this::toJob);
+    }
+
+    /**
+     * Follow a job through server-sent events. A {@code state} event is sent
+     * whenever the state changes and a {@code stats} event at every interval
+     * while the job runs. The stream completes when the job is over.
+     */
+    public Optional<SseEmitter> subscribe(String id) {
+        Optional<GatlingJob> job = getJob(id);
+        if (job.isEmpty()) {
+            return Optional.empty();
+        }
+
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        TrackedJob tracked = jobs.get(id);
+        if (tracked == null || isFinished(tracked.job.getState())) {
+            send(emitter, "state", job.get());
+            emitter.complete();
+            return Optional.of(emitter);
+        }
+
+        tracked.emitters.add(emitter);
+        emitter.onCompletion(() -> tracked.emitters.remove(emitter));
+        emitter.onTimeout(() -> tracked.emitters.remove(emitter));
+        emitter.onError(e -> tracked.emitters.remove(emitter));
+        send(emitter, "state", tracked.job);
+        if (isFinished(tracked.job.getState()) && tracked.emitters.remove(emitter)) {
+            // Le job s'est terminé pendant l'abonnement
+            emitter.complete();
+        }
+        return Optional.of(emitter);
+    }
+
+    private void run(TrackedJob tracked) {
+        GatlingJob job = tracked.job;
+        job.setState(JobState.RUNNING);
+        job.setStartedAt(Instant.now());
+        publish(tracked, "state", job);
+
+        GatlingTestResponse testResponse = null;
+        JobState state;
+        try {
+            GatlingRunResult runResult = simulationService.runSimulation(tracked.request, tracked.liveStats);
+            testResponse = GatlingTestResponse.builder()
+                    .response(runResult.getSummary())
+                    .build();
+            job.setResult(runResult.getTestResult());
+            job.setStats(runResult.getStats());
+            job.setReportPath(runResult.getReportPath());
+            job.setRegression(runResult.getRegression());
+            job.setMessage("Simulation executed successfully");
+            state = JobState.SUCCEEDED;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Gatling job {} failed", job.getId(), e);
+            job.setMessage("Error executing simulation: " + e.getMessage());
+            state = JobState.FAILED;
+        }
+
+        updateStats(tracked, tracked.liveStats.snapshot());
+        // finishedAt avant l'état, les jobs terminés sont évincés selon leur âge
+        job.setFinishedAt(Instant.now());
+        job.setState(state);
+        resultService.saveTestResults(job, tracked.request, testResponse);
+
+        publish(tracked, "stats", job.getLatestStats());
+        publish(tracked, "state", job);
+        tracked.emitters.forEach(SseEmitter::complete);
+        tracked.emitters.clear();
+    }
+
+    private void tick() {
+        for (TrackedJob tracked : jobs.values()) {
+            if (tracked.job.getState() == JobState.RUNNING) {
+                updateStats(tracked, tracked.liveStats.snapshot());
+                publish(tracked, "stats", tracked.job.getLatestStats());
+            }
+        }
+    }
+
+    private void updateStats(TrackedJob tracked, GatlingIntervalStats stats) {
+        tracked.job.setLatestStats(stats);
+        tracked.job.setTotalSamples(stats.getTotalSamples());
+    }
+
+    private void evictExpiredJobs() {
+        Instant expiry = Instant.now().minus(retention);
+        jobs.values().removeIf(tracked -> isFinished(tracked.job.getState())
+                && tracked.job.getFinishedAt().isBefore(expiry));
+    }
+
+    private GatlingJob toJob(GatlingTestDocument document) {
+        return GatlingJob.builder()
+                .id(document.getJobId())
+                .state(document.getState())
+                .submittedAt(document.getSubmittedAt())
+                .startedAt(document.getStartedAt())
+                .finishedAt(document.getFinishedAt())
+                .result(document.getReport())
+                .stats(document.getStats())
+                .reportPath(document.getReportPath())
+                .regression(document.getRegression())
+                .build();
+    }
+
+    private void publish(TrackedJob tracked, String eventName, Object data) {
+        for (SseEmitter emitter : tracked.emitters) {
+            if (!send(emitter, eventName, data)) {
+                tracked.emitters.remove(emitter);
+            }
+        }
+    }
+
+    private boolean send(SseEmitter emitter, String eventName, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(data));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Unable to send {} event", eventName, e);
+            return false;
+        }
+    }
+
+    private static boolean isFinished(JobState state) {
+        return state == JobState.SUCCEEDED || state == JobState.FAILED;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private static class TrackedJob {
+        private final GatlingJob job;
+        private final GatlingTestRequest request;
+        private final GatlingLiveStats liveStats;
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+        private TrackedJob(GatlingJob job, GatlingTestRequest request, GatlingLiveStats liveStats) {
+            this.job = job;
+            this.request = request;
+            this.liveStats = liveStats;
+        }
+    }
+}
@@ -1,21 +1,43 @@
 package ca.etsmtl.taf.performance.gatling.services;
 
 import ca.etsmtl.taf.performance.gatling.config.GatlingConfigurator;
+import ca.etsmtl.taf.performance.gatling.model.GatlingRunStats;
 import ca.etsmtl.taf.performance.gatling.model.GatlingTestResult;
+import ca.etsmtl.taf.performance.metrics.model.PerformanceMetric;
+import ca.etsmtl.taf.performance.metrics.model.PerformanceMetricMeta;
+import ca.etsmtl.taf.performance.metrics.utils.PerformanceMetricAggregator;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 public class ReportService {
     private final String REPORT_PATH = "/reports/performance/gatling/dashboard/";
 
+    // Journal texte de Gatling 3.9, écrit à côté du rapport
+    private static final String SIMULATION_LOG = "simulation.log";
+    private static final String REQUEST_RECORD = "REQUEST";
+    private static final String USER_RECORD = "USER";
+
+    @Value("${taf.performance.metrics.interval-seconds:5}")
+    private int intervalSeconds;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
     public GatlingTestResult getLatestReportResult() throws IOException {
         File reportsDirFile = getReportsDir();
         File latestReportDir = findLatestReportDirectory(reportsDirFile);
@@ -46,6 +68,105 @@ public class ReportService {
         }
     }
 
+    /**
+     * Trouve le rapport généré par Gatling dans le dossier d'une exécution.
+     * Chaque exécution a son propre dossier, qui ne contient qu'un seul rapport.
+     */
+    public File getRunReportDirectory(File runDir) {
+        File[] reportDirs = runDir.listFiles(file -> file.isDirectory() && new File(file, "index.html").exists());
+        if (reportDirs == null || reportDirs.length == 0) {
+            throw new RuntimeException("Aucun rapport trouvé pour l'exécution " + runDir.getName());
+        }
+        return reportDirs[0];
+    }
+
+    public GatlingTestResult getReportResult(File reportDir) throws IOException {
+        return buildReportResult(new File(reportDir, "js/assertions.json"));
+    }
+
+    /**
+     * Lit les statistiques globales écrites par Gatling dans js/stats.json.
+     */
+    public GatlingRunStats getReportStats(File reportDir) throws IOException {
+        File statsFile = new File(reportDir, "js/stats.json");
+        JsonNode stats;
+        try {
+            stats = objectMapper.readTree(statsFile).path("stats");
+        } catch (IOException e) {
+            throw new IOException("Failed to parse Gatling JSON stats: " + statsFile.getAbsolutePath(), e);
+        }
+        return GatlingRunStats.builder()
+                .requestCount(stats.path("numberOfRequests").path("total").asLong())
+                .okCount(stats.path("numberOfRequests").path("ok").asLong())
+                .koCount(stats.path("numberOfRequests").path("ko").asLong())
+                .minResponseTime(stats.path("minResponseTime").path("total").asLong())
+                .maxResponseTime(stats.path("maxResponseTime").path("total").asLong())
+                .meanResponseTime(stats.path("meanResponseTime").path("total").asLong())
+                .standardDeviation(stats.path("standardDeviation").path("total").asLong())
+                .p50ResponseTime(stats.path("percentiles1").path("total").asLong())
+                .p75ResponseTime(stats.path("percentiles2").path("total").asLong())
+                .p95ResponseTime(stats.path("percentiles3").path("total").asLong())
+                .p99ResponseTime(stats.path("percentiles4").path("total").asLong())
+                .meanRequestsPerSecond(stats.path("meanNumberOfRequestsPerSecond").path("total").asDouble())
+                .build();
+    }
+
+    /**
+     * Calcule les métriques par intervalle et par requête à partir du
+     * simulation.log de l'exécution, comme pour les résultats de JMeter.
+     */
+    public List<PerformanceMetric> getReportMetrics(File reportDir, PerformanceMetricMeta meta) throws IOException {
+        return aggregateSimulationLog(reportDir, meta).toMetrics();
+    }
+
+    /**
+     * Relit le simulation.log, une ligne à la fois. Depuis Gatling 3.9 c'est un
+     * fichier texte séparé par des tabulations : {@code REQUEST groupes nom
+     * début fin statut message} pour chaque requête, et {@code USER scénario
+     * START|END instant} à l'arrivée et au départ de chaque utilisateur.
+     */
+    public PerformanceMetricAggregator aggregateSimulationLog(File reportDir, PerformanceMetricMeta meta)
+            throws IOException {
+        PerformanceMetricAggregator aggregator = new PerformanceMetricAggregator(meta.getTool(), meta.getRunId(),
+                meta.getScenario(), intervalSeconds);
+        File simulationLog = new File(reportDir, SIMULATION_LOG);
+        int activeUsers = 0;
+        try (BufferedReader reader = Files.newBufferedReader(simulationLog.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (USER_RECORD.equals(fields[0]) && fields.length >= 4) {
+                    activeUsers += "START".equals(fields[2]) ? 1 : ("END".equals(fields[2]) ? -1 : 0);
+                } else if (REQUEST_RECORD.equals(fields[0]) && fields.length >= 6) {
+                    long start = parseLong(fields[3]);
+                    long end = parseLong(fields[4]);
+                    if (start < 0 || end < 0) {
+                        continue;
+                    }
+                    String label = fields[2].isEmpty() ? meta.getLabel() : fields[2];
+                    aggregator.accept(start, label, Math.max(0, end - start), "OK".equals(fields[5]),
+                            Math.max(0, activeUsers));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            throw new IOException("Gatling simulation log not found: " + simulationLog.getAbsolutePath(), e);
+        }
+        return aggregator;
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public String buildReportPath(File reportDir) {
+        Path relativePath = getReportsDir().toPath().relativize(reportDir.toPath());
+        return REPORT_PATH + relativePath.toString().replace(File.separatorChar, '/') + "/index.html";
+    }
+
     private File getReportsDir() {
         Path reportsDir = Paths.get(GatlingConfigurator.getGatlingResultsFolder()).toAbsolutePath().normalize();
         File reportsDirFile = reportsDir.toFile();
@@ -55,19 +176,22 @@ public class ReportService {
         return reportsDirFile;
     }
 
+    /**
+     * Les rapports sont soit directement dans le dossier des résultats, soit dans
+     * le dossier de leur exécution.
+     */
     private File findLatestReportDirectory(File reportsDirFile) {
         return Arrays.stream(reportsDirFile.listFiles(File::isDirectory))
+                .flatMap(dir -> new File(dir, "index.html").exists()
+                        ? Stream.of(dir)
+                        : Arrays.stream(dir.listFiles(file -> file.isDirectory() && new File(file, "index.html").exists())))
                 .max(Comparator.comparingLong(File::lastModified))
                 .orElse(null);
     }
 
-    private String buildReportPath(File latestReportDir) {
-        return REPORT_PATH + latestReportDir.getName() + "/index.html";
-    }
-
     private GatlingTestResult buildReportResult(File resultFile) throws IOException {
         try {
-            return new ObjectMapper().readValue(resultFile, GatlingTestResult.class);
+            return objectMapper.readValue(resultFile, GatlingTestResult.class);
         } catch (IOException e) {
             throw new IOException("Failed to parse Gatling JSON report: " + resultFile.getAbsolutePath(), e);
         }
@@ -1,5 +1,6 @@
 package ca.etsmtl.taf.performance.gatling.services;
 
+import ca.etsmtl.taf.performance.gatling.model.GatlingJob;
 import ca.etsmtl.taf.performance.gatling.model.GatlingTestDocument;
 import ca.etsmtl.taf.performance.gatling.model.GatlingTestRequest;
 import ca.etsmtl.taf.performance.gatling.model.GatlingTestResponse;
@@ -24,6 +25,27 @@ public class ResultService {
                 .testRequest(gatlingTestRequest)
                 .testResult(gatlingTestResponse)
                 .build();
+        save(results);
+    }
+
+    public void saveTestResults(GatlingJob job, GatlingTestRequest gatlingTestRequest, GatlingTestResponse gatlingTestResponse) {
+        GatlingTestDocument results = GatlingTestDocument.builder()
+                .testRequest(gatlingTestRequest)
+                .testResult(gatlingTestResponse)
+                .jobId(job.getId())
+                .state(job.getState())
+                .submittedAt(job.getSubmittedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .reportPath(job.getReportPath())
+                .stats(job.getStats())
+                .report(job.getResult())
+                .regression(job.getRegression())
+                .build();
+        save(results);
+    }
+
+    private void save(GatlingTestDocument results) {
         try {
             gatlingRepository.save(results);
         } catch (Exception e) {
@@ -1,99 +1,162 @@
 package ca.etsmtl.taf.performance.gatling.services;
 
 import ca.etsmtl.taf.performance.gatling.config.GatlingConfigurator;
+import ca.etsmtl.taf.performance.gatling.model.GatlingRunResult;
+import ca.etsmtl.taf.performance.gatling.model.GatlingRunStats;
 import ca.etsmtl.taf.performance.gatling.model.GatlingTestRequest;
-import ca.etsmtl.taf.performance.gatling.simulation.LoadTestSimulation;
+import ca.etsmtl.taf.performance.gatling.simulation.GatlingRunContext;
 import ca.etsmtl.taf.performance.gatling.simulation.SimulationFactory;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import ca.etsmtl.taf.performance.gatling.utils.GatlingLiveStats;
+import ca.etsmtl.taf.performance.metrics.model.BaselineKey;
+import ca.etsmtl.taf.performance.metrics.model.PerformanceMetricMeta;
+import ca.etsmtl.taf.performance.metrics.model.RegressionReport;
+import ca.etsmtl.taf.performance.metrics.service.PerformanceMetricsService;
+import ca.etsmtl.taf.performance.metrics.service.RegressionDetector;
+import ca.etsmtl.taf.performance.metrics.utils.PerformanceMetricAggregator;
 import io.gatling.app.Gatling;
 import io.gatling.core.config.GatlingPropertiesBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.*;
-
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Runs Gatling simulations in-process. Each run has its own results folder and
+ * receives its request through {@link GatlingRunContext}, so several
+ * simulations can run at the same time in the same JVM. The statistics are read
+ * from the report Gatling writes in the run folder, and the requests of its
+ * simulation.log are saved per interval in the {@code performance_metrics}
+ * time-series collection. Its response times
+ * are compared with the previous runs of the same request and scenario.
+ */
 @Service
 public class SimulationService {
 
     private static final Logger logger = LoggerFactory.getLogger(SimulationService.class);
 
-    public String runSimulation(GatlingTestRequest gatlingRequest) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        String testRequest = objectMapper.writeValueAsString(gatlingRequest);
-        PipedOutputStream pipedOut = new PipedOutputStream();
-        PipedInputStream pipedIn = new PipedInputStream(pipedOut);
-        BufferedReader reader = new BufferedReader(new InputStreamReader(pipedIn));
-
-        // Run Gatling simulation in a separate thread
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        Future<?> future = executor.submit(() -> {
-            try {
-                @SuppressWarnings("java:S106")
-                PrintStream originalOut = System.out;
-                System.setOut(new PrintStream(pipedOut));
-                try {
-                    logger.info("Executing Gatling with request: {}", testRequest);
-                    System.setProperty("requestJson", testRequest);
-                    GatlingPropertiesBuilder props = new GatlingPropertiesBuilder();
-                    props.resultsDirectory(GatlingConfigurator.getGatlingResultsFolder());
-                    props.simulationClass(new SimulationFactory().getSimulationName(gatlingRequest.getSimulationStrategy()));
-                    Gatling.fromMap(props.build());
-                } finally {
-                    System.setOut(originalOut);
-                    pipedOut.close();
-                }
-            } catch (Exception e) {
-                logger.error("Error happened executing Gatling", e);
-            }
-        });
-
-        StringBuilder output = new StringBuilder();
-        String line;
-        while ((line = reader.readLine()) != null) {
-            output.append(line).append("\n");
-        }
+    /**
+     * Gatling flushes the log of a run by blocks of this size, small enough for
+     * the live statistics to follow a light load.
+     */
+    private static final int LIVE_STATS_BUFFER_SIZE = 1024;
 
-        reader.close();
-        executor.shutdown();
+    @Autowired
+    private ReportService reportService;
 
-        return output.toString();
-    }
+    @Autowired
+    private PerformanceMetricsService metricsService;
 
+    @Autowired
+    private RegressionDetector regressionDetector;
 
-    public String parseOutput(String output) {
-        StringBuilder returnString = new StringBuilder("---- Global Information --------------------------------------------------------\n");
-        String startPattern = "---- Global Information --------------------------------------------------------";
-        String endPattern = "---- Response Time Distribution ------------------------------------------------";
-        Pattern pattern = Pattern.compile(startPattern + "(.*?)" + endPattern, Pattern.DOTALL);
-        Matcher matcher = pattern.matcher(output);
-        if (matcher.find()) {
-            returnString.append(matcher.group(1).trim()).append("\n");
-        } else {
-            returnString.append("Not found in Gatling output.");
-        }
+    public GatlingRunResult runSimulation(GatlingTestRequest gatlingRequest) throws IOException {
+        return runSimulation(gatlingRequest, null);
+    }
 
-        returnString.append("---- Generated Report ------------------------------------------------------\n");
+    /**
+     * Run a simulation whose requests are followed by the live statistics
+     * while it runs.
+     *
+     * @param liveStats The live statistics of the run, or null
+     */
+    public GatlingRunResult runSimulation(GatlingTestRequest gatlingRequest, GatlingLiveStats liveStats)
+            throws IOException {
+        String runId = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date())
+                + "_" + UUID.randomUUID().toString().substring(0, 8);
+        File runDir = new File(GatlingConfigurator.getGatlingResultsFolder(), runId);
+        if (!runDir.mkdirs()) {
+            throw new IOException("Impossible de créer le dossier de l'exécution " + runDir.getAbsolutePath());
+        }
 
-        String regex = "Please open the following file: (file:///[^\\s]+|https?://[^\\s]+)";
+        logger.info("Executing Gatling run {} with request: {}", runId, gatlingRequest);
+        GatlingPropertiesBuilder props = new GatlingPropertiesBuilder();
+        props.resultsDirectory(runDir.getAbsolutePath());
+        props.simulationClass(new SimulationFactory().getSimulationName(gatlingRequest.getSimulationStrategy()));
+        scala.collection.mutable.Map<String, Object> properties = props.build();
+        if (liveStats != null) {
+            properties.put("gatling.data.file.bufferSize", LIVE_STATS_BUFFER_SIZE);
+            liveStats.watch(runDir);
+        }
+        try {
+            GatlingRunContext.runWith(gatlingRequest, () -> Gatling.fromMap(properties));
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error happened executing Gatling", e);
+        }
 
-        pattern = Pattern.compile(regex, Pattern.MULTILINE);
-        matcher = pattern.matcher(output);
+        File reportDir = reportService.getRunReportDirectory(runDir);
+        GatlingRunStats stats = reportService.getReportStats(reportDir);
+        String reportPath = reportService.buildReportPath(reportDir);
+        PerformanceMetricAggregator metrics = recordMetrics(runId, gatlingRequest, reportDir);
+
+        return GatlingRunResult.builder()
+                .runId(runId)
+                .reportPath(reportPath)
+                .stats(stats)
+                .summary(buildSummary(stats, reportPath))
+                .testResult(reportService.getReportResult(reportDir))
+                .regression(metrics == null ? null : checkRegression(runId, gatlingRequest, metrics))
+                .build();
+    }
 
-        if (matcher.find()) {
-            for (int i = 1; i <= matcher.groupCount(); i++) {
-                returnString.append(matcher.group(i).trim());
-            }
-        } else {
-            returnString.append("Not found in Gatling output.");
+    /**
+     * Les métriques ne doivent pas faire échouer une simulation terminée.
+     *
+     * @return Les requêtes de l'exécution, ou null si son simulation.log n'a pas pu être lu
+     */
+    private PerformanceMetricAggregator recordMetrics(String runId, GatlingTestRequest gatlingRequest,
+                                                      File reportDir) {
+        PerformanceMetricMeta meta = PerformanceMetricMeta.builder()
+                .tool(PerformanceMetricMeta.GATLING)
+                .runId(runId)
+                .scenario(gatlingRequest.getScenarioName())
+                .label(gatlingRequest.getRequestName())
+                .build();
+        try {
+            PerformanceMetricAggregator metrics = reportService.aggregateSimulationLog(reportDir, meta);
+            metricsService.record(metrics.toMetrics());
+            return metrics;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Unable to read the metrics of Gatling run {}", runId, e);
+            return null;
         }
+    }
+
+    private RegressionReport checkRegression(String runId, GatlingTestRequest gatlingRequest,
+                                             PerformanceMetricAggregator metrics) {
+        BaselineKey key = BaselineKey.builder()
+                .baseUrl(gatlingRequest.getBaseUrl())
+                .uri(gatlingRequest.getUri())
+                .method(gatlingRequest.getMethodType())
+                .scenario(gatlingRequest.getScenarioName())
+                .build();
+        return regressionDetector.check(key, PerformanceMetricMeta.GATLING, runId, metrics.getRunHistogram());
+    }
 
-        return returnString.toString();
+    /**
+     * Résumé dans le format de la console Gatling, attendu par le frontend.
+     */
+    private String buildSummary(GatlingRunStats stats, String reportPath) {
+        return "---- Global Information --------------------------------------------------------\n"
+                + String.format("> request count %d (OK=%d KO=%d)\n",
+                        stats.getRequestCount(), stats.getOkCount(), stats.getKoCount())
+                + String.format("> min response time %d\n", stats.getMinResponseTime())
+                + String.format("> max response time %d\n", stats.getMaxResponseTime())
+                + String.format("> mean response time %d\n", stats.getMeanResponseTime())
+                + String.format("> std deviation %d\n", stats.getStandardDeviation())
+                + String.format("> response time 50th percentile %d\n", stats.getP50ResponseTime())
+                + String.format("> response time 75th percentile %d\n", stats.getP75ResponseTime())
+                + String.format("> response time 95th percentile %d\n", stats.getP95ResponseTime())
+                + String.format("> response time 99th percentile %d\n", stats.getP99ResponseTime())
+                + String.format("> mean requests/sec %.2f\n", stats.getMeanRequestsPerSecond())
+                + "---- Generated Report ------------------------------------------------------\n"
+                + reportPath;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,37 @@
+package ca.etsmtl.taf.performance.gatling.simulation;
+
+import ca.etsmtl.taf.performance.gatling.model.GatlingTestRequest;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Hands its request to the simulation of a run. Gatling instantiates the
+ * simulation class on the thread that starts the run, so the request is bound
+ * to that thread for the duration of the run instead of being shared through a
+ * system property.
+ */
+public final class GatlingRunContext {
+
+    private static final ThreadLocal<GatlingTestRequest> CURRENT_REQUEST = new ThreadLocal<>();
+
+    private GatlingRunContext() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static <T> T runWith(GatlingTestRequest gatlingRequest, Callable<T> run) throws Exception {
+        CURRENT_REQUEST.set(gatlingRequest);
+        try {
+            return run.call();
+        } finally {
+            CURRENT_REQUEST.remove();
+        }
+    }
+
+    public static GatlingTestRequest currentRequest() {
+        GatlingTestRequest gatlingRequest = CURRENT_REQUEST.get();
+        if (gatlingRequest == null) {
+            throw new IllegalStateException("Aucune requête Gatling associée à ce thread.");
+        }
+        return gatlingRequest;
+    }
+}
@@ -9,7 +9,6 @@ import static io.gatling.javaapi.http.HttpDsl.http;
 import static io.gatling.javaapi.http.HttpDsl.status;
 
 import ca.etsmtl.taf.performance.gatling.model.GatlingTestRequestPercentileResponseTime;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import ca.etsmtl.taf.performance.gatling.model.GatlingTestRequest;
 import io.gatling.javaapi.core.Assertion;
@@ -25,20 +24,8 @@ import java.util.List;
 
 public class LoadTestSimulation extends Simulation {
 
-    private String requestJson = System.getProperty("requestJson");
+    private GatlingTestRequest gatlingTestRequest = GatlingRunContext.currentRequest();
 
-
-    private GatlingTestRequest gatlingTestRequest = parseRequestDetails(requestJson);
-
-
-    private GatlingTestRequest parseRequestDetails(String requestJson) {
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readValue(requestJson, GatlingTestRequest.class);
-        } catch (Exception e) {
-            return null;
-        }
-    }
     private HttpProtocolBuilder httpProtocol = http.baseUrl(gatlingTestRequest.getBaseUrl())
             .acceptHeader("application/json")
             .contentTypeHeader("application/json");
@@ -2,7 +2,6 @@ package ca.etsmtl.taf.performance.gatling.simulation;
 
 import ca.etsmtl.taf.performance.gatling.model.GatlingTestRequest;
 import ca.etsmtl.taf.performance.gatling.model.GatlingTestRequestPercentileResponseTime;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.gatling.javaapi.core.Assertion;
 import io.gatling.javaapi.core.ChainBuilder;
 import io.gatling.javaapi.core.ScenarioBuilder;
@@ -20,20 +19,8 @@ import static io.gatling.javaapi.http.HttpDsl.status;
 
 public class StressTestSimulation extends Simulation {
 
-    private String requestJson = System.getProperty("requestJson");
+    private GatlingTestRequest gatlingTestRequest = GatlingRunContext.currentRequest();
 
-
-    private GatlingTestRequest gatlingTestRequest = parseRequestDetails(requestJson);
-
-
-    private GatlingTestRequest parseRequestDetails(String requestJson) {
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readValue(requestJson, GatlingTestRequest.class);
-        } catch (Exception e) {
-            return null;
-        }
-    }
     private HttpProtocolBuilder httpProtocol = http.baseUrl(gatlingTestRequest.getBaseUrl())
             .acceptHeader("application/json")
             .contentTypeHeader("application/json");
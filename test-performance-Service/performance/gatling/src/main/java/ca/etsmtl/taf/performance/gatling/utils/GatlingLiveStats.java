@@ -0,0 +1,167 @@
+package ca.etsmtl.taf.performance.gatling.utils;
+
+import ca.etsmtl.taf.performance.gatling.model.GatlingIntervalStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Follows the {@code simulation.log} Gatling writes while a simulation runs
+ * and accumulates its requests between two snapshots. Gatling writes the log
+ * by blocks of {@code gatling.data.file.bufferSize} bytes, so the requests of
+ * an interval are the ones written since the previous snapshot.
+ */
+public class GatlingLiveStats {
+
+    private static final Logger logger = LoggerFactory.getLogger(GatlingLiveStats.class);
+
+    private static final String SIMULATION_LOG = "simulation.log";
+    private static final String REQUEST_RECORD = "REQUEST";
+
+    private File runDir;
+    private File simulationLog;
+    private long position;
+    // Start of a line whose end is not written yet
+    private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+
+    private long intervalStart = System.currentTimeMillis();
+    private long[] intervalElapsed = new long[1024];
+    private int intervalSamples;
+    private long intervalErrors;
+    private long totalSamples;
+    private long totalErrors;
+
+    /**
+     * Follow the log of the simulation writing its results in this folder.
+     *
+     * @param runDir The results folder of the run
+     */
+    public synchronized void watch(File runDir) {
+        this.runDir = runDir;
+    }
+
+    /**
+     * Record one line of the simulation log, only the requests are counted.
+     * The fields of a request are its groups, name, start and end timestamps,
+     * status (OK or KO) and message.
+     *
+     * @param line The line, without its line separator
+     */
+    public synchronized void accept(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length < 6 || !REQUEST_RECORD.equals(fields[0])) {
+            return;
+        }
+        try {
+            long start = Long.parseLong(fields[3]);
+            long end = Long.parseLong(fields[4]);
+            record(Math.max(0, end - start), "OK".equals(fields[5]));
+        } catch (NumberFormatException e) {
+            logger.debug("Ignoring malformed Gatling request record: {}", line);
+        }
+    }
+
+    private void record(long elapsed, boolean success) {
+        if (intervalSamples == intervalElapsed.length) {
+            intervalElapsed = Arrays.copyOf(intervalElapsed, intervalSamples * 2);
+        }
+        intervalElapsed[intervalSamples++] = elapsed;
+        totalSamples++;
+        if (!success) {
+            intervalErrors++;
+            totalErrors++;
+        }
+    }
+
+    /**
+     * Read what was written to the log since the last call, close the current
+     * interval and start a new one.
+     *
+     * @return The statistics of the interval that was closed
+     */
+    public synchronized GatlingIntervalStats snapshot() {
+        readLog();
+
+        long now = System.currentTimeMillis();
+        long intervalMs = Math.max(1, now - intervalStart);
+
+        long[] elapsed = Arrays.copyOf(intervalElapsed, intervalSamples);
+        Arrays.sort(elapsed);
+        double mean = elapsed.length == 0 ? 0 : Arrays.stream(elapsed).average().orElse(0);
+        long p95 = elapsed.length == 0 ? 0 : elapsed[(int) Math.ceil(elapsed.length * 0.95) - 1];
+
+        GatlingIntervalStats stats = GatlingIntervalStats.builder()
+                .timestamp(now)
+                .intervalMs(intervalMs)
+                .samples(intervalSamples)
+                .errors(intervalErrors)
+                .throughput(intervalSamples * 1000.0 / intervalMs)
+                .errorRate(intervalSamples == 0 ? 0 : (double) intervalErrors / intervalSamples)
+                .meanResponseTime(mean)
+                .p95ResponseTime(p95)
+                .totalSamples(totalSamples)
+                .totalErrors(totalErrors)
+                .build();
+
+        intervalStart = now;
+        intervalSamples = 0;
+        intervalErrors = 0;
+        return stats;
+    }
+
+    // The live statistics must not fail the run, a read error is retried at the next snapshot
+    private void readLog() {
+        if (simulationLog == null) {
+            simulationLog = findSimulationLog();
+            if (simulationLog == null) {
+                return;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(simulationLog.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            int read;
+            while ((read = channel.read(buffer, position)) > 0) {
+                position += read;
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    if (b == '\n') {
+                        accept(partialLine.toString(StandardCharsets.UTF_8).stripTrailing());
+                        partialLine.reset();
+                    } else {
+                        partialLine.write(b);
+                    }
+                }
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            logger.debug("Unable to read {}", simulationLog, e);
+        }
+    }
+
+    // Gatling writes the log in a folder it creates in the results folder of the run
+    private File findSimulationLog() {
+        if (runDir == null) {
+            return null;
+        }
+        File[] simulationDirs = runDir.listFiles(File::isDirectory);
+        if (simulationDirs == null) {
+            return null;
+        }
+        for (File simulationDir : simulationDirs) {
+            File log = new File(simulationDir, SIMULATION_LOG);
+            if (log.isFile()) {
+                return log;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,61 @@
+package ca.etsmtl.taf.performance.gatling;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ca.etsmtl.taf.performance.gatling.model.GatlingIntervalStats;
+import ca.etsmtl.taf.performance.gatling.utils.GatlingLiveStats;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GatlingLiveStatsTest {
+
+    @Test
+    void testSnapshotComputesIntervalStats() {
+        GatlingLiveStats liveStats = new GatlingLiveStats();
+        liveStats.accept("RUN\tDefaultSimulation\tdefaultsimulation\t1000\t \t3.9.5");
+        liveStats.accept("USER\tscenario\tSTART\t1000");
+        for (int i = 1; i <= 100; i++) {
+            liveStats.accept("REQUEST\t\thome\t1000\t" + (1000 + i) + "\t" + (i % 10 != 0 ? "OK" : "KO") + "\t ");
+        }
+
+        GatlingIntervalStats stats = liveStats.snapshot();
+
+        assertEquals(100, stats.getSamples());
+        assertEquals(10, stats.getErrors());
+        assertEquals(0.1, stats.getErrorRate(), 1e-9);
+        assertEquals(95, stats.getP95ResponseTime());
+        assertEquals(50.5, stats.getMeanResponseTime(), 1e-9);
+    }
+
+    @Test
+    void testSnapshotReadsTheLogWrittenSinceTheLastOne(@TempDir Path runDir) throws IOException {
+        Path simulationDir = Files.createDirectory(runDir.resolve("defaultsimulation-20240101000000000"));
+        Path log = simulationDir.resolve("simulation.log");
+        GatlingLiveStats liveStats = new GatlingLiveStats();
+        liveStats.watch(runDir.toFile());
+
+        // Not created yet by Gatling
+        assertEquals(0, liveStats.snapshot().getSamples());
+
+        Files.writeString(log, "REQUEST\t\thome\t1000\t1010\tOK\t \nREQUEST\t\thome\t1000\t10", StandardCharsets.UTF_8);
+        GatlingIntervalStats first = liveStats.snapshot();
+        assertEquals(1, first.getSamples());
+
+        Files.writeString(log, "20\tKO\tstatus.find.not(500), but actually found 500\n",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        GatlingIntervalStats second = liveStats.snapshot();
+
+        assertEquals(1, second.getSamples());
+        assertEquals(1, second.getErrors());
+        assertEquals(20, second.getP95ResponseTime());
+        assertEquals(2, second.getTotalSamples());
+        assertEquals(1, second.getTotalErrors());
+    }
+}
@@ -0,0 +1,84 @@
+package ca.etsmtl.taf.performance.gatling;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ca.etsmtl.taf.performance.gatling.services.ReportService;
+import ca.etsmtl.taf.performance.metrics.model.PerformanceMetric;
+import ca.etsmtl.taf.performance.metrics.model.PerformanceMetricMeta;
+import ca.etsmtl.taf.performance.metrics.utils.LatencyHistogram;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportServiceTest {
+
+    private static final PerformanceMetricMeta META = PerformanceMetricMeta.builder()
+            .tool(PerformanceMetricMeta.GATLING)
+            .runId("run")
+            .scenario("scenario")
+            .label("request")
+            .build();
+
+    @Test
+    void testMetricsAreReadFromTheSimulationLog(@TempDir Path reportDir) throws IOException {
+        Files.writeString(reportDir.resolve("simulation.log"), String.join("\n",
+                "ASSERTION\tAAEDAAEDAwAAAAAAAECPQA==",
+                "RUN\tDefaultSimulation\tdefaultsimulation\t1000\t \t3.9.5",
+                "USER\tscenario\tSTART\t1000",
+                "USER\tscenario\tSTART\t1000",
+                "REQUEST\t\thome\t1000\t1100\tOK\t ",
+                "REQUEST\t\thome\t1200\t1500\tKO\tstatus.find.is(200), but actually found 500",
+                "USER\tscenario\tEND\t1500",
+                "REQUEST\t\thome\t2100\t2300\tOK\t ",
+                "REQUEST\t\t\t2200\t2210\tOK\t ",
+                "REQUEST\t\thome\tnot-a-number\t2300\tOK\t ",
+                ""), StandardCharsets.UTF_8);
+
+        List<PerformanceMetric> metrics = new ReportService().getReportMetrics(reportDir.toFile(), META);
+
+        assertEquals(3, metrics.size());
+        PerformanceMetric first = metrics.get(0);
+        assertEquals(1000, first.getTimestamp().toEpochMilli());
+        assertEquals("home", first.getMeta().getLabel());
+        assertEquals("scenario", first.getMeta().getScenario());
+        assertEquals(2, first.getSamples());
+        assertEquals(1, first.getErrors());
+        assertEquals(200, first.getMeanMs().doubleValue(), 1e-9);
+        assertEquals(300, first.getMaxMs());
+        assertEquals(2, first.getActiveUsers().intValue());
+
+        PerformanceMetric second = metrics.get(1);
+        assertEquals(2000, second.getTimestamp().toEpochMilli());
+        assertEquals(1, second.getSamples());
+        assertEquals(1, second.getActiveUsers().intValue());
+        // A request without a name keeps the requested one
+        assertEquals("request", metrics.get(2).getMeta().getLabel());
+    }
+
+    @Test
+    void testRunHistogramHoldsTheSuccessfulResponseTimes(@TempDir Path reportDir) throws IOException {
+        Files.writeString(reportDir.resolve("simulation.log"), String.join("\n",
+                "REQUEST\t\thome\t1000\t1010\tOK\t ",
+                "REQUEST\t\thome\t1000\t1020\tOK\t ",
+                "REQUEST\t\thome\t1000\t9000\tKO\ti/o timeout",
+                ""), StandardCharsets.UTF_8);
+
+        LatencyHistogram histogram = new ReportService().aggregateSimulationLog(reportDir.toFile(), META)
+                .getRunHistogram();
+
+        assertEquals(2, histogram.getTotalCount());
+        assertEquals(10, histogram.getMin());
+        assertEquals(20, histogram.getMax());
+    }
+
+    @Test
+    void testMissingSimulationLog(@TempDir Path reportDir) {
+        assertThrows(IOException.class, () -> new ReportService().getReportMetrics(reportDir.toFile(), META));
+    }
+}
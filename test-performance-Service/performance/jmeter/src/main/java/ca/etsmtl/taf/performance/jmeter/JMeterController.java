@@ -1,15 +1,20 @@
 package ca.etsmtl.taf.performance.jmeter;
 import ca.etsmtl.taf.performance.jmeter.model.*;
 import ca.etsmtl.taf.performance.jmeter.repository.JMeterTestsRepository;
+import ca.etsmtl.taf.performance.jmeter.service.JMeterJobService;
+import ca.etsmtl.taf.performance.jmeter.service.JMeterRunExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import ca.etsmtl.taf.performance.jmeter.model.*;
-import ca.etsmtl.taf.performance.jmeter.utils.JMeterRunner;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -18,9 +23,13 @@ public class JMeterController {
 
   @Autowired private JMeterTestsRepository jMeterTestsRepository;
 
+  @Autowired private JMeterRunExecutor jMeterRunExecutor;
+
+  @Autowired private JMeterJobService jMeterJobService;
+
   private ResponseEntity<JMeterResponse> executeTestPlan(TestPlanBase testPlan) {
 
-    JMeterResponse jMeterResponse = new JMeterResponse("", "", null, null);
+    JMeterResponse jMeterResponse = new JMeterResponse("", "", null, null, null, null);
 
     /*
     Save test request and test results to MongoDB
@@ -42,7 +51,7 @@ public class JMeterController {
 
 
     try {
-      jMeterResponse = JMeterRunner.executeTestPlanAndGenerateReport(testPlan);
+      jMeterResponse = jMeterRunExecutor.execute(testPlan);
       jMeterResponse.setStatus("success");
       jMeterResponse.setMessage("Test plan executed successfully"); 
       return ResponseEntity.ok().body(jMeterResponse);
@@ -57,8 +66,16 @@ public class JMeterController {
     }
   }
 
-  @PostMapping("/http")
-  public ResponseEntity<JMeterResponse> getHttpTestPlan(@RequestBody HttpTestPlan jmeterTestPlan) {
+  private ResponseEntity<JMeterJob> submitTestPlan(TestPlanBase testPlan) {
+    try {
+      return ResponseEntity.status(HttpStatus.ACCEPTED).body(jMeterJobService.submit(testPlan));
+    } catch (JMeterRunnerException e) {
+      JMeterJob job = JMeterJob.builder().state(JobState.FAILED).message(e.getMessage()).build();
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(job);
+    }
+  }
+
+  private void applyHttpDefaults(HttpTestPlan jmeterTestPlan) {
     if (jmeterTestPlan.getProtocol() == null) {
       jmeterTestPlan.setProtocol("http");
     }
@@ -72,6 +89,11 @@ public class JMeterController {
     if (jmeterTestPlan.getData() == null) {
       jmeterTestPlan.setData("");
     }
+  }
+
+  @PostMapping("/http")
+  public ResponseEntity<JMeterResponse> getHttpTestPlan(@RequestBody HttpTestPlan jmeterTestPlan) {
+    applyHttpDefaults(jmeterTestPlan);
     return executeTestPlan(jmeterTestPlan);
   }
 
@@ -79,4 +101,29 @@ public class JMeterController {
   public ResponseEntity<JMeterResponse> getFtpTestplan(@RequestBody FTPTestPlan ftpTestPlan) {
     return executeTestPlan(ftpTestPlan);
   }
+
+  @PostMapping("/jobs/http")
+  public ResponseEntity<JMeterJob> submitHttpTestPlan(@RequestBody HttpTestPlan jmeterTestPlan) {
+    applyHttpDefaults(jmeterTestPlan);
+    return submitTestPlan(jmeterTestPlan);
+  }
+
+  @PostMapping("/jobs/ftp")
+  public ResponseEntity<JMeterJob> submitFtpTestPlan(@RequestBody FTPTestPlan ftpTestPlan) {
+    return submitTestPlan(ftpTestPlan);
+  }
+
+  @GetMapping("/jobs/{id}")
+  public ResponseEntity<JMeterJob> getJob(@PathVariable String id) {
+    return jMeterJobService.getJob(id)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
+  @GetMapping(value = "/jobs/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public ResponseEntity<SseEmitter> streamJob(@PathVariable String id) {
+    return jMeterJobService.subscribe(id)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+  }
 }
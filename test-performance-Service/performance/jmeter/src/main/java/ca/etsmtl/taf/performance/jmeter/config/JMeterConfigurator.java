@@ -58,7 +58,7 @@ public class JMeterConfigurator implements WebMvcConfigurer {
             "user.properties");
 
     private static final List<String> JMETER_TEMPLATES_FILES = List.of("FTPSamplerTemplate.jmx",
-            "HTTPSamplerTemplate.jmx");
+            "HttpSamplerTemplate.jmx");
 
     @Autowired
     ResourceLoader resourceLoader;
@@ -110,7 +110,7 @@ public class JMeterConfigurator implements WebMvcConfigurer {
      * @return The absolute path path
      */
     public static String getHTTPSamplerTemplate() {
-        return new File(JMETER_TEMPLATES_FOLDER, "HTTPSamplerTemplate.jmx").getAbsolutePath();
+        return new File(JMETER_TEMPLATES_FOLDER, "HttpSamplerTemplate.jmx").getAbsolutePath();
     }
 
     /**
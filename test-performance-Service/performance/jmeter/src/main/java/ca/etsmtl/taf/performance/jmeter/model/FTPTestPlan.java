@@ -18,10 +18,8 @@ public class FTPTestPlan extends TestPlanBase {
   private String password;
 
   @Override
-  public void generateTestPlan() {
-    replaceAndSaveVariables(new File(JMeterConfigurator.getJmeterTemplatesFolder(),"FTPSamplerTemplate.jmx").getAbsolutePath(),
-    new File(JMeterConfigurator.getJmeterTemplatesFolder(),"TestPlan.jmx").getAbsolutePath(),
-            "FTPSamplerTemplate");
+  public void generateTestPlan(File target) {
+    replaceAndSaveVariables(JMeterConfigurator.getFTPSamplerTemplate(), target, "FTPSamplerTemplate");
   }
 
   @Override
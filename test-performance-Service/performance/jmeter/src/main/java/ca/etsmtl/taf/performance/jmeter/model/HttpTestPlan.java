@@ -25,8 +25,8 @@ public class HttpTestPlan extends TestPlanBase {
   private String data;
 
 
-  public void generateTestPlan() {
-    replaceAndSaveVariables();
+  public void generateTestPlan(File target) {
+    replaceAndSaveVariables(target);
   }
 
   @Override
@@ -34,18 +34,17 @@ public class HttpTestPlan extends TestPlanBase {
     return null;
   }
 
-  private void replaceAndSaveVariables() {
+  private void replaceAndSaveVariables(File target) {
     try {
       // Read the XML content from the file
       String filePath = JMeterConfigurator.getHTTPSamplerTemplate();
       String xmlContent = Files.readString(Paths.get(filePath));
-      String target = new File(JMeterConfigurator.getJmeterTemplatesFolder(), "TestPlan.jmx").getAbsolutePath();
 
       // Replace variables with Java variables (using default values if not found)
       xmlContent = replaceVariables(xmlContent);
 
       // Save the modified content back to the file
-      Files.writeString(Paths.get(target), xmlContent);
+      Files.writeString(target.toPath(), xmlContent);
 
     } catch (IOException e) {
       e.printStackTrace();
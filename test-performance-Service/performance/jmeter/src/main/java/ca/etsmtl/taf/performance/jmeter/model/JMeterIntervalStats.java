@@ -0,0 +1,28 @@
+package ca.etsmtl.taf.performance.jmeter.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Statistics of the samples received during one interval of a running JMeter
+ * job, along with the totals since the beginning of the job.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JMeterIntervalStats {
+
+    private long timestamp;
+    private long intervalMs;
+    private long samples;
+    private long errors;
+    private double throughput;
+    private double errorRate;
+    private double meanResponseTime;
+    private long p95ResponseTime;
+    private long totalSamples;
+    private long totalErrors;
+}
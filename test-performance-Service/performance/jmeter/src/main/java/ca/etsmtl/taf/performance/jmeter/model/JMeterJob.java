@@ -0,0 +1,32 @@
+package ca.etsmtl.taf.performance.jmeter.model;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * State of a JMeter test plan submitted through the job API. The job ID is the
+ * run ID of the workspace the plan runs in.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JMeterJob {
+
+    private String id;
+    private JobState state;
+    private String message;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long totalSamples;
+    // Only known when the plan runs a fixed number of loops
+    private Long expectedSamples;
+    private Integer progress;
+    private JMeterIntervalStats latestStats;
+    private JMeterResponse result;
+}
@@ -5,6 +5,8 @@ import java.util.Map;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import ca.etsmtl.taf.performance.metrics.model.RegressionReport;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -20,4 +22,7 @@ public class JMeterResponse {
     private String message;
     private Map<String, Object> summary;
     private JMeterResponseDetails details;
+    @JsonProperty("run-id")
+    private String runId;
+    private RegressionReport regression;
 }
\ No newline at end of file
@@ -6,8 +6,11 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
+
 @Document(collection = "jmeter_tests")
 @Data
 @NoArgsConstructor
@@ -18,5 +21,13 @@ public class JMeterTestDocument {
     private ObjectId id;
 
     private TestPlanBase testRequest;
-    // TODO: test results
+
+    // Only set for plans submitted through the job API
+    @Indexed(sparse = true)
+    private String runId;
+    private JobState state;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private JMeterResponse testResult;
 }
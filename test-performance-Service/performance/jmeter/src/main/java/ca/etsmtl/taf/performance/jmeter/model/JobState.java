@@ -0,0 +1,11 @@
+package ca.etsmtl.taf.performance.jmeter.model;
+
+/**
+ * Lifecycle of a JMeter job submitted through the job API.
+ */
+public enum JobState {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -23,13 +24,18 @@ public abstract class TestPlanBase {
     protected String method;
     protected String loop;
 
-    public abstract void generateTestPlan();
+    /**
+     * Generate the JMX test plan from the template of the concrete plan type.
+     *
+     * @param target The JMX file to write, owned by a single run
+     */
+    public abstract void generateTestPlan(File target);
 
-    protected void replaceAndSaveVariables(String filePath, String target, String templateKey) {
+    protected void replaceAndSaveVariables(String filePath, File target, String templateKey) {
         try {
             String xmlContent = Files.readString(Paths.get(filePath));
             xmlContent = replaceVariables(xmlContent, templateKey);
-            Files.writeString(Paths.get(target), xmlContent);
+            Files.writeString(target.toPath(), xmlContent);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -4,6 +4,9 @@ import ca.etsmtl.taf.performance.jmeter.model.JMeterTestDocument;
 import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.Optional;
+
 public interface JMeterTestsRepository extends MongoRepository<JMeterTestDocument, ObjectId> {
-}
 
+    Optional<JMeterTestDocument> findFirstByRunId(String runId);
+}
@@ -0,0 +1,291 @@
+package ca.etsmtl.taf.performance.jmeter.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import ca.etsmtl.taf.performance.jmeter.JMeterRunnerException;
+import ca.etsmtl.taf.performance.jmeter.model.JMeterIntervalStats;
+import ca.etsmtl.taf.performance.jmeter.model.JMeterJob;
+import ca.etsmtl.taf.performance.jmeter.model.JMeterResponse;
+import ca.etsmtl.taf.performance.jmeter.model.JMeterTestDocument;
+import ca.etsmtl.taf.performance.jmeter.model.JobState;
+import ca.etsmtl.taf.performance.jmeter.model.TestPlanBase;
+import ca.etsmtl.taf.performance.jmeter.repository.JMeterTestsRepository;
+import ca.etsmtl.taf.performance.jmeter.utils.JMeterLiveStats;
+import ca.etsmtl.taf.performance.jmeter.utils.JMeterRunWorkspace;
+import ca.etsmtl.taf.performance.jmeter.utils.JMeterRunner;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs JMeter test plans as background jobs. Submitting a plan returns at once
+ * with the job, whose state can then be polled or followed through server-sent
+ * events carrying the statistics of every interval. Finished jobs are saved in
+ * the {@code jmeter_tests} collection and kept in memory for
+ * {@code taf.performance.jobs.retention-minutes}.
+ *
+ * @version 1.0
+ */
+@Service
+public class JMeterJobService {
+
+  private static final Logger logger = LoggerFactory.getLogger(JMeterJobService.class);
+
+  private final JMeterRunExecutor runExecutor;
+  private final JMeterTestsRepository testsRepository;
+  private final JMeterMetricsRecorder metricsRecorder;
+  private final Duration retention;
+  private final long emitterTimeoutMs;
+
+  private final Map<String, TrackedJob> jobs = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(
+      runnable -> new Thread(runnable, "jmeter-jobs-ticker"));
+
+  public JMeterJobService(JMeterRunExecutor runExecutor, JMeterTestsRepository testsRepository,
+      JMeterMetricsRecorder metricsRecorder,
+      @Value("${taf.performance.jobs.stats-interval-seconds:5}") long statsIntervalSeconds,
+      @Value("${taf.performance.jobs.retention-minutes:60}") long retentionMinutes,
+      @Value("${taf.performance.jobs.sse-timeout-ms:3600000}") long emitterTimeoutMs) {
+    this.runExecutor = runExecutor;
+    this.testsRepository = testsRepository;
+    this.metricsRecorder = metricsRecorder;
+    this.retention = Duration.ofMinutes(retentionMinutes);
+    this.emitterTimeoutMs = emitterTimeoutMs;
+    ticker.scheduleAtFixedRate(this::tick, statsIntervalSeconds, statsIntervalSeconds, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Queue a test plan and return without waiting for it to run.
+   *
+   * @param testPlan The test plan to run
+   * @return The queued job
+   * @throws JMeterRunnerException If the run folder cannot be created or too
+   *                               many runs are already queued
+   */
+  public JMeterJob submit(TestPlanBase testPlan) throws JMeterRunnerException {
+    JMeterRunWorkspace workspace = JMeterRunWorkspace.create();
+    JMeterJob job = JMeterJob.builder()
+        .id(workspace.getRunId())
+        .state(JobState.QUEUED)
+        .submittedAt(Instant.now())
+        .expectedSamples(expectedSamples(testPlan))
+        .build();
+    TrackedJob tracked = new TrackedJob(job, testPlan, new JMeterLiveStats());
+    jobs.put(job.getId(), tracked);
+
+    try {
+      runExecutor.submit(() -> run(tracked, workspace));
+    } catch (JMeterRunnerException e) {
+      jobs.remove(job.getId());
+      throw e;
+    }
+    logger.info("JMeter job {} queued", job.getId());
+    return job;
+  }
+
+  /**
+   * Get a job, either from the jobs in memory or from the saved test documents.
+   *
+   * @param id The job ID
+   * @return The job, if it exists
+   */
+  public Optional<JMeterJob> getJob(String id) {
+    TrackedJob tracked = jobs.get(id);
+    if (tracked != null) {
+      return Optional.of(tracked.job);
+    }
+    return testsRepository.findFirstByRunId(id).map(this::toJob);
+  }
+
+  /**
+   * Follow a job through server-sent events. A {@code state} event is sent
+   * whenever the state changes and a {@code stats} event at every interval
+   * while the job runs. The stream completes when the job is over.
+   *
+   * @param id The job ID
+   * @return The emitter, if the job exists
+   */
+  public Optional<SseEmitter> subscribe(String id) {
+    Optional<JMeterJob> job = getJob(id);
+    if (job.isEmpty()) {
+      return Optional.empty();
+    }
+
+    SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+    TrackedJob tracked = jobs.get(id);
+    if (tracked == null || isFinished(tracked.job.getState())) {
+      send(emitter, "state", job.get());
+      emitter.complete();
+      return Optional.of(emitter);
+    }
+
+    tracked.emitters.add(emitter);
+    emitter.onCompletion(() -> tracked.emitters.remove(emitter));
+    emitter.onTimeout(() -> tracked.emitters.remove(emitter));
+    emitter.onError(e -> tracked.emitters.remove(emitter));
+    send(emitter, "state", tracked.job);
+    if (isFinished(tracked.job.getState()) && tracked.emitters.remove(emitter)) {
+      // The job ended while subscribing, after the final events were published
+      emitter.complete();
+    }
+    return Optional.of(emitter);
+  }
+
+  private JMeterResponse run(TrackedJob tracked, JMeterRunWorkspace workspace) {
+    JMeterJob job = tracked.job;
+    job.setState(JobState.RUNNING);
+    job.setStartedAt(Instant.now());
+    publish(tracked, "state", job);
+
+    JMeterResponse response = null;
+    JobState state;
+    try {
+      response = JMeterRunner.executeTestPlanAndGenerateReport(tracked.testPlan, workspace, tracked.liveStats);
+      response.setRegression(metricsRecorder.record(workspace, tracked.testPlan));
+      response.setStatus("success");
+      response.setMessage("Test plan executed successfully");
+      state = JobState.SUCCEEDED;
+      job.setMessage(response.getMessage());
+    } catch (JMeterRunnerException | RuntimeException e) {
+      logger.error("JMeter job {} failed", job.getId(), e);
+      state = JobState.FAILED;
+      job.setMessage(e.getMessage());
+    }
+
+    job.setResult(response);
+    updateStats(tracked, tracked.liveStats.snapshot());
+    // finishedAt must be set before the state, the ticker evicts finished jobs by age
+    job.setFinishedAt(Instant.now());
+    job.setState(state);
+    save(tracked);
+
+    publish(tracked, "stats", job.getLatestStats());
+    publish(tracked, "state", job);
+    tracked.emitters.forEach(SseEmitter::complete);
+    tracked.emitters.clear();
+    return response;
+  }
+
+  private void tick() {
+    Instant expiry = Instant.now().minus(retention);
+    jobs.values().removeIf(tracked -> isFinished(tracked.job.getState())
+        && tracked.job.getFinishedAt().isBefore(expiry));
+
+    for (TrackedJob tracked : jobs.values()) {
+      if (tracked.job.getState() == JobState.RUNNING) {
+        updateStats(tracked, tracked.liveStats.snapshot());
+        publish(tracked, "stats", tracked.job.getLatestStats());
+      }
+    }
+  }
+
+  private void updateStats(TrackedJob tracked, JMeterIntervalStats stats) {
+    JMeterJob job = tracked.job;
+    job.setLatestStats(stats);
+    job.setTotalSamples(stats.getTotalSamples());
+    if (job.getExpectedSamples() != null && job.getExpectedSamples() > 0) {
+      job.setProgress((int) Math.min(100, stats.getTotalSamples() * 100 / job.getExpectedSamples()));
+    }
+  }
+
+  private void save(TrackedJob tracked) {
+    JMeterJob job = tracked.job;
+    JMeterTestDocument testDocument = JMeterTestDocument.builder()
+        .testRequest(tracked.testPlan)
+        .runId(job.getId())
+        .state(job.getState())
+        .submittedAt(job.getSubmittedAt())
+        .startedAt(job.getStartedAt())
+        .finishedAt(job.getFinishedAt())
+        .testResult(job.getResult())
+        .build();
+    try {
+      testsRepository.save(testDocument);
+    } catch (Exception e) {
+      logger.error("Mongo error: ", e);
+    }
+  }
+
+  private JMeterJob toJob(JMeterTestDocument testDocument) {
+    JMeterResponse result = testDocument.getTestResult();
+    return JMeterJob.builder()
+        .id(testDocument.getRunId())
+        .state(testDocument.getState())
+        .message(result == null ? null : result.getMessage())
+        .submittedAt(testDocument.getSubmittedAt())
+        .startedAt(testDocument.getStartedAt())
+        .finishedAt(testDocument.getFinishedAt())
+        .result(result)
+        .build();
+  }
+
+  private void publish(TrackedJob tracked, String eventName, Object data) {
+    for (SseEmitter emitter : tracked.emitters) {
+      if (!send(emitter, eventName, data)) {
+        tracked.emitters.remove(emitter);
+      }
+    }
+  }
+
+  private boolean send(SseEmitter emitter, String eventName, Object data) {
+    try {
+      emitter.send(SseEmitter.event().name(eventName).data(data));
+      return true;
+    } catch (IOException | IllegalStateException e) {
+      // The client went away, nothing to do
+      logger.debug("Unable to send {} event", eventName, e);
+      return false;
+    }
+  }
+
+  private static boolean isFinished(JobState state) {
+    return state == JobState.SUCCEEDED || state == JobState.FAILED;
+  }
+
+  /**
+   * The templates contain a single sampler, so a plan with a fixed loop count
+   * sends one sample per thread and per loop.
+   */
+  private static Long expectedSamples(TestPlanBase testPlan) {
+    try {
+      long threads = Long.parseLong(testPlan.getNbThreads().trim());
+      long loops = Long.parseLong(testPlan.getLoop().trim());
+      return loops > 0 ? threads * loops : null;
+    } catch (NumberFormatException | NullPointerException e) {
+      return null;
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    ticker.shutdownNow();
+  }
+
+  private static class TrackedJob {
+
+    private final JMeterJob job;
+    private final TestPlanBase testPlan;
+    private final JMeterLiveStats liveStats;
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    private TrackedJob(JMeterJob job, TestPlanBase testPlan, JMeterLiveStats liveStats) {
+      this.job = job;
+      this.testPlan = testPlan;
+      this.liveStats = liveStats;
+    }
+  }
+}
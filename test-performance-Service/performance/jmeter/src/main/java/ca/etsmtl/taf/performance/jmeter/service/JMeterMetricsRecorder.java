@@ -0,0 +1,134 @@
+package ca.etsmtl.taf.performance.jmeter.service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import ca.etsmtl.taf.performance.jmeter.model.FTPTestPlan;
+import ca.etsmtl.taf.performance.jmeter.model.HttpTestPlan;
+import ca.etsmtl.taf.performance.jmeter.model.TestPlanBase;
+import ca.etsmtl.taf.performance.jmeter.utils.JMeterRunWorkspace;
+import ca.etsmtl.taf.performance.metrics.model.BaselineKey;
+import ca.etsmtl.taf.performance.metrics.model.PerformanceMetricMeta;
+import ca.etsmtl.taf.performance.metrics.model.RegressionReport;
+import ca.etsmtl.taf.performance.metrics.service.PerformanceMetricsService;
+import ca.etsmtl.taf.performance.metrics.service.RegressionDetector;
+import ca.etsmtl.taf.performance.metrics.utils.PerformanceMetricAggregator;
+
+/**
+ * Reads the results CSV of a finished run, one line at a time, saves its
+ * metrics per label and per interval of
+ * {@code taf.performance.metrics.interval-seconds} in the time-series
+ * collection, and compares its response times with the previous runs of the
+ * same request and load.
+ *
+ * @version 1.0
+ */
+@Component
+public class JMeterMetricsRecorder {
+
+  private static final Logger logger = LoggerFactory.getLogger(JMeterMetricsRecorder.class);
+
+  private final PerformanceMetricsService metricsService;
+  private final RegressionDetector regressionDetector;
+  private final int intervalSeconds;
+
+  public JMeterMetricsRecorder(PerformanceMetricsService metricsService, RegressionDetector regressionDetector,
+      @Value("${taf.performance.metrics.interval-seconds:5}") int intervalSeconds) {
+    this.metricsService = metricsService;
+    this.regressionDetector = regressionDetector;
+    this.intervalSeconds = intervalSeconds;
+  }
+
+  /**
+   * Save the metrics of a run and compare it with its baseline. The run is
+   * over by then, so a results file that cannot be read is logged and skipped.
+   *
+   * @param workspace The workspace of the finished run
+   * @param testPlan  The test plan of the run
+   * @return The comparison with the baseline, or null if it could not be made
+   */
+  public RegressionReport record(JMeterRunWorkspace workspace, TestPlanBase testPlan) {
+    PerformanceMetricAggregator aggregator;
+    try {
+      aggregator = aggregate(workspace.getResultsFile(), workspace.getRunId());
+    } catch (IOException | CsvValidationException e) {
+      logger.error("Unable to read the results of run {} for its metrics", workspace.getRunId(), e);
+      return null;
+    }
+    metricsService.record(aggregator.toMetrics());
+    return regressionDetector.check(baselineKey(testPlan), PerformanceMetricMeta.JMETER, workspace.getRunId(),
+        aggregator.getRunHistogram());
+  }
+
+  /**
+   * JMeter plans have no scenario name, their load profile stands for it: runs
+   * sending another load are not comparable.
+   */
+  static BaselineKey baselineKey(TestPlanBase testPlan) {
+    String scenario = String.format("%s threads, %ss ramp-up, %s loops, %ss", testPlan.getNbThreads(),
+        testPlan.getRampTime(), testPlan.getLoop(), testPlan.getDuration());
+    String port = testPlan.getPort() == null || testPlan.getPort().isBlank() ? "" : ":" + testPlan.getPort().trim();
+    if (testPlan instanceof FTPTestPlan ftpTestPlan) {
+      return new BaselineKey("ftp://" + testPlan.getDomain() + port, ftpTestPlan.getRemoteFile(),
+          testPlan.getMethod(), scenario);
+    }
+    String protocol = testPlan instanceof HttpTestPlan httpTestPlan ? httpTestPlan.getProtocol() : null;
+    String path = testPlan instanceof HttpTestPlan httpTestPlan ? httpTestPlan.getPath() : null;
+    return new BaselineKey((protocol == null ? "http" : protocol) + "://" + testPlan.getDomain() + port, path,
+        testPlan.getMethod(), scenario);
+  }
+
+  private PerformanceMetricAggregator aggregate(File resultsFile, String runId)
+      throws IOException, CsvValidationException {
+    PerformanceMetricAggregator aggregator = new PerformanceMetricAggregator(PerformanceMetricMeta.JMETER, runId,
+        null, intervalSeconds);
+    try (BufferedReader reader = Files.newBufferedReader(resultsFile.toPath(), StandardCharsets.UTF_8);
+        CSVReader csvReader = new CSVReader(reader)) {
+      String[] header = csvReader.readNext();
+      if (header == null) {
+        return aggregator;
+      }
+      List<String> columns = Arrays.asList(header);
+      int timeStamp = columns.indexOf("timeStamp");
+      int elapsed = columns.indexOf("elapsed");
+      int label = columns.indexOf("label");
+      int success = columns.indexOf("success");
+      int allThreads = columns.indexOf("allThreads");
+      if (timeStamp < 0 || elapsed < 0) {
+        throw new IOException("Missing timeStamp or elapsed column in " + resultsFile);
+      }
+
+      String[] line;
+      while ((line = csvReader.readNext()) != null) {
+        if (line.length < header.length) {
+          continue;
+        }
+        aggregator.accept(parseLong(line[timeStamp]), label < 0 ? "" : line[label], parseLong(line[elapsed]),
+            success < 0 || Boolean.parseBoolean(line[success]),
+            allThreads < 0 ? -1 : (int) parseLong(line[allThreads]));
+      }
+    }
+    return aggregator;
+  }
+
+  private static long parseLong(String value) {
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+}
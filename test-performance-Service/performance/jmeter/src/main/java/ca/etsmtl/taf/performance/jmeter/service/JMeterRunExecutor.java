@@ -0,0 +1,127 @@
+package ca.etsmtl.taf.performance.jmeter.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import ca.etsmtl.taf.performance.jmeter.JMeterRunnerException;
+import ca.etsmtl.taf.performance.jmeter.model.JMeterResponse;
+import ca.etsmtl.taf.performance.jmeter.model.TestPlanBase;
+import ca.etsmtl.taf.performance.jmeter.utils.JMeterRunWorkspace;
+import ca.etsmtl.taf.performance.jmeter.utils.JMeterRunner;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Queue running JMeter test plans one at a time, each one in its own
+ * {@link JMeterRunWorkspace}. The JMeter engine keeps global state (result
+ * files, thread and sample counters), so two plans cannot run side by side in
+ * the same JVM. Plans submitted while a run is in progress wait in a queue of
+ * {@code taf.performance.jmeter.max-queued-runs} entries, and are rejected once
+ * the queue is full.
+ *
+ * @version 1.0
+ */
+@Component
+public class JMeterRunExecutor {
+
+  private static final Logger logger = LoggerFactory.getLogger(JMeterRunExecutor.class);
+
+  private final ThreadPoolExecutor executor;
+  private final JMeterMetricsRecorder metricsRecorder;
+
+  public JMeterRunExecutor(JMeterMetricsRecorder metricsRecorder,
+      @Value("${taf.performance.jmeter.max-queued-runs:10}") int maxQueuedRuns) {
+    this.metricsRecorder = metricsRecorder;
+    this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(maxQueuedRuns), runnable -> new Thread(runnable, "jmeter-run"));
+    logger.info("JMeter runs limited to {} queued", maxQueuedRuns);
+  }
+
+  /**
+   * Queue a test plan for execution in a new workspace.
+   *
+   * @param testPlan The test plan to run
+   * @return The result of the run, available once the run is over
+   * @throws JMeterRunnerException If the run folder cannot be created or the
+   *                               queue is full
+   */
+  public Future<JMeterResponse> submit(TestPlanBase testPlan) throws JMeterRunnerException {
+    return submit(testPlan, JMeterRunWorkspace.create());
+  }
+
+  /**
+   * Queue a test plan for execution in the given workspace. Once the run
+   * succeeds, its metrics are saved and it is compared with its baseline by
+   * the {@link JMeterMetricsRecorder}.
+   *
+   * @param testPlan  The test plan to run
+   * @param workspace The files owned by this run
+   * @return The result of the run, available once the run is over
+   * @throws JMeterRunnerException If the queue is full
+   */
+  public Future<JMeterResponse> submit(TestPlanBase testPlan, JMeterRunWorkspace workspace)
+      throws JMeterRunnerException {
+    return submit(() -> {
+      JMeterResponse response = JMeterRunner.executeTestPlanAndGenerateReport(testPlan, workspace);
+      response.setRegression(metricsRecorder.record(workspace, testPlan));
+      return response;
+    });
+  }
+
+  /**
+   * Queue a task running a test plan, for callers that need to wrap the run
+   * with their own bookkeeping.
+   *
+   * @param task The task, expected to run a single test plan
+   * @return The result of the task
+   * @throws JMeterRunnerException If the queue is full
+   */
+  public <T> Future<T> submit(Callable<T> task) throws JMeterRunnerException {
+    try {
+      return executor.submit(task);
+    } catch (RejectedExecutionException e) {
+      throw new JMeterRunnerException("Too many JMeter runs in progress, try again later", e);
+    }
+  }
+
+  /**
+   * Run a test plan and wait for its result.
+   *
+   * @param testPlan The test plan to run
+   * @return The result of the run
+   * @throws JMeterRunnerException If the run fails or cannot be queued
+   */
+  public JMeterResponse execute(TestPlanBase testPlan) throws JMeterRunnerException {
+    Future<JMeterResponse> future = submit(testPlan);
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      throw new JMeterRunnerException("Interrupted while waiting for the JMeter run", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof JMeterRunnerException runnerException) {
+        throw runnerException;
+      }
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new JMeterRunnerException(cause.getMessage(), cause);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
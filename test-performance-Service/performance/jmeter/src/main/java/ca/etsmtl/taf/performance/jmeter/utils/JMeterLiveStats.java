@@ -0,0 +1,77 @@
+package ca.etsmtl.taf.performance.jmeter.utils;
+
+import java.util.Arrays;
+
+import ca.etsmtl.taf.performance.jmeter.model.JMeterIntervalStats;
+
+/**
+ * Accumulates the samples of a running test plan between two snapshots.
+ * Samples are recorded by the JMeter threads while snapshots are taken by the
+ * job service, so every access is synchronized.
+ *
+ * @version 1.0
+ */
+public class JMeterLiveStats {
+
+  private long intervalStart = System.currentTimeMillis();
+  private long[] intervalElapsed = new long[1024];
+  private int intervalSamples;
+  private long intervalErrors;
+  private long totalSamples;
+  private long totalErrors;
+
+  /**
+   * Record one sample.
+   *
+   * @param elapsed The response time of the sample in milliseconds
+   * @param success Whether the sample succeeded
+   */
+  public synchronized void record(long elapsed, boolean success) {
+    if (intervalSamples == intervalElapsed.length) {
+      intervalElapsed = Arrays.copyOf(intervalElapsed, intervalSamples * 2);
+    }
+    intervalElapsed[intervalSamples++] = elapsed;
+    totalSamples++;
+    if (!success) {
+      intervalErrors++;
+      totalErrors++;
+    }
+  }
+
+  public synchronized long getTotalSamples() {
+    return totalSamples;
+  }
+
+  /**
+   * Close the current interval and start a new one.
+   *
+   * @return The statistics of the interval that was closed
+   */
+  public synchronized JMeterIntervalStats snapshot() {
+    long now = System.currentTimeMillis();
+    long intervalMs = Math.max(1, now - intervalStart);
+
+    long[] elapsed = Arrays.copyOf(intervalElapsed, intervalSamples);
+    Arrays.sort(elapsed);
+    double mean = elapsed.length == 0 ? 0 : Arrays.stream(elapsed).average().orElse(0);
+    long p95 = elapsed.length == 0 ? 0 : elapsed[(int) Math.ceil(elapsed.length * 0.95) - 1];
+
+    JMeterIntervalStats stats = JMeterIntervalStats.builder()
+        .timestamp(now)
+        .intervalMs(intervalMs)
+        .samples(intervalSamples)
+        .errors(intervalErrors)
+        .throughput(intervalSamples * 1000.0 / intervalMs)
+        .errorRate(intervalSamples == 0 ? 0 : (double) intervalErrors / intervalSamples)
+        .meanResponseTime(mean)
+        .p95ResponseTime(p95)
+        .totalSamples(totalSamples)
+        .totalErrors(totalErrors)
+        .build();
+
+    intervalStart = now;
+    intervalSamples = 0;
+    intervalErrors = 0;
+    return stats;
+  }
+}
@@ -0,0 +1,89 @@
+package ca.etsmtl.taf.performance.jmeter.utils;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.UUID;
+
+import ca.etsmtl.taf.performance.jmeter.JMeterRunnerException;
+import ca.etsmtl.taf.performance.jmeter.config.JMeterConfigurator;
+import lombok.Getter;
+
+/**
+ * Files owned by a single JMeter run. Each run gets its own folder under the
+ * JMeter results folder holding its test plan, its results CSV and its HTML
+ * dashboard, so runs never write to the same files.
+ *
+ * The folder lives under the results folder so the dashboard is served by the
+ * resource handler registered in {@link JMeterConfigurator}.
+ *
+ * @version 1.0
+ */
+@Getter
+public class JMeterRunWorkspace {
+
+  private final String runId;
+  private final File folder;
+  private final File testPlanFile;
+  private final File resultsFile;
+  private final File dashboardFolder;
+
+  private JMeterRunWorkspace(String runId, File folder) {
+    this.runId = runId;
+    this.folder = folder;
+    this.testPlanFile = new File(folder, "TestPlan.jmx");
+    this.resultsFile = new File(folder, "results.csv");
+    this.dashboardFolder = new File(folder, "dashboard");
+  }
+
+  /**
+   * Create the workspace of a new run. The run ID starts with a timestamp so the
+   * folders are still listed in chronological order.
+   *
+   * @return The workspace, with its folder created
+   * @throws JMeterRunnerException If the run folder cannot be created
+   */
+  public static JMeterRunWorkspace create() throws JMeterRunnerException {
+    return create(new File(JMeterConfigurator.getJmeterResultsFolder()));
+  }
+
+  /**
+   * Create the workspace of a new run under the given folder.
+   *
+   * @param resultsFolder The folder holding the run folders
+   * @return The workspace, with its folder created
+   * @throws JMeterRunnerException If the run folder cannot be created
+   */
+  public static JMeterRunWorkspace create(File resultsFolder) throws JMeterRunnerException {
+    String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+    String runId = timestamp + "_" + UUID.randomUUID().toString().substring(0, 8);
+    return create(resultsFolder, runId);
+  }
+
+  /**
+   * Create the workspace of a run whose ID was assigned by the caller.
+   *
+   * @param runId The run ID, used as the folder name
+   * @return The workspace, with its folder created
+   * @throws JMeterRunnerException If the run folder cannot be created
+   */
+  public static JMeterRunWorkspace create(String runId) throws JMeterRunnerException {
+    return create(new File(JMeterConfigurator.getJmeterResultsFolder()), runId);
+  }
+
+  /**
+   * Create the workspace of a run under the given folder.
+   *
+   * @param resultsFolder The folder holding the run folders
+   * @param runId         The run ID, used as the folder name
+   * @return The workspace, with its folder created
+   * @throws JMeterRunnerException If the run folder cannot be created
+   */
+  public static JMeterRunWorkspace create(File resultsFolder, String runId) throws JMeterRunnerException {
+    File folder = new File(resultsFolder, runId);
+    if (!folder.mkdirs() && !folder.isDirectory()) {
+      throw new JMeterRunnerException("Unable to create the run folder " + folder.getAbsolutePath());
+    }
+    return new JMeterRunWorkspace(runId, folder);
+  }
+}
@@ -2,8 +2,6 @@ package ca.etsmtl.taf.performance.jmeter.utils;
 
 import java.io.File;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
@@ -43,23 +41,59 @@ import ca.etsmtl.taf.performance.jmeter.model.TestPlanBase;
 public class JMeterRunner {
 
   private static final Logger logger = LoggerFactory.getLogger(JMeterRunner.class);
+  private static final Object REPORT_LOCK = new Object();
+  private static final Object ENGINE_LOCK = new Object();
+
+  private static volatile boolean jmeterInitialized = false;
 
   private JMeterRunner() {
     throw new IllegalStateException("Utility class");
   }
 
   public static JMeterResponse executeTestPlanAndGenerateReport(TestPlanBase testPlan) throws JMeterRunnerException {
+    return executeTestPlanAndGenerateReport(testPlan, JMeterRunWorkspace.create());
+  }
+
+  /**
+   * Run a test plan in its own workspace and generate its HTML dashboard. The
+   * JMeter engine runs one plan at a time in this JVM: a caller starting a run
+   * while another one is in progress waits for it to end.
+   *
+   * @param testPlan  The test plan to run
+   * @param workspace The files owned by this run
+   * @return The response containing the run ID, the statistics and the dashboard
+   *         location
+   * @throws JMeterRunnerException If the test or the report generation fails
+   */
+  public static JMeterResponse executeTestPlanAndGenerateReport(TestPlanBase testPlan, JMeterRunWorkspace workspace)
+      throws JMeterRunnerException {
+    return executeTestPlanAndGenerateReport(testPlan, workspace, null);
+  }
 
-    JMeterResponse jMeterResponse = new JMeterResponse("", "", null, null);
+  /**
+   * Run a test plan in its own workspace and generate its HTML dashboard,
+   * recording every sample in the given live statistics as the run progresses.
+   *
+   * @param testPlan  The test plan to run
+   * @param workspace The files owned by this run
+   * @param liveStats The live statistics of the run, or null
+   * @return The response containing the run ID, the statistics and the dashboard
+   *         location
+   * @throws JMeterRunnerException If the test or the report generation fails
+   */
+  public static JMeterResponse executeTestPlanAndGenerateReport(TestPlanBase testPlan, JMeterRunWorkspace workspace,
+      JMeterLiveStats liveStats) throws JMeterRunnerException {
+
+    JMeterResponse jMeterResponse = new JMeterResponse("", "", null, null, workspace.getRunId(), null);
     JMeterResponseDetails jMeterResponseDetails = new JMeterResponseDetails(null, null);
     jMeterResponse.setDetails(jMeterResponseDetails);
     try {
-      File resultsFile = getResultsFile();
-      testPlan.generateTestPlan();
+      logger.info("Results of run {} will be logged in {}", workspace.getRunId(), workspace.getResultsFile().toPath());
+      testPlan.generateTestPlan(workspace.getTestPlanFile());
 
       initializeJMeter();
 
-      String dashboardLocation = runTests(resultsFile);
+      String dashboardLocation = runTests(workspace, liveStats);
 
       populateResponse(jMeterResponse, jMeterResponseDetails, dashboardLocation);
 
@@ -95,23 +129,16 @@ public class JMeterRunner {
     }
   }
 
-  private static File getTestPlan() {
-    File jmxFilePath = new File(JMeterConfigurator.getJmeterTemplatesFolder(), "TestPlan.jmx");
-    logger.info("Using Test Plan {}", jmxFilePath);
-
-    return jmxFilePath;
-  }
-
-  private static File getResultsFile() {
-
-    String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-    File resultsFile = new File(JMeterConfigurator.getJmeterResultsFolder(), timestamp + ".csv");
-    logger.info("Results will be logged in {}", resultsFile.toPath());
-
-    return resultsFile;
-  }
+  /**
+   * Load the JMeter properties once per JVM. The properties are global to
+   * JMeter, reloading them for every run would reset them under the runs
+   * already in progress.
+   */
+  private static synchronized void initializeJMeter() throws JMeterRunnerException {
 
-  private static void initializeJMeter() throws JMeterRunnerException {
+    if (jmeterInitialized) {
+      return;
+    }
 
     JMeterUtils
         .loadJMeterProperties(new File(JMeterConfigurator.getJmeterBinFolder(), "jmeter.properties").getAbsolutePath());
@@ -127,16 +154,20 @@ public class JMeterRunner {
       throw new JMeterRunnerException(e.getMessage(), e);
     }
 
+    jmeterInitialized = true;
   }
 
   @SuppressWarnings("java:S2139")
-  private static String runTests(File resultsFile) throws JMeterRunnerException {
+  private static String runTests(JMeterRunWorkspace workspace, JMeterLiveStats liveStats)
+      throws JMeterRunnerException {
 
     try {
       // Used to wait for the tests to finish
       CountDownLatch latch = new CountDownLatch(1);
 
-      HashTree tree = SaveService.loadTree(getTestPlan());
+      File testPlanFile = workspace.getTestPlanFile();
+      logger.info("Using Test Plan {}", testPlanFile);
+      HashTree tree = SaveService.loadTree(testPlanFile);
 
       JMeterTreeModel treeModel = new JMeterTreeModel();
       JMeterTreeNode root = (JMeterTreeNode) treeModel.getRoot();
@@ -145,33 +176,25 @@ public class JMeterRunner {
       Summariser summeriser = null;
       String summariserName = JMeterUtils.getPropDefault("summariser.name", "");
       if (!summariserName.isEmpty()) {
-        logger.info("Creating summariser <{}>", summariserName);
-        summeriser = new Summariser(summariserName);
+        // Summarisers sharing a name share their totals, keep one per run
+        String runSummariserName = summariserName + "-" + workspace.getRunId();
+        logger.info("Creating summariser <{}>", runSummariserName);
+        summeriser = new Summariser(runSummariserName);
       }
 
-      ResultCollector collector = new ResultCollector(summeriser);
-      collector.setFilename(resultsFile.getAbsolutePath());
+      ResultCollector collector = liveStats == null ? new ResultCollector(summeriser)
+          : new LiveStatsCollector(summeriser, liveStats);
+      collector.setFilename(workspace.getResultsFile().getAbsolutePath());
       tree.add(tree.getArray()[0], collector);
 
-      logger.debug("Created JMeter tree successfully using {}", getTestPlan().getName());
+      logger.debug("Created JMeter tree successfully using {}", testPlanFile.getName());
 
-      JMeterEngine engine = new StandardJMeterEngine();
       tree.add(tree.getArray()[0], new TestListener(latch));
-
-      engine.configure(tree);
-
-      engine.runTest();
-
-      // Wait for the tests to finish
-      latch.await();
+      runEngine(tree, latch);
 
       // Generate HTML dashboard report in dashboardDir folder
-      String dashboardDir = new File(JMeterConfigurator.getJmeterResultsFolder(),
-          "dashboard_" + getResultsFile().getName().replace(".csv", "")).getAbsolutePath();
-      JMeterUtils.setProperty("jmeter.reportgenerator.exporter.html.property.output_dir", dashboardDir);
-      JMeterUtils.setProperty("jmeter.reportgenerator.exporter.json.property.output_dir", dashboardDir);
-      ReportGenerator generator = new ReportGenerator(resultsFile.getAbsolutePath(), null);
-      generator.generate();
+      String dashboardDir = workspace.getDashboardFolder().getAbsolutePath();
+      generateReport(workspace.getResultsFile(), dashboardDir);
 
       logger.info("JMeter tests completed successfully");
 
@@ -186,6 +209,40 @@ public class JMeterRunner {
     }
   }
 
+  /**
+   * The result collectors only flush and close their files once the last test
+   * running in the JVM ends, and the thread and sample counters of
+   * {@code JMeterContextService} are global, so two engines running side by side
+   * truncate each other's results. Runs therefore never overlap.
+   */
+  private static void runEngine(HashTree tree, CountDownLatch latch)
+      throws JMeterEngineException, InterruptedException {
+    synchronized (ENGINE_LOCK) {
+      JMeterEngine engine = new StandardJMeterEngine();
+      engine.configure(tree);
+
+      engine.runTest();
+
+      // Wait for the tests to finish
+      latch.await();
+    }
+  }
+
+  /**
+   * The report generator reads its output folder from the global JMeter
+   * properties when it is created, so setting the folder and generating the
+   * report must not interleave between runs.
+   */
+  private static void generateReport(File resultsFile, String dashboardDir)
+      throws ConfigurationException, GenerationException {
+    synchronized (REPORT_LOCK) {
+      JMeterUtils.setProperty("jmeter.reportgenerator.exporter.html.property.output_dir", dashboardDir);
+      JMeterUtils.setProperty("jmeter.reportgenerator.exporter.json.property.output_dir", dashboardDir);
+      ReportGenerator generator = new ReportGenerator(resultsFile.getAbsolutePath(), null);
+      generator.generate();
+    }
+  }
+
   private static class TestListener implements TestStateListener {
 
     private final CountDownLatch latch;
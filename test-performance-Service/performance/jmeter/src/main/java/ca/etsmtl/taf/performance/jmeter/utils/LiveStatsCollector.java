@@ -0,0 +1,31 @@
+package ca.etsmtl.taf.performance.jmeter.utils;
+
+import org.apache.jmeter.reporters.ResultCollector;
+import org.apache.jmeter.reporters.Summariser;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+
+/**
+ * Result collector that also feeds the samples to the live statistics of the
+ * run. Like its parent it is shared by all the JMeter threads of the run.
+ *
+ * @version 1.0
+ */
+public class LiveStatsCollector extends ResultCollector {
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient JMeterLiveStats liveStats;
+
+  public LiveStatsCollector(Summariser summariser, JMeterLiveStats liveStats) {
+    super(summariser);
+    this.liveStats = liveStats;
+  }
+
+  @Override
+  public void sampleOccurred(SampleEvent event) {
+    super.sampleOccurred(event);
+    SampleResult result = event.getResult();
+    liveStats.record(result.getTime(), result.isSuccessful());
+  }
+}
@@ -0,0 +1,42 @@
+package ca.etsmtl.taf.performance.jmeter;
+
+import org.junit.jupiter.api.Test;
+
+import ca.etsmtl.taf.performance.jmeter.model.JMeterIntervalStats;
+import ca.etsmtl.taf.performance.jmeter.utils.JMeterLiveStats;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JMeterLiveStatsTest {
+
+    @Test
+    void testSnapshotComputesIntervalStats() {
+        JMeterLiveStats liveStats = new JMeterLiveStats();
+        for (int i = 1; i <= 100; i++) {
+            liveStats.record(i, i % 10 != 0);
+        }
+
+        JMeterIntervalStats stats = liveStats.snapshot();
+
+        assertEquals(100, stats.getSamples());
+        assertEquals(10, stats.getErrors());
+        assertEquals(0.1, stats.getErrorRate(), 1e-9);
+        assertEquals(95, stats.getP95ResponseTime());
+        assertEquals(50.5, stats.getMeanResponseTime(), 1e-9);
+    }
+
+    @Test
+    void testSnapshotStartsNewInterval() {
+        JMeterLiveStats liveStats = new JMeterLiveStats();
+        liveStats.record(10, false);
+        liveStats.snapshot();
+        liveStats.record(20, true);
+
+        JMeterIntervalStats stats = liveStats.snapshot();
+
+        assertEquals(1, stats.getSamples());
+        assertEquals(0, stats.getErrors());
+        assertEquals(2, stats.getTotalSamples());
+        assertEquals(1, stats.getTotalErrors());
+    }
+}
@@ -0,0 +1,36 @@
+package ca.etsmtl.taf.performance.jmeter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ca.etsmtl.taf.performance.jmeter.utils.JMeterRunWorkspace;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JMeterRunWorkspaceTest {
+
+    @TempDir
+    File resultsFolder;
+
+    @Test
+    void testEachRunHasItsOwnFiles() throws JMeterRunnerException {
+        JMeterRunWorkspace first = JMeterRunWorkspace.create(resultsFolder);
+        JMeterRunWorkspace second = JMeterRunWorkspace.create(resultsFolder);
+
+        assertNotEquals(first.getRunId(), second.getRunId(), "Run IDs should be unique");
+        assertNotEquals(first.getTestPlanFile(), second.getTestPlanFile(), "Test plans should not be shared");
+        assertNotEquals(first.getResultsFile(), second.getResultsFile(), "Results files should not be shared");
+        assertNotEquals(first.getDashboardFolder(), second.getDashboardFolder(), "Dashboards should not be shared");
+    }
+
+    @Test
+    void testWorkspaceIsUnderResultsFolder() throws JMeterRunnerException {
+        JMeterRunWorkspace workspace = JMeterRunWorkspace.create(resultsFolder);
+
+        assertTrue(workspace.getFolder().isDirectory(), "Run folder should be created");
+        assertEquals(resultsFolder, workspace.getFolder().getParentFile(),
+                "Run folder should be served with the other dashboards");
+    }
+}
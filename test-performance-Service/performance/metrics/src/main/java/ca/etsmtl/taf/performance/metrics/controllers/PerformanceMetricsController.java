@@ -0,0 +1,51 @@
+package ca.etsmtl.taf.performance.metrics.controllers;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import ca.etsmtl.taf.performance.metrics.model.PerformanceMetricMeta;
+import ca.etsmtl.taf.performance.metrics.model.PerformanceMetricSeries;
+import ca.etsmtl.taf.performance.metrics.service.PerformanceMetricsService;
+
+@RestController
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RequestMapping("/api/performance/metrics")
+public class PerformanceMetricsController {
+
+    private static final Duration DEFAULT_RANGE = Duration.ofDays(30);
+
+    @Autowired
+    private PerformanceMetricsService metricsService;
+
+    /**
+     * Downsampled metrics of the matching series. Without a range, a run is read
+     * from its beginning and the other queries cover the last 30 days.
+     */
+    @GetMapping
+    public ResponseEntity<PerformanceMetricSeries> getMetrics(
+            @RequestParam(required = false) String tool,
+            @RequestParam(required = false) String runId,
+            @RequestParam(required = false) String scenario,
+            @RequestParam(required = false) String label,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) Long step) {
+        Instant end = to == null ? Instant.now() : to;
+        Instant start = from != null ? from : runId != null ? Instant.EPOCH : end.minus(DEFAULT_RANGE);
+        try {
+            return ResponseEntity.ok(metricsService.query(new PerformanceMetricMeta(tool, runId, scenario, label),
+                    start, end, step));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
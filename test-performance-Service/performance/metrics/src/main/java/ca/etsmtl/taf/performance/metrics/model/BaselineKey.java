@@ -0,0 +1,32 @@
+package ca.etsmtl.taf.performance.metrics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * What a run is compared against: the runs sending the same request with the
+ * same scenario.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BaselineKey {
+
+    private String baseUrl;
+    private String uri;
+    private String method;
+    private String scenario;
+
+    /** The ID of the baseline document */
+    public String toId() {
+        return String.join("|", normalize(baseUrl), normalize(uri), normalize(method).toUpperCase(),
+                normalize(scenario));
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim();
+    }
+}
@@ -0,0 +1,23 @@
+package ca.etsmtl.taf.performance.metrics.model;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BaselineRun {
+
+    private String tool;
+    private String runId;
+    private Instant recordedAt;
+    private long samples;
+    private long p95Ms;
+    private List<HistogramBucket> histogram;
+}
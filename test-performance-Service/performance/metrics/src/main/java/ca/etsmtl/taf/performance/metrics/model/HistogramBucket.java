@@ -0,0 +1,18 @@
+package ca.etsmtl.taf.performance.metrics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The count of response times up to {@code value} milliseconds, above the
+ * previous bucket.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistogramBucket {
+
+    private long value;
+    private long count;
+}
@@ -0,0 +1,33 @@
+package ca.etsmtl.taf.performance.metrics.model;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The latency histograms of the last runs of a {@link BaselineKey}, oldest
+ * first. The list is capped when a run is pushed, so the document size does
+ * not grow with the history.
+ */
+@Document(collection = "performance_baselines")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PerformanceBaseline {
+
+    @Id
+    private String id;
+    private BaselineKey key;
+    private Instant updatedAt;
+    private List<BaselineRun> runs;
+    /** The regressed runs since the last run admitted to the baseline */
+    private List<BaselineRun> regressedRuns;
+}
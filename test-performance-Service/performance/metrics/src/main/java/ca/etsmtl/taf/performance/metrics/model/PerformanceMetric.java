@@ -0,0 +1,42 @@
+package ca.etsmtl.taf.performance.metrics.model;
+
+import java.time.Instant;
+
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Metrics of one label of a run over one interval, stored in the
+ * {@code performance_metrics} time-series collection. Mongo groups the points
+ * sharing the same {@link PerformanceMetricMeta} in compressed buckets, so a
+ * series costs a few bytes per interval.
+ */
+@Document(collection = PerformanceMetric.COLLECTION)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PerformanceMetric {
+
+    public static final String COLLECTION = "performance_metrics";
+
+    /** Start of the interval */
+    private Instant timestamp;
+    private PerformanceMetricMeta meta;
+    private long intervalMs;
+    private long samples;
+    private long errors;
+    private double rps;
+    /** Null when the runner only reports percentiles */
+    private Double meanMs;
+    private long p50Ms;
+    private long p95Ms;
+    private long p99Ms;
+    private long maxMs;
+    /** Null when the runner does not report its active users */
+    private Integer activeUsers;
+}
@@ -0,0 +1,33 @@
+package ca.etsmtl.taf.performance.metrics.model;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The points of the selected series falling in one step of a downsampled
+ * query. Counts are summed and the mean is weighted by the samples, while the
+ * percentiles are the highest of the merged intervals: percentiles cannot be
+ * merged exactly, so the bucket reports an upper bound.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PerformanceMetricBucket {
+
+    private Instant timestamp;
+    private long samples;
+    private long errors;
+    private double rps;
+    private double errorRate;
+    private Double meanMs;
+    private long p50Ms;
+    private long p95Ms;
+    private long p99Ms;
+    private long maxMs;
+    private Integer activeUsers;
+}
@@ -0,0 +1,27 @@
+package ca.etsmtl.taf.performance.metrics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Identifies a series of the {@code performance_metrics} collection. It is the
+ * metaField of the collection and must not change during a run.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PerformanceMetricMeta {
+
+    public static final String JMETER = "jmeter";
+    public static final String GATLING = "gatling";
+
+    private String tool;
+    private String runId;
+    /** The Gatling scenario, null for JMeter */
+    private String scenario;
+    /** The sampler or request name */
+    private String label;
+}
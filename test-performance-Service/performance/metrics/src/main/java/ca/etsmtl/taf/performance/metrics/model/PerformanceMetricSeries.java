@@ -0,0 +1,21 @@
+package ca.etsmtl.taf.performance.metrics.model;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PerformanceMetricSeries {
+
+    private Instant from;
+    private Instant to;
+    private long stepSeconds;
+    private List<PerformanceMetricBucket> points;
+}
@@ -0,0 +1,29 @@
+package ca.etsmtl.taf.performance.metrics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The comparison of a run with the baseline of its {@link BaselineKey}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegressionReport {
+
+    private RegressionVerdict verdict;
+    private String message;
+    private BaselineKey key;
+    private int baselineRuns;
+    private long samples;
+    private long baselineSamples;
+    private long p95Ms;
+    private long baselineP95Ms;
+    private double p95ChangePercent;
+    /** Probability that a response time of the run exceeds one of the baseline */
+    private double probabilityGreater;
+    private double pValue;
+}
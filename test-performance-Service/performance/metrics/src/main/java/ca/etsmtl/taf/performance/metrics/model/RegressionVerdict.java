@@ -0,0 +1,8 @@
+package ca.etsmtl.taf.performance.metrics.model;
+
+public enum RegressionVerdict {
+    /** Not enough previous runs to compare with */
+    NO_BASELINE,
+    PASSED,
+    REGRESSED
+}
@@ -0,0 +1,242 @@
+package ca.etsmtl.taf.performance.metrics.service;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.project;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.Fields;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.TimeSeriesOptions;
+
+import ca.etsmtl.taf.performance.metrics.model.PerformanceMetric;
+import ca.etsmtl.taf.performance.metrics.model.PerformanceMetricBucket;
+import ca.etsmtl.taf.performance.metrics.model.PerformanceMetricMeta;
+import ca.etsmtl.taf.performance.metrics.model.PerformanceMetricSeries;
+
+/**
+ * Stores the per-interval metrics of the JMeter and Gatling runs in the
+ * {@code performance_metrics} time-series collection, and reads them back
+ * downsampled so a chart never receives more than
+ * {@code taf.performance.metrics.max-points} points, whatever the range.
+ * Points older than {@code taf.performance.metrics.retention-days} are removed
+ * by Mongo.
+ */
+@Service
+public class PerformanceMetricsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PerformanceMetricsService.class);
+
+    /** « Collection already exists », when another node created it first */
+    private static final int NAMESPACE_EXISTS = 48;
+
+    private final MongoTemplate mongoTemplate;
+    private final long retentionDays;
+    private final int maxPoints;
+
+    private volatile boolean collectionReady;
+
+    public PerformanceMetricsService(MongoTemplate mongoTemplate,
+            @Value("${taf.performance.metrics.retention-days:400}") long retentionDays,
+            @Value("${taf.performance.metrics.max-points:1000}") int maxPoints) {
+        this.mongoTemplate = mongoTemplate;
+        this.retentionDays = retentionDays;
+        this.maxPoints = Math.max(1, maxPoints);
+    }
+
+    /**
+     * Save the metrics of a run. A failure is logged and ignored, the metrics
+     * must not fail the run they describe.
+     *
+     * @param metrics The points of the run
+     */
+    public void record(Collection<PerformanceMetric> metrics) {
+        if (metrics.isEmpty()) {
+            return;
+        }
+        try {
+            ensureCollection();
+            mongoTemplate.insert(metrics, PerformanceMetric.class);
+            logger.debug("{} performance metrics saved", metrics.size());
+        } catch (RuntimeException e) {
+            logger.error("Unable to save {} performance metrics", metrics.size(), e);
+        }
+    }
+
+    /**
+     * Read the series matching the filter between two instants, merged into
+     * steps of {@code stepSeconds}. The step is widened when it would return
+     * more than {@code taf.performance.metrics.max-points} points.
+     *
+     * @param filter      The tool, run, scenario and label to keep, null fields
+     *                    match any value
+     * @param from        The start of the range, inclusive
+     * @param to          The end of the range, exclusive
+     * @param stepSeconds The requested step, or null for the smallest allowed
+     * @return The downsampled points, in chronological order
+     */
+    public PerformanceMetricSeries query(PerformanceMetricMeta filter, Instant from, Instant to, Long stepSeconds) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        long rangeSeconds = Math.max(1, Duration.between(from, to).toSeconds());
+        long step = Math.max(stepSeconds == null ? 1 : stepSeconds, (rangeSeconds + maxPoints - 1) / maxPoints);
+
+        Criteria criteria = Criteria.where("timestamp").gte(Date.from(from)).lt(Date.from(to));
+        if (filter.getTool() != null) {
+            criteria.and("meta.tool").is(filter.getTool());
+        }
+        if (filter.getRunId() != null) {
+            criteria.and("meta.runId").is(filter.getRunId());
+        }
+        if (filter.getScenario() != null) {
+            criteria.and("meta.scenario").is(filter.getScenario());
+        }
+        if (filter.getLabel() != null) {
+            criteria.and("meta.label").is(filter.getLabel());
+        }
+
+        List<Document> rows = mongoTemplate.aggregate(downsample(criteria, step), PerformanceMetric.COLLECTION,
+                Document.class).getMappedResults();
+        return PerformanceMetricSeries.builder()
+                .from(from)
+                .to(to)
+                .stepSeconds(step)
+                .points(rows.stream().map(PerformanceMetricsService::toBucket).toList())
+                .build();
+    }
+
+    /**
+     * The point has a mean. Gatling points have none and the field is then
+     * missing, which {@code $ne: null} would count as present.
+     */
+    private static final AggregationExpression HAS_MEAN = context -> new Document("$gt",
+            Arrays.asList("$meanMs", null));
+
+    /**
+     * The points are first merged per series, whose throughput is its samples
+     * over the time it covers in the step, then the series are merged.
+     */
+    static Aggregation downsample(Criteria criteria, long stepSeconds) {
+        return newAggregation(
+                match(criteria),
+                project("meta", "intervalMs", "samples", "errors", "p50Ms", "p95Ms", "p99Ms", "maxMs", "activeUsers")
+                        .and(DateOperators.DateTrunc.truncateValueOf("timestamp").to("second")
+                                .binSize(Math.toIntExact(stepSeconds))).as("bucket")
+                        .and(ArithmeticOperators.Multiply.valueOf("meanMs").multiplyBy("samples")).as("meanSum")
+                        .and(ConditionalOperators.when(HAS_MEAN).thenValueOf("samples").otherwise(0))
+                        .as("meanSamples"),
+                group(Fields.fields("bucket", "meta"))
+                        .sum("intervalMs").as("intervalMs")
+                        .sum("samples").as("samples")
+                        .sum("errors").as("errors")
+                        .sum("meanSum").as("meanSum")
+                        .sum("meanSamples").as("meanSamples")
+                        .max("p50Ms").as("p50Ms")
+                        .max("p95Ms").as("p95Ms")
+                        .max("p99Ms").as("p99Ms")
+                        .max("maxMs").as("maxMs")
+                        .max("activeUsers").as("activeUsers"),
+                project("bucket", "samples", "errors", "meanSum", "meanSamples", "p50Ms", "p95Ms", "p99Ms", "maxMs",
+                        "activeUsers")
+                        .and(ArithmeticOperators.Divide.valueOf(ArithmeticOperators.Multiply.valueOf("samples")
+                                .multiplyBy(1000)).divideBy("intervalMs")).as("rps"),
+                group("bucket")
+                        .sum("samples").as("samples")
+                        .sum("errors").as("errors")
+                        .sum("rps").as("rps")
+                        .sum("meanSum").as("meanSum")
+                        .sum("meanSamples").as("meanSamples")
+                        .max("p50Ms").as("p50Ms")
+                        .max("p95Ms").as("p95Ms")
+                        .max("p99Ms").as("p99Ms")
+                        .max("maxMs").as("maxMs")
+                        .max("activeUsers").as("activeUsers"),
+                sort(Sort.Direction.ASC, "_id"));
+    }
+
+    static PerformanceMetricBucket toBucket(Document row) {
+        long samples = longValue(row, "samples");
+        long errors = longValue(row, "errors");
+        long meanSamples = longValue(row, "meanSamples");
+        Number activeUsers = row.get("activeUsers", Number.class);
+        return PerformanceMetricBucket.builder()
+                .timestamp(row.getDate("_id").toInstant())
+                .samples(samples)
+                .errors(errors)
+                .rps(row.get("rps", Number.class) == null ? 0 : row.get("rps", Number.class).doubleValue())
+                .errorRate(samples == 0 ? 0 : (double) errors / samples)
+                .meanMs(meanSamples == 0 ? null : row.get("meanSum", Number.class).doubleValue() / meanSamples)
+                .p50Ms(longValue(row, "p50Ms"))
+                .p95Ms(longValue(row, "p95Ms"))
+                .p99Ms(longValue(row, "p99Ms"))
+                .maxMs(longValue(row, "maxMs"))
+                .activeUsers(activeUsers == null ? null : activeUsers.intValue())
+                .build();
+    }
+
+    private static long longValue(Document row, String field) {
+        Number value = row.get(field, Number.class);
+        return value == null ? 0 : value.longValue();
+    }
+
+    /**
+     * Create the time-series collection before the first write, an insert would
+     * otherwise create a regular collection.
+     */
+    private synchronized void ensureCollection() {
+        if (collectionReady) {
+            return;
+        }
+        if (!mongoTemplate.collectionExists(PerformanceMetric.COLLECTION)) {
+            CreateCollectionOptions options = new CreateCollectionOptions()
+                    .timeSeriesOptions(new TimeSeriesOptions("timestamp")
+                            .metaField("meta")
+                            .granularity(TimeSeriesGranularity.SECONDS));
+            if (retentionDays > 0) {
+                options.expireAfter(retentionDays, TimeUnit.DAYS);
+            }
+            try {
+                mongoTemplate.getDb().createCollection(PerformanceMetric.COLLECTION, options);
+                logger.info("Time-series collection {} created", PerformanceMetric.COLLECTION);
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() != NAMESPACE_EXISTS) {
+                    throw e;
+                }
+            }
+        }
+        // Secondary indexes on the metaField, for the queries of a run and of a scenario
+        mongoTemplate.indexOps(PerformanceMetric.COLLECTION).ensureIndex(new Index()
+                .on("meta.runId", Sort.Direction.ASC).on("timestamp", Sort.Direction.ASC));
+        mongoTemplate.indexOps(PerformanceMetric.COLLECTION).ensureIndex(new Index()
+                .on("meta.tool", Sort.Direction.ASC).on("meta.scenario", Sort.Direction.ASC)
+                .on("meta.label", Sort.Direction.ASC).on("timestamp", Sort.Direction.ASC));
+        collectionReady = true;
+    }
+}
@@ -0,0 +1,169 @@
+package ca.etsmtl.taf.performance.metrics.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import ca.etsmtl.taf.performance.metrics.model.BaselineKey;
+import ca.etsmtl.taf.performance.metrics.model.BaselineRun;
+import ca.etsmtl.taf.performance.metrics.model.PerformanceBaseline;
+import ca.etsmtl.taf.performance.metrics.model.RegressionReport;
+import ca.etsmtl.taf.performance.metrics.model.RegressionVerdict;
+import ca.etsmtl.taf.performance.metrics.utils.LatencyHistogram;
+import ca.etsmtl.taf.performance.metrics.utils.MannWhitney;
+
+/**
+ * Compares the response times of a run with those of the last
+ * {@code taf.performance.regression.baseline-runs} runs of the same request
+ * and scenario. A run regresses when a one-sided Mann-Whitney test finds its
+ * response times larger with a p-value under
+ * {@code taf.performance.regression.alpha}, and its p95 grew by at least
+ * {@code taf.performance.regression.min-p95-increase-percent}: on large runs
+ * the test alone flags differences too small to matter.
+ * <p>
+ * A regressed run is not added to the baseline, so a slow creep is not
+ * absorbed run after run. It is kept aside instead: after
+ * {@code taf.performance.regression.accept-after-runs} consecutive regressed
+ * runs, the change is taken as the new normal and they all join the baseline.
+ */
+@Service
+public class RegressionDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegressionDetector.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final int baselineRuns;
+    private final int minBaselineRuns;
+    private final double alpha;
+    private final double minP95IncreasePercent;
+    private final int acceptAfterRuns;
+
+    public RegressionDetector(MongoTemplate mongoTemplate,
+            @Value("${taf.performance.regression.baseline-runs:10}") int baselineRuns,
+            @Value("${taf.performance.regression.min-baseline-runs:3}") int minBaselineRuns,
+            @Value("${taf.performance.regression.alpha:0.01}") double alpha,
+            @Value("${taf.performance.regression.min-p95-increase-percent:10}") double minP95IncreasePercent,
+            @Value("${taf.performance.regression.accept-after-runs:3}") int acceptAfterRuns) {
+        this.mongoTemplate = mongoTemplate;
+        this.baselineRuns = Math.max(1, baselineRuns);
+        this.minBaselineRuns = Math.max(1, Math.min(minBaselineRuns, this.baselineRuns));
+        this.alpha = alpha;
+        this.minP95IncreasePercent = minP95IncreasePercent;
+        this.acceptAfterRuns = Math.max(1, acceptAfterRuns);
+    }
+
+    /**
+     * Compare a run with its baseline, then add it to the baseline unless it
+     * regressed. A failure is logged and ignored, the check must not fail the
+     * run it describes.
+     *
+     * @param key       The request and scenario of the run
+     * @param tool      The tool that ran it
+     * @param runId     The run ID
+     * @param histogram The response times of the successful samples
+     * @return The comparison, or null if it could not be made
+     */
+    public RegressionReport check(BaselineKey key, String tool, String runId, LatencyHistogram histogram) {
+        try {
+            return compareAndRecord(key, tool, runId, histogram);
+        } catch (RuntimeException e) {
+            logger.error("Unable to compare run {} with its baseline", runId, e);
+            return null;
+        }
+    }
+
+    private RegressionReport compareAndRecord(BaselineKey key, String tool, String runId,
+            LatencyHistogram histogram) {
+        RegressionReport.RegressionReportBuilder report = RegressionReport.builder()
+                .key(key)
+                .samples(histogram.getTotalCount())
+                .p95Ms(histogram.getValueAtPercentile(95));
+        if (histogram.getTotalCount() == 0) {
+            return report.verdict(RegressionVerdict.NO_BASELINE)
+                    .message("No successful sample to compare with the baseline")
+                    .build();
+        }
+
+        String id = key.toId();
+        PerformanceBaseline baseline = mongoTemplate.findById(id, PerformanceBaseline.class);
+        List<BaselineRun> runs = baseline == null || baseline.getRuns() == null ? List.of() : baseline.getRuns();
+        LatencyHistogram pooled = new LatencyHistogram();
+        runs.forEach(run -> pooled.add(LatencyHistogram.fromBuckets(run.getHistogram())));
+        report.baselineRuns(runs.size()).baselineSamples(pooled.getTotalCount());
+
+        RegressionVerdict verdict;
+        MannWhitney.Result test = MannWhitney.greater(histogram, pooled);
+        if (runs.size() < minBaselineRuns || test == null) {
+            verdict = RegressionVerdict.NO_BASELINE;
+            report.message(String.format("Baseline has %d of the %d runs needed to compare", runs.size(),
+                    minBaselineRuns));
+        } else {
+            long p95 = histogram.getValueAtPercentile(95);
+            long baselineP95 = pooled.getValueAtPercentile(95);
+            double p95Change = baselineP95 == 0 ? 0 : (p95 - baselineP95) * 100.0 / baselineP95;
+            boolean regressed = test.pValue() < alpha && p95Change >= minP95IncreasePercent;
+            verdict = regressed ? RegressionVerdict.REGRESSED : RegressionVerdict.PASSED;
+            report.baselineP95Ms(baselineP95)
+                    .p95ChangePercent(p95Change)
+                    .probabilityGreater(test.probabilityGreater())
+                    .pValue(test.pValue())
+                    .message(String.format("p95 %d ms vs %d ms over the last %d runs (%+.1f %%, p=%.3g)%s", p95,
+                            baselineP95, runs.size(), p95Change, test.pValue(),
+                            regressed ? ", regression" : ""));
+        }
+        report.verdict(verdict);
+
+        BaselineRun run = BaselineRun.builder()
+                .tool(tool)
+                .runId(runId)
+                .recordedAt(Instant.now())
+                .samples(histogram.getTotalCount())
+                .p95Ms(histogram.getValueAtPercentile(95))
+                .histogram(histogram.toBuckets())
+                .build();
+        List<BaselineRun> regressedRuns = baseline == null || baseline.getRegressedRuns() == null
+                ? List.of()
+                : baseline.getRegressedRuns();
+        Update update = baselineUpdate(key, run, verdict, regressedRuns);
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(id)), update, PerformanceBaseline.class);
+
+        RegressionReport result = report.build();
+        if (verdict == RegressionVerdict.REGRESSED && regressedRuns.size() + 1 >= acceptAfterRuns) {
+            result.setMessage(result.getMessage() + String.format(
+                    ", %d regressed runs in a row, added to the baseline", regressedRuns.size() + 1));
+        }
+        return result;
+    }
+
+    /**
+     * The update adding a run to its baseline, or setting it aside with the
+     * previous regressed runs until there are enough of them in a row.
+     *
+     * @param regressedRuns The regressed runs set aside so far
+     */
+    Update baselineUpdate(BaselineKey key, BaselineRun run, RegressionVerdict verdict,
+            List<BaselineRun> regressedRuns) {
+        Update update = new Update()
+                .set("key", key)
+                .set("updatedAt", Instant.now());
+        if (verdict != RegressionVerdict.REGRESSED) {
+            // a run back to normal ends the streak
+            return update.unset("regressedRuns").push("runs").slice(-baselineRuns).each(run);
+        }
+        if (regressedRuns.size() + 1 < acceptAfterRuns) {
+            return update.push("regressedRuns").slice(-acceptAfterRuns).each(run);
+        }
+        List<BaselineRun> admitted = new ArrayList<>(regressedRuns);
+        admitted.add(run);
+        return update.unset("regressedRuns").push("runs").slice(-baselineRuns).each(admitted.toArray());
+    }
+}
@@ -0,0 +1,145 @@
+package ca.etsmtl.taf.performance.metrics.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ca.etsmtl.taf.performance.metrics.model.HistogramBucket;
+
+/**
+ * Histogram of response times in milliseconds, with log-linear buckets in the
+ * manner of HdrHistogram. Values below 128 ms have their own bucket, above that
+ * every power of two is split in 64 buckets, so a percentile is never off by
+ * more than 1.6 %. Recording is O(1) and the memory used only depends on the
+ * largest value, not on the number of samples.
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 128;
+    private static final int SUB_BUCKETS = 64;
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private long[] counts = new long[LINEAR_BUCKETS];
+    private long totalCount;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private long sum;
+
+    public void record(long value) {
+        record(value, 1);
+    }
+
+    public void record(long value, long count) {
+        if (value < 0 || count <= 0) {
+            return;
+        }
+        int index = bucketIndex(value);
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length + SUB_BUCKETS));
+        }
+        counts[index] += count;
+        totalCount += count;
+        sum += value * count;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public void add(LatencyHistogram other) {
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Rebuild a histogram from its buckets. Every value of a bucket is
+     * recorded as the highest value of the bucket, so the buckets are kept.
+     */
+    public static LatencyHistogram fromBuckets(List<HistogramBucket> buckets) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        if (buckets != null) {
+            buckets.forEach(bucket -> histogram.record(bucket.getValue(), bucket.getCount()));
+        }
+        return histogram;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * @param percentile Between 0 and 100
+     * @return The highest value of the bucket holding the percentile, capped to
+     *         the largest value recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * The non-empty buckets, each one with the highest value it holds.
+     */
+    public List<HistogramBucket> toBuckets() {
+        List<HistogramBucket> buckets = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                buckets.add(new HistogramBucket(Math.min(highestValue(i), max), counts[i]));
+            }
+        }
+        return buckets;
+    }
+
+    int bucketCount() {
+        return counts.length;
+    }
+
+    long countAt(int index) {
+        return index < counts.length ? counts[index] : 0;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (value >> shift) - SUB_BUCKETS;
+    }
+
+    static long highestValue(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long mantissa = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,82 @@
+package ca.etsmtl.taf.performance.metrics.utils;
+
+/**
+ * One-sided Mann-Whitney U test on two latency histograms, testing whether the
+ * response times of a run tend to be larger than those of its baseline. The
+ * values of a histogram bucket are ties, so the ranks are computed bucket by
+ * bucket without expanding the samples, and the variance is corrected for
+ * ties. The p-value uses the normal approximation, which holds for the sample
+ * sizes of a load test.
+ */
+public final class MannWhitney {
+
+    private MannWhitney() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * @param current  The response times of the run
+     * @param baseline The response times of the baseline
+     * @return The test result, or null if one of the histograms is empty
+     */
+    public static Result greater(LatencyHistogram current, LatencyHistogram baseline) {
+        double n1 = current.getTotalCount();
+        double n2 = baseline.getTotalCount();
+        if (n1 == 0 || n2 == 0) {
+            return null;
+        }
+        double n = n1 + n2;
+
+        double rankSum = 0;
+        double tieCorrection = 0;
+        double seen = 0;
+        int buckets = Math.max(current.bucketCount(), baseline.bucketCount());
+        for (int i = 0; i < buckets; i++) {
+            long a = current.countAt(i);
+            long b = baseline.countAt(i);
+            double ties = (double) a + b;
+            if (ties == 0) {
+                continue;
+            }
+            double averageRank = seen + (ties + 1) / 2;
+            rankSum += a * averageRank;
+            tieCorrection += ties * ties * ties - ties;
+            seen += ties;
+        }
+
+        double u = rankSum - n1 * (n1 + 1) / 2;
+        double mean = n1 * n2 / 2;
+        double variance = n1 * n2 / 12 * ((n + 1) - tieCorrection / (n * (n - 1)));
+        double pValue;
+        if (variance <= 0) {
+            // Every value in the same bucket, nothing to tell apart
+            pValue = 1;
+        } else {
+            double z = (u - mean - 0.5) / Math.sqrt(variance);
+            pValue = 0.5 * erfc(z / Math.sqrt(2));
+        }
+        return new Result(u / (n1 * n2), pValue);
+    }
+
+    /**
+     * Complementary error function, with a fractional error below 1.2e-7.
+     */
+    static double erfc(double x) {
+        double z = Math.abs(x);
+        double t = 1 / (1 + 0.5 * z);
+        double r = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? r : 2 - r;
+    }
+
+    /**
+     * @param probabilityGreater The probability that a response time of the run
+     *                           exceeds one of the baseline, 0.5 when they do
+     *                           not differ
+     * @param pValue             The probability of a difference at least this
+     *                           large if the run did not differ from its baseline
+     */
+    public record Result(double probabilityGreater, double pValue) {
+    }
+}
@@ -0,0 +1,95 @@
+package ca.etsmtl.taf.performance.metrics.utils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import ca.etsmtl.taf.performance.metrics.model.PerformanceMetric;
+import ca.etsmtl.taf.performance.metrics.model.PerformanceMetricMeta;
+
+/**
+ * Folds the samples of a run into one {@link PerformanceMetric} per label and
+ * per interval, along with the histogram of the whole run. The memory used
+ * depends on the number of labels and intervals, not on the number of samples.
+ */
+public class PerformanceMetricAggregator {
+
+    private final String tool;
+    private final String runId;
+    private final String scenario;
+    private final long intervalMs;
+    private final TreeMap<Long, Map<String, Interval>> intervals = new TreeMap<>();
+    private final LatencyHistogram runHistogram = new LatencyHistogram();
+
+    public PerformanceMetricAggregator(String tool, String runId, String scenario, int intervalSeconds) {
+        this.tool = tool;
+        this.runId = runId;
+        this.scenario = scenario;
+        this.intervalMs = Math.max(1, intervalSeconds) * 1000L;
+    }
+
+    /**
+     * @param timeStamp   When the sample started, in epoch milliseconds
+     * @param label       The sampler or request name
+     * @param elapsed     The response time in milliseconds
+     * @param success     Whether the sample succeeded
+     * @param activeUsers The users running when the sample ended, or a negative
+     *                    value if unknown
+     */
+    public void accept(long timeStamp, String label, long elapsed, boolean success, int activeUsers) {
+        if (timeStamp < 0) {
+            return;
+        }
+        if (success) {
+            runHistogram.record(elapsed);
+        }
+        long intervalStart = timeStamp - timeStamp % intervalMs;
+        intervals.computeIfAbsent(intervalStart, start -> new LinkedHashMap<>())
+                .computeIfAbsent(label == null ? "" : label, l -> new Interval())
+                .add(elapsed, success, activeUsers);
+    }
+
+    /**
+     * The response times of the successful samples of the whole run.
+     */
+    public LatencyHistogram getRunHistogram() {
+        return runHistogram;
+    }
+
+    public List<PerformanceMetric> toMetrics() {
+        List<PerformanceMetric> metrics = new ArrayList<>();
+        intervals.forEach((start, labels) -> labels.forEach((label, interval) -> metrics.add(PerformanceMetric.builder()
+                .timestamp(Instant.ofEpochMilli(start))
+                .meta(new PerformanceMetricMeta(tool, runId, scenario, label))
+                .intervalMs(intervalMs)
+                .samples(interval.samples)
+                .errors(interval.errors)
+                .rps(interval.samples * 1000.0 / intervalMs)
+                .meanMs(interval.histogram.getMean())
+                .p50Ms(interval.histogram.getValueAtPercentile(50))
+                .p95Ms(interval.histogram.getValueAtPercentile(95))
+                .p99Ms(interval.histogram.getValueAtPercentile(99))
+                .maxMs(interval.histogram.getMax())
+                .activeUsers(interval.activeUsers < 0 ? null : interval.activeUsers)
+                .build())));
+        return metrics;
+    }
+
+    private static class Interval {
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private long samples;
+        private long errors;
+        private int activeUsers = -1;
+
+        private void add(long elapsed, boolean success, int activeUsers) {
+            histogram.record(elapsed);
+            samples++;
+            errors += success ? 0 : 1;
+            this.activeUsers = Math.max(this.activeUsers, activeUsers);
+        }
+    }
+}
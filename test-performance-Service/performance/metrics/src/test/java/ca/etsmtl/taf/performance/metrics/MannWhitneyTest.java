@@ -0,0 +1,57 @@
+package ca.etsmtl.taf.performance.metrics;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ca.etsmtl.taf.performance.metrics.utils.LatencyHistogram;
+import ca.etsmtl.taf.performance.metrics.utils.MannWhitney;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MannWhitneyTest {
+
+    @Test
+    void testSameDistributionIsNotFlagged() {
+        MannWhitney.Result result = MannWhitney.greater(latencies(1, 2000, 1.0), latencies(2, 10000, 1.0));
+
+        assertEquals(0.5, result.probabilityGreater(), 0.03);
+        assertTrue(result.pValue() > 0.01);
+    }
+
+    @Test
+    void testSlowerRunIsFlagged() {
+        MannWhitney.Result result = MannWhitney.greater(latencies(1, 2000, 1.15), latencies(2, 10000, 1.0));
+
+        assertTrue(result.probabilityGreater() > 0.55);
+        assertTrue(result.pValue() < 1e-6);
+    }
+
+    @Test
+    void testFasterRunIsNotFlagged() {
+        MannWhitney.Result result = MannWhitney.greater(latencies(1, 2000, 0.85), latencies(2, 10000, 1.0));
+
+        assertTrue(result.pValue() > 0.99);
+    }
+
+    @Test
+    void testHistogramSurvivesItsBuckets() {
+        LatencyHistogram histogram = latencies(3, 5000, 1.0);
+
+        LatencyHistogram copy = LatencyHistogram.fromBuckets(histogram.toBuckets());
+
+        assertEquals(histogram.getTotalCount(), copy.getTotalCount());
+        assertEquals(histogram.getValueAtPercentile(95), copy.getValueAtPercentile(95));
+        assertEquals(0.5, MannWhitney.greater(copy, histogram).probabilityGreater(), 1e-9);
+    }
+
+    private static LatencyHistogram latencies(long seed, int samples, double factor) {
+        Random random = new Random(seed);
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < samples; i++) {
+            // Log-normal around 200 ms, like most response times
+            histogram.record(Math.round(factor * 200 * Math.exp(0.4 * random.nextGaussian())));
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,48 @@
+package ca.etsmtl.taf.performance.metrics;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ca.etsmtl.taf.performance.metrics.model.PerformanceMetric;
+import ca.etsmtl.taf.performance.metrics.model.PerformanceMetricMeta;
+import ca.etsmtl.taf.performance.metrics.utils.PerformanceMetricAggregator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PerformanceMetricAggregatorTest {
+
+    @Test
+    void testSamplesAreSplitPerIntervalAndLabel() {
+        PerformanceMetricAggregator aggregator = new PerformanceMetricAggregator(PerformanceMetricMeta.JMETER, "run",
+                null, 5);
+        for (int i = 1; i <= 100; i++) {
+            aggregator.accept(10_000 + i, "home", i, i % 10 != 0, 4);
+        }
+        aggregator.accept(15_000, "home", 7, true, 2);
+        aggregator.accept(10_000, "login", 300, false, -1);
+
+        List<PerformanceMetric> metrics = aggregator.toMetrics();
+
+        assertEquals(3, metrics.size());
+        PerformanceMetric home = metrics.get(0);
+        assertEquals("home", home.getMeta().getLabel());
+        assertEquals("run", home.getMeta().getRunId());
+        assertEquals(10_000, home.getTimestamp().toEpochMilli());
+        assertEquals(100, home.getSamples());
+        assertEquals(10, home.getErrors());
+        assertEquals(20.0, home.getRps(), 1e-9);
+        assertEquals(50.5, home.getMeanMs(), 1e-9);
+        assertEquals(95, home.getP95Ms());
+        assertEquals(100, home.getMaxMs());
+        assertEquals(4, home.getActiveUsers());
+
+        PerformanceMetric login = metrics.get(1);
+        assertEquals("login", login.getMeta().getLabel());
+        assertEquals(1, login.getErrors());
+        assertNull(login.getActiveUsers());
+
+        assertEquals(15_000, metrics.get(2).getTimestamp().toEpochMilli());
+        assertEquals(1, metrics.get(2).getSamples());
+    }
+}
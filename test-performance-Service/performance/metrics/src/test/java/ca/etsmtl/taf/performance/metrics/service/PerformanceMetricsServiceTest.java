@@ -0,0 +1,56 @@
+package ca.etsmtl.taf.performance.metrics.service;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import ca.etsmtl.taf.performance.metrics.model.PerformanceMetricBucket;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PerformanceMetricsServiceTest {
+
+    @Test
+    void testOnlyPointsWithAMeanCountInTheMean() {
+        List<Document> pipeline = PerformanceMetricsService.downsample(Criteria.where("meta.runId").is("run"), 10)
+                .toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        Document meanSamples = pipeline.get(1).get("$project", Document.class).get("meanSamples", Document.class);
+        Document cond = meanSamples.get("$cond", Document.class);
+        // A missing meanMs is lower than null, so a Gatling point does not pass
+        assertEquals(new Document("$gt", Arrays.asList("$meanMs", null)), cond.get("if"));
+        assertEquals("$samples", cond.get("then"));
+        assertEquals(0, cond.get("else"));
+    }
+
+    @Test
+    void testBucketMixingPointsWithAndWithoutMean() {
+        // 10 JMeter samples with a mean of 50 ms and 20 Gatling samples without mean
+        Document mixed = new Document("_id", new Date(0))
+                .append("samples", 30L)
+                .append("errors", 3L)
+                .append("rps", 3.0)
+                .append("meanSum", 500.0)
+                .append("meanSamples", 10L)
+                .append("p95Ms", 80L);
+        Document gatlingOnly = new Document("_id", new Date(10_000))
+                .append("samples", 20L)
+                .append("errors", 0L)
+                .append("rps", 2.0)
+                .append("meanSamples", 0L);
+
+        PerformanceMetricBucket mixedBucket = PerformanceMetricsService.toBucket(mixed);
+        PerformanceMetricBucket gatlingBucket = PerformanceMetricsService.toBucket(gatlingOnly);
+
+        assertEquals(50.0, mixedBucket.getMeanMs(), 1e-9);
+        assertEquals(0.1, mixedBucket.getErrorRate(), 1e-9);
+        assertEquals(80, mixedBucket.getP95Ms());
+        assertNull(gatlingBucket.getMeanMs());
+        assertEquals(20, gatlingBucket.getSamples());
+    }
+}
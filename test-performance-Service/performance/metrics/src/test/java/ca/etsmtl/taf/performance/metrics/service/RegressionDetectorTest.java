@@ -0,0 +1,68 @@
+package ca.etsmtl.taf.performance.metrics.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Update;
+
+import ca.etsmtl.taf.performance.metrics.model.BaselineKey;
+import ca.etsmtl.taf.performance.metrics.model.BaselineRun;
+import ca.etsmtl.taf.performance.metrics.model.RegressionVerdict;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RegressionDetectorTest {
+
+    private static final BaselineKey KEY = new BaselineKey("http://localhost", "/", "GET", "scenario");
+
+    private final RegressionDetector detector = new RegressionDetector(null, 10, 3, 0.01, 10, 3);
+
+    private static BaselineRun run(String runId) {
+        return BaselineRun.builder().runId(runId).build();
+    }
+
+    /** The $each and $slice of a $push */
+    private static Map<String, Object> push(Document update, String field) {
+        Map<String, Object> modifiers = new HashMap<>();
+        Update.Modifiers push = (Update.Modifiers) update.get("$push", Document.class).get(field);
+        push.getModifiers().forEach(modifier -> modifiers.put(modifier.getKey(), modifier.getValue()));
+        return modifiers;
+    }
+
+    @Test
+    void testPassedRunJoinsTheBaselineAndEndsTheStreak() {
+        Document update = detector.baselineUpdate(KEY, run("new"), RegressionVerdict.PASSED, List.of(run("slow")))
+                .getUpdateObject();
+
+        Map<String, Object> runs = push(update, "runs");
+        assertEquals(List.of(run("new")), List.of((Object[]) runs.get("$each")));
+        assertEquals(-10, runs.get("$slice"));
+        assertTrue(update.get("$unset", Document.class).containsKey("regressedRuns"));
+    }
+
+    @Test
+    void testRegressedRunIsSetAside() {
+        Document update = detector.baselineUpdate(KEY, run("slow-2"), RegressionVerdict.REGRESSED,
+                List.of(run("slow-1"))).getUpdateObject();
+
+        assertFalse(update.get("$push", Document.class).containsKey("runs"));
+        Map<String, Object> regressedRuns = push(update, "regressedRuns");
+        assertEquals(List.of(run("slow-2")), List.of((Object[]) regressedRuns.get("$each")));
+        assertEquals(-3, regressedRuns.get("$slice"));
+        assertNull(update.get("$unset"));
+    }
+
+    @Test
+    void testConsecutiveRegressedRunsJoinTheBaselineTogether() {
+        Document update = detector.baselineUpdate(KEY, run("slow-3"), RegressionVerdict.REGRESSED,
+                List.of(run("slow-1"), run("slow-2"))).getUpdateObject();
+
+        Map<String, Object> runs = push(update, "runs");
+        assertEquals(List.of(run("slow-1"), run("slow-2"), run("slow-3")), List.of((Object[]) runs.get("$each")));
+        assertEquals(-10, runs.get("$slice"));
+        assertTrue(update.get("$unset", Document.class).containsKey("regressedRuns"));
+    }
+}
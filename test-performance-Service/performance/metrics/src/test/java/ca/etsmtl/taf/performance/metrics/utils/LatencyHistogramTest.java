@@ -0,0 +1,123 @@
+package ca.etsmtl.taf.performance.metrics.utils;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ca.etsmtl.taf.performance.metrics.model.HistogramBucket;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void testValuesBelow128HaveTheirOwnBucket() {
+        for (long value = 0; value < 128; value++) {
+            assertEquals(value, LatencyHistogram.bucketIndex(value));
+            assertEquals(value, LatencyHistogram.highestValue((int) value));
+        }
+        // 128 and 129 share the first log-linear bucket
+        assertEquals(128, LatencyHistogram.bucketIndex(128));
+        assertEquals(128, LatencyHistogram.bucketIndex(129));
+        assertEquals(129, LatencyHistogram.highestValue(128));
+    }
+
+    @Test
+    void testEveryValueFallsInABucketAtMost1Point6PercentWide() {
+        int previousIndex = -1;
+        for (long value = 0; value < 2_000_000; value += value < 1024 ? 1 : 37) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long highest = LatencyHistogram.highestValue(index);
+            long lowest = index == 0 ? 0 : LatencyHistogram.highestValue(index - 1) + 1;
+
+            assertTrue(index >= previousIndex, "buckets should follow the values at " + value);
+            assertTrue(lowest <= value && value <= highest, value + " outside [" + lowest + ", " + highest + "]");
+            assertTrue(highest - lowest <= Math.max(0, highest / 64), "bucket too wide at " + value);
+            previousIndex = index;
+        }
+    }
+
+    @Test
+    void testPercentilesOfExactValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(1, histogram.getValueAtPercentile(0));
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(90, histogram.getValueAtPercentile(90));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getMin());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    void testPercentileIsTheTopOfItsBucketCappedToTheMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(10_000);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1000);
+        }
+
+        long p10 = histogram.getValueAtPercentile(10);
+        assertEquals(LatencyHistogram.highestValue(LatencyHistogram.bucketIndex(1000)), p10);
+        assertTrue(p10 >= 1000 && p10 <= 1000 * 1.016, "p10 " + p10);
+        // The bucket of 10 000 goes higher than the largest value
+        assertEquals(10_000, histogram.getValueAtPercentile(50));
+        assertEquals(10_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void testEmptyHistogramAndNegativeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-1);
+
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertTrue(histogram.toBuckets().isEmpty());
+    }
+
+    @Test
+    void testAddMergesCountsAndBuckets() {
+        LatencyHistogram small = new LatencyHistogram();
+        small.record(5);
+        small.record(5);
+        LatencyHistogram large = new LatencyHistogram();
+        large.record(100_000);
+
+        small.add(large);
+
+        assertEquals(3, small.getTotalCount());
+        assertEquals(5, small.getMin());
+        assertEquals(100_000, small.getMax());
+        List<HistogramBucket> buckets = small.toBuckets();
+        assertEquals(2, buckets.size());
+        assertEquals(5, buckets.get(0).getValue());
+        assertEquals(2, buckets.get(0).getCount());
+        assertEquals(1, buckets.get(1).getCount());
+        assertEquals(100_000, buckets.get(1).getValue());
+    }
+
+    @Test
+    void testRecordWithCountAndFromBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(40, 3);
+        histogram.record(5000, 2);
+        histogram.record(7, 0);
+
+        LatencyHistogram copy = LatencyHistogram.fromBuckets(histogram.toBuckets());
+
+        assertEquals(5, copy.getTotalCount());
+        assertEquals(40, copy.getMin());
+        assertEquals(40, copy.getValueAtPercentile(60));
+        assertEquals(histogram.getValueAtPercentile(100), copy.getValueAtPercentile(100));
+    }
+}